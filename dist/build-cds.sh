@@ -0,0 +1,21 @@
+#!/bin/sh
+# Архив общих классов (AppCDS) build/warehouse.jsa по обучающим прогонам пакетных режимов:
+# списки загруженных классов run, sweep и compare объединяются и выгружаются одним статическим архивом
+set -e
+cd "$(dirname "$0")/.."
+. dist/classpath.sh
+[ -f build/warehouse.jar ] || dist/build.sh
+
+mkdir -p build/cds
+SCENARIO=scenarios/baseline.properties
+java -Xshare:off -XX:DumpLoadedClassList=build/cds/run.lst -cp "$CP" com.warehouse.Main \
+    run --quiet --replications 2 --json build/cds/run.json "$SCENARIO"
+java -Xshare:off -XX:DumpLoadedClassList=build/cds/sweep.lst -cp "$CP" com.warehouse.Main \
+    sweep --vary group.0.devices=1..2 --replications 1 --csv build/cds/sweep.csv "$SCENARIO" 2>/dev/null
+java -Xshare:off -XX:DumpLoadedClassList=build/cds/compare.lst -cp "$CP" com.warehouse.Main \
+    compare --set group.0.devices=3 --replications 2 "$SCENARIO" >/dev/null
+sort -u build/cds/*.lst > build/cds/classes.lst
+
+java -Xshare:dump -XX:SharedClassListFile=build/cds/classes.lst -XX:SharedArchiveFile=build/warehouse.jsa \
+    -cp "$CP" >/dev/null
+echo "build/warehouse.jsa ($(wc -l < build/cds/classes.lst) классов)"
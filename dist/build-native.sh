@@ -0,0 +1,15 @@
+#!/bin/sh
+# Native-образ build/warehouse-native (GraalVM native-image). Параметры сборки - в
+# src/META-INF/native-image/com.warehouse/warehouse/native-image.properties (попадают в jar)
+set -e
+cd "$(dirname "$0")/.."
+. dist/classpath.sh
+[ -f build/warehouse.jar ] || dist/build.sh
+
+NATIVE_IMAGE=${NATIVE_IMAGE:-native-image}
+if ! command -v "$NATIVE_IMAGE" >/dev/null 2>&1; then
+    echo "Не найден native-image (GraalVM); задайте NATIVE_IMAGE=путь" >&2
+    exit 2
+fi
+"$NATIVE_IMAGE" -cp "$CP" -o build/warehouse-native com.warehouse.Main
+echo "build/warehouse-native"
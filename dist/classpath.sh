@@ -0,0 +1,9 @@
+# Общий classpath скриптов dist/: build/warehouse.jar и jar-зависимости из $LIB (по умолчанию lib/).
+# Архив CDS годится только для того же classpath, поэтому он собирается здесь в одном месте.
+LIB=${LIB:-lib}
+if ! ls "$LIB"/*.jar >/dev/null 2>&1; then
+    echo "Нет jar-зависимостей в $LIB (нужен commons-math3); задайте LIB=каталог" >&2
+    exit 2
+fi
+DEPS=$(ls "$LIB"/*.jar | tr '\n' ':' | sed 's/:$//')
+CP="build/warehouse.jar:$DEPS"
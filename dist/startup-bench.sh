@@ -0,0 +1,41 @@
+#!/bin/sh
+# Время запуска короткого пакетного прогона (час модели, одна репликация):
+# JVM без CDS, JVM с архивом JDK по умолчанию, JVM с архивом приложения, native-образ.
+#   dist/startup-bench.sh [число запусков, по умолчанию 20]
+set -e
+cd "$(dirname "$0")/.."
+. dist/classpath.sh
+RUNS=${1:-20}
+ARGS="run --quiet --replications 1 --duration 60 --json /dev/null scenarios/baseline.properties"
+
+bench() {
+    name=$1
+    shift
+    "$@" $ARGS >/dev/null 2>&1 || { printf '%-28s ошибка запуска\n' "$name"; return; }
+    total=0
+    best=
+    i=0
+    while [ $i -lt "$RUNS" ]; do
+        start=$(date +%s%N)
+        "$@" $ARGS >/dev/null 2>&1
+        ms=$(( ($(date +%s%N) - start) / 1000000 ))
+        total=$((total + ms))
+        if [ -z "$best" ] || [ $ms -lt "$best" ]; then best=$ms; fi
+        i=$((i + 1))
+    done
+    printf '%-28s среднее %5d мс, лучшее %5d мс\n' "$name" $((total / RUNS)) "$best"
+}
+
+echo "Запусков: $RUNS"
+bench "JVM, -Xshare:off" java -Xshare:off -cp "$CP" com.warehouse.Main
+bench "JVM (CDS JDK)" java -cp "$CP" com.warehouse.Main
+if [ -f build/warehouse.jsa ]; then
+    bench "JVM + AppCDS" java -XX:SharedArchiveFile=build/warehouse.jsa -cp "$CP" com.warehouse.Main
+else
+    echo "JVM + AppCDS                 нет build/warehouse.jsa (dist/build-cds.sh)"
+fi
+if [ -x build/warehouse-native ]; then
+    bench "native-image" build/warehouse-native
+else
+    echo "native-image                 нет build/warehouse-native (dist/build-native.sh)"
+fi
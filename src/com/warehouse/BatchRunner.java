@@ -0,0 +1,331 @@
+package com.warehouse;
+
+import com.warehouse.enums.VariateMode;
+import com.warehouse.model.StateChangeListener;
+import com.warehouse.parallel.ParallelLaneRunner;
+import com.warehouse.store.ResultStore;
+import com.warehouse.utils.Log;
+import com.warehouse.utils.RequestLedger;
+import com.warehouse.utils.RequestTracer;
+import com.warehouse.utils.ResultCache;
+import com.warehouse.utils.ResultWriter;
+import com.warehouse.utils.RunResult;
+import com.warehouse.utils.Scenario;
+import com.warehouse.utils.Statistics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Неинтерактивный запуск сценариев:
+ *   java com.warehouse.Main run [опции] сценарий.properties...
+ * Во время прогонов консольный вывод модели отключен; результаты пишутся в JSON/CSV,
+ * код завершения отражает выполнение SLA.
+ */
+public class BatchRunner {
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FAILURE = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_SLA_VIOLATION = 3;
+
+    private final List<Path> scenarioFiles = new ArrayList<>();
+    private Path jsonFile;
+    private Path csvFile;
+    private Path outputDir;
+    private Long seedOverride;
+    private Integer replicationsOverride;
+    private Double durationOverride;
+    private boolean parallelLanes;
+    private boolean antithetic;
+    private Path cacheDir;
+    private Path storeDir;
+    private boolean quiet;
+    private Path ledgerDir;
+    private Path traceDir;
+    private String traceSample = "1/100";
+
+    public static int run(String[] args) {
+        BatchRunner runner = new BatchRunner();
+        try {
+            runner.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            printUsage();
+            return EXIT_USAGE;
+        }
+
+        Log.setEnabled(false);
+        try {
+            return runner.execute();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка конфигурации: " + e.getMessage());
+            return EXIT_USAGE;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ошибка выполнения: " + e);
+            return EXIT_FAILURE;
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--json":
+                    jsonFile = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                case "--csv":
+                    csvFile = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                case "--out":
+                    outputDir = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                case "--seed":
+                    seedOverride = Long.parseLong(requireValue(args, ++i, arg));
+                    break;
+                case "--replications":
+                    replicationsOverride = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--duration":
+                    durationOverride = Double.parseDouble(requireValue(args, ++i, arg));
+                    break;
+                case "--parallel-lanes":
+                    parallelLanes = true;
+                    break;
+                case "--antithetic":
+                    antithetic = true;
+                    break;
+                case "--cache":
+                    cacheDir = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                case "--store":
+                    storeDir = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                case "--quiet":
+                    quiet = true;
+                    break;
+                case "--ledger":
+                    ledgerDir = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                case "--trace":
+                    traceDir = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                case "--trace-sample":
+                    traceSample = requireValue(args, ++i, arg);
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("неизвестная опция " + arg);
+                    }
+                    scenarioFiles.add(Paths.get(arg));
+            }
+        }
+        if (scenarioFiles.isEmpty()) {
+            throw new IllegalArgumentException("не указан файл сценария");
+        }
+        if (scenarioFiles.size() > 1 && (jsonFile != null || csvFile != null)) {
+            throw new IllegalArgumentException("для нескольких сценариев используйте --out <каталог>");
+        }
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("опции " + option + " нужно значение");
+        }
+        return args[index];
+    }
+
+    private int execute() throws IOException {
+        if (cacheDir != null) {
+            ResultCache.setShared(ResultCache.open(cacheDir));
+        }
+        if (storeDir != null) {
+            ResultStore.setShared(ResultStore.open(storeDir));
+        }
+        boolean slaViolated = false;
+        for (Path file : scenarioFiles) {
+            Scenario scenario = applyOverrides(Scenario.load(file));
+            List<RunResult> results = ledgerDir != null || traceDir != null
+                    ? runScenarioRecorded(scenario) : runScenario(scenario);
+            List<String> violations = scenario.checkSla(results);
+            writeOutputs(scenario, results, violations);
+
+            if (!violations.isEmpty()) {
+                slaViolated = true;
+            }
+            if (!quiet) {
+                System.err.printf(Locale.ROOT, "%s: replications=%d perishableRejectionRate=%.4f rejectionRate=%.4f sla=%s%n",
+                        scenario.getName(), results.size(),
+                        RunResult.mean(results, RunResult::getPerishableRejectionRate),
+                        RunResult.mean(results, RunResult::getRejectionRate),
+                        violations.isEmpty() ? "OK" : String.join("; ", violations));
+            }
+        }
+        ResultCache cache = ResultCache.shared();
+        if (cache != null && !quiet) {
+            System.err.printf(Locale.ROOT, "cache: hits=%d (memory %d) misses=%d entries=%d bytes=%d%n",
+                    cache.getMemoryHits() + cache.getDiskHits(), cache.getMemoryHits(), cache.getMisses(),
+                    cache.getDiskEntries(), cache.getDiskBytes());
+        }
+        if (ResultStore.shared() != null) {
+            ResultStore.shared().flush();
+        }
+        return slaViolated ? EXIT_SLA_VIOLATION : EXIT_OK;
+    }
+
+    private Scenario applyOverrides(Scenario scenario) {
+        scenario = scenario.withSeedOverrides(seedOverride, replicationsOverride);
+        if (parallelLanes) {
+            scenario = scenario.withOverride("run.parallelLanes", "true");
+        }
+        if (durationOverride != null) {
+            scenario = scenario.withOverride("simulation.duration", durationOverride.toString());
+        }
+        if (antithetic) {
+            scenario = scenario.withOverride("run.antithetic", "true");
+        }
+        return scenario;
+    }
+
+    public static List<RunResult> runScenario(Scenario scenario) {
+        List<RunResult> results = new ArrayList<>();
+        for (long seed : scenario.getSeeds()) {
+            if (scenario.isAntithetic()) {
+                results.add(runReplication(scenario, seed, VariateMode.DIRECT));
+                results.add(runReplication(scenario, seed, VariateMode.ANTITHETIC));
+            } else {
+                results.add(runReplication(scenario, seed));
+            }
+        }
+        return results;
+    }
+
+    // Режимы прогона для одного зерна: обычный или антитетическая пара
+    private static VariateMode[] variateModes(Scenario scenario) {
+        return scenario.isAntithetic()
+                ? new VariateMode[] {VariateMode.DIRECT, VariateMode.ANTITHETIC}
+                : new VariateMode[] {VariateMode.STANDARD};
+    }
+
+    // Прогоны с журналом заявок (<каталог>/<сценарий>-<зерно>.ledger)
+    // и/или трассой выборки заявок (<каталог>/<сценарий>-<зерно>.trace.json)
+    private List<RunResult> runScenarioRecorded(Scenario scenario) throws IOException {
+        if (scenario.isParallelLanes()) {
+            throw new IllegalArgumentException("журнал и трасса заявок не поддерживаются при --parallel-lanes");
+        }
+        if (ledgerDir != null) Files.createDirectories(ledgerDir);
+        if (traceDir != null) Files.createDirectories(traceDir);
+        List<RunResult> results = new ArrayList<>();
+        for (long seed : scenario.getSeeds()) {
+            for (VariateMode mode : variateModes(scenario)) {
+                results.add(runRecorded(scenario, seed, mode));
+            }
+        }
+        return results;
+    }
+
+    private RunResult runRecorded(Scenario scenario, long seed, VariateMode mode) throws IOException {
+        long start = System.nanoTime();
+        Simulation simulation = new Simulation(scenario.getTopology(), seed, mode);
+        RequestLedger ledger = ledgerDir != null ? new RequestLedger() : null;
+        RequestTracer tracer = traceDir != null
+                ? RequestTracer.create(simulation.getDispatcher(), traceSample) : null;
+        simulation.getDispatcher().setStateListener(StateChangeListener.both(ledger, tracer));
+        simulation.run(scenario.getDuration());
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+        String prefix = scenario.getName() + "-" + seed + (mode == VariateMode.ANTITHETIC ? "-anti" : "");
+        if (ledger != null) {
+            ledger.write(ledgerDir.resolve(prefix + ".ledger"));
+        }
+        if (tracer != null) {
+            tracer.write(traceDir.resolve(prefix + ".trace.json"), simulation.getCurrentTime());
+        }
+        RunResult result = new RunResult(seed, mode, scenario.getDuration(), wallMillis, simulation.getStatistics(),
+                scenario.getTopology());
+        // Журнал и трасса не меняют итог, поэтому прогон попадает в хранилище наравне с обычным
+        ResultStore store = ResultStore.shared();
+        if (store != null) {
+            store.append(scenario, result);
+        }
+        return result;
+    }
+
+    public static RunResult runReplication(Scenario scenario, long seed) {
+        return runReplication(scenario, seed, VariateMode.STANDARD);
+    }
+
+    // Через кэш результатов, если он включен (--cache, -Dwarehouse.cache)
+    public static RunResult runReplication(Scenario scenario, long seed, VariateMode mode) {
+        ResultCache cache = ResultCache.shared();
+        return cache != null
+                ? cache.get(scenario, seed, mode, () -> simulate(scenario, seed, mode))
+                : simulate(scenario, seed, mode);
+    }
+
+    // Итог нового прогона добавляется в хранилище, если оно включено (--store, -Dwarehouse.store);
+    // повтор из кэша в хранилище не попадает, иначе прогон учитывался бы дважды
+    private static RunResult simulate(Scenario scenario, long seed, VariateMode mode) {
+        long start = System.nanoTime();
+        Statistics statistics;
+        if (scenario.isParallelLanes()) {
+            statistics = new ParallelLaneRunner(scenario.getTopology(), seed, scenario.getLaneWindow(), mode)
+                    .run(scenario.getDuration());
+        } else {
+            Simulation simulation = new Simulation(scenario.getTopology(), seed, mode);
+            simulation.run(scenario.getDuration());
+            statistics = simulation.getStatistics();
+        }
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+        RunResult result = new RunResult(seed, mode, scenario.getDuration(), wallMillis, statistics,
+                scenario.getTopology());
+        ResultStore store = ResultStore.shared();
+        if (store != null) {
+            store.append(scenario, result);
+        }
+        return result;
+    }
+
+    private void writeOutputs(Scenario scenario, List<RunResult> results, List<String> violations) throws IOException {
+        Path json = jsonFile;
+        Path csv = csvFile;
+        if (outputDir != null) {
+            Files.createDirectories(outputDir);
+            json = outputDir.resolve(scenario.getName() + ".json");
+            csv = outputDir.resolve(scenario.getName() + ".csv");
+        }
+        if (json == null && csv == null) {
+            System.out.print(ResultWriter.toJson(scenario, results, violations));
+            return;
+        }
+        if (json != null) {
+            ResultWriter.writeJson(json, scenario, results, violations);
+        }
+        if (csv != null) {
+            ResultWriter.writeCsv(csv, scenario, results);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Использование: java com.warehouse.Main run [опции] сценарий.properties...");
+        System.err.println("  --json <файл>          результаты в JSON (один сценарий)");
+        System.err.println("  --csv <файл>           результаты в CSV (один сценарий)");
+        System.err.println("  --out <каталог>        <сценарий>.json и <сценарий>.csv для каждого сценария");
+        System.err.println("  --ledger <каталог>     колоночный журнал заявок <сценарий>-<зерно>.ledger для каждой реплики");
+        System.err.println("  --trace <каталог>      трасса выборки заявок <сценарий>-<зерно>.trace.json (chrome://tracing)");
+        System.err.println("  --trace-sample <выб.>  1/N, type=ТИП, source=N или all (по умолчанию 1/100)");
+        System.err.println("  --seed <n>             первое зерно (переопределяет run.seed)");
+        System.err.println("  --replications <n>     число репликаций (переопределяет run.replications)");
+        System.err.println("  --duration <мин>       горизонт моделирования (переопределяет simulation.duration)");
+        System.err.println("  --parallel-lanes       дорожки хаба в отдельных потоках (run.parallelLanes)");
+        System.err.println("  --antithetic           антитетическая пара прогонов на каждое зерно (run.antithetic)");
+        System.err.println("  --cache <каталог>      кэш итогов прогонов по (сценарий, зерно, версия модели)");
+        System.err.println("  --store <каталог>      добавить итоги прогонов в хранилище (запросы - Main store)");
+        System.err.println("  --quiet                без итоговой строки в stderr");
+        System.err.println("Коды завершения: 0 - SLA выполнен, 1 - ошибка выполнения,");
+        System.err.println("                 2 - ошибка аргументов/конфигурации, 3 - SLA нарушен");
+    }
+}
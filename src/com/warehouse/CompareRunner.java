@@ -0,0 +1,181 @@
+package com.warehouse;
+
+import com.warehouse.utils.Log;
+import com.warehouse.utils.RunResult;
+import com.warehouse.utils.SampleStats;
+import com.warehouse.utils.Scenario;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Сравнение двух конфигураций хаба на общих случайных числах:
+ *   java com.warehouse.Main compare [--set group.0.devices=3] [--antithetic] a.properties [b.properties]
+ *
+ * Вариант B - второй файл сценария или первый с заменами --set. Оба прогоняются с одними и теми же
+ * зернами, потоки источников и ворот привязаны к ролям, поэтому прогоны с одинаковым зерном
+ * видят одинаковые прибытия и времена обслуживания. Для каждого показателя печатается разность B-A
+ * с 95% ДИ по парным разностям и, для сравнения, ДИ той же разности при независимых прогонах.
+ */
+public class CompareRunner {
+    private static final Map<String, ToDoubleFunction<RunResult>> METRICS = new LinkedHashMap<>();
+
+    static {
+        METRICS.put("perishableRejectionRate", RunResult::getPerishableRejectionRate);
+        METRICS.put("rejectionRate", RunResult::getRejectionRate);
+        METRICS.put("perishableEvictionRate", RunResult::getPerishableEvictionRate);
+        METRICS.put("evictionRate", RunResult::getEvictionRate);
+        METRICS.put("averageWaitingTime", RunResult::getAverageWaitingTime);
+        METRICS.put("averageSystemTime", RunResult::getAverageSystemTime);
+    }
+
+    private final List<Path> scenarioFiles = new ArrayList<>();
+    private final List<String[]> overrides = new ArrayList<>();
+    private Long seedOverride;
+    private Integer replicationsOverride;
+    private boolean antithetic;
+
+    public static int run(String[] args) {
+        CompareRunner runner = new CompareRunner();
+        try {
+            runner.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            printUsage();
+            return BatchRunner.EXIT_USAGE;
+        }
+
+        Log.setEnabled(false);
+        try {
+            return runner.execute();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка конфигурации: " + e.getMessage());
+            return BatchRunner.EXIT_USAGE;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ошибка выполнения: " + e);
+            return BatchRunner.EXIT_FAILURE;
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--set":
+                    String assignment = requireValue(args, ++i, arg);
+                    int eq = assignment.indexOf('=');
+                    if (eq <= 0) {
+                        throw new IllegalArgumentException("--set ожидает ключ=значение: " + assignment);
+                    }
+                    overrides.add(new String[] {assignment.substring(0, eq).trim(), assignment.substring(eq + 1).trim()});
+                    break;
+                case "--seed":
+                    seedOverride = Long.parseLong(requireValue(args, ++i, arg));
+                    break;
+                case "--replications":
+                    replicationsOverride = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--antithetic":
+                    antithetic = true;
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("неизвестная опция " + arg);
+                    }
+                    scenarioFiles.add(Paths.get(arg));
+            }
+        }
+        if (scenarioFiles.isEmpty() || scenarioFiles.size() > 2) {
+            throw new IllegalArgumentException("нужен один или два файла сценария");
+        }
+        if (scenarioFiles.size() == 1 && overrides.isEmpty()) {
+            throw new IllegalArgumentException("для одного сценария вариант B задается опциями --set");
+        }
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("опции " + option + " нужно значение");
+        }
+        return args[index];
+    }
+
+    private int execute() throws IOException {
+        Scenario a = applyOverrides(Scenario.load(scenarioFiles.get(0)));
+        Scenario b = scenarioFiles.size() > 1 ? applyOverrides(Scenario.load(scenarioFiles.get(1))) : a;
+        for (String[] override : overrides) {
+            b = b.withOverride(override[0], override[1]);
+        }
+        if (!Arrays.equals(a.getSeeds(), b.getSeeds()) || a.isAntithetic() != b.isAntithetic()) {
+            throw new IllegalArgumentException("у сценариев разные зерна или run.antithetic; задайте --seed и --replications");
+        }
+
+        long start = System.nanoTime();
+        List<RunResult> resultsA = BatchRunner.runScenario(a);
+        List<RunResult> resultsB = BatchRunner.runScenario(b);
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf(Locale.ROOT, "A: %s, B: %s%s; наблюдений %d (%s), %d мс%n", a.getName(),
+                b.getName(), overrides.isEmpty() ? "" : " " + describeOverrides(), a.getSeeds().length,
+                a.isAntithetic() ? "общие случайные числа, антитетические пары" : "общие случайные числа",
+                wallMillis);
+        System.out.printf(Locale.ROOT, "%-24s %11s %11s %11s %11s %11s %7s  %s%n", "показатель", "A", "B", "B-A",
+                "ДИ95 пар.", "ДИ95 незав.", "выигр.", "вывод");
+        for (Map.Entry<String, ToDoubleFunction<RunResult>> metric : METRICS.entrySet()) {
+            SampleStats statsA = RunResult.summarize(resultsA, metric.getValue());
+            SampleStats statsB = RunResult.summarize(resultsB, metric.getValue());
+            SampleStats difference = RunResult.pairedDifference(resultsA, resultsB, metric.getValue());
+            double paired = difference.getHalfWidth95();
+            // Полуширина при независимых прогонах: дисперсии складываются, ковариации нет
+            double independent = SampleStats.tQuantile975(2 * statsA.getCount() - 2)
+                    * Math.sqrt(statsA.getVariance() / statsA.getCount() + statsB.getVariance() / statsB.getCount());
+            // Во сколько раз больше наблюдений понадобилось бы независимым прогонам для того же ДИ
+            double gain = paired > 0 ? (independent / paired) * (independent / paired) : Double.NaN;
+            System.out.printf(Locale.ROOT, "%-24s %11.5f %11.5f %+11.5f %11.5f %11.5f %7.1f  %s%n", metric.getKey(),
+                    statsA.getMean(), statsB.getMean(), difference.getMean(), paired, independent, gain,
+                    verdict(difference));
+        }
+        return BatchRunner.EXIT_OK;
+    }
+
+    private Scenario applyOverrides(Scenario scenario) {
+        scenario = scenario.withSeedOverrides(seedOverride, replicationsOverride);
+        if (antithetic) {
+            scenario = scenario.withOverride("run.antithetic", "true");
+        }
+        return scenario;
+    }
+
+    private String describeOverrides() {
+        StringBuilder sb = new StringBuilder("(");
+        for (String[] override : overrides) {
+            if (sb.length() > 1) sb.append(", ");
+            sb.append(override[0]).append('=').append(override[1]);
+        }
+        return sb.append(')').toString();
+    }
+
+    // Все показатели - потери или время, меньше - лучше
+    private static String verdict(SampleStats difference) {
+        double halfWidth = difference.getHalfWidth95();
+        if (difference.getMean() + halfWidth < 0) return "B лучше";
+        if (difference.getMean() - halfWidth > 0) return "B хуже";
+        return "не различимы";
+    }
+
+    private static void printUsage() {
+        System.err.println("Использование: java com.warehouse.Main compare [опции] a.properties [b.properties]");
+        System.err.println("  --set ключ=значение    замена в варианте B (можно несколько раз)");
+        System.err.println("  --seed <n>             первое зерно для обоих вариантов");
+        System.err.println("  --replications <n>     число зерен для обоих вариантов");
+        System.err.println("  --antithetic           антитетическая пара прогонов на каждое зерно");
+    }
+}
@@ -0,0 +1,261 @@
+package com.warehouse;
+
+import com.warehouse.distributed.DirectoryWorkQueue;
+import com.warehouse.distributed.InMemoryWorkQueue;
+import com.warehouse.distributed.LocalWorkers;
+import com.warehouse.distributed.SweepCoordinator;
+import com.warehouse.distributed.SweepJob;
+import com.warehouse.distributed.SweepWorker;
+import com.warehouse.distributed.WorkQueue;
+import com.warehouse.store.ResultStore;
+import com.warehouse.utils.Log;
+import com.warehouse.utils.ParameterGrid;
+import com.warehouse.utils.Scenario;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Перебор сетки несколькими процессами:
+ *   java com.warehouse.Main distribute --vary ... [--dir общий_каталог] [--workers n] сценарий.properties
+ *   java com.warehouse.Main worker --dir общий_каталог [--id имя] [--idle сек]
+ *
+ * С --dir координатор и исполнители общаются через каталог (DirectoryWorkQueue): координатор
+ * запускает --workers локальных JVM, на других машинах с тем же каталогом можно запустить
+ * дополнительные worker. Без --dir исполнители - потоки этой JVM с очередью в памяти.
+ * Таблица - как у sweep (без сводки расхождений оценки).
+ */
+public class DistributedSweepRunner {
+    private final ParameterGrid grid = new ParameterGrid();
+    private Path scenarioFile;
+    private Path csvFile;
+    private Path directory;
+    private Long seedOverride;
+    private Integer replicationsOverride;
+    private double pruneMargin = 2;
+    private boolean prune = true;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private int chunkSize;
+    private long leaseMillis = 15_000;
+    private int attempts = 3;
+    private Path storeDir;
+
+    public static int run(String[] args) {
+        DistributedSweepRunner runner = new DistributedSweepRunner();
+        try {
+            runner.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            printUsage();
+            return BatchRunner.EXIT_USAGE;
+        }
+
+        Log.setEnabled(false);
+        try {
+            return runner.execute();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка конфигурации: " + e.getMessage());
+            return BatchRunner.EXIT_USAGE;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ошибка выполнения: " + e);
+            return BatchRunner.EXIT_FAILURE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BatchRunner.EXIT_FAILURE;
+        }
+    }
+
+    // Исполнитель: забирает порции из общего каталога до завершения перебора
+    public static int runWorker(String[] args) {
+        Path directory = null;
+        String id = null;
+        long idleMillis = 0;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--dir":
+                        directory = Paths.get(requireValue(args, ++i, arg));
+                        break;
+                    case "--id":
+                        id = requireValue(args, ++i, arg);
+                        break;
+                    case "--idle":
+                        idleMillis = (long) (Double.parseDouble(requireValue(args, ++i, arg)) * 1000);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("неизвестная опция " + arg);
+                }
+            }
+            if (directory == null) {
+                throw new IllegalArgumentException("не указан общий каталог --dir");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            System.err.println("Использование: java com.warehouse.Main worker --dir <каталог> [--id имя] [--idle сек]");
+            return BatchRunner.EXIT_USAGE;
+        }
+
+        Log.setEnabled(false);
+        try {
+            if (id == null) {
+                id = (InetAddress.getLocalHost().getHostName() + "-" + ProcessHandle.current().pid())
+                        .replaceAll("[^A-Za-z0-9_-]", "_");
+            }
+            int chunks = new SweepWorker(new DirectoryWorkQueue(directory), id).run(idleMillis);
+            System.err.printf("worker %s: порций %d%n", id, chunks);
+            return BatchRunner.EXIT_OK;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка конфигурации: " + e.getMessage());
+            return BatchRunner.EXIT_USAGE;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ошибка выполнения: " + e);
+            return BatchRunner.EXIT_FAILURE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BatchRunner.EXIT_FAILURE;
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--vary":
+                    grid.addAxis(requireValue(args, ++i, arg));
+                    break;
+                case "--csv":
+                    csvFile = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                case "--dir":
+                    directory = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                case "--workers":
+                    workers = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--chunk":
+                    chunkSize = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--lease":
+                    leaseMillis = (long) (Double.parseDouble(requireValue(args, ++i, arg)) * 1000);
+                    break;
+                case "--attempts":
+                    attempts = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--seed":
+                    seedOverride = Long.parseLong(requireValue(args, ++i, arg));
+                    break;
+                case "--replications":
+                    replicationsOverride = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--prune-margin":
+                    pruneMargin = Double.parseDouble(requireValue(args, ++i, arg));
+                    if (!(pruneMargin >= 1)) {
+                        throw new IllegalArgumentException("--prune-margin должен быть не меньше 1");
+                    }
+                    break;
+                case "--no-prune":
+                    prune = false;
+                    break;
+                case "--store":
+                    storeDir = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("неизвестная опция " + arg);
+                    }
+                    if (scenarioFile != null) {
+                        throw new IllegalArgumentException("перебор выполняется для одного сценария");
+                    }
+                    scenarioFile = Paths.get(arg);
+            }
+        }
+        if (scenarioFile == null) {
+            throw new IllegalArgumentException("не указан файл сценария");
+        }
+        if (grid.isEmpty()) {
+            throw new IllegalArgumentException("не задано ни одной оси --vary");
+        }
+        if (workers < 0 || (workers == 0 && directory == null)) {
+            throw new IllegalArgumentException("без --dir нужен хотя бы один исполнитель");
+        }
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("опции " + option + " нужно значение");
+        }
+        return args[index];
+    }
+
+    private int execute() throws IOException, InterruptedException {
+        if (storeDir != null) {
+            ResultStore.setShared(ResultStore.open(storeDir));
+        }
+        Scenario base = Scenario.load(scenarioFile);
+        base = base.withSeedOverrides(seedOverride, replicationsOverride);
+        SweepJob job = new SweepJob(base, grid, prune, pruneMargin);
+        // По умолчанию - около четырех порций на исполнителя: быстрые забирают больше
+        int size = chunkSize > 0 ? chunkSize : Math.max(1, job.size() / (4 * Math.max(1, workers)));
+
+        WorkQueue queue = directory != null ? new DirectoryWorkQueue(directory) : new InMemoryWorkQueue();
+        SweepCoordinator coordinator = new SweepCoordinator(queue, job, size, leaseMillis, attempts);
+        PrintStream log = System.err;
+        LocalWorkers local = directory != null
+                ? LocalWorkers.processes(directory, workers, workers * attempts, log)
+                : LocalWorkers.threads(queue, workers, workers * attempts, log);
+
+        long start = System.nanoTime();
+        List<String> rows;
+        local.start();
+        try {
+            rows = coordinator.run(local::supervise, log);
+        } finally {
+            local.stop();
+        }
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+        writeRows(job.header(), rows);
+        System.err.printf(Locale.ROOT, "distribute: points=%d chunks=%d workers=%d restarts=%d abandoned=%d wall=%dms%n",
+                job.size(), coordinator.getChunkCount(), workers, local.getRestarts(),
+                coordinator.getAbandonedCount(), wallMillis);
+        return coordinator.getAbandonedCount() > 0 ? BatchRunner.EXIT_FAILURE : BatchRunner.EXIT_OK;
+    }
+
+    private void writeRows(String header, List<String> rows) throws IOException {
+        if (csvFile == null) {
+            System.out.println(header);
+            rows.forEach(System.out::println);
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8)) {
+            writer.write(header);
+            writer.write('\n');
+            for (String row : rows) {
+                writer.write(row);
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Использование: java com.warehouse.Main distribute --vary ключ=значения [опции] сценарий.properties");
+        System.err.println("  --vary ключ=1,2,3      ось перебора, как у sweep");
+        System.err.println("  --dir <каталог>        общий каталог очереди (без него - потоки этой JVM)");
+        System.err.println("  --workers <n>          локальных исполнителей (по умолчанию число ядер; 0 - только внешние worker)");
+        System.err.println("  --chunk <n>            точек в порции (по умолчанию ~4 порции на исполнителя)");
+        System.err.println("  --lease <сек>          порция без отметок дольше срока возвращается в очередь (по умолчанию 15)");
+        System.err.println("  --attempts <n>         попыток на порцию (по умолчанию 3)");
+        System.err.println("  --csv <файл>           таблица в CSV (по умолчанию stdout)");
+        System.err.println("  --store <каталог>      хранилище итогов прогонов (передается и локальным процессам)");
+        System.err.println("  --seed, --replications, --prune-margin, --no-prune - как у sweep");
+    }
+}
@@ -1,9 +1,69 @@
 package com.warehouse;
 
+import com.warehouse.live.LiveDashboard;
+import com.warehouse.live.StateChangeRing;
+import com.warehouse.replay.ReplayDebugger;
+import com.warehouse.utils.EngineMetrics;
+import com.warehouse.utils.Pacer;
+import com.warehouse.utils.SimulationConfig;
+import com.warehouse.utils.TopologyConfig;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class Main {
     public static void main(String[] args) {
+        // Пакетные режимы: run [опции] сценарий.properties... | network [опции] сеть.properties
+        // | twin [опции] - цифровой двойник по живой ленте | sweep [опции] сценарий.properties - перебор сетки
+        // | optimize [опции] сценарий.properties - самая дешевая конфигурация под SLA
+        // | rare [опции] сценарий.properties - вероятность редкого отказа расщеплением
+        // | compare [опции] a.properties [b.properties] - парное сравнение двух конфигураций
+        // | serve [опции] - локальный HTTP-сервис заданий
+        // | distribute [опции] сценарий.properties - перебор несколькими процессами | worker --dir каталог
+        // | validate [опции] - эквивалентность вариантов движка и сверка с теорией очередей
+        // | store query|info|compact --dir каталог - запросы к хранилищу прогонов
+        if (args.length > 0 && args[0].equals("run")) {
+            System.exit(BatchRunner.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("network")) {
+            System.exit(NetworkRunner.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("twin")) {
+            System.exit(TwinRunner.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("sweep")) {
+            System.exit(SweepRunner.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("optimize")) {
+            System.exit(OptimizeRunner.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("rare")) {
+            System.exit(RareEventRunner.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("compare")) {
+            System.exit(CompareRunner.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("serve")) {
+            System.exit(ServiceRunner.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("distribute")) {
+            System.exit(DistributedSweepRunner.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("worker")) {
+            System.exit(DistributedSweepRunner.runWorker(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("validate")) {
+            System.exit(ValidationRunner.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("store")) {
+            System.exit(StoreRunner.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+
         System.out.println("СИМУЛЯЦИЯ СКЛАДСКОГО ХАБА ПРОДОВОЛЬСТВЕННЫХ ТОВАРОВ");
         System.out.println("=".repeat(60));
 
@@ -12,22 +72,98 @@ public class Main {
         System.out.println("Выберите режим:");
         System.out.println("1 - ПОШАГОВЫЙ режим (с выводом в консоль)");
         System.out.println("2 - АВТОМАТИЧЕСКИЙ режим");
+        System.out.println("3 - РЕАЛЬНОЕ ВРЕМЯ (с ускорением: 1, 60, 3600...)");
+        System.out.println("4 - ОТЛАДЧИК с шагами вперед и назад");
         System.out.print("Ваш выбор: ");
 
         int choice = scanner.nextInt();
         scanner.nextLine();
 
-        Simulation simulation = new Simulation();
+        SimulationConfig config = new SimulationConfig();
+        Simulation simulation = new Simulation(TopologyConfig.load(config));
 
         if (choice == 1) {
             simulation.runStepByStep(scanner);
+        } else if (choice == 4) {
+            new ReplayDebugger(simulation, config.getSimulationDuration()).run(scanner);
+        } else if (choice == 3) {
+            System.out.print("Ускорение (минут модели за минуту): ");
+            double speed = scanner.nextDouble();
+            scanner.nextLine();
+            System.out.printf("%n⏱ ЗАПУСК В РЕАЛЬНОМ ВРЕМЕНИ x%.0f%n", speed);
+            Pacer pacer = new Pacer(simulation, speed);
+            simulation.start();
+            pacer.run(config.getSimulationDuration());
+            simulation.generateReport();
+            System.out.printf("%nТемп: %d пачек, запаздывание в среднем %.1f мкс, макс. %.1f мкс, догонок %d%n",
+                    pacer.getBatches(), pacer.getLateness().getMean(), pacer.getLateness().getMax(),
+                    pacer.getCatchUps());
         } else {
             System.out.println("\n⚡ ЗАПУСК АВТОМАТИЧЕСКОГО РЕЖИМА");
             // Для автоматического режима генерируем заявки на всех источниках
-            simulation.run(24 * 60);
+            EngineMetrics metrics = createMetricsIfRequested();
+            simulation.setMetrics(metrics);
+            if (Boolean.getBoolean("warehouse.live")) {
+                runWithLiveDashboard(simulation, config);
+            } else {
+                simulation.run(config.getSimulationDuration());
+            }
             simulation.generateReport();
+            if (metrics != null) {
+                System.out.printf("%nДвижок: %d событий, %.0f событий/с, макс. глубина календаря %d%n",
+                        metrics.getEventsProcessed(), metrics.getEventsPerSecond(), metrics.getMaxQueueDepth());
+            }
         }
 
         scanner.close();
     }
+
+    // Живая панель (-Dwarehouse.live=true): поток изменений состояния вместо пошагового вывода.
+    // -Dwarehouse.live.policy=DROP|BLOCK, -Dwarehouse.live.file=путь - сохранить записи в CSV
+    private static void runWithLiveDashboard(Simulation simulation, SimulationConfig config) {
+        StateChangeRing ring = new StateChangeRing(Integer.getInteger("warehouse.live.capacity", 1 << 16),
+                StateChangeRing.OverflowPolicy.valueOf(System.getProperty("warehouse.live.policy", "DROP")));
+        String file = System.getProperty("warehouse.live.file");
+        boolean consoleOutput = simulation.isConsoleOutput();
+        simulation.setConsoleOutput(false);
+        try (Writer writer = file != null ? Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8) : null) {
+            if (writer != null) {
+                writer.write("time,type,requestId,sourceId,cargoClass,location\n");
+            }
+            LiveDashboard dashboard = new LiveDashboard(ring, simulation.getDispatcher().getTopology(), System.out,
+                    writer, Long.getLong("warehouse.live.refresh", 500L));
+            Thread consumer = dashboard.start();
+            simulation.getDispatcher().setStateListener(ring);
+            try {
+                simulation.run(config.getSimulationDuration());
+            } finally {
+                simulation.getDispatcher().setStateListener(null);
+                dashboard.stop(consumer);
+            }
+            if (dashboard.getWriteError() != null) {
+                System.err.println("Ошибка записи потока состояний: " + dashboard.getWriteError());
+            }
+        } catch (IOException e) {
+            System.err.println("Ошибка записи потока состояний: " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            simulation.setConsoleOutput(consoleOutput);
+        }
+    }
+
+    // Метрики движка включаются свойствами -Dwarehouse.metrics=true и/или -Dwarehouse.metrics.file=путь
+    private static EngineMetrics createMetricsIfRequested() {
+        String file = System.getProperty("warehouse.metrics.file");
+        if (file == null && !Boolean.getBoolean("warehouse.metrics")) {
+            return null;
+        }
+        EngineMetrics metrics = new EngineMetrics();
+        metrics.registerMBean("main");
+        if (file != null) {
+            long period = Long.getLong("warehouse.metrics.period", 1000L);
+            metrics.startPeriodicDump(Paths.get(file), period);
+        }
+        return metrics;
+    }
 }
\ No newline at end of file
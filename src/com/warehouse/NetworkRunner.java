@@ -0,0 +1,112 @@
+package com.warehouse;
+
+import com.warehouse.network.Hub;
+import com.warehouse.network.HubNetwork;
+import com.warehouse.utils.ResultWriter;
+import com.warehouse.utils.RunResult;
+import com.warehouse.utils.SimulationConfig;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Запуск сети хабов:
+ *   java com.warehouse.Main network [--threads n] [--seed n] [--duration мин] [--json файл] сеть.properties
+ */
+public class NetworkRunner {
+
+    public static int run(String[] args) {
+        Path networkFile = null;
+        Path jsonFile = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Long seed = null;
+        Double duration = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads": threads = Integer.parseInt(args[++i]); break;
+                    case "--seed": seed = Long.parseLong(args[++i]); break;
+                    case "--duration": duration = Double.parseDouble(args[++i]); break;
+                    case "--json": jsonFile = Paths.get(args[++i]); break;
+                    default:
+                        if (args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("неизвестная опция " + args[i]);
+                        }
+                        networkFile = Paths.get(args[i]);
+                }
+            }
+            if (networkFile == null) {
+                throw new IllegalArgumentException("не указан файл сети");
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            System.err.println("Использование: java com.warehouse.Main network [--threads n] [--seed n] "
+                    + "[--duration мин] [--json файл] сеть.properties");
+            return BatchRunner.EXIT_USAGE;
+        }
+
+        try {
+            SimulationConfig config = SimulationConfig.load(networkFile);
+            long actualSeed = seed != null ? seed : Long.parseLong(config.getString("run.seed", "1"));
+            double horizon = duration != null ? duration : config.getSimulationDuration();
+
+            long start = System.nanoTime();
+            HubNetwork network = HubNetwork.load(config, actualSeed);
+            network.run(horizon, threads);
+            long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+            String json = toJson(network, actualSeed, horizon, threads, wallMillis);
+            if (jsonFile != null) {
+                try (Writer writer = Files.newBufferedWriter(jsonFile, StandardCharsets.UTF_8)) {
+                    writer.write(json);
+                }
+            } else {
+                System.out.print(json);
+            }
+            System.err.printf(Locale.ROOT, "network: hubs=%d windows=%d lookahead=%.2f threads=%d wall=%dms%n",
+                    network.getHubs().size(), network.getWindows(), network.getLookahead(), threads, wallMillis);
+            return BatchRunner.EXIT_OK;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка конфигурации: " + e.getMessage());
+            return BatchRunner.EXIT_USAGE;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ошибка выполнения: " + e);
+            return BatchRunner.EXIT_FAILURE;
+        }
+    }
+
+    private static String toJson(HubNetwork network, long seed, double horizon, int threads, long wallMillis) {
+        StringBuilder sb = new StringBuilder();
+        int arrivals = 0;
+        int lost = 0;
+        int transferred = 0;
+        sb.append("{\n  \"hubs\": [\n");
+        for (int h = 0; h < network.getHubs().size(); h++) {
+            Hub hub = network.getHubs().get(h);
+            RunResult result = new RunResult(seed, horizon, wallMillis, hub.getSimulation().getStatistics(),
+                    hub.getSimulation().getDispatcher().getTopology());
+            arrivals += result.getArrivals() - hub.getTransfersIn();
+            lost += result.getRejected() + result.getEvicted(); // переадресованные сюда не входят
+            transferred += result.getTransferred();
+            ResultWriter.appendRun(sb, result);
+            sb.append(h + 1 < network.getHubs().size() ? ",\n" : "\n");
+        }
+        sb.append("  ],\n");
+        sb.append("  \"seed\": ").append(seed)
+                .append(",\n  \"duration\": ").append(ResultWriter.number(horizon))
+                .append(",\n  \"lookahead\": ").append(ResultWriter.number(network.getLookahead()))
+                .append(",\n  \"windows\": ").append(network.getWindows())
+                .append(",\n  \"threads\": ").append(threads)
+                .append(",\n  \"wallMillis\": ").append(wallMillis)
+                .append(",\n  \"externalArrivals\": ").append(arrivals)
+                .append(",\n  \"lost\": ").append(lost)
+                .append(",\n  \"transfers\": ").append(transferred)
+                .append("\n}\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,195 @@
+package com.warehouse;
+
+import com.warehouse.optimize.Candidate;
+import com.warehouse.optimize.SlaOptimizer;
+import com.warehouse.utils.Log;
+import com.warehouse.utils.ParameterGrid;
+import com.warehouse.utils.ResultWriter;
+import com.warehouse.utils.SampleStats;
+import com.warehouse.utils.Scenario;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Поиск самой дешевой конфигурации под SLA сценария:
+ *   java com.warehouse.Main optimize --vary group.0.devices=1..4 --vary buffer.0.capacity=2..12
+ *        [--cost group.0.devices=10] [--threads n] сценарий.properties
+ * Стоимость точки - сумма значений осей с весами --cost (по умолчанию вес 1).
+ */
+public class OptimizeRunner {
+    private final ParameterGrid grid = new ParameterGrid();
+    private final Map<String, Double> weights = new HashMap<>();
+    private Path scenarioFile;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int minReplications = 4;
+    private int maxReplications = 64;
+    private double pruneMargin = 2;
+    private boolean prune = true;
+
+    public static int run(String[] args) {
+        OptimizeRunner runner = new OptimizeRunner();
+        try {
+            runner.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            printUsage();
+            return BatchRunner.EXIT_USAGE;
+        }
+
+        Log.setEnabled(false);
+        try {
+            return runner.execute();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка конфигурации: " + e.getMessage());
+            return BatchRunner.EXIT_USAGE;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ошибка выполнения: " + e);
+            return BatchRunner.EXIT_FAILURE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BatchRunner.EXIT_FAILURE;
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--vary":
+                    grid.addAxis(requireValue(args, ++i, arg));
+                    break;
+                case "--cost": {
+                    String spec = requireValue(args, ++i, arg);
+                    int eq = spec.indexOf('=');
+                    if (eq <= 0) {
+                        throw new IllegalArgumentException("вес стоимости задается как ключ=вес: " + spec);
+                    }
+                    weights.put(spec.substring(0, eq).trim(), Double.parseDouble(spec.substring(eq + 1).trim()));
+                    break;
+                }
+                case "--threads":
+                    threads = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--min-replications":
+                    minReplications = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--max-replications":
+                    maxReplications = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--prune-margin":
+                    pruneMargin = Double.parseDouble(requireValue(args, ++i, arg));
+                    break;
+                case "--no-prune":
+                    prune = false;
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("неизвестная опция " + arg);
+                    }
+                    if (scenarioFile != null) {
+                        throw new IllegalArgumentException("оптимизация выполняется для одного сценария");
+                    }
+                    scenarioFile = Paths.get(arg);
+            }
+        }
+        if (scenarioFile == null) {
+            throw new IllegalArgumentException("не указан файл сценария");
+        }
+        if (grid.isEmpty()) {
+            throw new IllegalArgumentException("не задано ни одной оси --vary");
+        }
+        for (String key : weights.keySet()) {
+            if (!grid.getKeys().contains(key)) {
+                throw new IllegalArgumentException("вес задан для ключа вне осей перебора: " + key);
+            }
+        }
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("опции " + option + " нужно значение");
+        }
+        return args[index];
+    }
+
+    private int execute() throws IOException, InterruptedException {
+        Scenario base = Scenario.load(scenarioFile);
+        if (Double.isNaN(base.getMaxPerishableRejectionRate()) && Double.isNaN(base.getMaxRejectionRate())) {
+            throw new IllegalArgumentException("в сценарии нет порогов sla.perishable.maxRejectionRate / sla.maxRejectionRate");
+        }
+
+        List<Candidate> candidates = new ArrayList<>(grid.size());
+        List<String> keys = grid.getKeys();
+        for (int p = 0; p < grid.size(); p++) {
+            String[] point = grid.point(p);
+            double cost = 0;
+            for (int k = 0; k < keys.size(); k++) {
+                cost += weights.getOrDefault(keys.get(k), 1.0) * Double.parseDouble(point[k]);
+            }
+            candidates.add(SlaOptimizer.candidate(point, grid.apply(base, point), cost));
+        }
+
+        long start = System.nanoTime();
+        SlaOptimizer optimizer = new SlaOptimizer(candidates, base.getSeeds()[0], threads);
+        optimizer.setReplicationLimits(minReplications, maxReplications);
+        if (prune) {
+            optimizer.pruneAnalytically(pruneMargin);
+        }
+        Candidate best = optimizer.run();
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println(String.join(",", keys) + ",cost,status,replications,perishable_rejection_rate,ci95,rejection_rate");
+        for (Candidate candidate : optimizer.getCandidates()) {
+            SampleStats perishable = candidate.perishableRejection();
+            System.out.println(String.join(",", candidate.getPoint()) + ',' + ResultWriter.number(candidate.getCost())
+                    + ',' + candidate.getStatus().name().toLowerCase(Locale.ROOT) + ',' + candidate.getReplications()
+                    + ',' + ResultWriter.number(perishable.getMean())
+                    + ',' + ResultWriter.number(perishable.getHalfWidth95())
+                    + ',' + ResultWriter.number(candidate.rejection().getMean()));
+        }
+
+        System.err.printf(Locale.ROOT, "optimize: candidates=%d replications=%d threads=%d wall=%dms%n",
+                candidates.size(), optimizer.getTotalReplications(), threads, wallMillis);
+        if (best == null) {
+            System.err.println("Ни одна конфигурация не подтвердила SLA");
+            return BatchRunner.EXIT_SLA_VIOLATION;
+        }
+        StringBuilder point = new StringBuilder();
+        for (int k = 0; k < keys.size(); k++) {
+            if (k > 0) point.append(", ");
+            point.append(keys.get(k)).append('=').append(best.getPoint()[k]);
+        }
+        SampleStats perishable = best.perishableRejection();
+        System.err.printf(Locale.ROOT, "Лучшая конфигурация: %s (стоимость %s), доля отказов скоропортящимся %.4f ± %.4f "
+                        + "по %d репликациям; SLA выполнен с вероятностью не ниже 97,5%%%n",
+                point, ResultWriter.number(best.getCost()), perishable.getMean(), perishable.getHalfWidth95(),
+                best.getReplications());
+        List<Candidate> uncertain = optimizer.uncertainCheaper(best);
+        if (!uncertain.isEmpty()) {
+            long pruned = uncertain.stream().filter(c -> c.getStatus() == Candidate.Status.PRUNED).count();
+            System.err.printf(Locale.ROOT, "Внимание: более дешевые конфигурации не отвергнуты проверкой "
+                            + "(отсеяно аналитически %d, не решено за лимит репликаций %d) - среди них может быть "
+                            + "допустимая; см. --no-prune и --max-replications%n",
+                    pruned, uncertain.size() - pruned);
+        }
+        return BatchRunner.EXIT_OK;
+    }
+
+    private static void printUsage() {
+        System.err.println("Использование: java com.warehouse.Main optimize --vary ключ=значения [опции] сценарий.properties");
+        System.err.println("  --vary ключ=1,2,3      ось поиска (ключ топологии); ключ=1..4 - целый диапазон");
+        System.err.println("  --cost ключ=вес        вес оси в стоимости (по умолчанию 1)");
+        System.err.println("  --threads <n>          потоков для репликаций (по умолчанию число ядер)");
+        System.err.println("  --min-replications <n> репликаций в первом раунде (по умолчанию 4)");
+        System.err.println("  --max-replications <n> предел репликаций на кандидата (по умолчанию 64)");
+        System.err.println("  --prune-margin <k>     не моделировать точки с аналитической оценкой > k x порог SLA");
+        System.err.println("  --no-prune             без аналитического отсева");
+    }
+}
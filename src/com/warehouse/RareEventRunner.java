@@ -0,0 +1,158 @@
+package com.warehouse;
+
+import com.warehouse.enums.CargoType;
+import com.warehouse.rare.SplittingEstimator;
+import com.warehouse.utils.Log;
+import com.warehouse.utils.Scenario;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Оценка вероятности редкого отказа или выбивания многоуровневым расщеплением:
+ *   java com.warehouse.Main rare [--event rejection|eviction] [--cargo PERISHABLE] [--levels 4,6,8]
+ *        [--effort 1000] [--brute n] сценарий.properties
+ *
+ * Оценивается вероятность хотя бы одного такого события за длительность сценария, начиная с пустого хаба.
+ */
+public class RareEventRunner {
+    private Path scenarioFile;
+    private SplittingEstimator.Target target = SplittingEstimator.Target.REJECTION;
+    private CargoType cargoType = CargoType.PERISHABLE;
+    private int[] levels;
+    private int effort = 1000;
+    private Long seedOverride;
+    private Double durationOverride;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int bruteRuns;
+
+    public static int run(String[] args) {
+        RareEventRunner runner = new RareEventRunner();
+        try {
+            runner.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            printUsage();
+            return BatchRunner.EXIT_USAGE;
+        }
+
+        Log.setEnabled(false);
+        try {
+            return runner.execute();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка конфигурации: " + e.getMessage());
+            return BatchRunner.EXIT_USAGE;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ошибка выполнения: " + e);
+            return BatchRunner.EXIT_FAILURE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BatchRunner.EXIT_FAILURE;
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--event":
+                    target = SplittingEstimator.Target.valueOf(requireValue(args, ++i, arg).toUpperCase(Locale.ROOT));
+                    break;
+                case "--cargo":
+                    cargoType = CargoType.valueOf(requireValue(args, ++i, arg).toUpperCase(Locale.ROOT));
+                    break;
+                case "--levels":
+                    levels = Arrays.stream(requireValue(args, ++i, arg).split(","))
+                            .mapToInt(value -> Integer.parseInt(value.trim())).toArray();
+                    break;
+                case "--effort":
+                    effort = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--seed":
+                    seedOverride = Long.parseLong(requireValue(args, ++i, arg));
+                    break;
+                case "--duration":
+                    durationOverride = Double.parseDouble(requireValue(args, ++i, arg));
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--brute":
+                    bruteRuns = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("неизвестная опция " + arg);
+                    }
+                    if (scenarioFile != null) {
+                        throw new IllegalArgumentException("оценка выполняется для одного сценария");
+                    }
+                    scenarioFile = Paths.get(arg);
+            }
+        }
+        if (scenarioFile == null) {
+            throw new IllegalArgumentException("не указан файл сценария");
+        }
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("опции " + option + " нужно значение");
+        }
+        return args[index];
+    }
+
+    private int execute() throws IOException, InterruptedException {
+        Scenario scenario = Scenario.load(scenarioFile);
+        double horizon = durationOverride != null ? durationOverride : scenario.getDuration();
+        long seed = seedOverride != null ? seedOverride : scenario.getSeeds()[0];
+        SplittingEstimator estimator = new SplittingEstimator(scenario.getTopology(), target, cargoType, levels,
+                effort, seed, threads);
+
+        long start = System.nanoTime();
+        double probability = estimator.estimate(horizon);
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+        long events = estimator.getSimulatedEvents();
+        int[] used = estimator.getLevels();
+        List<Double> stages = estimator.getStageProbabilities();
+
+        System.out.printf(Locale.ROOT, "Событие: %s (%s), буфер %d, горизонт %.0f мин%n",
+                target.getDescription(), cargoType.getDescription(), estimator.getBuffer(), horizon);
+        for (int s = 0; s < stages.size(); s++) {
+            String level = s < used.length ? "заполнение >= " + used[s] : "событие";
+            System.out.printf(Locale.ROOT, "  стадия %d (%s): p = %.4f%n", s, level, stages.get(s));
+        }
+        System.out.printf(Locale.ROOT, "Вероятность: %.4e (отн. ошибка ~%.1f%%), событий %d, %d мс%n",
+                probability, estimator.getRelativeError() * 100, events, wallMillis);
+        double bruteEvents = estimator.bruteForceEvents(probability, horizon);
+        if (!Double.isNaN(bruteEvents)) {
+            System.out.printf(Locale.ROOT, "Обычным прогоном та же точность: ~%.3e событий (в %.0f раз больше)%n",
+                    bruteEvents, bruteEvents / Math.max(1, events));
+        }
+
+        if (bruteRuns > 0) {
+            start = System.nanoTime();
+            double bruteProbability = estimator.bruteForce(bruteRuns, horizon);
+            wallMillis = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf(Locale.ROOT, "Сверка: %d обычных прогонов: %.4e, событий %d, %d мс%n",
+                    bruteRuns, bruteProbability, estimator.getSimulatedEvents(), wallMillis);
+        }
+        return BatchRunner.EXIT_OK;
+    }
+
+    private static void printUsage() {
+        System.err.println("Использование: java com.warehouse.Main rare [опции] сценарий.properties");
+        System.err.println("  --event rejection|eviction  оцениваемое событие (по умолчанию rejection)");
+        System.err.println("  --cargo <тип>          тип груза (по умолчанию PERISHABLE)");
+        System.err.println("  --levels 4,6,8         пороги заполнения буфера (по умолчанию от половины до полного)");
+        System.err.println("  --effort <n>           траекторий на стадию (по умолчанию 1000)");
+        System.err.println("  --seed <n>             зерно (переопределяет run.seed)");
+        System.err.println("  --duration <мин>       горизонт (по умолчанию длительность сценария)");
+        System.err.println("  --threads <n>          потоков (по умолчанию число ядер)");
+        System.err.println("  --brute <n>            сверить с n обычными прогонами");
+    }
+}
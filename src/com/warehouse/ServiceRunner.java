@@ -0,0 +1,108 @@
+package com.warehouse;
+
+import com.warehouse.service.SimulationService;
+import com.warehouse.utils.Log;
+import com.warehouse.utils.ResultCache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Локальный сервис моделирования:
+ *   java com.warehouse.Main serve [--port 8085] [--threads n] [--max-jobs 64] [--warmup 4] [--cache каталог]
+ * Работает до завершения процесса (Ctrl+C). Протокол - см. SimulationService.
+ */
+public class ServiceRunner {
+    private int port = 8085;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int maxJobs = 64;
+    private int warmup = 4;
+    private Path cacheDir;
+
+    public static int run(String[] args) {
+        ServiceRunner runner = new ServiceRunner();
+        try {
+            runner.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            printUsage();
+            return BatchRunner.EXIT_USAGE;
+        }
+
+        Log.setEnabled(false);
+        try {
+            return runner.execute();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка конфигурации: " + e.getMessage());
+            return BatchRunner.EXIT_USAGE;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ошибка выполнения: " + e);
+            return BatchRunner.EXIT_FAILURE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BatchRunner.EXIT_OK;
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--port":
+                    port = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--max-jobs":
+                    maxJobs = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--cache":
+                    cacheDir = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                default:
+                    throw new IllegalArgumentException("неизвестная опция " + arg);
+            }
+        }
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("опции " + option + " нужно значение");
+        }
+        return args[index];
+    }
+
+    private int execute() throws IOException, InterruptedException {
+        if (cacheDir != null) {
+            ResultCache.setShared(ResultCache.open(cacheDir));
+        }
+        SimulationService service = new SimulationService(port, threads, maxJobs);
+        long start = System.nanoTime();
+        service.warmUp(warmup);
+        service.start();
+        System.err.printf("serve: http://127.0.0.1:%d/jobs, потоков моделирования %d, прогрев %d мс%n",
+                service.getPort(), threads, (System.nanoTime() - start) / 1_000_000);
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            service.stop();
+            stopped.countDown();
+        }));
+        stopped.await();
+        return BatchRunner.EXIT_OK;
+    }
+
+    private static void printUsage() {
+        System.err.println("Использование: java com.warehouse.Main serve [опции]");
+        System.err.println("  --port <n>             порт на 127.0.0.1 (по умолчанию 8085, 0 - любой свободный)");
+        System.err.println("  --threads <n>          потоков моделирования (по умолчанию число ядер)");
+        System.err.println("  --max-jobs <n>         незавершенных заданий одновременно (по умолчанию 64)");
+        System.err.println("  --warmup <n>           прогревочных прогонов при старте (по умолчанию 4)");
+        System.err.println("  --cache <каталог>      кэш итогов прогонов (повторные сценарии отвечают сразу)");
+    }
+}
@@ -1,24 +1,68 @@
 package com.warehouse;
 
+import com.warehouse.utils.Log;
 import com.warehouse.model.*;
+import com.warehouse.utils.EngineMetrics;
 import com.warehouse.utils.EventCalendar;
+import com.warehouse.utils.SimulationConfig;
 import com.warehouse.utils.Statistics;
+import com.warehouse.utils.StepCommand;
+import com.warehouse.utils.TopologyConfig;
 import com.warehouse.enums.EventType;
+import com.warehouse.enums.RequestStatus;
+import com.warehouse.enums.VariateMode;
 import java.util.*;
+import java.util.function.IntPredicate;
 
 public class Simulation {
     private double currentTime;
     private final WarehouseDispatcher dispatcher;
     private final EventCalendar eventCalendar;
     private final Statistics statistics;
-    private static Simulation instance;
+    private EngineMetrics metrics; // null - самоизмерение выключено
+    private boolean externalCompletions; // цифровой двойник: завершения обслуживания приходят извне
+    private boolean consoleOutput = true; // false - эта симуляция молчит и при включенном Log
+    // Текущая симуляция потока: параллельные прогоны (дорожки, реплики) не мешают друг другу
+    private static final ThreadLocal<Simulation> instance = new ThreadLocal<>();
+    private static final double STEP_MODE_HORIZON = 24 * 60;
+    // Версия модели: увеличивается при любом изменении, меняющем результаты при том же зерне
+    // (кэш результатов прогонов по ней отбрасывает устаревшие записи)
+    public static final int ENGINE_VERSION = 4;
 
     public Simulation() {
+        this(TopologyConfig.load(new SimulationConfig()));
+    }
+
+    public Simulation(TopologyConfig topology) {
+        this(topology, new Random().nextLong());
+    }
+
+    public Simulation(TopologyConfig topology, long seed) {
+        this(topology, seed, VariateMode.STANDARD);
+    }
+
+    public Simulation(TopologyConfig topology, long seed, VariateMode variateMode) {
         this.currentTime = 0;
-        this.dispatcher = new WarehouseDispatcher();
+        this.dispatcher = new WarehouseDispatcher(topology, seed, variateMode);
         this.eventCalendar = new EventCalendar();
-        this.statistics = new Statistics();
-        instance = this;
+        this.statistics = new Statistics(topology);
+        instance.set(this);
+    }
+
+    // Ветвь: копия текущего состояния (календарь, буферы, приборы, источники, статистика)
+    // с новыми потоками случайных чисел. Топология неизменяема и разделяется с оригиналом.
+    private Simulation(Simulation parent, long seed, boolean resetStatistics) {
+        Map<Object, Object> copies = new HashMap<>();
+        this.currentTime = parent.currentTime;
+        this.dispatcher = parent.dispatcher.copy(seed, copies);
+        this.eventCalendar = parent.eventCalendar.copy(copies);
+        this.dispatcher.remapEvents(copies);
+        this.statistics = resetStatistics ? parent.statistics.emptyCopy() : parent.statistics.copy();
+        this.externalCompletions = parent.externalCompletions;
+    }
+
+    public Simulation fork(long seed, boolean resetStatistics) {
+        return new Simulation(this, seed, resetStatistics);
     }
 
     public void runStepByStep(Scanner scanner) {
@@ -26,25 +70,58 @@ public class Simulation {
 
         // ШАГ 1: Показываем пустую систему
         System.out.println("\n>>> НАЧАЛЬНОЕ СОСТОЯНИЕ: СИСТЕМА ПУСТА");
-        eventCalendar.printStepAndWait(this, null);
+        if (eventCalendar.printStepAndWait(this, null, scanner).equalsIgnoreCase("q")) {
+            return;
+        }
 
         // ШАГ 2: Генерируем заявки
         System.out.println("\n>>>  ГЕНЕРАЦИЯ ЗАЯВОК НА ВСЕХ ИСТОЧНИКАХ");
         generateRequestsOnAllSources();
+        dispatcher.startGateReliability(currentTime);
+
+        // ШАГ 3: Обрабатываем события: по одному или перемоткой до точки останова
+        Set<EventType> breakpoints = EnumSet.noneOf(EventType.class);
+        StepCommand command = StepCommand.parse("");
+        Event shownEvent = null;
+        while (currentTime < STEP_MODE_HORIZON && !eventCalendar.isEmpty()) {
+            if (command.getKind() == StepCommand.Kind.STEP) {
+                Event nextEvent = eventCalendar.getNextEvent();
+                if (nextEvent == null) break;
+
+                currentTime = nextEvent.getTime();
+
+                // Обрабатываем ТОЛЬКО одно событие
+                processEvent(nextEvent);
+                shownEvent = nextEvent;
+            } else {
+                Event lastEvent = fastForward(command, breakpoints);
+                if (lastEvent != null) shownEvent = lastEvent;
+            }
 
-        // ШАГ 3: Обрабатываем события
-        while (currentTime < 24 * 60 && !eventCalendar.isEmpty()) {
-            Event nextEvent = eventCalendar.getNextEvent();
-            if (nextEvent == null) break;
-
-            currentTime = nextEvent.getTime();
-
-            // Обрабатываем ТОЛЬКО одно событие
-            processEvent(nextEvent);
-
-            // Показываем состояние системы
-            boolean continueSimulation = eventCalendar.printStepAndWait(this, nextEvent);
-            if (!continueSimulation) break;
+            // Показываем состояние системы и читаем следующую команду
+            String line = eventCalendar.printStepAndWait(this, shownEvent, scanner);
+            command = null;
+            while (command == null) {
+                try {
+                    command = StepCommand.parse(line);
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                }
+                if (command != null && command.getKind() == StepCommand.Kind.TOGGLE_BREAK) {
+                    if (!breakpoints.remove(command.getBreakType())) {
+                        breakpoints.add(command.getBreakType());
+                    }
+                    System.out.println("Точки останова: " + breakpoints);
+                    command = null;
+                } else if (command != null && command.getKind() == StepCommand.Kind.HELP) {
+                    StepCommand.printHelp();
+                    command = null;
+                }
+                if (command == null) {
+                    line = scanner.hasNextLine() ? scanner.nextLine() : "q";
+                }
+            }
+            if (command.getKind() == StepCommand.Kind.QUIT) break;
         }
 
         System.out.println("\n СИМУЛЯЦИЯ ЗАВЕРШЕНА");
@@ -52,17 +129,81 @@ public class Simulation {
         generateReport();
     }
 
+    // Перемотка без вывода до условия команды или точки останова; возвращает последнее событие
+    private Event fastForward(StepCommand command, Set<EventType> breakpoints) {
+        double horizon = STEP_MODE_HORIZON;
+        if (command.getKind() == StepCommand.Kind.RUN_TO_TIME) {
+            horizon = Math.min(horizon, command.getValue());
+        }
+        Buffer watchedBuffer = null;
+        if (command.getKind() == StepCommand.Kind.RUN_UNTIL_FULL) {
+            int index = (int) command.getValue() - 1;
+            if (index >= dispatcher.getBuffers().size()) {
+                System.out.println("Буфер P" + (index + 1) + " не существует");
+                return null;
+            }
+            watchedBuffer = dispatcher.getBuffers().get(index);
+        }
+
+        boolean previousOutput = consoleOutput;
+        consoleOutput = false;
+        Event lastEvent = null;
+        long processed = 0;
+        String reason = "конец моделирования";
+        try {
+            while (!eventCalendar.isEmpty()) {
+                if (eventCalendar.peekNextTime() >= horizon) {
+                    if (horizon < STEP_MODE_HORIZON) {
+                        currentTime = Math.max(currentTime, horizon);
+                        reason = String.format("время %.2f", horizon);
+                    }
+                    break;
+                }
+                int rejected = statistics.getTotalRejected();
+                int evicted = statistics.getTotalEvicted();
+
+                lastEvent = eventCalendar.getNextEvent();
+                currentTime = lastEvent.getTime();
+                processEventSilent(lastEvent);
+                processed++;
+
+                if (breakpoints.contains(EventType.REJECTION) && statistics.getTotalRejected() > rejected) {
+                    reason = "отказ заявке";
+                    break;
+                }
+                if (breakpoints.contains(EventType.BUFFER_EVICTION) && statistics.getTotalEvicted() > evicted) {
+                    reason = "выбивание из буфера";
+                    break;
+                }
+                if (command.getKind() == StepCommand.Kind.RUN_EVENTS && processed >= command.getValue()) {
+                    reason = String.format("%d событий", processed);
+                    break;
+                }
+                if (watchedBuffer != null && !watchedBuffer.hasFreeSpace()) {
+                    reason = "буфер P" + (watchedBuffer.getIndex() + 1) + " заполнен";
+                    break;
+                }
+            }
+        } finally {
+            consoleOutput = previousOutput;
+        }
+        System.out.printf("%n>>> ПЕРЕМОТКА: %d событий, остановка: %s, время %.2f%n", processed, reason, currentTime);
+        return lastEvent;
+    }
+
     // МЕТОД: генерация на всех источниках
     private void generateRequestsOnAllSources() {
         for (Source source : dispatcher.getSources()) {
             double firstArrivalTime = currentTime + source.generateInterArrivalTime();
             eventCalendar.scheduleEvent(new Event(firstArrivalTime, EventType.ARRIVAL,
-                    source, String.format("Первая заявка от источника %d", source.getId())));
+                    source, Log.isEnabled() ? "Первая заявка от источника " + source.getId() : null));
 
             source.setNextGenerationTime(firstArrivalTime);
 
-            System.out.printf(">>> Источник %d: заявка запланирована на время %.2f%n",
-                    source.getId(), firstArrivalTime);
+            if (Log.isEnabled()) {
+                System.out.printf(">>> Источник %d: заявка запланирована на время %.2f%n",
+                        source.getId(), firstArrivalTime);
+            }
         }
     }
 
@@ -96,10 +237,38 @@ public class Simulation {
             case SERVICE_COMPLETE:
                 processServiceComplete(event);
                 break;
+            default:
+                processGateEvent(event);
+                break;
+        }
+    }
+
+    // Поломка, ремонт и плановое обслуживание ворот
+    private void processGateEvent(Event event) {
+        switch (event.getType()) {
+            case GATE_FAILURE:
+                ((DeviceGroup) event.getSource()).handleFailure(currentTime);
+                break;
+            case GATE_REPAIR: {
+                Device device = (Device) event.getSource();
+                dispatcher.getGroupOf(device).handleRepair(device, currentTime);
+                break;
+            }
+            case MAINTENANCE:
+                ((DeviceGroup) event.getSource()).handleMaintenance(currentTime);
+                break;
+            default:
+                break;
         }
     }
 
     private void processArrival(Event event) {
+        if (event.getSource() instanceof Request) {
+            Request request = (Request) event.getSource();
+            statistics.recordArrival(request);
+            dispatcher.processArrival(request, currentTime);
+            return;
+        }
         Source source = (Source) event.getSource();
 
         Request request = source.generateRequest(currentTime);
@@ -112,33 +281,163 @@ public class Simulation {
 
     private void processServiceComplete(Event event) {
         Device device = (Device) event.getSource();
-        Request completedRequest = device.finishService();
+        Request completedRequest = device.finishService(event, currentTime);
         statistics.recordServiceCompletion(completedRequest, currentTime);
+        dispatcher.publish(EventType.SERVICE_COMPLETE, currentTime, completedRequest, device.getId());
         dispatcher.handleDeviceReleased(device);
     }
 
     private void scheduleNextArrival(Source source) {
         double nextArrivalTime = currentTime + source.generateInterArrivalTime();
         eventCalendar.scheduleEvent(new Event(nextArrivalTime, EventType.ARRIVAL,
-                source, String.format("Прибытие от источника %d", source.getId())));
+                source, Log.isEnabled() ? "Прибытие от источника " + source.getId() : null));
 
         source.setNextGenerationTime(nextArrivalTime);
     }
 
     public void run(double simulationTime) {
         // Для автоматического режима генерируем заявки на всех источниках
+        start();
+
+        if (metrics == null) {
+            advanceTo(simulationTime);
+            return;
+        }
+        metrics.start();
+        try {
+            advanceTo(simulationTime);
+        } finally {
+            metrics.stop();
+        }
+    }
+
+    // Планирование первых прибытий; дальше модель продвигается вызовами advanceTo
+    public void start() {
+        instance.set(this);
         generateRequestsOnAllSources();
+        dispatcher.startGateReliability(currentTime);
+    }
 
-        while (currentTime < simulationTime && !eventCalendar.isEmpty()) {
+    // Запуск без собственных источников (прибытия подаются injectArrival): только поломки
+    // и окна обслуживания ворот групп, отобранных filter
+    public void startGates(IntPredicate filter) {
+        instance.set(this);
+        dispatcher.startGateReliability(currentTime, filter);
+    }
+
+    // Обработка всех событий со временем строго меньше endTime; модельное время сдвигается до endTime
+    public void advanceTo(double endTime) {
+        instance.set(this);
+        if (metrics != null) {
+            advanceInstrumented(endTime);
+        } else {
+            while (!eventCalendar.isEmpty() && eventCalendar.peekNextTime() < endTime) {
+                Event nextEvent = eventCalendar.getNextEvent();
+                currentTime = nextEvent.getTime();
+                processEventSilent(nextEvent);
+            }
+        }
+        if (currentTime < endTime) {
+            currentTime = endTime;
+        }
+    }
+
+    // Тот же цикл, но с подсчетом событий и выборочным замером обработчиков
+    private void advanceInstrumented(double endTime) {
+        while (!eventCalendar.isEmpty() && eventCalendar.peekNextTime() < endTime) {
             Event nextEvent = eventCalendar.getNextEvent();
             currentTime = nextEvent.getTime();
-            processEventSilent(nextEvent);
+
+            if (metrics.beginEvent(nextEvent.getType())) {
+                long start = System.nanoTime();
+                processEventSilent(nextEvent);
+                metrics.recordHandler(nextEvent.getType(), System.nanoTime() - start);
+                metrics.recordQueueDepth(currentTime, eventCalendar.size());
+            } else {
+                processEventSilent(nextEvent);
+            }
+            metrics.recordMaxDepth(eventCalendar.getPeakSize());
+        }
+    }
+
+    // Один шаг без вывода; null - до horizon событий больше нет
+    public Event stepSilent(double horizon) {
+        instance.set(this);
+        if (eventCalendar.isEmpty() || eventCalendar.peekNextTime() >= horizon) {
+            return null;
         }
+        Event event = eventCalendar.getNextEvent();
+        currentTime = event.getTime();
+        processEventSilent(event);
+        return event;
+    }
+
+    // Прибытие, сгенерированное вне этой симуляции (разделение потока по дорожкам, внешняя лента)
+    public void injectArrival(Request request) {
+        eventCalendar.scheduleEvent(new Event(request.getArrivalTime(), EventType.ARRIVAL, request,
+                Log.isEnabled() ? String.format("Внешнее прибытие заявки %d", request.getId()) : null));
+    }
+
+    // Прибытие в текущий момент модельного времени, минуя календарь
+    public void acceptArrival(Request request) {
+        instance.set(this);
+        statistics.recordArrival(request);
+        dispatcher.processArrival(request, currentTime);
+    }
+
+    // Режим внешних завершений: ворота не планируют SERVICE_COMPLETE, завершение сообщает completeExternally.
+    // При выключении начатое обслуживание досчитывается моделью по выборке времени обслуживания
+    public void setExternalCompletions(boolean external) {
+        instance.set(this);
+        if (externalCompletions && !external) {
+            for (DeviceGroup group : dispatcher.getGroups()) {
+                for (Device device : group.getDevices()) {
+                    device.scheduleCompletions(currentTime);
+                }
+            }
+        }
+        externalCompletions = external;
+    }
+
+    // Внешнее завершение обслуживания заявки; false - заявка моделью не найдена
+    public boolean completeExternally(int requestId) {
+        instance.set(this);
+        for (DeviceGroup group : dispatcher.getGroups()) {
+            for (Device device : group.getDevices()) {
+                Request request = device.finishService(requestId, currentTime);
+                if (request != null) {
+                    statistics.recordServiceCompletion(request, currentTime);
+                    dispatcher.publish(EventType.SERVICE_COMPLETE, currentTime, request, device.getId());
+                    group.handleDeviceReleased(device);
+                    return true;
+                }
+            }
+        }
+        // Модель еще держит заявку в буфере, а в реальности ее уже обслужили
+        for (Buffer buffer : dispatcher.getBuffers()) {
+            Request request = buffer.findRequest(requestId);
+            if (request != null) {
+                buffer.removeRequest(request);
+                dispatcher.publish(EventType.BUFFER_REMOVE, currentTime, request, buffer.getIndex());
+                request.setServiceStartTime(currentTime);
+                request.setServiceEndTime(currentTime);
+                request.setStatus(RequestStatus.COMPLETED);
+                statistics.recordServiceCompletion(request, currentTime);
+                return true;
+            }
+        }
+        return false;
     }
 
     private void processEventSilent(Event event) {
         switch (event.getType()) {
             case ARRIVAL: {
+                if (event.getSource() instanceof Request) {
+                    Request request = (Request) event.getSource();
+                    statistics.recordArrival(request);
+                    dispatcher.processArrival(request, currentTime);
+                    break;
+                }
                 Source source = (Source) event.getSource();
                 Request request = source.generateRequest(currentTime);
                 statistics.recordArrival(request);
@@ -148,11 +447,15 @@ public class Simulation {
             }
             case SERVICE_COMPLETE: {
                 Device device = (Device) event.getSource();
-                Request completedRequest = device.finishService();
+                Request completedRequest = device.finishService(event, currentTime);
                 statistics.recordServiceCompletion(completedRequest, currentTime);
+                dispatcher.publish(EventType.SERVICE_COMPLETE, currentTime, completedRequest, device.getId());
                 dispatcher.handleDeviceReleased(device);
                 break;
             }
+            default:
+                processGateEvent(event);
+                break;
         }
     }
 
@@ -162,7 +465,15 @@ public class Simulation {
 
     // Getters
     public static Simulation getInstance() {
-        return instance;
+        return instance.get();
+    }
+
+    public boolean isConsoleOutput() {
+        return consoleOutput;
+    }
+
+    public void setConsoleOutput(boolean consoleOutput) {
+        this.consoleOutput = consoleOutput;
     }
 
     public EventCalendar getEventCalendar() {
@@ -177,6 +488,18 @@ public class Simulation {
         return statistics;
     }
 
+    public EngineMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean isExternalCompletions() {
+        return externalCompletions;
+    }
+
+    public void setMetrics(EngineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public WarehouseDispatcher getDispatcher() {
         return dispatcher;
     }
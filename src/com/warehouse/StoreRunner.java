@@ -0,0 +1,218 @@
+package com.warehouse;
+
+import com.warehouse.store.ResultStore;
+import com.warehouse.store.Segment;
+import com.warehouse.store.StoreQuery;
+import com.warehouse.store.StoredRun;
+import com.warehouse.utils.ResultWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Запросы к хранилищу прогонов (run/sweep/distribute --store):
+ *   java com.warehouse.Main store query --dir каталог --where group.0.devices=2 --where 'lambda>1.2'
+ *        --order perishableRejectionRate [--desc] [--limit 20] [--columns a,b] [--csv файл]
+ *   java com.warehouse.Main store info --dir каталог
+ *   java com.warehouse.Main store compact --dir каталог
+ */
+public class StoreRunner {
+    private static final List<String> DEFAULT_METRICS = Arrays.asList("seed", "perishableRejectionRate",
+            "rejectionRate", "averageWaitingTime");
+
+    private String command;
+    private Path directory;
+    private final StoreQuery query = new StoreQuery();
+    private String orderBy;
+    private boolean descending;
+    private List<String> columns;
+    private Path csvFile;
+
+    public static int run(String[] args) {
+        StoreRunner runner = new StoreRunner();
+        try {
+            runner.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            printUsage();
+            return BatchRunner.EXIT_USAGE;
+        }
+        try {
+            return runner.execute();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка конфигурации: " + e.getMessage());
+            return BatchRunner.EXIT_USAGE;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ошибка выполнения: " + e);
+            return BatchRunner.EXIT_FAILURE;
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--dir":
+                    directory = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                case "--where":
+                    query.where(requireValue(args, ++i, arg));
+                    break;
+                case "--order":
+                    orderBy = requireValue(args, ++i, arg);
+                    break;
+                case "--desc":
+                    descending = true;
+                    break;
+                case "--limit":
+                    query.limit(Integer.parseInt(requireValue(args, ++i, arg)));
+                    break;
+                case "--columns":
+                    columns = Arrays.asList(requireValue(args, ++i, arg).split(","));
+                    break;
+                case "--csv":
+                    csvFile = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("неизвестная опция " + arg);
+                    }
+                    if (command != null) {
+                        throw new IllegalArgumentException("лишний аргумент " + arg);
+                    }
+                    command = arg;
+            }
+        }
+        if (command == null || !Arrays.asList("query", "info", "compact").contains(command)) {
+            throw new IllegalArgumentException("нужна команда query, info или compact");
+        }
+        if (directory == null) {
+            throw new IllegalArgumentException("не указан каталог хранилища --dir");
+        }
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("нет каталога хранилища " + directory);
+        }
+        if (orderBy != null) {
+            query.orderBy(orderBy, descending);
+        }
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("опции " + option + " нужно значение");
+        }
+        return args[index];
+    }
+
+    private int execute() throws IOException {
+        ResultStore store = ResultStore.open(directory);
+        switch (command) {
+            case "info":
+                return info(store);
+            case "compact":
+                long start = System.nanoTime();
+                int merged = store.compact();
+                System.err.printf(Locale.ROOT, "store: слито сегментов %d, сегментов теперь %d, %d мс%n",
+                        merged, store.segments().size(), (System.nanoTime() - start) / 1_000_000);
+                return BatchRunner.EXIT_OK;
+            default:
+                return query(store);
+        }
+    }
+
+    private int query(ResultStore store) throws IOException {
+        long start = System.nanoTime();
+        List<Segment> segments = store.segments();
+        List<StoredRun> runs = query.execute(segments);
+        long queryMicros = (System.nanoTime() - start) / 1000;
+
+        List<String> output = new ArrayList<>();
+        if (columns != null) {
+            output.addAll(columns);
+        } else {
+            Set<String> selected = new LinkedHashSet<>();
+            for (StoreQuery.Condition condition : query.getConditions()) {
+                if (!condition.getColumn().equals("scenario")) selected.add(condition.getColumn());
+            }
+            if (orderBy != null) selected.add(orderBy);
+            selected.addAll(DEFAULT_METRICS);
+            output.addAll(selected);
+        }
+        if (csvFile == null) {
+            writeRows(System.out, output, runs);
+        } else {
+            try (Writer writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8)) {
+                writeRows(writer, output, runs);
+            }
+        }
+        long rows = 0;
+        for (Segment segment : segments) {
+            rows += segment.getRows();
+        }
+        System.err.printf(Locale.ROOT, "store: rows=%d segments=%d skipped=%d examined=%d matched=%d за %.1f мс%n",
+                rows, segments.size(), query.getSegmentsSkipped(), query.getRowsExamined(), runs.size(),
+                queryMicros / 1000.0);
+        return BatchRunner.EXIT_OK;
+    }
+
+    private static void writeRows(Appendable out, List<String> output, List<StoredRun> runs) throws IOException {
+        out.append("scenario,").append(String.join(",", output)).append('\n');
+        StringBuilder line = new StringBuilder();
+        for (StoredRun run : runs) {
+            line.setLength(0);
+            line.append(run.getScenario());
+            for (String column : output) {
+                double value = run.get(column);
+                if (Double.isNaN(value)) {
+                    line.append(',');
+                } else if (ResultStore.isIntegerMetric(column)) {
+                    line.append(',').append((long) value);
+                } else {
+                    line.append(',').append(ResultWriter.number(value));
+                }
+            }
+            out.append(line).append('\n');
+        }
+    }
+
+    private static int info(ResultStore store) throws IOException {
+        List<Segment> segments = store.segments();
+        long rows = 0;
+        long bytes = 0;
+        Set<String> parameters = new TreeSet<>();
+        for (Segment segment : segments) {
+            rows += segment.getRows();
+            bytes += segment.getBytes();
+            for (Segment.Column column : segment.columns()) {
+                if (column.isIndexed()) parameters.add(column.getName());
+            }
+        }
+        System.out.printf(Locale.ROOT, "Сегментов: %d, прогонов: %d, на диске: %.1f МБ%n",
+                segments.size(), rows, bytes / 1048576.0);
+        System.out.println("Индексированные колонки: " + String.join(", ", parameters));
+        return BatchRunner.EXIT_OK;
+    }
+
+    private static void printUsage() {
+        System.err.println("Использование: java com.warehouse.Main store query|info|compact --dir каталог [опции]");
+        System.err.println("  --where <условие>      ключ=значение, ключ<значение, ключ>=значение, ключ!=значение");
+        System.err.println("                         (ключи сценария, lambda - суммарная интенсивность, показатели, scenario=имя)");
+        System.err.println("  --order <колонка>      сортировка по возрастанию (--desc - по убыванию)");
+        System.err.println("  --limit <n>            не больше n строк");
+        System.err.println("  --columns a,b          колонки вывода (по умолчанию условия, сортировка и основные показатели)");
+        System.err.println("  --csv <файл>           результат в CSV (по умолчанию stdout)");
+        System.err.println("  info                   число сегментов и прогонов, индексированные колонки");
+        System.err.println("  compact                слить мелкие сегменты (после многих процессов-исполнителей)");
+    }
+}
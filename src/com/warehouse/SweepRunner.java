@@ -0,0 +1,243 @@
+package com.warehouse;
+
+import com.warehouse.analytic.HubEstimate;
+import com.warehouse.analytic.QueueEstimator;
+import com.warehouse.store.ResultStore;
+import com.warehouse.utils.Log;
+import com.warehouse.utils.ParameterGrid;
+import com.warehouse.utils.ResultWriter;
+import com.warehouse.utils.RunResult;
+import com.warehouse.utils.Scenario;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Перебор сетки конфигураций хаба:
+ *   java com.warehouse.Main sweep --vary group.0.devices=1..4 --vary buffer.0.capacity=4,8,12 [опции] сценарий.properties
+ *
+ * Каждая точка сначала оценивается аналитически (QueueEstimator). Точки, где оценка доли отказов
+ * превышает порог SLA сценария больше чем в --prune-margin раз, отбрасываются без моделирования,
+ * остальные прогоняются репликациями сценария. Для смоделированных точек печатается расхождение
+ * оценки с моделированием.
+ */
+public class SweepRunner {
+    private final ParameterGrid grid = new ParameterGrid();
+    private Path scenarioFile;
+    private Path csvFile;
+    private Long seedOverride;
+    private Integer replicationsOverride;
+    private double pruneMargin = 2;
+    private boolean prune = true;
+    private Path storeDir;
+
+    public static int run(String[] args) {
+        SweepRunner runner = new SweepRunner();
+        try {
+            runner.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            printUsage();
+            return BatchRunner.EXIT_USAGE;
+        }
+
+        Log.setEnabled(false);
+        try {
+            return runner.execute();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка конфигурации: " + e.getMessage());
+            return BatchRunner.EXIT_USAGE;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ошибка выполнения: " + e);
+            return BatchRunner.EXIT_FAILURE;
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--vary":
+                    grid.addAxis(requireValue(args, ++i, arg));
+                    break;
+                case "--csv":
+                    csvFile = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                case "--seed":
+                    seedOverride = Long.parseLong(requireValue(args, ++i, arg));
+                    break;
+                case "--replications":
+                    replicationsOverride = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--prune-margin":
+                    pruneMargin = Double.parseDouble(requireValue(args, ++i, arg));
+                    if (!(pruneMargin >= 1)) {
+                        throw new IllegalArgumentException("--prune-margin должен быть не меньше 1");
+                    }
+                    break;
+                case "--no-prune":
+                    prune = false;
+                    break;
+                case "--store":
+                    storeDir = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("неизвестная опция " + arg);
+                    }
+                    if (scenarioFile != null) {
+                        throw new IllegalArgumentException("перебор выполняется для одного сценария");
+                    }
+                    scenarioFile = Paths.get(arg);
+            }
+        }
+        if (scenarioFile == null) {
+            throw new IllegalArgumentException("не указан файл сценария");
+        }
+        if (grid.isEmpty()) {
+            throw new IllegalArgumentException("не задано ни одной оси --vary");
+        }
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("опции " + option + " нужно значение");
+        }
+        return args[index];
+    }
+
+    private int execute() throws IOException {
+        if (storeDir != null) {
+            ResultStore.setShared(ResultStore.open(storeDir));
+        }
+        Scenario base = Scenario.load(scenarioFile);
+        base = base.withSeedOverrides(seedOverride, replicationsOverride);
+
+        int points = grid.size();
+        List<String> rows = new ArrayList<>(points);
+        Accuracy accuracy = new Accuracy();
+        for (int p = 0; p < points; p++) {
+            String[] point = grid.point(p);
+            rows.add(evaluatePoint(grid.apply(base, point), point, prune, pruneMargin, accuracy));
+        }
+
+        writeRows(rows);
+        if (ResultStore.shared() != null) {
+            ResultStore.shared().flush();
+        }
+        System.err.printf(Locale.ROOT, "sweep: points=%d simulated=%d pruned=%d estimate=%.1f мкс/точку%n",
+                points, accuracy.simulated, accuracy.pruned, accuracy.estimateNanos / 1000.0 / points);
+        if (accuracy.simulated > 0) {
+            System.err.printf(Locale.ROOT,
+                    "расхождение оценки с моделированием (среднее |оценка-модель|): потери %.4f, отказы %.4f, ожидание %.2f мин%n",
+                    accuracy.lossError / accuracy.simulated, accuracy.rejectionError / accuracy.simulated,
+                    accuracy.waitError / accuracy.simulated);
+        }
+        return BatchRunner.EXIT_OK;
+    }
+
+    /** Накопленные по точкам расхождения аналитической оценки с моделированием. */
+    public static final class Accuracy {
+        int pruned;
+        int simulated;
+        long estimateNanos;
+        double lossError;
+        double rejectionError;
+        double waitError;
+    }
+
+    // Строка таблицы для точки сетки (сценарий уже с подставленными значениями осей);
+    // accuracy может быть null. Используется и распределенным перебором
+    public static String evaluatePoint(Scenario scenario, String[] point, boolean prune, double pruneMargin,
+                                       Accuracy accuracy) {
+        StringBuilder row = new StringBuilder();
+        for (String value : point) {
+            row.append(value).append(',');
+        }
+
+        long start = System.nanoTime();
+        HubEstimate estimate = QueueEstimator.estimate(scenario.getTopology());
+        long estimateNanos = System.nanoTime() - start;
+        row.append(ResultWriter.number(estimate.getLossRate())).append(',')
+                .append(ResultWriter.number(estimate.getRejectionRate())).append(',')
+                .append(ResultWriter.number(estimate.getPerishableRejectionRate())).append(',')
+                .append(ResultWriter.number(estimate.getAverageWaitingTime())).append(',');
+        if (accuracy != null) {
+            accuracy.estimateNanos += estimateNanos;
+        }
+
+        if (prune && clearlyInfeasible(scenario, estimate, pruneMargin)) {
+            if (accuracy != null) accuracy.pruned++;
+            return row.append("pruned,,,,").toString();
+        }
+        List<RunResult> results = BatchRunner.runScenario(scenario);
+        double loss = RunResult.mean(results, r -> r.getRejectionRate() + r.getEvictionRate());
+        double rejection = RunResult.mean(results, RunResult::getRejectionRate);
+        double wait = RunResult.mean(results, RunResult::getAverageWaitingTime);
+        if (accuracy != null) {
+            accuracy.simulated++;
+            accuracy.lossError += Math.abs(estimate.getLossRate() - loss);
+            accuracy.rejectionError += Math.abs(estimate.getRejectionRate() - rejection);
+            accuracy.waitError += Math.abs(estimate.getAverageWaitingTime() - wait);
+        }
+        return row.append(scenario.checkSla(results).isEmpty() ? "ok" : "sla_violated").append(',')
+                .append(ResultWriter.number(loss)).append(',')
+                .append(ResultWriter.number(rejection)).append(',')
+                .append(ResultWriter.number(RunResult.mean(results, RunResult::getPerishableRejectionRate)))
+                .append(',').append(ResultWriter.number(wait)).toString();
+    }
+
+    // Оценка выше порога SLA с запасом pruneMargin - моделировать не нужно
+    private static boolean clearlyInfeasible(Scenario scenario, HubEstimate estimate, double pruneMargin) {
+        double perishableLimit = scenario.getMaxPerishableRejectionRate();
+        double limit = scenario.getMaxRejectionRate();
+        return (perishableLimit > 0 && estimate.getPerishableRejectionRate() > perishableLimit * pruneMargin)
+                || (limit > 0 && estimate.getRejectionRate() > limit * pruneMargin);
+    }
+
+    public static String csvHeader(List<String> keys) {
+        StringBuilder header = new StringBuilder();
+        for (String key : keys) {
+            header.append(key).append(',');
+        }
+        return header.append("est_loss_rate,est_rejection_rate,est_perishable_rejection_rate,est_avg_waiting,")
+                .append("status,loss_rate,rejection_rate,perishable_rejection_rate,avg_waiting").toString();
+    }
+
+    private void writeRows(List<String> rows) throws IOException {
+        String header = csvHeader(grid.getKeys());
+        if (csvFile == null) {
+            PrintStream out = System.out;
+            out.println(header);
+            rows.forEach(out::println);
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8)) {
+            writer.write(header);
+            writer.write('\n');
+            for (String row : rows) {
+                writer.write(row);
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Использование: java com.warehouse.Main sweep --vary ключ=значения [опции] сценарий.properties");
+        System.err.println("  --vary ключ=1,2,3      ось перебора (ключ топологии); ключ=1..4 - целый диапазон");
+        System.err.println("  --csv <файл>           таблица точек в CSV (по умолчанию stdout)");
+        System.err.println("  --seed <n>             первое зерно (переопределяет run.seed)");
+        System.err.println("  --replications <n>     число репликаций (переопределяет run.replications)");
+        System.err.println("  --prune-margin <k>     отбрасывать точки, где оценка отказов > k x порог SLA (по умолчанию 2)");
+        System.err.println("  --no-prune             моделировать все точки (проверка точности оценки)");
+        System.err.println("  --store <каталог>      добавить итоги всех прогонов в хранилище (запросы - Main store)");
+    }
+}
@@ -0,0 +1,121 @@
+package com.warehouse;
+
+import com.warehouse.twin.DigitalTwin;
+import com.warehouse.twin.FeedEvent;
+import com.warehouse.twin.FeedReader;
+import com.warehouse.utils.Log;
+import com.warehouse.utils.SimulationConfig;
+import com.warehouse.utils.TopologyConfig;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Режим цифрового двойника:
+ *   java com.warehouse.Main twin (--feed файл | --port n) [--config файл] [--seed n] [--speed k]
+ *        [--forecast мин] [--branches n] [--threads n] [--interval мс] [--until мин]
+ * Модельное время идет за часами: минута модели = 60/k секунд. После каждого обновления
+ * печатается строка с прогнозом показателей на следующую смену.
+ */
+public class TwinRunner {
+
+    public static int run(String[] args) {
+        Path feedFile = null;
+        Integer port = null;
+        Path configFile = null;
+        long seed = 1;
+        double speed = 1;
+        double forecastHorizon = 8 * 60;
+        int branches = 16;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long intervalMillis = 1000;
+        double until = Double.POSITIVE_INFINITY;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--feed": feedFile = Paths.get(args[++i]); break;
+                    case "--port": port = Integer.parseInt(args[++i]); break;
+                    case "--config": configFile = Paths.get(args[++i]); break;
+                    case "--seed": seed = Long.parseLong(args[++i]); break;
+                    case "--speed": speed = Double.parseDouble(args[++i]); break;
+                    case "--forecast": forecastHorizon = Double.parseDouble(args[++i]); break;
+                    case "--branches": branches = Integer.parseInt(args[++i]); break;
+                    case "--threads": threads = Integer.parseInt(args[++i]); break;
+                    case "--interval": intervalMillis = Long.parseLong(args[++i]); break;
+                    case "--until": until = Double.parseDouble(args[++i]); break;
+                    default:
+                        throw new IllegalArgumentException("неизвестная опция " + args[i]);
+                }
+            }
+            if ((feedFile == null) == (port == null)) {
+                throw new IllegalArgumentException("нужно указать ровно один источник ленты: --feed или --port");
+            }
+            if (!(speed > 0) || branches <= 0 || intervalMillis <= 0) {
+                throw new IllegalArgumentException("--speed, --branches и --interval должны быть положительными");
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            System.err.println("Использование: java com.warehouse.Main twin (--feed файл | --port n) [--config файл] "
+                    + "[--seed n] [--speed k] [--forecast мин] [--branches n] [--threads n] [--interval мс] [--until мин]");
+            return BatchRunner.EXIT_USAGE;
+        }
+
+        Log.setEnabled(false);
+        try (FeedReader feed = feedFile != null ? FeedReader.tail(feedFile) : FeedReader.socket(port)) {
+            SimulationConfig config = configFile != null ? SimulationConfig.load(configFile) : new SimulationConfig();
+            DigitalTwin twin = new DigitalTwin(TopologyConfig.load(config), seed);
+            List<String> lines = new ArrayList<>();
+            long startNanos = System.nanoTime();
+            long skippedLines = 0;
+
+            while (twin.getCurrentTime() < until) {
+                long updateStart = System.nanoTime();
+                lines.clear();
+                feed.poll(lines);
+                for (String line : lines) {
+                    // Одна испорченная строка ленты не должна останавливать двойник
+                    try {
+                        FeedEvent event = FeedEvent.parse(line);
+                        if (event != null) {
+                            twin.apply(event);
+                        }
+                    } catch (IllegalArgumentException e) {
+                        skippedLines++;
+                        System.err.println("Пропущена строка ленты: " + e.getMessage());
+                    }
+                }
+                double clockTime = (System.nanoTime() - startNanos) / 60e9 * speed;
+                twin.advanceTo(Math.min(clockTime, until));
+                double updateMillis = (System.nanoTime() - updateStart) / 1e6;
+
+                DigitalTwin.Forecast forecast = twin.forecast(forecastHorizon, branches, threads);
+                System.out.printf(Locale.ROOT,
+                        "t=%.1f events=%d queued=%d unmatched=%d skipped=%d | next %.0f min: rejection=%.4f±%.4f "
+                                + "perishable=%.4f±%.4f systemTime=%.2f | update=%.2fms forecast=%.1fms%n",
+                        twin.getCurrentTime(), twin.getAppliedEvents(), twin.getQueuedRequests(),
+                        twin.getUnmatchedCompletions(), skippedLines, forecastHorizon,
+                        forecast.getRejectionRate().getMean(), forecast.getRejectionRate().getHalfWidth95(),
+                        forecast.getPerishableRejectionRate().getMean(),
+                        forecast.getPerishableRejectionRate().getHalfWidth95(),
+                        forecast.getAverageSystemTime().getMean(), updateMillis, forecast.getComputeMillis());
+                if (twin.getCurrentTime() < until) {
+                    Thread.sleep(intervalMillis);
+                }
+            }
+            return BatchRunner.EXIT_OK;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            return BatchRunner.EXIT_USAGE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BatchRunner.EXIT_OK;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ошибка выполнения: " + e);
+            return BatchRunner.EXIT_FAILURE;
+        }
+    }
+}
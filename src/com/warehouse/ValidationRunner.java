@@ -0,0 +1,172 @@
+package com.warehouse;
+
+import com.warehouse.enums.VariateMode;
+import com.warehouse.utils.Log;
+import com.warehouse.utils.Scenario;
+import com.warehouse.utils.SimulationConfig;
+import com.warehouse.validation.EquivalenceSuite;
+import com.warehouse.validation.QueueingSuite;
+import com.warehouse.validation.ValidationReport;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Проверка, что оптимизации движка не изменили результаты:
+ *   java com.warehouse.Main validate [опции] [сценарий.properties...]
+ *
+ * Точная часть - все варианты движка дают ту же последовательность событий, что Simulation.run,
+ * на встроенной конфигурации, ее варианте с поломками ворот и на переданных сценариях.
+ * Статистическая часть - сверка с формулами M/G/1 для всех режимов случайных величин.
+ * Выполняется при сборке (dist/build.sh); код 3 - найдены расхождения.
+ */
+public class ValidationRunner {
+    private final List<Path> scenarioFiles = new ArrayList<>();
+    private long firstSeed = 1;
+    private int seeds = 2;
+    private int replications = 20;
+    private double duration = 20000;
+    private boolean exact = true;
+    private boolean statistical = true;
+    private boolean quiet;
+
+    public static int run(String[] args) {
+        ValidationRunner runner = new ValidationRunner();
+        try {
+            runner.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            printUsage();
+            return BatchRunner.EXIT_USAGE;
+        }
+
+        Log.setEnabled(false);
+        try {
+            return runner.execute();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка конфигурации: " + e.getMessage());
+            return BatchRunner.EXIT_USAGE;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ошибка выполнения: " + e);
+            return BatchRunner.EXIT_FAILURE;
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--seed":
+                    firstSeed = Long.parseLong(requireValue(args, ++i, arg));
+                    break;
+                case "--seeds":
+                    seeds = Integer.parseInt(requireValue(args, ++i, arg));
+                    if (seeds <= 0) {
+                        throw new IllegalArgumentException("--seeds должен быть положительным");
+                    }
+                    break;
+                case "--replications":
+                    replications = Integer.parseInt(requireValue(args, ++i, arg));
+                    if (replications < 2) {
+                        throw new IllegalArgumentException("--replications должен быть не меньше 2");
+                    }
+                    break;
+                case "--duration":
+                    duration = Double.parseDouble(requireValue(args, ++i, arg));
+                    if (!(duration > 0)) {
+                        throw new IllegalArgumentException("--duration должен быть положительным");
+                    }
+                    break;
+                case "--exact-only":
+                    statistical = false;
+                    break;
+                case "--statistical-only":
+                    exact = false;
+                    break;
+                case "--quiet":
+                    quiet = true;
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("неизвестная опция " + arg);
+                    }
+                    scenarioFiles.add(Paths.get(arg));
+            }
+        }
+        if (!exact && !statistical) {
+            throw new IllegalArgumentException("--exact-only и --statistical-only исключают друг друга");
+        }
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("опции " + option + " нужно значение");
+        }
+        return args[index];
+    }
+
+    private int execute() throws IOException {
+        ValidationReport report = new ValidationReport(quiet ? null : System.out);
+        long start = System.nanoTime();
+        if (exact) {
+            EquivalenceSuite suite = new EquivalenceSuite(report);
+            for (Scenario scenario : equivalenceScenarios()) {
+                for (long seed = firstSeed; seed < firstSeed + seeds; seed++) {
+                    for (VariateMode mode : VariateMode.values()) {
+                        suite.check(scenario, seed, mode);
+                    }
+                }
+            }
+        }
+        if (statistical) {
+            QueueingSuite suite = new QueueingSuite(report, replications, duration);
+            for (VariateMode mode : VariateMode.values()) {
+                suite.check(mode);
+            }
+        }
+
+        for (String failure : report.getFailures()) {
+            System.err.println("Расхождение: " + failure);
+        }
+        System.err.printf("validate: checks=%d failed=%d за %d мс%n", report.getCheckCount(),
+                report.getFailureCount(), (System.nanoTime() - start) / 1_000_000);
+        return report.getFailureCount() == 0 ? BatchRunner.EXIT_OK : BatchRunner.EXIT_SLA_VIOLATION;
+    }
+
+    // Встроенная конфигурация, она же с поломками и окнами обслуживания ворот (отмены и переносы
+    // событий календаря), и сценарии из командной строки
+    private List<Scenario> equivalenceScenarios() throws IOException {
+        List<Scenario> scenarios = new ArrayList<>();
+        Scenario base = new Scenario("default", new SimulationConfig());
+        scenarios.add(base);
+        SimulationConfig failures = base.getConfig().copy();
+        failures.setProperty("group.0.mtbf", "240");
+        failures.setProperty("group.0.mttr", "30");
+        failures.setProperty("group.0.maintenance", "720-750");
+        failures.setProperty("group.1.mtbf", "240");
+        failures.setProperty("group.1.mttr", "30");
+        failures.setProperty("group.1.interruption", "RESTART");
+        failures.setProperty("device.3.maintenance", "120-240");
+        scenarios.add(new Scenario("default-failures", failures));
+        for (Path file : scenarioFiles) {
+            scenarios.add(Scenario.load(file));
+        }
+        return scenarios;
+    }
+
+    private static void printUsage() {
+        System.err.println("Использование: java com.warehouse.Main validate [опции] [сценарий.properties...]");
+        System.err.println("  --seed <n>             первое зерно точной проверки (по умолчанию 1)");
+        System.err.println("  --seeds <n>            число зерен точной проверки на сценарий (по умолчанию 2)");
+        System.err.println("  --replications <n>     репликаций статистической проверки (по умолчанию 20)");
+        System.err.println("  --duration <мин>       горизонт статистической проверки (по умолчанию 20000)");
+        System.err.println("  --exact-only           только точная эквивалентность вариантов движка");
+        System.err.println("  --statistical-only     только сверка с формулами теории очередей");
+        System.err.println("  --quiet                печатать только расхождения");
+        System.err.println("Коды завершения: 0 - расхождений нет, 1 - ошибка выполнения,");
+        System.err.println("                 2 - ошибка аргументов, 3 - найдены расхождения");
+    }
+}
@@ -0,0 +1,54 @@
+package com.warehouse.analytic;
+
+import com.warehouse.enums.CargoType;
+import com.warehouse.utils.TopologyConfig;
+
+import java.util.List;
+
+/**
+ * Оценка хаба целиком: дорожки и показатели, сопоставимые с RunResult
+ * (доли отказов и потерь по всем и по скоропортящимся заявкам, среднее ожидание).
+ */
+public class HubEstimate {
+    private final List<LaneEstimate> lanes;
+    private final double rejectionRate;
+    private final double lossRate;
+    private final double perishableRejectionRate;
+    private final double averageWaitingTime;
+
+    HubEstimate(TopologyConfig topology, double[] classRates, List<LaneEstimate> lanes) {
+        this.lanes = lanes;
+        double arrivals = 0;
+        double rejected = 0;
+        double lost = 0;
+        double perishableArrivals = 0;
+        double perishableRejected = 0;
+        for (int c = 0; c < classRates.length; c++) {
+            LaneEstimate lane = lanes.get(topology.getClassGroup(c));
+            double deadline = topology.getClassDeadline(c);
+            arrivals += classRates[c];
+            lost += classRates[c] * lane.getLossProbability();
+            rejected += classRates[c] * lane.rejectionProbability(deadline);
+            if (topology.getClassType(c) == CargoType.PERISHABLE) {
+                perishableArrivals += classRates[c];
+                perishableRejected += classRates[c] * lane.rejectionProbability(deadline);
+            }
+        }
+        double served = 0;
+        double waiting = 0;
+        for (LaneEstimate lane : lanes) {
+            served += lane.getThroughput();
+            waiting += lane.getThroughput() * lane.getMeanWait();
+        }
+        this.rejectionRate = arrivals > 0 ? rejected / arrivals : 0;
+        this.lossRate = arrivals > 0 ? lost / arrivals : 0;
+        this.perishableRejectionRate = perishableArrivals > 0 ? perishableRejected / perishableArrivals : 0;
+        this.averageWaitingTime = served > 0 ? waiting / served : 0;
+    }
+
+    public List<LaneEstimate> getLanes() { return lanes; }
+    public double getRejectionRate() { return rejectionRate; }
+    public double getLossRate() { return lossRate; }
+    public double getPerishableRejectionRate() { return perishableRejectionRate; }
+    public double getAverageWaitingTime() { return averageWaitingTime; }
+}
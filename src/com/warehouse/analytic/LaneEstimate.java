@@ -0,0 +1,66 @@
+package com.warehouse.analytic;
+
+/**
+ * Аналитическая оценка одной дорожки хаба (группа ворот и ее буфер).
+ * Потери - доля прибывших заявок, из-за которых кто-то теряется: отказ прибывшей
+ * или выбивание просроченной из буфера (правило Д10О2 меняет одну потерю на другую).
+ */
+public class LaneEstimate {
+    private final int group;
+    private final double arrivalRate;
+    private final int servers;
+    private final double bufferCapacity;
+    private final double meanService;
+    private final double serviceScv;
+    private final double availability;
+    private final double lossProbability;
+    private final double meanWait; // среднее ожидание обслуженных заявок, мин
+    private final double utilisation;
+
+    LaneEstimate(int group, double arrivalRate, int servers, double bufferCapacity, double meanService,
+                 double serviceScv, double availability, double lossProbability, double meanWait,
+                 double utilisation) {
+        this.group = group;
+        this.arrivalRate = arrivalRate;
+        this.servers = servers;
+        this.bufferCapacity = bufferCapacity;
+        this.meanService = meanService;
+        this.serviceScv = serviceScv;
+        this.availability = availability;
+        this.lossProbability = lossProbability;
+        this.meanWait = meanWait;
+        this.utilisation = utilisation;
+    }
+
+    // Доля потерь, приходящаяся на выбивание, для класса с дедлайном deadline.
+    // Полный буфер проходит циклы: B заявок набираются и через deadline становятся просроченными,
+    // каждая выбивается одной прибывшей; остальные прибытия цикла получают отказ
+    public double evictionShare(double deadline) {
+        if (!(deadline > 0) || !(arrivalRate > 0)) {
+            return 0;
+        }
+        return Math.min(1, bufferCapacity / (arrivalRate * deadline));
+    }
+
+    public double rejectionProbability(double deadline) {
+        return lossProbability * (1 - evictionShare(deadline));
+    }
+
+    public double evictionProbability(double deadline) {
+        return lossProbability * evictionShare(deadline);
+    }
+
+    // Обслуженные заявки в минуту
+    public double getThroughput() { return arrivalRate * (1 - lossProbability); }
+
+    public int getGroup() { return group; }
+    public double getArrivalRate() { return arrivalRate; }
+    public int getServers() { return servers; }
+    public double getBufferCapacity() { return bufferCapacity; }
+    public double getMeanService() { return meanService; }
+    public double getServiceScv() { return serviceScv; }
+    public double getAvailability() { return availability; }
+    public double getLossProbability() { return lossProbability; }
+    public double getMeanWait() { return meanWait; }
+    public double getUtilisation() { return utilisation; }
+}
@@ -0,0 +1,230 @@
+package com.warehouse.analytic;
+
+import com.warehouse.utils.TopologyConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Быстрая аналитическая оценка хаба без моделирования (микросекунды на конфигурацию).
+ *
+ * Каждая группа ворот - система M/G/c/K: пуассоновский поток классов, направленных в группу,
+ * c = ворота x вместимость, K = c + буфер группы (буфер нескольких групп делится поровну).
+ * Потери: M/G/c/K приближается через M/M/c/K с буфером, масштабированным на 2/(1+cs^2),
+ * где cs^2 - квадрат коэффициента вариации равномерного времени разгрузки.
+ * Поломки и плановые окна уменьшают скорость обслуживания на коэффициент готовности.
+ *
+ * Ожидание обслуженных считается по правилам хаба, а не по FIFO: ворота берут последнюю заявку
+ * буфера, прибывшая в полный буфер выбивает просроченную (Д10О2). Меченая заявка проходит цепь
+ * (выше нее a заявок, ниже b): ее обслуживают, когда освобождаются ворота при a = 0, и выбивают,
+ * когда полный буфер встречает ее на дне. При перегрузке обслуженные - в основном свежие заявки,
+ * поэтому ожидание падает с ростом буфера. Цепь экспоненциальная; поправка двух моментов (1+cs^2)/2
+ * действует при малой загрузке и снимается к загрузке 1 (вес rho^3 подобран по моделированию).
+ */
+public final class QueueEstimator {
+    private static final double RESCALE_LIMIT = 1e200;
+
+    private QueueEstimator() {
+    }
+
+    public static HubEstimate estimate(TopologyConfig topology) {
+        int classes = topology.getClassCount();
+        double[] classRates = new double[classes];
+        for (int s = 0; s < topology.getSourceCount(); s++) {
+            for (int c = 0; c < classes; c++) {
+                classRates[c] += topology.getSourceLambda(s) * topology.getSourceClassShare(s, c);
+            }
+        }
+
+        int[] groupsPerBuffer = new int[topology.getBufferCount()];
+        for (int g = 0; g < topology.getGroupCount(); g++) {
+            groupsPerBuffer[topology.getGroupBuffer(g)]++;
+        }
+
+        List<LaneEstimate> lanes = new ArrayList<>(topology.getGroupCount());
+        int firstDeviceId = 1;
+        for (int g = 0; g < topology.getGroupCount(); g++) {
+            double lambda = 0;
+            for (int c = 0; c < classes; c++) {
+                if (topology.getClassGroup(c) == g) {
+                    lambda += classRates[c];
+                }
+            }
+            double deadline = 0;
+            for (int c = 0; c < classes; c++) {
+                if (topology.getClassGroup(c) == g && lambda > 0) {
+                    deadline += classRates[c] / lambda * topology.getClassDeadline(c);
+                }
+            }
+            int buffer = topology.getGroupBuffer(g);
+            double bufferShare = (double) topology.getBufferCapacity(buffer) / groupsPerBuffer[buffer];
+            lanes.add(estimateLane(topology, g, firstDeviceId, lambda, bufferShare, deadline));
+            firstDeviceId += topology.getGroupDeviceCount(g);
+        }
+        return new HubEstimate(topology, classRates, lanes);
+    }
+
+    private static LaneEstimate estimateLane(TopologyConfig topology, int group, int firstDeviceId,
+                                             double lambda, double buffer, double deadline) {
+        int servers = topology.getGroupDeviceCount(group) * topology.getGroupDeviceCapacity(group);
+        double min = topology.getGroupMinService(group);
+        double max = topology.getGroupMaxService(group);
+        double meanService = (min + max) / 2;
+        double scv = meanService > 0 ? (max - min) * (max - min) / 12 / (meanService * meanService) : 0;
+        double availability = availability(topology, group, firstDeviceId);
+
+        double effectiveService = meanService / availability;
+        double effectiveBuffer = buffer * 2 / (1 + scv);
+        double offered = lambda * effectiveService;
+
+        // Дробная емкость: интерполяция между соседними целыми K
+        int lower = (int) Math.floor(effectiveBuffer);
+        double fraction = effectiveBuffer - lower;
+        double atLower = blocking(offered, servers, servers + lower);
+        double atUpper = fraction > 0 ? blocking(offered, servers, servers + lower + 1) : atLower;
+        double loss = atLower + fraction * (atUpper - atLower);
+
+        LaneEstimate lane = new LaneEstimate(group, lambda, servers, buffer, meanService, scv, availability,
+                loss, 0, 0);
+        double evictShare = lane.evictionShare(deadline);
+        double completionRate = servers / effectiveService;
+        int bufferLower = (int) Math.floor(buffer);
+        double bufferFraction = buffer - bufferLower;
+        double wait = lifoWait(lambda, completionRate, offered, servers, bufferLower, evictShare);
+        if (bufferFraction > 0) {
+            double waitUpper = lifoWait(lambda, completionRate, offered, servers, bufferLower + 1, evictShare);
+            wait += bufferFraction * (waitUpper - wait);
+        }
+        double rho = servers > 0 ? Math.min(1, offered / servers) : 1;
+        double twoMoment = (1 + scv) / 2;
+        double meanWait = wait * (twoMoment + (1 - twoMoment) * rho * rho * rho);
+        double served = lane.getThroughput();
+        double utilisation = servers > 0 ? served * effectiveService / servers : 0;
+        return new LaneEstimate(group, lambda, servers, buffer, meanService, scv, availability,
+                loss, meanWait, utilisation);
+    }
+
+    // Среднее ожидание обслуженных при целом буфере: состояние в момент прибытия - из M/M/c/K,
+    // далее цепь меченой заявки; в полный буфер заявка входит, только если выбивает просроченную
+    static double lifoWait(double lambda, double completionRate, double offered, int servers, int buffer,
+                           double evictShare) {
+        if (buffer <= 0 || servers <= 0 || !(lambda > 0)) {
+            return 0;
+        }
+        double[] states = mmckDistribution(offered, servers, servers + buffer);
+        double[][] chain = taggedChain(lambda, completionRate, buffer, evictShare);
+        double served = 0;
+        double waiting = 0;
+        for (int n = 0; n < servers; n++) {
+            served += states[n];
+        }
+        for (int b = 0; b < buffer; b++) {
+            served += states[servers + b] * chain[0][b];
+            waiting += states[servers + b] * chain[1][b];
+        }
+        double admittedFull = states[servers + buffer] * evictShare;
+        served += admittedFull * chain[0][buffer - 1];
+        waiting += admittedFull * chain[1][buffer - 1];
+        return served > 0 ? waiting / served : 0;
+    }
+
+    // Цепь меченой заявки в буфере: выше a заявок, ниже b. Освобождение ворот (completionRate)
+    // снимает верхнюю заявку или обслуживает меченую при a = 0; прибытие (lambda) ложится сверху,
+    // а в полном буфере с вероятностью evictShare выбивает нижнюю (при b = 0 - меченую), иначе отказ.
+    // Возвращает по b при a = 0: {вероятность обслуживания, E[ожидание; обслужена]}.
+    // Уровни b решаются снизу вверх, внутри уровня - трехдиагональная система по a
+    private static double[][] taggedChain(double lambda, double completionRate, int buffer, double evictShare) {
+        double[][] result = new double[2][buffer];
+        double[] belowServed = null;
+        double[] belowWait = null;
+        for (int b = 0; b < buffer; b++) {
+            int size = buffer - b; // a = 0..buffer-1-b
+            double[] diagonal = new double[size];
+            double[] servedRhs = new double[size];
+            Arrays.fill(diagonal, lambda + completionRate);
+            diagonal[size - 1] = lambda * evictShare + completionRate;
+            servedRhs[0] = completionRate;
+            if (belowServed != null) {
+                servedRhs[size - 1] += lambda * evictShare * belowServed[size];
+            }
+            double[] servedProbability = solveTridiagonal(-completionRate, diagonal, -lambda, servedRhs);
+            double[] waitRhs = servedProbability.clone();
+            if (belowWait != null) {
+                waitRhs[size - 1] += lambda * evictShare * belowWait[size];
+            }
+            double[] wait = solveTridiagonal(-completionRate, diagonal, -lambda, waitRhs);
+            result[0][b] = servedProbability[0];
+            result[1][b] = wait[0];
+            belowServed = servedProbability;
+            belowWait = wait;
+        }
+        return result;
+    }
+
+    // Метод прогонки для постоянных поддиагонали и наддиагонали
+    private static double[] solveTridiagonal(double lower, double[] diagonal, double upper, double[] rhs) {
+        int n = diagonal.length;
+        double[] c = new double[n];
+        double[] d = new double[n];
+        double denominator = diagonal[0];
+        c[0] = upper / denominator;
+        d[0] = rhs[0] / denominator;
+        for (int i = 1; i < n; i++) {
+            denominator = diagonal[i] - lower * c[i - 1];
+            c[i] = upper / denominator;
+            d[i] = (rhs[i] - lower * d[i - 1]) / denominator;
+        }
+        double[] x = new double[n];
+        x[n - 1] = d[n - 1];
+        for (int i = n - 2; i >= 0; i--) {
+            x[i] = d[i] - c[i] * x[i + 1];
+        }
+        return x;
+    }
+
+    // Стационарное распределение числа заявок M/M/c/K
+    static double[] mmckDistribution(double a, int c, int k) {
+        double[] p = new double[k + 1];
+        p[0] = 1;
+        double sum = 1;
+        for (int n = 1; n <= k; n++) {
+            p[n] = p[n - 1] * a / Math.min(n, c);
+            sum += p[n];
+            if (sum > RESCALE_LIMIT) {
+                for (int i = 0; i <= n; i++) {
+                    p[i] /= sum;
+                }
+                sum = 1;
+            }
+        }
+        for (int n = 0; n <= k; n++) {
+            p[n] /= sum;
+        }
+        return p;
+    }
+
+    // Вероятность полной системы M/M/c/K с нагрузкой a = lambda/mu
+    static double blocking(double a, int c, int k) {
+        return c > 0 ? mmckDistribution(a, c, k)[k] : 1;
+    }
+
+    // Доля времени, когда ворота группы в строю: наработка/(наработка+ремонт) и плановые окна
+    private static double availability(TopologyConfig topology, int group, int firstDeviceId) {
+        double availability = 1;
+        double mtbf = topology.getGroupMtbf(group);
+        if (mtbf > 0) {
+            availability = mtbf / (mtbf + topology.getGroupMttr(group));
+        }
+        int devices = topology.getGroupDeviceCount(group);
+        double maintenance = 0;
+        for (int d = 0; d < devices; d++) {
+            double[] windows = topology.getDeviceMaintenance(firstDeviceId + d);
+            for (int i = 0; i < windows.length; i += 2) {
+                maintenance += windows[i + 1] - windows[i];
+            }
+        }
+        double maintenanceShare = maintenance / devices / topology.getMaintenancePeriod();
+        return Math.max(1e-9, availability * (1 - maintenanceShare));
+    }
+}
@@ -0,0 +1,224 @@
+package com.warehouse.distributed;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Очередь в общем каталоге (локальный диск или сетевая ФС, доступная всем машинам):
+ *   job.properties                   задание
+ *   todo/<порция>-<попытка>.chunk     свободные порции (содержимое: первая точка и число точек)
+ *   running/<порция>-<попытка>.<исполнитель>.chunk   взятые; время изменения - последняя отметка
+ *   done/<порция>.csv                 готовые строки
+ *   failed/<порция>.chunk             порции, исчерпавшие попытки
+ *   finished                          признак завершения для исполнителей
+ * Взятие порции - атомарное переименование из todo в running: из нескольких исполнителей,
+ * пытающихся взять одну порцию, переименование удается только одному.
+ */
+public class DirectoryWorkQueue implements WorkQueue {
+    private static final String CHUNK = ".chunk";
+
+    private final Path root;
+    private final Path todo;
+    private final Path running;
+    private final Path done;
+    private final Path failed;
+
+    public DirectoryWorkQueue(Path root) throws IOException {
+        this.root = root;
+        this.todo = root.resolve("todo");
+        this.running = root.resolve("running");
+        this.done = root.resolve("done");
+        this.failed = root.resolve("failed");
+        for (Path dir : new Path[] {todo, running, done, failed}) {
+            Files.createDirectories(dir);
+        }
+    }
+
+    @Override
+    public void publish(SweepJob job, List<SweepChunk> chunks) throws IOException {
+        for (Path dir : new Path[] {todo, running, done, failed}) {
+            if (!list(dir, "*").isEmpty()) {
+                throw new IllegalArgumentException("Каталог " + root + " уже содержит перебор");
+            }
+        }
+        Files.deleteIfExists(root.resolve("finished"));
+        for (SweepChunk chunk : chunks) {
+            writeAtomically(todo.resolve(chunkName(chunk) + CHUNK), chunk.getFirst() + " " + chunk.getCount() + "\n");
+        }
+        // Задание - последним: исполнитель, увидевший job.properties, видит и все порции
+        Path jobFile = root.resolve("job.properties");
+        Path temp = root.resolve("job.properties.tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            job.toProperties().store(writer, "distributed sweep");
+        }
+        move(temp, jobFile);
+    }
+
+    @Override
+    public SweepJob job() throws IOException {
+        Path jobFile = root.resolve("job.properties");
+        if (!Files.exists(jobFile)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(jobFile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return SweepJob.fromProperties(properties);
+    }
+
+    @Override
+    public SweepChunk claim(String worker) throws IOException {
+        for (Path file : list(todo, "*" + CHUNK)) {
+            String name = baseName(file);
+            Path claimed = running.resolve(name + "." + worker + CHUNK);
+            try {
+                Files.move(file, claimed, StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                continue; // взял другой исполнитель
+            }
+            SweepChunk chunk = parse(name, Files.readString(claimed, StandardCharsets.UTF_8));
+            if (Files.exists(done.resolve(doneName(chunk)))) {
+                Files.deleteIfExists(claimed); // повтор уже посчитанной порции
+                continue;
+            }
+            Files.setLastModifiedTime(claimed, FileTime.fromMillis(System.currentTimeMillis()));
+            return chunk;
+        }
+        return null;
+    }
+
+    @Override
+    public void heartbeat(SweepChunk chunk, String worker) throws IOException {
+        try {
+            Files.setLastModifiedTime(running.resolve(chunkName(chunk) + "." + worker + CHUNK),
+                    FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            // аренду сняли как просроченную - результат все равно будет принят
+        }
+    }
+
+    @Override
+    public void complete(SweepChunk chunk, String worker, List<String> rows) throws IOException {
+        writeAtomically(done.resolve(doneName(chunk)), String.join("\n", rows) + "\n");
+        Files.deleteIfExists(running.resolve(chunkName(chunk) + "." + worker + CHUNK));
+    }
+
+    @Override
+    public List<SweepChunk> requeueStale(long leaseMillis, int maxAttempts) throws IOException {
+        List<SweepChunk> abandoned = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Path file : list(running, "*" + CHUNK)) {
+            FileTime beat;
+            String content;
+            try {
+                beat = Files.getLastModifiedTime(file);
+                content = Files.readString(file, StandardCharsets.UTF_8);
+            } catch (NoSuchFileException e) {
+                continue; // порция только что завершена
+            }
+            if (now - beat.toMillis() <= leaseMillis) continue;
+            String name = baseName(file);
+            SweepChunk chunk = parse(name.substring(0, name.indexOf('.')), content);
+            SweepChunk retry = chunk.retry();
+            try {
+                if (Files.exists(done.resolve(doneName(chunk)))) {
+                    Files.delete(file);
+                } else if (retry.getAttempt() >= maxAttempts) {
+                    move(file, failed.resolve(String.format("%06d", chunk.getId()) + CHUNK));
+                    abandoned.add(chunk);
+                } else {
+                    move(file, todo.resolve(chunkName(retry) + CHUNK));
+                }
+            } catch (NoSuchFileException e) {
+                // исполнитель успел завершить порцию
+            }
+        }
+        return abandoned;
+    }
+
+    @Override
+    public Map<Integer, List<String>> results() throws IOException {
+        Map<Integer, List<String>> results = new TreeMap<>();
+        for (Path file : list(done, "*.csv")) {
+            List<String> rows = new ArrayList<>();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (!line.isEmpty()) rows.add(line);
+            }
+            results.put(Integer.parseInt(baseName(file)), rows);
+        }
+        return results;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writeAtomically(root.resolve("finished"), "");
+    }
+
+    @Override
+    public boolean isFinished() {
+        return Files.exists(root.resolve("finished"));
+    }
+
+    // Номер с нулями: порядок файлов в каталоге совпадает с порядком точек
+    private static String chunkName(SweepChunk chunk) {
+        return String.format("%06d-%d", chunk.getId(), chunk.getAttempt());
+    }
+
+    private static String doneName(SweepChunk chunk) {
+        return String.format("%06d.csv", chunk.getId());
+    }
+
+    // name - "<порция>-<попытка>", content - "первая число"
+    private static SweepChunk parse(String name, String content) {
+        int dash = name.indexOf('-');
+        String[] range = content.trim().split("\\s+");
+        return new SweepChunk(Integer.parseInt(name.substring(0, dash)), Integer.parseInt(name.substring(dash + 1)),
+                Integer.parseInt(range[0]), Integer.parseInt(range[1]));
+    }
+
+    private static String baseName(Path file) {
+        String name = file.getFileName().toString();
+        return name.substring(0, name.lastIndexOf('.'));
+    }
+
+    private static List<Path> list(Path dir, String glob) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, glob)) {
+            stream.forEach(files::add);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static void writeAtomically(Path file, String content) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + "." + ProcessHandle.current().pid() + "."
+                + Thread.currentThread().getId() + ".tmp");
+        Files.writeString(temp, content, StandardCharsets.UTF_8);
+        move(temp, file);
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.warehouse.distributed;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Очередь в памяти процесса: исполнители - потоки. Та же логика аренды и повторов, что у каталога,
+ * без сети и файлов - для проверки координатора офлайн.
+ */
+public class InMemoryWorkQueue implements WorkQueue {
+    private static final class Lease {
+        final SweepChunk chunk;
+        final String worker;
+        long lastBeat;
+
+        Lease(SweepChunk chunk, String worker) {
+            this.chunk = chunk;
+            this.worker = worker;
+            this.lastBeat = System.currentTimeMillis();
+        }
+    }
+
+    private final Deque<SweepChunk> todo = new ArrayDeque<>();
+    private final Map<Integer, Lease> running = new HashMap<>();
+    private final Map<Integer, List<String>> done = new TreeMap<>();
+    private SweepJob job;
+    private boolean finished;
+
+    @Override
+    public synchronized void publish(SweepJob job, List<SweepChunk> chunks) {
+        this.job = job;
+        todo.addAll(chunks);
+    }
+
+    @Override
+    public synchronized SweepJob job() {
+        return job;
+    }
+
+    @Override
+    public synchronized SweepChunk claim(String worker) {
+        SweepChunk chunk;
+        do {
+            chunk = todo.pollFirst();
+        } while (chunk != null && done.containsKey(chunk.getId()));
+        if (chunk != null) {
+            running.put(chunk.getId(), new Lease(chunk, worker));
+        }
+        return chunk;
+    }
+
+    @Override
+    public synchronized void heartbeat(SweepChunk chunk, String worker) {
+        Lease lease = running.get(chunk.getId());
+        if (lease != null && lease.worker.equals(worker)) {
+            lease.lastBeat = System.currentTimeMillis();
+        }
+    }
+
+    @Override
+    public synchronized void complete(SweepChunk chunk, String worker, List<String> rows) {
+        done.put(chunk.getId(), new ArrayList<>(rows));
+        running.remove(chunk.getId());
+    }
+
+    @Override
+    public synchronized List<SweepChunk> requeueStale(long leaseMillis, int maxAttempts) {
+        List<SweepChunk> abandoned = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Iterator<Lease> iterator = running.values().iterator(); iterator.hasNext(); ) {
+            Lease lease = iterator.next();
+            if (now - lease.lastBeat <= leaseMillis) continue;
+            iterator.remove();
+            SweepChunk retry = lease.chunk.retry();
+            if (retry.getAttempt() >= maxAttempts) {
+                abandoned.add(lease.chunk);
+            } else {
+                todo.addLast(retry);
+            }
+        }
+        return abandoned;
+    }
+
+    @Override
+    public synchronized Map<Integer, List<String>> results() {
+        return new TreeMap<>(done);
+    }
+
+    @Override
+    public synchronized void finish() {
+        finished = true;
+    }
+
+    @Override
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+}
@@ -0,0 +1,123 @@
+package com.warehouse.distributed;
+
+import com.warehouse.store.ResultStore;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Исполнители на этой машине: отдельные JVM (очередь в каталоге) или потоки (очередь в памяти).
+ * supervise() перезапускает упавших, пока не исчерпан общий лимит перезапусков.
+ */
+public class LocalWorkers {
+    private final WorkQueue queue;
+    private final Path directory; // null - исполнители-потоки
+    private final int maxRestarts;
+    private final PrintStream log;
+    private final Thread[] threads;
+    private final Process[] processes;
+    private int restarts;
+
+    private LocalWorkers(WorkQueue queue, Path directory, int count, int maxRestarts, PrintStream log) {
+        this.queue = queue;
+        this.directory = directory;
+        this.maxRestarts = maxRestarts;
+        this.log = log;
+        this.threads = new Thread[directory == null ? count : 0];
+        this.processes = new Process[directory != null ? count : 0];
+    }
+
+    public static LocalWorkers threads(WorkQueue queue, int count, int maxRestarts, PrintStream log) {
+        return new LocalWorkers(queue, null, count, maxRestarts, log);
+    }
+
+    public static LocalWorkers processes(Path directory, int count, int maxRestarts, PrintStream log) {
+        return new LocalWorkers(null, directory, count, maxRestarts, log);
+    }
+
+    public void start() throws IOException {
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = startThread(i);
+        }
+        for (int i = 0; i < processes.length; i++) {
+            processes[i] = startProcess(i);
+        }
+    }
+
+    public void supervise() {
+        try {
+            for (int i = 0; i < threads.length; i++) {
+                if (!threads[i].isAlive() && restart("thread-" + i)) {
+                    threads[i] = startThread(i);
+                }
+            }
+            for (int i = 0; i < processes.length; i++) {
+                if (!processes[i].isAlive() && restart("local-" + i + " (код " + processes[i].exitValue() + ")")) {
+                    processes[i] = startProcess(i);
+                }
+            }
+        } catch (IOException e) {
+            log.println("distribute: не удалось перезапустить исполнителя: " + e);
+        }
+    }
+
+    private boolean restart(String name) {
+        if (restarts >= maxRestarts) return false;
+        restarts++;
+        log.println("distribute: исполнитель " + name + " завершился, перезапуск " + restarts + "/" + maxRestarts);
+        return true;
+    }
+
+    private Thread startThread(int index) {
+        SweepWorker worker = new SweepWorker(queue, "thread-" + index);
+        Thread thread = new Thread(() -> {
+            try {
+                worker.run(0);
+            } catch (IOException | RuntimeException e) {
+                log.println("distribute: исполнитель " + worker.getId() + " упал: " + e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, worker.getId());
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    // Та же JVM и тот же classpath, вывод - в <каталог>/logs/local-N.log
+    private Process startProcess(int index) throws IOException {
+        Path logs = directory.resolve("logs");
+        Files.createDirectories(logs);
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path")));
+        String cache = System.getProperty("warehouse.cache");
+        if (cache != null) {
+            command.add("-Dwarehouse.cache=" + cache);
+        }
+        ResultStore store = ResultStore.shared();
+        if (store != null) {
+            command.add("-Dwarehouse.store=" + store.getDirectory().toAbsolutePath());
+        }
+        command.addAll(List.of("com.warehouse.Main", "worker", "--dir", directory.toString(), "--id", "local-" + index));
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(logs.resolve("local-" + index + ".log").toFile()))
+                .start();
+    }
+
+    public void stop() {
+        for (Thread thread : threads) {
+            if (thread != null) thread.interrupt();
+        }
+        for (Process process : processes) {
+            if (process != null) process.destroy();
+        }
+    }
+
+    public int getRestarts() { return restarts; }
+}
@@ -0,0 +1,28 @@
+package com.warehouse.distributed;
+
+/**
+ * Порция перебора: подряд идущие точки сетки [first, first+count). attempt - номер попытки
+ * (растет, когда порция снимается с упавшего исполнителя и возвращается в очередь).
+ */
+public final class SweepChunk {
+    private final int id;
+    private final int attempt;
+    private final int first;
+    private final int count;
+
+    public SweepChunk(int id, int attempt, int first, int count) {
+        this.id = id;
+        this.attempt = attempt;
+        this.first = first;
+        this.count = count;
+    }
+
+    public SweepChunk retry() {
+        return new SweepChunk(id, attempt + 1, first, count);
+    }
+
+    public int getId() { return id; }
+    public int getAttempt() { return attempt; }
+    public int getFirst() { return first; }
+    public int getCount() { return count; }
+}
@@ -0,0 +1,90 @@
+package com.warehouse.distributed;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Координатор распределенного перебора: делит сетку на порции подряд идущих точек, публикует их
+ * в очереди, возвращает в очередь порции упавших исполнителей и собирает готовые строки в порядке
+ * точек - итоговая таблица совпадает с таблицей однопроцессного sweep.
+ */
+public class SweepCoordinator {
+    private static final long POLL_MILLIS = 250;
+
+    private final WorkQueue queue;
+    private final SweepJob job;
+    private final int chunkSize;
+    private final long leaseMillis;
+    private final int maxAttempts;
+    private final List<SweepChunk> chunks = new ArrayList<>();
+    private final Set<Integer> abandoned = new HashSet<>();
+
+    public SweepCoordinator(WorkQueue queue, SweepJob job, int chunkSize, long leaseMillis, int maxAttempts) {
+        if (chunkSize <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("Размер порции и число попыток должны быть положительными");
+        }
+        if (leaseMillis < 3 * SweepWorker.HEARTBEAT_MILLIS) {
+            throw new IllegalArgumentException("Срок аренды порции должен быть не меньше "
+                    + 3 * SweepWorker.HEARTBEAT_MILLIS / 1000 + " с");
+        }
+        this.queue = queue;
+        this.job = job;
+        this.chunkSize = chunkSize;
+        this.leaseMillis = leaseMillis;
+        this.maxAttempts = maxAttempts;
+        for (int first = 0, id = 0; first < job.size(); first += chunkSize, id++) {
+            chunks.add(new SweepChunk(id, 0, first, Math.min(chunkSize, job.size() - first)));
+        }
+    }
+
+    // supervise вызывается на каждом опросе (перезапуск локальных исполнителей); progress может быть null
+    public List<String> run(Runnable supervise, PrintStream progress) throws IOException, InterruptedException {
+        queue.publish(job, chunks);
+        int reported = -1;
+        Map<Integer, List<String>> results;
+        while (true) {
+            for (SweepChunk chunk : queue.requeueStale(leaseMillis, maxAttempts)) {
+                abandoned.add(chunk.getId());
+                if (progress != null) {
+                    progress.printf(Locale.ROOT, "distribute: порция %d снята после %d попыток%n",
+                            chunk.getId(), maxAttempts);
+                }
+            }
+            results = queue.results();
+            int finished = results.size();
+            for (int id : abandoned) {
+                if (!results.containsKey(id)) finished++;
+            }
+            if (progress != null && finished != reported) {
+                progress.printf(Locale.ROOT, "distribute: %d/%d порций%n", finished, chunks.size());
+                reported = finished;
+            }
+            if (finished >= chunks.size()) break;
+            supervise.run();
+            Thread.sleep(POLL_MILLIS);
+        }
+        queue.finish();
+
+        List<String> rows = new ArrayList<>(job.size());
+        for (SweepChunk chunk : chunks) {
+            List<String> chunkRows = results.get(chunk.getId());
+            if (chunkRows != null && chunkRows.size() == chunk.getCount()) {
+                rows.addAll(chunkRows);
+            } else {
+                for (int p = chunk.getFirst(); p < chunk.getFirst() + chunk.getCount(); p++) {
+                    rows.add(job.failedRow(p));
+                }
+            }
+        }
+        return rows;
+    }
+
+    public int getChunkCount() { return chunks.size(); }
+    public int getAbandonedCount() { return abandoned.size(); }
+}
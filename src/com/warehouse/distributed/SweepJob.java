@@ -0,0 +1,75 @@
+package com.warehouse.distributed;
+
+import com.warehouse.SweepRunner;
+import com.warehouse.utils.ParameterGrid;
+import com.warehouse.utils.Scenario;
+import com.warehouse.utils.SimulationConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Задание распределенного перебора: базовый сценарий, оси сетки и отсев аналитической оценкой.
+ * Передается исполнителям как .properties: ключи сценария как есть, параметры перебора - с префиксом sweep.
+ */
+public class SweepJob {
+    private static final String PREFIX = "sweep.";
+
+    private final Scenario base;
+    private final ParameterGrid grid;
+    private final boolean prune;
+    private final double pruneMargin;
+
+    public SweepJob(Scenario base, ParameterGrid grid, boolean prune, double pruneMargin) {
+        this.base = base;
+        this.grid = grid;
+        this.prune = prune;
+        this.pruneMargin = pruneMargin;
+    }
+
+    public Properties toProperties() {
+        Properties properties = base.getConfig().getProperties();
+        properties.setProperty("scenario.name", base.getName());
+        properties.setProperty(PREFIX + "prune", Boolean.toString(prune));
+        properties.setProperty(PREFIX + "pruneMargin", Double.toString(pruneMargin));
+        for (int k = 0; k < grid.getKeys().size(); k++) {
+            properties.setProperty(PREFIX + "axis." + k, grid.axisSpec(k));
+        }
+        return properties;
+    }
+
+    public static SweepJob fromProperties(Properties properties) {
+        Properties scenario = new Properties();
+        ParameterGrid grid = new ParameterGrid();
+        List<String> axes = new ArrayList<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (!name.startsWith(PREFIX)) {
+                scenario.setProperty(name, properties.getProperty(name));
+            }
+        }
+        for (int k = 0; properties.containsKey(PREFIX + "axis." + k); k++) {
+            axes.add(properties.getProperty(PREFIX + "axis." + k));
+        }
+        if (axes.isEmpty()) {
+            throw new IllegalArgumentException("В задании перебора нет осей");
+        }
+        axes.forEach(grid::addAxis);
+        return new SweepJob(new Scenario("sweep", new SimulationConfig(scenario)), grid,
+                Boolean.parseBoolean(properties.getProperty(PREFIX + "prune", "true")),
+                Double.parseDouble(properties.getProperty(PREFIX + "pruneMargin", "2")));
+    }
+
+    public String evaluate(int point) {
+        String[] values = grid.point(point);
+        return SweepRunner.evaluatePoint(grid.apply(base, values), values, prune, pruneMargin, null);
+    }
+
+    // Строка для точки, которую не удалось посчитать ни одному исполнителю
+    public String failedRow(int point) {
+        return String.join(",", grid.point(point)) + ",,,,,failed,,,,";
+    }
+
+    public String header() { return SweepRunner.csvHeader(grid.getKeys()); }
+    public int size() { return grid.size(); }
+}
@@ -0,0 +1,79 @@
+package com.warehouse.distributed;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Исполнитель перебора: забирает порции из очереди, пока координатор не объявит завершение,
+ * и во время счета раз в HEARTBEAT_MILLIS отмечает, что порция еще в работе.
+ */
+public class SweepWorker {
+    public static final long HEARTBEAT_MILLIS = 1000;
+    private static final long POLL_MILLIS = 200;
+
+    private final WorkQueue queue;
+    private final String id;
+    private volatile SweepChunk current;
+    private int chunksDone;
+
+    public SweepWorker(WorkQueue queue, String id) {
+        if (!id.matches("[A-Za-z0-9_-]+")) {
+            throw new IllegalArgumentException("Имя исполнителя - латиница, цифры, '-' и '_': " + id);
+        }
+        this.queue = queue;
+        this.id = id;
+    }
+
+    // idleMillis - выйти, если столько времени нет ни задания, ни свободных порций (0 - ждать завершения)
+    public int run(long idleMillis) throws IOException, InterruptedException {
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "heartbeat-" + id);
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::beat, HEARTBEAT_MILLIS, HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            long idleSince = System.currentTimeMillis();
+            SweepJob job = null;
+            while (!queue.isFinished()) {
+                if (job == null) {
+                    job = queue.job();
+                }
+                SweepChunk chunk = job != null ? queue.claim(id) : null;
+                if (chunk == null) {
+                    if (idleMillis > 0 && System.currentTimeMillis() - idleSince > idleMillis) break;
+                    Thread.sleep(POLL_MILLIS);
+                    continue;
+                }
+                current = chunk;
+                List<String> rows = new ArrayList<>(chunk.getCount());
+                for (int p = chunk.getFirst(); p < chunk.getFirst() + chunk.getCount(); p++) {
+                    rows.add(job.evaluate(p));
+                }
+                queue.complete(chunk, id, rows);
+                current = null;
+                chunksDone++;
+                idleSince = System.currentTimeMillis();
+            }
+            return chunksDone;
+        } finally {
+            heartbeat.shutdownNow();
+        }
+    }
+
+    private void beat() {
+        SweepChunk chunk = current;
+        if (chunk == null) return;
+        try {
+            queue.heartbeat(chunk, id);
+        } catch (IOException e) {
+            // пропущенная отметка: при долгом сбое порцию отдадут другому исполнителю
+        }
+    }
+
+    public String getId() { return id; }
+}
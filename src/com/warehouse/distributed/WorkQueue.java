@@ -0,0 +1,37 @@
+package com.warehouse.distributed;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Транспорт распределенного перебора между координатором и исполнителями.
+ * Исполнители сами забирают порции (claim), пока очередь не опустеет; порция, по которой
+ * дольше срока аренды нет отметок heartbeat, возвращается в очередь (requeueStale).
+ */
+public interface WorkQueue {
+    // Координатор: задание и все его порции
+    void publish(SweepJob job, List<SweepChunk> chunks) throws IOException;
+
+    // Исполнитель: задание; null - еще не опубликовано
+    SweepJob job() throws IOException;
+
+    // Исполнитель: забрать порцию; null - свободных порций сейчас нет
+    SweepChunk claim(String worker) throws IOException;
+
+    void heartbeat(SweepChunk chunk, String worker) throws IOException;
+
+    void complete(SweepChunk chunk, String worker, List<String> rows) throws IOException;
+
+    // Координатор: вернуть в очередь порции без отметок дольше leaseMillis; порции, исчерпавшие
+    // maxAttempts попыток, снимаются и возвращаются списком
+    List<SweepChunk> requeueStale(long leaseMillis, int maxAttempts) throws IOException;
+
+    // Готовые строки по номерам порций
+    Map<Integer, List<String>> results() throws IOException;
+
+    // Координатор: перебор завершен, исполнителям можно выходить
+    void finish() throws IOException;
+
+    boolean isFinished() throws IOException;
+}
@@ -13,7 +13,11 @@ public enum EventType {
     REJECTION("Отказ заявке"),
     DEADLINE_CHECK("Проверка дедлайнов"),
     SERVICE_START("Начало обслуживания"),
-    BUFFER_ADD("Добавление в буфер");
+    BUFFER_ADD("Добавление в буфер"),
+    TRANSFER("Переадресация в другой хаб"),
+    GATE_FAILURE("Поломка ворот"),
+    GATE_REPAIR("Ремонт ворот завершен"),
+    MAINTENANCE("Граница окна планового обслуживания ворот");
 
 
     private final String description;
@@ -0,0 +1,15 @@
+package com.warehouse.enums;
+
+// Что происходит с обслуживанием, прерванным поломкой или плановым обслуживанием ворот
+public enum InterruptionPolicy {
+    RESUME("Дообслуживание остатка"),
+    RESTART("Обслуживание заново");
+
+    private final String description;
+
+    InterruptionPolicy(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() { return description; }
+}
@@ -6,7 +6,8 @@ public enum RequestStatus {
     IN_SERVICE("На обслуживании"),
     COMPLETED("Обслужена"),
     REJECTED("Отказано"),
-    EVICTED("Вытеснена");
+    EVICTED("Вытеснена"),
+    TRANSFERRED("Переадресована");
 
     private final String description;
 
@@ -0,0 +1,16 @@
+package com.warehouse.enums;
+
+// Способ получения случайных величин репликации; DIRECT и ANTITHETIC - два прогона антитетической пары
+public enum VariateMode {
+    STANDARD("Обычные потоки"),
+    DIRECT("Антитетическая пара: прямой прогон"),
+    ANTITHETIC("Антитетическая пара: отраженный прогон");
+
+    private final String description;
+
+    VariateMode(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() { return description; }
+}
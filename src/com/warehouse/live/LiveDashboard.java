@@ -0,0 +1,121 @@
+package com.warehouse.live;
+
+import com.warehouse.enums.EventType;
+import com.warehouse.utils.TopologyConfig;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Потребитель кольца изменений: поддерживает заполненность буферов и занятость ворот,
+ * раз в refreshMillis печатает строку состояния, при заданном writer сохраняет записи в CSV.
+ * Работает в своем потоке и не влияет на скорость модели (кроме политики BLOCK).
+ */
+public class LiveDashboard implements Runnable, StateChangeRing.RecordHandler {
+    private final StateChangeRing ring;
+    private final TopologyConfig topology;
+    private final PrintStream out;
+    private final Writer writer; // null - записи не сохраняются
+    private final long refreshNanos;
+    private final int[] bufferLoad;
+    private final int totalDevices;
+    private int busyDevices;
+    private long rejections;
+    private long evictions;
+    private double lastTime;
+    private volatile boolean stopped;
+    private IOException writeError;
+
+    public LiveDashboard(StateChangeRing ring, TopologyConfig topology, PrintStream out, Writer writer,
+                         long refreshMillis) {
+        this.ring = ring;
+        this.topology = topology;
+        this.out = out;
+        this.writer = writer;
+        this.refreshNanos = refreshMillis * 1_000_000;
+        this.bufferLoad = new int[topology.getBufferCount()];
+        int devices = 0;
+        for (int g = 0; g < topology.getGroupCount(); g++) {
+            devices += topology.getGroupDeviceCount(g) * topology.getGroupDeviceCapacity(g);
+        }
+        this.totalDevices = devices;
+    }
+
+    public Thread start() {
+        Thread thread = new Thread(this, "live-dashboard");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    // Остановка после разбора оставшихся записей
+    public void stop(Thread thread) throws InterruptedException {
+        stopped = true;
+        thread.join();
+    }
+
+    @Override
+    public void run() {
+        long nextRender = System.nanoTime() + refreshNanos;
+        while (true) {
+            boolean finishing = stopped;
+            int drained = ring.drain(this, 4096);
+            if (System.nanoTime() >= nextRender) {
+                render();
+                nextRender += refreshNanos;
+            }
+            if (drained == 0) {
+                if (finishing) break;
+                LockSupport.parkNanos(200_000);
+            }
+        }
+        render();
+        if (writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                writeError = e;
+            }
+        }
+    }
+
+    @Override
+    public void onRecord(EventType type, double time, int requestId, int sourceId, int cargoClass, int location) {
+        lastTime = time;
+        switch (type) {
+            case BUFFER_ADD: bufferLoad[location]++; break;
+            case BUFFER_REMOVE: bufferLoad[location]--; break;
+            case BUFFER_EVICTION: bufferLoad[location]--; evictions++; break;
+            case SERVICE_START: busyDevices++; break;
+            case SERVICE_COMPLETE: busyDevices--; break;
+            case REJECTION: rejections++; break;
+            default: break;
+        }
+        if (writer != null && writeError == null) {
+            try {
+                writer.write(String.format(Locale.ROOT, "%.4f,%s,%d,%d,%d,%d%n",
+                        time, type.name(), requestId, sourceId, cargoClass, location));
+            } catch (IOException e) {
+                writeError = e;
+            }
+        }
+    }
+
+    private void render() {
+        StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "[live] t=%.1f", lastTime));
+        for (int b = 0; b < bufferLoad.length; b++) {
+            line.append(String.format(" P%d %d/%d", b + 1, bufferLoad[b], topology.getBufferCapacity(b)));
+        }
+        line.append(String.format(" | ворота %d/%d | отказов %d, выбито %d | записей %d, отброшено %d",
+                busyDevices, totalDevices, rejections, evictions, ring.getPublished(), ring.getDropped()));
+        if (ring.getDropped() > 0) {
+            line.append(" (заполненность приблизительна: часть записей отброшена)");
+        }
+        out.println(line);
+    }
+
+    public IOException getWriteError() { return writeError; }
+}
@@ -0,0 +1,103 @@
+package com.warehouse.live;
+
+import com.warehouse.enums.EventType;
+import com.warehouse.model.Request;
+import com.warehouse.model.StateChangeListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Кольцевой буфер изменений состояния: один производитель (поток модели), один потребитель.
+ * Записи хранятся в заранее выделенных параллельных массивах примитивов, поэтому публикация
+ * не выделяет память и не берет блокировок: запись полей и публикация номера через lazySet.
+ * При отставании потребителя запись либо отбрасывается (DROP, считается в dropped),
+ * либо производитель ждет освобождения места (BLOCK).
+ */
+public class StateChangeRing implements StateChangeListener {
+    public enum OverflowPolicy { DROP, BLOCK }
+
+    /** Получатель записей при разборе кольца потребителем. */
+    public interface RecordHandler {
+        void onRecord(EventType type, double time, int requestId, int sourceId, int cargoClass, int location);
+    }
+
+    private static final EventType[] TYPES = EventType.values();
+
+    private final int capacity;
+    private final int mask;
+    private final OverflowPolicy policy;
+    private final byte[] types;
+    private final double[] times;
+    private final int[] requestIds;
+    private final int[] sourceIds;
+    private final int[] cargoClasses;
+    private final int[] locations;
+
+    private final AtomicLong published = new AtomicLong(); // пишет только производитель
+    private final AtomicLong consumed = new AtomicLong();  // пишет только потребитель
+    private long nextSequence;     // поле производителя
+    private long cachedConsumed;   // поле производителя
+    private volatile long dropped;
+
+    public StateChangeRing(int capacity, OverflowPolicy policy) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Емкость кольца должна быть степенью двойки: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.policy = policy;
+        types = new byte[capacity];
+        times = new double[capacity];
+        requestIds = new int[capacity];
+        sourceIds = new int[capacity];
+        cargoClasses = new int[capacity];
+        locations = new int[capacity];
+    }
+
+    @Override
+    public void onStateChange(EventType type, double time, Request request, int location) {
+        long sequence = nextSequence;
+        if (sequence - cachedConsumed >= capacity) {
+            cachedConsumed = consumed.get();
+            while (sequence - cachedConsumed >= capacity) {
+                if (policy == OverflowPolicy.DROP) {
+                    dropped++; // пишет только производитель
+                    return;
+                }
+                LockSupport.parkNanos(1_000);
+                cachedConsumed = consumed.get();
+            }
+        }
+        int slot = (int) (sequence & mask);
+        types[slot] = (byte) type.ordinal();
+        times[slot] = time;
+        requestIds[slot] = request.getId();
+        sourceIds[slot] = request.getSourceId();
+        cargoClasses[slot] = request.getCargoClass();
+        locations[slot] = location;
+        nextSequence = sequence + 1;
+        published.lazySet(sequence + 1);
+    }
+
+    // Разбор до limit записей в потоке потребителя; возвращает число разобранных
+    public int drain(RecordHandler handler, int limit) {
+        long from = consumed.get();
+        long available = published.get() - from;
+        int count = (int) Math.min(available, limit);
+        for (int i = 0; i < count; i++) {
+            int slot = (int) ((from + i) & mask);
+            handler.onRecord(TYPES[types[slot]], times[slot], requestIds[slot], sourceIds[slot],
+                    cargoClasses[slot], locations[slot]);
+        }
+        if (count > 0) {
+            consumed.lazySet(from + count);
+        }
+        return count;
+    }
+
+    public long getPublished() { return published.get(); }
+    public long getDropped() { return dropped; }
+    public int getCapacity() { return capacity; }
+    public OverflowPolicy getPolicy() { return policy; }
+}
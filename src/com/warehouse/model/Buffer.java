@@ -1,5 +1,6 @@
 package com.warehouse.model;
 
+import com.warehouse.utils.Log;
 import com.warehouse.enums.CargoType;
 import com.warehouse.enums.RequestStatus;
 import java.util.*;
@@ -8,11 +9,19 @@ public class Buffer {
     private final int capacity;
     private final List<Request> requests = new ArrayList<>();
     private final CargoType bufferType;
+    private final int index;
+    private final String name;
     private final Set<Integer> freePositions = new HashSet<>();
 
     public Buffer(int capacity, CargoType bufferType) {
+        this(0, capacity, bufferType, bufferType.getDescription());
+    }
+
+    public Buffer(int index, int capacity, CargoType bufferType, String name) {
+        this.index = index;
         this.capacity = capacity;
         this.bufferType = bufferType;
+        this.name = name;
 
         for (int i = 1; i <= capacity; i++) {
             freePositions.add(i);
@@ -39,6 +48,23 @@ public class Buffer {
         return false;
     }
 
+    // Перенос состояния из буфера-оригинала; copies - соответствие заявок оригинала и копии
+    public void copyStateFrom(Buffer other, Map<Request, Request> copies) {
+        requests.clear();
+        for (Request request : other.requests) {
+            requests.add(copies.computeIfAbsent(request, Request::copy));
+        }
+        freePositions.clear();
+        freePositions.addAll(other.freePositions);
+    }
+
+    public Request findRequest(int requestId) {
+        for (Request request : requests) {
+            if (request.getId() == requestId) return request;
+        }
+        return null;
+    }
+
     public List<Request> getRequestsSnapshot() {
         return new ArrayList<>(requests);
     }
@@ -48,7 +74,9 @@ public class Buffer {
         if (requests.isEmpty()) return null;
 
         Request lastRequest = requests.get(requests.size() - 1); // Последняя заявка в списке
-        System.out.printf(">>> Взята ПОСЛЕДНЯЯ заявка %d (LIFO) из буфера%n", lastRequest.getId());
+        if (Log.isEnabled()) {
+            System.out.printf(">>> Взята ПОСЛЕДНЯЯ заявка %d (LIFO) из буфера%n", lastRequest.getId());
+        }
         return lastRequest;
     }
 
@@ -59,6 +87,9 @@ public class Buffer {
                 .findFirst()
                 .orElse(null);
 
+        if (!Log.isEnabled()) {
+            return expiredRequest;
+        }
         if (expiredRequest != null) {
             System.out.printf(">>> Найдена ПРОСРОЧЕННАЯ заявка %d (дедлайн: %.2f, текущее время: %.2f)%n",
                     expiredRequest.getId(), expiredRequest.getDeadline(), currentTime);
@@ -78,7 +109,9 @@ public class Buffer {
         if (removed) {
             request.clearDeadline(); // Сбрасываем дедлайн при извлечении
             freePositions.add(request.getBufferPosition());
-            System.out.printf(">>> Заявка %d удалена из буфера%n", request.getId());
+            if (Log.isEnabled()) {
+                System.out.printf(">>> Заявка %d удалена из буфера%n", request.getId());
+            }
         }
         return removed;
     }
@@ -87,7 +120,9 @@ public class Buffer {
         if (requests.isEmpty()) return null;
 
         Request lastRequest = requests.get(requests.size() - 1);
-        System.out.printf(">>> Взята последняя заявка %d (LIFO)%n", lastRequest.getId());
+        if (Log.isEnabled()) {
+            System.out.printf(">>> Взята последняя заявка %d (LIFO)%n", lastRequest.getId());
+        }
         return lastRequest;
     }
 
@@ -99,8 +134,10 @@ public class Buffer {
         if (requests.isEmpty()) return null;
 
         Request oldestRequest = requests.get(0);
-        System.out.printf(">>> Найдена самая старая заявка %d (время прибытия: %.2f)%n",
-                oldestRequest.getId(), oldestRequest.getArrivalTime());
+        if (Log.isEnabled()) {
+            System.out.printf(">>> Найдена самая старая заявка %d (время прибытия: %.2f)%n",
+                    oldestRequest.getId(), oldestRequest.getArrivalTime());
+        }
         return oldestRequest;
     }
 
@@ -127,4 +164,6 @@ public class Buffer {
     public int getRequestCount() { return requests.size(); }
     public double getLoadFactor() { return (double) requests.size() / capacity; }
     public CargoType getBufferType() { return bufferType; }
+    public int getIndex() { return index; }
+    public String getName() { return name; }
 }
\ No newline at end of file
@@ -1,5 +1,9 @@
 package com.warehouse.model;
 
+import com.warehouse.utils.EventCalendar;
+import com.warehouse.utils.Log;
+import com.warehouse.utils.Statistics;
+import com.warehouse.enums.InterruptionPolicy;
 import com.warehouse.enums.RequestStatus;
 import com.warehouse.Simulation;
 import com.warehouse.enums.EventType;
@@ -8,19 +12,39 @@ import java.util.*;
 public class Device {
     private final int id;
     private final int priority;
+    private final int groupIndex; // номер группы в WarehouseDispatcher (с 0)
     private final int capacity;
     private final List<Request> currentRequests = new ArrayList<>();
+    // События завершения по заявкам из currentRequests (null - режим внешних завершений)
+    private final List<Event> completions = new ArrayList<>();
+    // Остаток обслуживания прерванных заявок, пока ворота неисправны
+    private final List<Double> remainingService = new ArrayList<>();
     private final double minServiceTime;
     private final double maxServiceTime;
+    private final Random random;
+    private static final double TIME_EPSILON = 1e-7;
     private int processedCount;
     private double currentJobEndTime; // ДОБАВЛЕНО
+    private boolean available = true; // false - ворота закрыты (сценарий what-if)
+    private boolean failed; // поломка, ждет ремонта
+    private boolean inMaintenance; // плановое окно обслуживания
+    private double downSince;
+    private double[] maintenanceWindows = new double[0]; // пары начало-конец внутри периода
+    private double maintenancePeriod = Double.POSITIVE_INFINITY;
 
     public Device(int id, int priority, int capacity, double minServiceTime, double maxServiceTime) {
+        this(id, priority, priority - 1, capacity, minServiceTime, maxServiceTime, new Random());
+    }
+
+    public Device(int id, int priority, int groupIndex, int capacity, double minServiceTime, double maxServiceTime,
+                  Random random) {
         this.id = id;
         this.priority = priority;
+        this.groupIndex = groupIndex;
         this.capacity = capacity;
         this.minServiceTime = minServiceTime;
         this.maxServiceTime = maxServiceTime;
+        this.random = random;
         this.currentJobEndTime = Double.POSITIVE_INFINITY; // ДОБАВЛЕНО
     }
 
@@ -29,17 +53,15 @@ public class Device {
             return false;
         }
 
-        double serviceTime = generateServiceTime();
+        double serviceTime = serviceTime(request);
         currentRequests.add(request);
 
         // Устанавливаем время окончания работы
         this.currentJobEndTime = currentTime + serviceTime;
 
-        // Создаем событие завершения обслуживания
-        Simulation.getInstance().getEventCalendar().scheduleEvent(
-                new Event(currentTime + serviceTime, EventType.SERVICE_COMPLETE, this,
-                        String.format("Завершение обслуживания заявки %d на приборе %d", request.getId(), id))
-        );
+        // Создаем событие завершения обслуживания (в режиме внешних завершений его сообщит лента)
+        completions.add(Simulation.getInstance().isExternalCompletions()
+                ? null : scheduleCompletion(request, currentTime + serviceTime));
 
         request.setStatus(RequestStatus.IN_SERVICE);
         request.setServiceStartTime(currentTime);
@@ -47,6 +69,127 @@ public class Device {
         return true;
     }
 
+    // Досчет начатого обслуживания после выхода из режима внешних завершений
+    public void scheduleCompletions(double currentTime) {
+        if (!isOperational()) {
+            return; // досчитается при восстановлении ворот
+        }
+        for (int i = 0; i < currentRequests.size(); i++) {
+            Request request = currentRequests.get(i);
+            double endTime = Math.max(currentTime, request.getServiceStartTime() + serviceTime(request));
+            currentJobEndTime = endTime;
+            completions.set(i, scheduleCompletion(request, endTime));
+        }
+    }
+
+    private Event scheduleCompletion(Request request, double endTime) {
+        return Simulation.getInstance().getEventCalendar().scheduleEvent(
+                new Event(endTime, EventType.SERVICE_COMPLETE, this,
+                        Log.isEnabled() ? String.format("Завершение обслуживания заявки %d на приборе %d",
+                                request.getId(), id) : null)
+        );
+    }
+
+    // Ворота выходят из строя: завершения отменяются, остаток обслуживания запоминается.
+    // Возвращает число прерванных заявок
+    private int interruptService(double currentTime) {
+        remainingService.clear();
+        int interrupted = 0;
+        EventCalendar calendar = Simulation.getInstance().getEventCalendar();
+        for (int i = 0; i < currentRequests.size(); i++) {
+            Event completion = completions.get(i);
+            remainingService.add(completion != null ? Math.max(0, completion.getTime() - currentTime) : Double.NaN);
+            if (completion != null && calendar.cancel(completion)) {
+                interrupted++;
+            }
+            completions.set(i, null);
+        }
+        currentJobEndTime = Double.POSITIVE_INFINITY;
+        return interrupted;
+    }
+
+    // Ворота снова в строю: прерванное обслуживание продолжается или начинается заново
+    private void resumeService(double currentTime, InterruptionPolicy policy) {
+        boolean external = Simulation.getInstance().isExternalCompletions();
+        for (int i = 0; i < currentRequests.size(); i++) {
+            if (external) {
+                continue;
+            }
+            double remaining = i < remainingService.size() ? remainingService.get(i) : Double.NaN;
+            if (policy == InterruptionPolicy.RESTART || Double.isNaN(remaining)) {
+                remaining = serviceTime(currentRequests.get(i));
+            }
+            currentJobEndTime = currentTime + remaining;
+            completions.set(i, scheduleCompletion(currentRequests.get(i), currentJobEndTime));
+        }
+        remainingService.clear();
+    }
+
+    // Смена состояния поломки/обслуживания; true - ворота перешли между "в строю" и "не в строю"
+    public boolean setFailed(boolean failed, double currentTime, InterruptionPolicy policy) {
+        boolean wasOperational = isOperational();
+        this.failed = failed;
+        return applyTransition(wasOperational, currentTime, policy);
+    }
+
+    public boolean setInMaintenance(boolean inMaintenance, double currentTime, InterruptionPolicy policy) {
+        boolean wasOperational = isOperational();
+        this.inMaintenance = inMaintenance;
+        return applyTransition(wasOperational, currentTime, policy);
+    }
+
+    private boolean applyTransition(boolean wasOperational, double currentTime, InterruptionPolicy policy) {
+        boolean operational = isOperational();
+        if (wasOperational == operational) {
+            return false;
+        }
+        Statistics statistics = Simulation.getInstance().getStatistics();
+        if (operational) {
+            statistics.recordGateDowntime(currentTime - downSince);
+            resumeService(currentTime, policy);
+        } else {
+            downSince = currentTime;
+            statistics.recordServiceInterruptions(interruptService(currentTime));
+        }
+        return true;
+    }
+
+    public void setMaintenanceWindows(double[] windows, double period) {
+        this.maintenanceWindows = windows;
+        this.maintenancePeriod = period;
+    }
+
+    public boolean hasMaintenanceWindows() {
+        return maintenanceWindows.length > 0;
+    }
+
+    // Попадает ли момент time в окно планового обслуживания
+    public boolean isMaintenanceAt(double time) {
+        double phase = time - Math.floor(time / maintenancePeriod) * maintenancePeriod + TIME_EPSILON;
+        for (int i = 0; i < maintenanceWindows.length; i += 2) {
+            if (phase >= maintenanceWindows[i] && phase < maintenanceWindows[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Ближайшая граница окна обслуживания после time (inclusive - включая сам момент time)
+    public double nextMaintenanceBoundary(double time, boolean inclusive) {
+        double periodStart = Math.floor(time / maintenancePeriod) * maintenancePeriod;
+        double threshold = inclusive ? time - TIME_EPSILON : time + TIME_EPSILON;
+        double next = Double.POSITIVE_INFINITY;
+        for (int k = 0; k <= 1; k++) {
+            double base = periodStart + k * maintenancePeriod;
+            for (double bound : maintenanceWindows) {
+                if (base + bound >= threshold) {
+                    next = Math.min(next, base + bound);
+                }
+            }
+        }
+        return next;
+    }
+
     public Integer getCurrentRequestId() {
         return currentRequests.isEmpty() ? null : currentRequests.get(0).getId();
     }
@@ -55,10 +198,38 @@ public class Device {
         return finishService(Simulation.getInstance().getCurrentTime());
     }
 
+    // Без указания события завершается заявка с ближайшим завершением
     public Request finishService(double currentTime) {
         if (currentRequests.isEmpty()) return null;
+        int slot = 0;
+        for (int i = 1; i < completions.size(); i++) {
+            Event completion = completions.get(i);
+            if (completion != null && (completions.get(slot) == null
+                    || completion.getTime() < completions.get(slot).getTime())) {
+                slot = i;
+            }
+        }
+        return finishSlot(slot, currentTime);
+    }
+
+    // Завершение по сработавшему событию SERVICE_COMPLETE: при вместимости больше 1 заявки
+    // завершаются не в порядке начала, поэтому слот ищется по самому событию.
+    // null - событие не относится к заявкам на приборе
+    public Request finishService(Event completion, double currentTime) {
+        for (int i = 0; i < completions.size(); i++) {
+            if (completions.get(i) == completion) {
+                return finishSlot(i, currentTime);
+            }
+        }
+        return null;
+    }
 
-        Request finishedRequest = currentRequests.remove(0);
+    private Request finishSlot(int slot, double currentTime) {
+        Request finishedRequest = currentRequests.remove(slot);
+        completions.remove(slot);
+        if (slot < remainingService.size()) {
+            remainingService.remove(slot);
+        }
         finishedRequest.setStatus(RequestStatus.COMPLETED);
         finishedRequest.setServiceEndTime(currentTime);
         processedCount++;
@@ -66,18 +237,72 @@ public class Device {
         // ДОБАВЛЕНО: сбрасываем время окончания работы
         this.currentJobEndTime = Double.POSITIVE_INFINITY;
 
-        System.out.printf(">>> Заявка %d завершила обслуживание на приборе %d%n",
-                finishedRequest.getId(), id);
+        if (Log.isEnabled()) {
+            System.out.printf(">>> Заявка %d завершила обслуживание на приборе %d%n",
+                    finishedRequest.getId(), id);
+        }
 
         return finishedRequest;
     }
 
+    // Завершение конкретной заявки (внешнее уведомление); null - заявки на приборе нет
+    public Request finishService(int requestId, double currentTime) {
+        for (int i = 0; i < currentRequests.size(); i++) {
+            if (currentRequests.get(i).getId() == requestId) {
+                Request finishedRequest = currentRequests.remove(i);
+                completions.remove(i);
+                if (i < remainingService.size()) {
+                    remainingService.remove(i);
+                }
+                finishedRequest.setStatus(RequestStatus.COMPLETED);
+                finishedRequest.setServiceEndTime(currentTime);
+                processedCount++;
+                if (currentRequests.isEmpty()) {
+                    this.currentJobEndTime = Double.POSITIVE_INFINITY;
+                }
+                return finishedRequest;
+            }
+        }
+        return null;
+    }
+
     public boolean isFree() {
-        return currentRequests.size() < capacity;
+        return isOperational() && currentRequests.size() < capacity;
+    }
+
+    // Ворота открыты, исправны и не на плановом обслуживании
+    public boolean isOperational() {
+        return available && !failed && !inMaintenance;
     }
 
-    private double generateServiceTime() {
-        return minServiceTime + Math.random() * (maxServiceTime - minServiceTime);
+    public void copyStateFrom(Device other, Map<Request, Request> copies) {
+        currentRequests.clear();
+        for (Request request : other.currentRequests) {
+            currentRequests.add(copies.computeIfAbsent(request, Request::copy));
+        }
+        completions.clear();
+        completions.addAll(other.completions); // события оригинала, заменяются в remapEvents
+        remainingService.clear();
+        remainingService.addAll(other.remainingService);
+        processedCount = other.processedCount;
+        currentJobEndTime = other.currentJobEndTime;
+        available = other.available;
+        failed = other.failed;
+        inMaintenance = other.inMaintenance;
+        downSince = other.downSince;
+    }
+
+    // Замена событий оригинала их копиями из календаря ветви
+    public void remapEvents(Map<Object, Object> copies) {
+        completions.replaceAll(event -> event != null ? (Event) copies.get(event) : null);
+    }
+
+    // Время обслуживания по случайному числу заявки; заявке без него число выдает поток ворот
+    private double serviceTime(Request request) {
+        if (!request.hasServiceVariate()) {
+            request.setServiceVariate(random.nextDouble());
+        }
+        return minServiceTime + request.getServiceVariate() * (maxServiceTime - minServiceTime);
     }
 
     // ДОБАВЛЕННЫЙ МЕТОД
@@ -95,7 +320,12 @@ public class Device {
     // Getters
     public int getId() { return id; }
     public int getPriority() { return priority; }
+    public int getGroupIndex() { return groupIndex; }
     public int getCapacity() { return capacity; }
     public int getProcessedCount() { return processedCount; }
+    public boolean isAvailable() { return available; }
+    public void setAvailable(boolean available) { this.available = available; }
+    public boolean isFailed() { return failed; }
+    public boolean isInMaintenance() { return inMaintenance; }
     public List<Request> getCurrentRequests() { return currentRequests; }
 }
\ No newline at end of file
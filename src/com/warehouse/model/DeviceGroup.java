@@ -1,77 +1,232 @@
 package com.warehouse.model;
 
-import com.warehouse.enums.RequestStatus;
+import com.warehouse.utils.Log;
+import com.warehouse.utils.RandomStreams;
 import com.warehouse.Simulation;
 import com.warehouse.enums.EventType;
+import com.warehouse.enums.InterruptionPolicy;
+import com.warehouse.enums.VariateMode;
+import com.warehouse.utils.EventCalendar;
 import java.util.*;
 
 public class DeviceGroup {
+    private final int index;
     private final int priority;
+    private final String name;
+    private final Buffer targetBuffer;
     private final List<Device> devices = new ArrayList<>();
     private final Map<Integer, Device> deviceMap = new HashMap<>();
+    private StateChangeListener stateListener;
 
-    public DeviceGroup(int priority, int deviceCount, int capacityPerDevice,
-                       double minServiceTime, double maxServiceTime) {
-        this.priority = priority;
+    // Надежность ворот. Поломки всех ворот группы сведены в одно событие календаря:
+    // при k исправных воротах с экспоненциальной наработкой mtbf ближайшая поломка
+    // экспоненциальна с интенсивностью k/mtbf, а ломаются случайные из k ворот.
+    // Окна планового обслуживания тоже дают одно событие на ближайшую границу окна.
+    private double mtbf; // 0 - ворота не ломаются
+    private double mttr;
+    private InterruptionPolicy interruption = InterruptionPolicy.RESUME;
+    private Random failureRandom;
+    private Event nextFailure;
+    private Event nextMaintenance;
 
-        for (int i = 1; i <= deviceCount; i++) {
-            Device device = new Device(i, priority, capacityPerDevice, minServiceTime, maxServiceTime);
+    public DeviceGroup(int index, String name, int firstDeviceId, int deviceCount, int capacityPerDevice,
+                       double minServiceTime, double maxServiceTime, Buffer targetBuffer, long seed) {
+        this(index, name, firstDeviceId, deviceCount, capacityPerDevice, minServiceTime, maxServiceTime,
+                targetBuffer, seed, VariateMode.STANDARD);
+    }
+
+    public DeviceGroup(int index, String name, int firstDeviceId, int deviceCount, int capacityPerDevice,
+                       double minServiceTime, double maxServiceTime, Buffer targetBuffer, long seed,
+                       VariateMode mode) {
+        this.index = index;
+        this.priority = index + 1; // Приоритет = номер группы (П1, П2, ...)
+        this.name = name;
+        this.targetBuffer = targetBuffer;
+
+        for (int i = 0; i < deviceCount; i++) {
+            int deviceId = firstDeviceId + i;
+            Device device = new Device(deviceId, priority, index, capacityPerDevice, minServiceTime, maxServiceTime,
+                    RandomStreams.create(seed, RandomStreams.deviceServiceStream(index, i), mode));
             devices.add(device);
-            deviceMap.put(i, device);
+            deviceMap.put(deviceId, device);
         }
     }
 
     public boolean assignRequest(Request request, double currentTime) {
-        for (Device device : devices) {
-            if (device.isFree()) {
-                return device.startService(request, currentTime);
-            }
-        }
-        return false;
+        Device device = getFreeDevice();
+        return device != null && device.startService(request, currentTime);
     }
 
     public Device getFreeDevice() {
+        // Вместо поиска первого свободного, ищем прибор с наименьшей загрузкой
         return devices.stream()
                 .filter(Device::isFree)
-                .findFirst()
+                .min(Comparator.comparingInt(device -> device.getCurrentRequests().size()))
                 .orElse(null);
     }
 
     public void handleDeviceReleased(Device device) {
-        Buffer targetBuffer = getTargetBuffer();
-        if (targetBuffer != null) {
-            while (device.isFree() && !targetBuffer.isEmpty()) {
-                Request nextRequest = targetBuffer.getNextRequestForDevice();
-                if (nextRequest != null) {
-                    targetBuffer.removeRequest(nextRequest);
+        while (device.isFree() && !targetBuffer.isEmpty()) {
+            // ИЗМЕНЕНИЕ: Берем ПОСЛЕДНЮЮ заявку для прибора (LIFO)
+            Request nextRequest = targetBuffer.getLastRequestForDevice();
+            if (nextRequest != null) {
+                targetBuffer.removeRequest(nextRequest);
 
+                if (Log.isEnabled()) {
                     Simulation.getInstance().getEventCalendar().recordEvent(
                             Simulation.getInstance().getCurrentTime(),
-                            EventType.SENT_TO_DEVICE,  // ИЛИ EventType.SENT_FOR_PROCESSING
+                            EventType.SERVICE_START,
                             nextRequest,
-                            String.format("Заявка %d начинает обслуживание из буфера", nextRequest.getId())
-
+                            String.format("Заявка %d начинает обслуживание из буфера (FIFO)", nextRequest.getId())
                     );
+                }
 
-                    device.startService(nextRequest, Simulation.getInstance().getCurrentTime());
+                double currentTime = Simulation.getInstance().getCurrentTime();
+                device.startService(nextRequest, currentTime);
+                if (stateListener != null) {
+                    stateListener.onStateChange(EventType.BUFFER_REMOVE, currentTime, nextRequest, targetBuffer.getIndex());
+                    stateListener.onStateChange(EventType.SERVICE_START, currentTime, nextRequest, device.getId());
                 }
             }
         }
     }
 
-    private Buffer getTargetBuffer() {
-        WarehouseDispatcher dispatcher = Simulation.getInstance().getDispatcher();
-        return (priority == 1) ? dispatcher.getBufferPerishable() : dispatcher.getBufferRegular();
+    public void setReliability(double mtbf, double mttr, InterruptionPolicy interruption, Random failureRandom) {
+        this.mtbf = mtbf;
+        this.mttr = mttr;
+        this.interruption = interruption;
+        this.failureRandom = failureRandom;
+    }
+
+    // Первые события поломок и плановых окон
+    public void startReliability(double currentTime) {
+        scheduleNextFailure(currentTime);
+        scheduleNextMaintenance(currentTime, true);
+    }
+
+    public void handleFailure(double currentTime) {
+        nextFailure = null;
+        List<Device> candidates = failureCandidates();
+        if (candidates.isEmpty()) {
+            return;
+        }
+        Device device = candidates.get(failureRandom.nextInt(candidates.size()));
+        Simulation.getInstance().getStatistics().recordGateFailure();
+        device.setFailed(true, currentTime, interruption);
+        if (Log.isEnabled()) {
+            System.out.printf(">>> Ворота %d группы %s сломались, прервано заявок: %d%n",
+                    device.getId(), name, device.getCurrentRequests().size());
+        }
+        double repairTime = currentTime + exponential(mttr);
+        Simulation.getInstance().getEventCalendar().scheduleEvent(new Event(repairTime, EventType.GATE_REPAIR, device,
+                Log.isEnabled() ? String.format("Ремонт ворот %d", device.getId()) : null));
+        scheduleNextFailure(currentTime);
+    }
+
+    public void handleRepair(Device device, double currentTime) {
+        if (Log.isEnabled()) {
+            System.out.printf(">>> Ворота %d группы %s отремонтированы%n", device.getId(), name);
+        }
+        if (device.setFailed(false, currentTime, interruption)) {
+            handleDeviceReleased(device);
+        }
+        scheduleNextFailure(currentTime);
+    }
+
+    public void handleMaintenance(double currentTime) {
+        nextMaintenance = null;
+        boolean changed = false;
+        for (Device device : devices) {
+            if (!device.hasMaintenanceWindows()) continue;
+            boolean inWindow = device.isMaintenanceAt(currentTime);
+            if (inWindow == device.isInMaintenance()) continue;
+            if (Log.isEnabled()) {
+                System.out.printf(">>> Ворота %d группы %s: %s планового обслуживания%n",
+                        device.getId(), name, inWindow ? "начало" : "конец");
+            }
+            changed |= device.setInMaintenance(inWindow, currentTime, interruption);
+            if (!inWindow && device.isFree()) {
+                handleDeviceReleased(device);
+            }
+        }
+        if (changed) {
+            scheduleNextFailure(currentTime);
+        }
+        scheduleNextMaintenance(currentTime, false);
+    }
+
+    // Перепланирование единственного события поломки: число исправных ворот изменилось
+    private void scheduleNextFailure(double currentTime) {
+        if (mtbf <= 0) {
+            return;
+        }
+        EventCalendar calendar = Simulation.getInstance().getEventCalendar();
+        if (nextFailure != null) {
+            calendar.cancel(nextFailure);
+            nextFailure = null;
+        }
+        int operational = failureCandidates().size();
+        if (operational > 0) {
+            nextFailure = calendar.scheduleEvent(new Event(currentTime + exponential(mtbf / operational),
+                    EventType.GATE_FAILURE, this, Log.isEnabled() ? "Поломка ворот группы " + name : null));
+        }
+    }
+
+    private void scheduleNextMaintenance(double currentTime, boolean inclusive) {
+        double next = Double.POSITIVE_INFINITY;
+        for (Device device : devices) {
+            if (device.hasMaintenanceWindows()) {
+                next = Math.min(next, device.nextMaintenanceBoundary(currentTime, inclusive));
+            }
+        }
+        if (Double.isFinite(next)) {
+            nextMaintenance = Simulation.getInstance().getEventCalendar().scheduleEvent(new Event(next,
+                    EventType.MAINTENANCE, this,
+                    Log.isEnabled() ? "Плановое обслуживание ворот группы " + name : null));
+        }
+    }
+
+    private List<Device> failureCandidates() {
+        List<Device> candidates = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            if (device.isOperational()) {
+                candidates.add(device);
+            }
+        }
+        return candidates;
+    }
+
+    private double exponential(double mean) {
+        return -mean * Math.log(1 - failureRandom.nextDouble());
+    }
+
+    // Состояние надежности из группы-оригинала (ветвь симуляции); события заменяются в remapEvents
+    public void copyReliabilityFrom(DeviceGroup other) {
+        nextFailure = other.nextFailure;
+        nextMaintenance = other.nextMaintenance;
+    }
+
+    public void remapEvents(Map<Object, Object> copies) {
+        nextFailure = nextFailure != null ? (Event) copies.get(nextFailure) : null;
+        nextMaintenance = nextMaintenance != null ? (Event) copies.get(nextMaintenance) : null;
+        for (Device device : devices) {
+            device.remapEvents(copies);
+        }
     }
 
+    public void setStateListener(StateChangeListener stateListener) { this.stateListener = stateListener; }
+    public Device getDevice(int deviceId) { return deviceMap.get(deviceId); }
     public List<Device> getDevices() { return devices; }
+    public int getIndex() { return index; }
     public int getPriority() { return priority; }
+    public String getName() { return name; }
+    public Buffer getTargetBuffer() { return targetBuffer; }
     public int getTotalDevices() { return devices.size(); }
 
     public void displayState(double currentTime) {
-        System.out.printf("  Группа приборов (приоритет %d):%n", priority);
+        System.out.printf("ПРИБОРЫ P%d (%s):%n", priority, name);
         for (Device device : devices) {
             device.displayState(currentTime);
         }
     }
-}
\ No newline at end of file
+}
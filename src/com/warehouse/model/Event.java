@@ -1,12 +1,17 @@
 package com.warehouse.model;
 
 import com.warehouse.enums.EventType;
+import com.warehouse.utils.EventCalendar;
 
 public class Event implements Comparable<Event> {
     private final double time;
     private final EventType type;
     private final Object source;
     private final String description;
+    private boolean cancelled; // ленивое удаление: отмененное событие остается в очереди до извлечения
+    private boolean fired; // событие извлечено из календаря
+    private EventCalendar calendar; // календарь, в котором событие запланировано (null - не планировалось)
+    private long sequence; // порядок планирования: равные по времени и типу события идут в нем
 
     public Event(double time, EventType type, Object source, String description) {
         this.time = time;
@@ -25,9 +30,23 @@ public class Event implements Comparable<Event> {
     public EventType getType() { return type; }
     public Object getSource() { return source; }
     public String getDescription() { return description; }
+    public boolean isCancelled() { return cancelled; }
+    public boolean isFired() { return fired; }
+    public EventCalendar getCalendar() { return calendar; }
+    public long getSequence() { return sequence; }
+
+    // Вызываются только календарем (EventCalendar), иначе счетчик отмен разойдется
+    public void markCancelled() { cancelled = true; }
+    public void markFired() { fired = true; }
+    public void markScheduled(EventCalendar calendar, long sequence) {
+        this.calendar = calendar;
+        this.sequence = sequence;
+    }
 
     @Override
     public String toString() {
-        return String.format("Время: %.2f | %s | %s", time, type.getDescription(), description);
+        // Описание пусто у событий, запланированных при выключенном выводе
+        return String.format("Время: %.2f | %s | %s", time, type.getDescription(),
+                description != null ? description : "");
     }
 }
\ No newline at end of file
@@ -4,41 +4,88 @@ import com.warehouse.enums.CargoType;
 import com.warehouse.enums.RequestStatus;
 
 public class Request {
-    private static int nextId = 1;
     private final int id;
     private final int sourceId;
     private final double arrivalTime;
     private final CargoType cargoType;
+    private final int cargoClass;
+    private final double deadlineMinutes;
     private RequestStatus status;
     private int bufferPosition;
     private double serviceStartTime;
     private double serviceEndTime;
-    private Double deadline;
+    private double deadline = Double.NaN; // NaN - заявка не в буфере
+    private int transferCount;
+    private boolean traced; // выбрана для трассировки (RequestTracer)
+    // Случайное число времени обслуживания, разыгрывается один раз при поступлении (NaN - еще нет)
+    private double serviceVariate = Double.NaN;
 
     public Request(int id, double arrivalTime, CargoType cargoType, int sourceId) {
+        this(id, arrivalTime, cargoType.ordinal(), cargoType, cargoType.getDeadlineMinutes(), sourceId);
+    }
+
+    public Request(int id, double arrivalTime, int cargoClass, CargoType cargoType,
+                   double deadlineMinutes, int sourceId) {
         this.id = id;
         this.sourceId = sourceId;
         this.arrivalTime = arrivalTime;
         this.cargoType = cargoType;
+        this.cargoClass = cargoClass;
+        this.deadlineMinutes = deadlineMinutes;
         this.status = RequestStatus.ARRIVED;
-        this.deadline = null;
+    }
+
+    // Полная копия состояния заявки (для ветвления симуляции)
+    public Request copy() {
+        Request copy = new Request(id, arrivalTime, cargoClass, cargoType, deadlineMinutes, sourceId);
+        copy.status = status;
+        copy.bufferPosition = bufferPosition;
+        copy.serviceStartTime = serviceStartTime;
+        copy.serviceEndTime = serviceEndTime;
+        copy.deadline = deadline;
+        copy.transferCount = transferCount;
+        copy.traced = traced;
+        copy.serviceVariate = serviceVariate;
+        return copy;
+    }
+
+    // Та же заявка под другим номером (прием в хабе со своей нумерацией)
+    public Request withId(int newId) {
+        Request renumbered = new Request(newId, arrivalTime, cargoClass, cargoType, deadlineMinutes, sourceId);
+        renumbered.status = status;
+        renumbered.bufferPosition = bufferPosition;
+        renumbered.serviceStartTime = serviceStartTime;
+        renumbered.serviceEndTime = serviceEndTime;
+        renumbered.deadline = deadline;
+        renumbered.transferCount = transferCount;
+        renumbered.traced = traced;
+        renumbered.serviceVariate = serviceVariate;
+        return renumbered;
+    }
+
+    // Копия заявки, прибывающей в другой хаб после переезда
+    public Request transferredCopy(double newArrivalTime) {
+        Request copy = new Request(id, newArrivalTime, cargoClass, cargoType, deadlineMinutes, sourceId);
+        copy.transferCount = transferCount + 1;
+        copy.serviceVariate = serviceVariate;
+        return copy;
     }
 
     public void setBufferDeadline() {
-        this.deadline = arrivalTime + cargoType.getDeadlineMinutes();
+        this.deadline = arrivalTime + deadlineMinutes;
     }
 
     public void clearDeadline() {
-        this.deadline = null;
+        this.deadline = Double.NaN;
     }
 
-    public boolean hasDeadline() { return deadline != null; }
+    public boolean hasDeadline() { return !Double.isNaN(deadline); }
     public boolean isDeadlineExceeded(double currentTime) {
-        return deadline != null && currentTime > deadline;
+        return currentTime > deadline; // для NaN всегда false
     }
     public double getWaitingTime(double currentTime) { return currentTime - arrivalTime; }
     public double getRemainingTime(double currentTime) {
-        return deadline != null ? Math.max(0, deadline - currentTime) : 0;
+        return hasDeadline() ? Math.max(0, deadline - currentTime) : 0;
     }
 
 
@@ -47,6 +94,14 @@ public class Request {
     public int getSourceId() { return sourceId; }
     public double getArrivalTime() { return arrivalTime; }
     public CargoType getCargoType() { return cargoType; }
+    public int getCargoClass() { return cargoClass; }
+    public double getDeadlineMinutes() { return deadlineMinutes; }
+    public int getTransferCount() { return transferCount; }
+    public boolean isTraced() { return traced; }
+    public void setTraced(boolean traced) { this.traced = traced; }
+    public boolean hasServiceVariate() { return !Double.isNaN(serviceVariate); }
+    public double getServiceVariate() { return serviceVariate; }
+    public void setServiceVariate(double serviceVariate) { this.serviceVariate = serviceVariate; }
     public RequestStatus getStatus() { return status; }
     public void setStatus(RequestStatus status) { this.status = status; }
     public int getBufferPosition() { return bufferPosition; }
@@ -55,5 +110,5 @@ public class Request {
     public void setServiceStartTime(double serviceStartTime) { this.serviceStartTime = serviceStartTime; }
     public double getServiceEndTime() { return serviceEndTime; }
     public void setServiceEndTime(double serviceEndTime) { this.serviceEndTime = serviceEndTime; }
-    public Double getDeadline() { return deadline; }
+    public double getDeadline() { return deadline; }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.warehouse.model;
+
+/**
+ * Сквозная нумерация заявок одной симуляции: номера не повторяются между источниками
+ * и служат индексом строки в RequestLedger.
+ */
+public class RequestIdSequence {
+    private int last;
+
+    public int next() {
+        return ++last;
+    }
+
+    public int getLast() {
+        return last;
+    }
+
+    // Номера до id заняты извне (лента двойника): следующие выдаются после них
+    public void reserve(int id) {
+        if (id > last) {
+            last = id;
+        }
+    }
+
+    public void copyFrom(RequestIdSequence other) {
+        this.last = other.last;
+    }
+}
@@ -1,21 +1,65 @@
 package com.warehouse.model;
 
+import com.warehouse.utils.Log;
 import com.warehouse.enums.CargoType;
+import com.warehouse.enums.VariateMode;
+import com.warehouse.utils.TopologyConfig;
+import com.warehouse.utils.RandomStreams;
 import org.apache.commons.math3.distribution.ExponentialDistribution;
+import org.apache.commons.math3.random.JDKRandomGenerator;
 import java.util.Random;
 
 public class Source {
     private final int id;
     private final ExponentialDistribution expDistribution;
+    private final Random inversionRandom; // антитетическая пара: интервалы обращением функции распределения
+    private final double meanInterArrival;
     private final Random random;
+    private final Random serviceRandom;
+    private final TopologyConfig topology;
+    private final double[] cumulativeMix;
+    private final RequestIdSequence requestIds;
     private int requestCounter;
     private int rejectedCount;
     private double nextGenerationTime;
 
-    public Source(int id, double lambda) {
+    public Source(int id, double lambda, TopologyConfig topology, long seed) {
+        this(id, lambda, topology, seed, new RequestIdSequence());
+    }
+
+    // requestIds - общая нумерация заявок всех источников симуляции
+    public Source(int id, double lambda, TopologyConfig topology, long seed, RequestIdSequence requestIds) {
+        this(id, lambda, topology, seed, requestIds, VariateMode.STANDARD);
+    }
+
+    // Выборка ExponentialDistribution не монотонна по случайному числу, поэтому для антитетической
+    // пары оба прогона берут интервалы обращением: -m*ln(1-U) и, в отраженном, -m*ln(U)
+    public Source(int id, double lambda, TopologyConfig topology, long seed, RequestIdSequence requestIds,
+                  VariateMode mode) {
         this.id = id;
-        this.expDistribution = new ExponentialDistribution(1.0 / lambda);
-        this.random = new Random();
+        this.requestIds = requestIds;
+        this.meanInterArrival = 1.0 / lambda;
+        if (mode == VariateMode.STANDARD) {
+            JDKRandomGenerator arrivalRandom = new JDKRandomGenerator();
+            arrivalRandom.setSeed(RandomStreams.seedFor(seed, RandomStreams.sourceArrivalStream(id)));
+            this.expDistribution = new ExponentialDistribution(arrivalRandom, meanInterArrival);
+            this.inversionRandom = null;
+        } else {
+            this.expDistribution = null;
+            this.inversionRandom = RandomStreams.create(seed, RandomStreams.sourceArrivalStream(id), mode);
+        }
+        this.random = RandomStreams.create(seed, RandomStreams.sourceClassStream(id), mode);
+        this.serviceRandom = RandomStreams.create(seed, RandomStreams.sourceServiceStream(id), mode);
+        this.topology = topology;
+
+        // Кумулятивные доли классов груза для выбора класса одним случайным числом
+        double[] mix = topology.getSourceClassMix(id - 1);
+        this.cumulativeMix = new double[mix.length];
+        double sum = 0;
+        for (int i = 0; i < mix.length; i++) {
+            sum += mix[i];
+            cumulativeMix[i] = sum;
+        }
         this.requestCounter = 0;
         this.rejectedCount = 0;
         this.nextGenerationTime = 0; // Начальное время = 0, заявок еще нет
@@ -27,20 +71,43 @@ public class Source {
         // Обновляем время следующей генерации
         this.nextGenerationTime = currentTime + generateInterArrivalTime();
 
-        CargoType cargoType = random.nextDouble() < 0.1 ? CargoType.PERISHABLE : CargoType.REGULAR;
+        int cargoClass = selectCargoClass(random.nextDouble());
+        CargoType cargoType = topology.getClassType(cargoClass);
 
-        Request request = new Request(requestCounter, currentTime, cargoType, this.id);
+        Request request = new Request(requestIds.next(), currentTime, cargoClass, cargoType,
+                topology.getClassDeadline(cargoClass), this.id);
+        request.setServiceVariate(serviceRandom.nextDouble());
 
-        System.out.printf(">>> ИСТОЧНИК %d: Сгенерирована заявка %d (%s)%n",
-                id, requestCounter, cargoType.getDescription());
+        if (Log.isEnabled()) {
+            System.out.printf(">>> ИСТОЧНИК %d: Сгенерирована заявка %d (%s)%n",
+                    id, request.getId(), topology.getClassName(cargoClass));
+        }
 
         return request;
     }
 
+    private int selectCargoClass(double u) {
+        for (int i = 0; i < cumulativeMix.length - 1; i++) {
+            if (u < cumulativeMix[i]) {
+                return i;
+            }
+        }
+        return cumulativeMix.length - 1;
+    }
+
     public double generateInterArrivalTime() {
+        if (inversionRandom != null) {
+            return -meanInterArrival * Math.log(1 - inversionRandom.nextDouble());
+        }
         return expDistribution.sample();
     }
 
+    public void copyStateFrom(Source other) {
+        requestCounter = other.requestCounter;
+        rejectedCount = other.rejectedCount;
+        nextGenerationTime = other.nextGenerationTime;
+    }
+
     // ДОБАВЛЕННЫЕ МЕТОДЫ
     public int getGeneratedCount() {
         return requestCounter;
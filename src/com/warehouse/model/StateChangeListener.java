@@ -0,0 +1,22 @@
+package com.warehouse.model;
+
+import com.warehouse.enums.EventType;
+
+/**
+ * Наблюдатель изменений состояния хаба: постановка в буфер и выход из него, начало и конец
+ * обслуживания, отказ, выбивание. location - индекс буфера или номер прибора.
+ * Вызывается в потоке модели, поэтому реализация должна быть быстрой и не блокирующей.
+ */
+public interface StateChangeListener {
+    void onStateChange(EventType type, double time, Request request, int location);
+
+    // Оба наблюдателя в порядке first, second
+    static StateChangeListener both(StateChangeListener first, StateChangeListener second) {
+        if (first == null) return second;
+        if (second == null) return first;
+        return (type, time, request, location) -> {
+            first.onStateChange(type, time, request, location);
+            second.onStateChange(type, time, request, location);
+        };
+    }
+}
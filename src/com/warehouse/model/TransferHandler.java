@@ -0,0 +1,9 @@
+package com.warehouse.model;
+
+/**
+ * Получатель заявок, которые хаб не смог принять (отказ) или выбил из буфера.
+ * Возвращает true, если заявка забрана для переадресации в другой хаб.
+ */
+public interface TransferHandler {
+    boolean transfer(Request request, double currentTime);
+}
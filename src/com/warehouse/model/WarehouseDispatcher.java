@@ -1,66 +1,156 @@
 package com.warehouse.model;
 
+import com.warehouse.utils.Log;
+import com.warehouse.utils.RandomStreams;
 import com.warehouse.enums.CargoType;
 import com.warehouse.enums.RequestStatus;
+import com.warehouse.enums.VariateMode;
 import com.warehouse.Simulation;
 import com.warehouse.utils.Statistics;
+import com.warehouse.utils.TopologyConfig;
 import com.warehouse.enums.EventType;
 import java.util.*;
+import java.util.function.IntPredicate;
 
 public class WarehouseDispatcher {
-    private final Buffer bufferPerishable;
-    private final Buffer bufferRegular;
-    private final List<Device> devicesP1 = new ArrayList<>(); // Приборы для P1
-    private final List<Device> devicesP2 = new ArrayList<>(); // Приборы для P2
+    private final TopologyConfig topology;
+    private final List<Buffer> buffers = new ArrayList<>();
+    private final List<DeviceGroup> groups = new ArrayList<>();
     private final List<Source> sources = new ArrayList<>();
+    private final RequestIdSequence requestIds = new RequestIdSequence();
+
+    // Таблицы маршрутизации: класс груза -> буфер / группа ворот
+    private final Buffer[] bufferByClass;
+    private final DeviceGroup[] groupByClass;
+    private TransferHandler transferHandler; // null - отказанные заявки просто теряются
+    private StateChangeListener stateListener; // null - поток изменений не публикуется
+    private final VariateMode variateMode;
 
     public WarehouseDispatcher() {
-        this.bufferPerishable = new Buffer(8, CargoType.PERISHABLE);
-        this.bufferRegular = new Buffer(10, CargoType.REGULAR);
+        this(TopologyConfig.defaults(), new Random().nextLong());
+    }
 
-        // Создаем приборы для P1 (скоропортящиеся)
-        devicesP1.add(new Device(1, 1, 1, 5, 10));
-        devicesP1.add(new Device(2, 1, 1, 5, 10));
+    public WarehouseDispatcher(TopologyConfig topology, long seed) {
+        this(topology, seed, VariateMode.STANDARD);
+    }
 
-        // Создаем приборы для P2 (обычные)
-        devicesP2.add(new Device(3, 2, 1, 8, 15));
-        devicesP2.add(new Device(4, 2, 1, 8, 15));
+    public WarehouseDispatcher(TopologyConfig topology, long seed, VariateMode variateMode) {
+        this.topology = topology;
+        this.variateMode = variateMode;
 
-        this.sources.add(new Source(1, 0.5));
-        this.sources.add(new Source(2, 0.4));
-        this.sources.add(new Source(3, 0.5));
+        for (int b = 0; b < topology.getBufferCount(); b++) {
+            buffers.add(new Buffer(b, topology.getBufferCapacity(b), bufferType(b), topology.getBufferName(b)));
+        }
+
+        // Приборы нумеруются сквозным образом по всем группам
+        int nextDeviceId = 1;
+        for (int g = 0; g < topology.getGroupCount(); g++) {
+            groups.add(new DeviceGroup(g, topology.getGroupName(g), nextDeviceId,
+                    topology.getGroupDeviceCount(g), topology.getGroupDeviceCapacity(g),
+                    topology.getGroupMinService(g), topology.getGroupMaxService(g),
+                    buffers.get(topology.getGroupBuffer(g)), seed, variateMode));
+            nextDeviceId += topology.getGroupDeviceCount(g);
+        }
+        for (DeviceGroup group : groups) {
+            int g = group.getIndex();
+            group.setReliability(topology.getGroupMtbf(g), topology.getGroupMttr(g), topology.getGroupInterruption(g),
+                    RandomStreams.create(seed, RandomStreams.gateFailureStream(g), variateMode));
+            for (Device device : group.getDevices()) {
+                device.setMaintenanceWindows(topology.getDeviceMaintenance(device.getId()),
+                        topology.getMaintenancePeriod());
+            }
+        }
+
+        for (int s = 0; s < topology.getSourceCount(); s++) {
+            sources.add(new Source(s + 1, topology.getSourceLambda(s), topology, seed, requestIds, variateMode));
+        }
+
+        bufferByClass = new Buffer[topology.getClassCount()];
+        groupByClass = new DeviceGroup[topology.getClassCount()];
+        for (int c = 0; c < topology.getClassCount(); c++) {
+            bufferByClass[c] = buffers.get(topology.getClassBuffer(c));
+            groupByClass[c] = groups.get(topology.getClassGroup(c));
+        }
     }
 
-    // В WarehouseDispatcher добавим метод для обработки одной заявки из буфера
-    public void processNextRequestFromBuffer(double currentTime) {
-        // Сначала пробуем обработать заявки из буфера P1 (высший приоритет)
-        if (!bufferPerishable.isEmpty()) {
-            // ИЗМЕНЕНИЕ: Берем САМУЮ СТАРУЮ заявку
-            Request request = bufferPerishable.getLastRequestForDevice();
-            if (request != null) {
-                Device freeDevice = getFreeDevice(devicesP1);
-                if (freeDevice != null) {
-                    bufferPerishable.removeRequest(request);
-                    freeDevice.startService(request, currentTime);
-                    System.out.printf(">>> Заявка %d из буфера P1 назначена на прибор %d (FIFO)%n",
-                            request.getId(), freeDevice.getId());
-                    return;
-                }
+    // Копия диспетчера с тем же состоянием, но новыми потоками случайных чисел.
+    // copies заполняется соответствием объектов оригинала и копии (для календаря событий)
+    public WarehouseDispatcher copy(long seed, Map<Object, Object> copies) {
+        WarehouseDispatcher copy = new WarehouseDispatcher(topology, seed, variateMode);
+        Map<Request, Request> requestCopies = new HashMap<>();
+        for (int b = 0; b < buffers.size(); b++) {
+            copy.buffers.get(b).copyStateFrom(buffers.get(b), requestCopies);
+        }
+        for (int g = 0; g < groups.size(); g++) {
+            copy.groups.get(g).copyReliabilityFrom(groups.get(g));
+            copies.put(groups.get(g), copy.groups.get(g));
+            List<Device> original = groups.get(g).getDevices();
+            List<Device> copied = copy.groups.get(g).getDevices();
+            for (int d = 0; d < original.size(); d++) {
+                copied.get(d).copyStateFrom(original.get(d), requestCopies);
+                copies.put(original.get(d), copied.get(d));
             }
         }
+        for (int s = 0; s < sources.size(); s++) {
+            copy.sources.get(s).copyStateFrom(sources.get(s));
+            copies.put(sources.get(s), copy.sources.get(s));
+        }
+        copy.requestIds.copyFrom(requestIds);
+        copies.putAll(requestCopies);
+        return copy;
+    }
+
+    // После копирования календаря ветви: дескрипторы событий приборов и групп указывают на копии
+    public void remapEvents(Map<Object, Object> copies) {
+        for (DeviceGroup group : groups) {
+            group.remapEvents(copies);
+        }
+    }
 
-        // Затем пробуем обработать заявки из буфера P2
-        if (!bufferRegular.isEmpty()) {
-            // ИЗМЕНЕНИЕ: Берем САМУЮ СТАРУЮ заявку
-            Request request = bufferRegular.getLastRequestForDevice();
+    public void startGateReliability(double currentTime) {
+        startGateReliability(currentTime, group -> true);
+    }
 
+    // Поломки и окна обслуживания только групп с номерами (с 0), отобранных filter
+    public void startGateReliability(double currentTime, IntPredicate filter) {
+        for (int g = 0; g < groups.size(); g++) {
+            if (filter.test(g)) {
+                groups.get(g).startReliability(currentTime);
+            }
+        }
+    }
+
+    public DeviceGroup getGroupOf(Device device) {
+        return groups.get(device.getGroupIndex());
+    }
+
+    private CargoType bufferType(int buffer) {
+        for (int c = 0; c < topology.getClassCount(); c++) {
+            if (topology.getClassBuffer(c) == buffer) {
+                return topology.getClassType(c);
+            }
+        }
+        return CargoType.REGULAR;
+    }
+
+    // Обработка одной заявки из буфера: группы просматриваются в порядке приоритета
+    public void processNextRequestFromBuffer(double currentTime) {
+        for (DeviceGroup group : groups) {
+            Buffer buffer = group.getTargetBuffer();
+            if (buffer.isEmpty()) continue;
+
+            Request request = buffer.getLastRequestForDevice();
             if (request != null) {
-                Device freeDevice = getFreeDevice(devicesP2);
+                Device freeDevice = group.getFreeDevice();
                 if (freeDevice != null) {
-                    bufferRegular.removeRequest(request);
+                    buffer.removeRequest(request);
+                    publish(EventType.BUFFER_REMOVE, currentTime, request, buffer.getIndex());
                     freeDevice.startService(request, currentTime);
-                    System.out.printf(">>> Заявка %d из буфера P2 назначена на прибор %d (FIFO)%n",
-                            request.getId(), freeDevice.getId());
+                    publish(EventType.SERVICE_START, currentTime, request, freeDevice.getId());
+                    if (Log.isEnabled()) {
+                        System.out.printf(">>> Заявка %d из буфера P%d назначена на прибор %d (FIFO)%n",
+                                request.getId(), buffer.getIndex() + 1, freeDevice.getId());
+                    }
                     return;
                 }
             }
@@ -68,65 +158,74 @@ public class WarehouseDispatcher {
     }
 
     public void processArrival(Request request, double currentTime) {
-        boolean isPerishable = request.getCargoType() == CargoType.PERISHABLE;
-        List<Device> targetDevices = isPerishable ? devicesP1 : devicesP2;
-        Buffer targetBuffer = isPerishable ? bufferPerishable : bufferRegular;
-
-        System.out.printf(">>> ОБРАБОТКА: Заявка %d (%s) от источника %d%n",
-                request.getId(), request.getCargoType().getDescription(), request.getSourceId());
+        publish(EventType.ARRIVAL, currentTime, request, -1);
+        int cargoClass = request.getCargoClass();
+        DeviceGroup targetGroup = groupByClass[cargoClass];
+        Buffer targetBuffer = bufferByClass[cargoClass];
+
+        if (Log.isEnabled()) {
+            System.out.printf(">>> ОБРАБОТКА: Заявка %d (%s) от источника %d%n",
+                    request.getId(), topology.getClassName(cargoClass), request.getSourceId());
+        }
 
         // 1. Пробуем поставить на свободный прибор
-        Device freeDevice = getFreeDevice(targetDevices);
+        Device freeDevice = targetGroup.getFreeDevice();
         if (freeDevice != null) {
             boolean assigned = freeDevice.startService(request, currentTime);
             if (assigned) {
-                System.out.printf(">>> Заявка %d назначена на прибор %d%n",
-                        request.getId(), freeDevice.getId());
+                publish(EventType.SERVICE_START, currentTime, request, freeDevice.getId());
+                if (Log.isEnabled()) {
+                    System.out.printf(">>> Заявка %d назначена на прибор %d%n",
+                            request.getId(), freeDevice.getId());
+                }
 
                 // Записываем событие начала обслуживания
-                Simulation.getInstance().getEventCalendar().recordEvent(
-                        currentTime, EventType.SERVICE_START, request,
-                        String.format("Заявка %d начинает обслуживание на приборе %d",
-                                request.getId(), freeDevice.getId())
-                );
+                if (Log.isEnabled()) {
+                    Simulation.getInstance().getEventCalendar().recordEvent(
+                            currentTime, EventType.SERVICE_START, request,
+                            String.format("Заявка %d начинает обслуживание на приборе %d",
+                                    request.getId(), freeDevice.getId())
+                    );
+                }
                 return;
             }
         }
 
         // 2. Если приборы заняты - пробуем добавить в буфер
-        System.out.printf(">>> Приборы заняты, пробуем добавить в буфер %s%n",
-                targetBuffer.getBufferType().getDescription());
+        if (Log.isEnabled()) {
+            System.out.printf(">>> Приборы заняты, пробуем добавить в буфер %s%n",
+                    targetBuffer.getBufferType().getDescription());
+        }
 
         if (targetBuffer.hasFreeSpace()) {
             boolean added = targetBuffer.addRequest(request);
             if (added) {
                 request.setStatus(RequestStatus.IN_QUEUE);
-                System.out.printf(">>> Заявка %d добавлена в буфер %s%n",
-                        request.getId(), targetBuffer.getBufferType().getDescription());
+                publish(EventType.BUFFER_ADD, currentTime, request, targetBuffer.getIndex());
+                if (Log.isEnabled()) {
+                    System.out.printf(">>> Заявка %d добавлена в буфер %s%n",
+                            request.getId(), targetBuffer.getBufferType().getDescription());
+                }
 
                 // Записываем событие добавления в буфер
-                Simulation.getInstance().getEventCalendar().recordEvent(
-                        currentTime, EventType.BUFFER_ADD, request,
-                        String.format("Заявка %d добавлена в буфер %s",
-                                request.getId(), targetBuffer.getBufferType().getDescription())
-                );
+                if (Log.isEnabled()) {
+                    Simulation.getInstance().getEventCalendar().recordEvent(
+                            currentTime, EventType.BUFFER_ADD, request,
+                            String.format("Заявка %d добавлена в буфер %s",
+                                    request.getId(), targetBuffer.getBufferType().getDescription())
+                    );
+                }
             }
         } else {
             // 3. Если буфер полон - применяем правила вытеснения
-            System.out.printf(">>> Буфер %s полон, применяем правила вытеснения%n",
-                    targetBuffer.getBufferType().getDescription());
-            applyD1002Rule(request, targetBuffer, currentTime, isPerishable ? 1 : 2);
+            if (Log.isEnabled()) {
+                System.out.printf(">>> Буфер %s полон, применяем правила вытеснения%n",
+                        targetBuffer.getBufferType().getDescription());
+            }
+            applyD1002Rule(request, targetBuffer, currentTime, targetGroup.getPriority());
         }
     }
 
-    private Device getFreeDevice(List<Device> devices) {
-        // Вместо поиска первого свободного, ищем прибор с наименьшей загрузкой
-        return devices.stream()
-                .filter(Device::isFree)
-                .min(Comparator.comparingInt(device -> device.getCurrentRequests().size()))
-                .orElse(null);
-    }
-
     private void handleBusyDevice(Request request, Buffer buffer, double currentTime, int priority) {
         if (applyD1023Rule(request, buffer, currentTime)) {
             request.setStatus(RequestStatus.IN_QUEUE);
@@ -136,102 +235,127 @@ public class WarehouseDispatcher {
     }
 
     public boolean applyD1023Rule(Request request, Buffer buffer, double currentTime) {
-        System.out.println(">>> Применяем Д10З3: Буферизация на свободное место");
+        if (Log.isEnabled()) {
+            System.out.println(">>> Применяем Д10З3: Буферизация на свободное место");
+        }
         if (buffer.hasFreeSpace()) {
             boolean added = buffer.addRequest(request);
             if (added) {
                 request.setStatus(RequestStatus.IN_QUEUE);
-                System.out.printf(">>> Заявка %d размещена в буфере%n", request.getId());
+                publish(EventType.BUFFER_ADD, currentTime, request, buffer.getIndex());
+                if (Log.isEnabled()) {
+                    System.out.printf(">>> Заявка %d размещена в буфере%n", request.getId());
+                }
             }
             return added;
         } else {
-            System.out.println(">>> Буфер полен - переходим к проверке дедлайнов");
+            if (Log.isEnabled()) {
+                System.out.println(">>> Буфер полен - переходим к проверке дедлайнов");
+            }
             return false;
         }
     }
 
     public void applyD1002Rule(Request request, Buffer buffer, double currentTime, int priority) {
-        System.out.println(">>> Применяем Д10ОЗ: Поиск просроченной заявки");
+        if (Log.isEnabled()) {
+            System.out.println(">>> Применяем Д10ОЗ: Поиск просроченной заявки");
+        }
 
         // ИЗМЕНЕНИЕ: Ищем именно ПРОСРОЧЕННУЮ заявку
         Request expiredRequest = buffer.findExpiredRequest(currentTime);
         if (expiredRequest != null) {
             // СОБЫТИЕ: Выбивание заявки из буфера
-            Simulation.getInstance().getEventCalendar().recordEvent(
-                    currentTime, EventType.BUFFER_EVICTION, expiredRequest,
-                    String.format("Заявка %d выбита из буфера (просрочена)", expiredRequest.getId())
-            );
+            if (Log.isEnabled()) {
+                Simulation.getInstance().getEventCalendar().recordEvent(
+                        currentTime, EventType.BUFFER_EVICTION, expiredRequest,
+                        String.format("Заявка %d выбита из буфера (просрочена)", expiredRequest.getId())
+                );
+            }
 
             buffer.removeRequest(expiredRequest);
             expiredRequest.setStatus(RequestStatus.EVICTED);
-            Simulation.getInstance().getStatistics().recordEviction(expiredRequest, currentTime);
+            publish(EventType.BUFFER_EVICTION, currentTime, expiredRequest, buffer.getIndex());
+            // Один исход на заявку: переадресованная в другой хаб не считается вытесненной
+            if (!offerTransfer(expiredRequest, currentTime)) {
+                Simulation.getInstance().getStatistics().recordEviction(expiredRequest, currentTime);
+            }
 
             // СОБЫТИЕ: Удаление из буфера
-            Simulation.getInstance().getEventCalendar().recordEvent(
-                    currentTime, EventType.BUFFER_REMOVE, expiredRequest,
-                    String.format("Заявка %d удалена из буфера", expiredRequest.getId())
-            );
+            if (Log.isEnabled()) {
+                Simulation.getInstance().getEventCalendar().recordEvent(
+                        currentTime, EventType.BUFFER_REMOVE, expiredRequest,
+                        String.format("Заявка %d удалена из буфера", expiredRequest.getId())
+                );
+            }
 
             // Добавляем новую заявку в буфер
             buffer.addRequest(request);
             request.setStatus(RequestStatus.IN_QUEUE);
+            publish(EventType.BUFFER_ADD, currentTime, request, buffer.getIndex());
 
             // СОБЫТИЕ: Заявка отправлена в буфер (после выбивания)
-            Simulation.getInstance().getEventCalendar().recordEvent(
-                    currentTime, EventType.SENT_TO_BUFFER, request,
-                    String.format("Заявка %d добавлена в буфер вместо выбитой", request.getId())
-            );
+            if (Log.isEnabled()) {
+                Simulation.getInstance().getEventCalendar().recordEvent(
+                        currentTime, EventType.SENT_TO_BUFFER, request,
+                        String.format("Заявка %d добавлена в буфер вместо выбитой", request.getId())
+                );
+            }
         } else {
-            Simulation.getInstance().getEventCalendar().recordEvent(
-                    currentTime, EventType.REJECTION, request,
-                    String.format("Заявка %d отклонена - нет свободных мест и просроченных заявок", request.getId())
-            );
+            if (offerTransfer(request, currentTime)) {
+                return;
+            }
+            if (Log.isEnabled()) {
+                Simulation.getInstance().getEventCalendar().recordEvent(
+                        currentTime, EventType.REJECTION, request,
+                        String.format("Заявка %d отклонена - нет свободных мест и просроченных заявок", request.getId())
+                );
+            }
             request.setStatus(RequestStatus.REJECTED);
             Simulation.getInstance().getStatistics().recordRejection(request);
+            publish(EventType.REJECTION, currentTime, request, buffer.getIndex());
         }
     }
 
-    public void handleDeviceReleased(Device device) {
-        System.out.printf("\n>>> Прибор %d освободил одно место%n", device.getId());
-
-        Buffer targetBuffer = (device.getPriority() == 1) ? bufferPerishable : bufferRegular;
-        if (targetBuffer != null) {
-            while (device.isFree() && !targetBuffer.isEmpty()) {
-                // ИЗМЕНЕНИЕ: Берем САМУЮ СТАРУЮ заявку для прибора
-                Request nextRequest = targetBuffer.getLastRequestForDevice();
-                if (nextRequest != null) {
-                    targetBuffer.removeRequest(nextRequest);
+    public void publish(EventType type, double time, Request request, int location) {
+        if (stateListener != null) {
+            stateListener.onStateChange(type, time, request, location);
+        }
+    }
 
-                    Simulation.getInstance().getEventCalendar().recordEvent(
-                            Simulation.getInstance().getCurrentTime(),
-                            EventType.SERVICE_START,
-                            nextRequest,
-                            String.format("Заявка %d начинает обслуживание из буфера (FIFO)", nextRequest.getId())
-                    );
+    // Переадресация в соседний хаб вместо потери заявки
+    private boolean offerTransfer(Request request, double currentTime) {
+        if (transferHandler == null || !transferHandler.transfer(request, currentTime)) {
+            return false;
+        }
+        request.setStatus(RequestStatus.TRANSFERRED);
+        Simulation.getInstance().getStatistics().recordTransfer(request);
+        publish(EventType.TRANSFER, currentTime, request, -1);
+        if (Log.isEnabled()) {
+            System.out.printf(">>> Заявка %d переадресована в другой хаб%n", request.getId());
+        }
+        return true;
+    }
 
-                    device.startService(nextRequest, Simulation.getInstance().getCurrentTime());
-                }
-            }
+    public void handleDeviceReleased(Device device) {
+        if (Log.isEnabled()) {
+            System.out.printf("\n>>> Прибор %d освободил одно место%n", device.getId());
         }
+
+        groups.get(device.getGroupIndex()).handleDeviceReleased(device);
     }
 
     public void displayState(double currentTime) {
         System.out.println("\nСОСТОЯНИЕ СИСТЕМЫ:");
         System.out.println("-".repeat(60));
 
-        System.out.println("ПРИБОРЫ P1 (скоропортящиеся):");
-        for (Device device : devicesP1) {
-            device.displayState(currentTime);
-        }
-
-        System.out.println("ПРИБОРЫ P2 (обычные):");
-        for (Device device : devicesP2) {
-            device.displayState(currentTime);
+        for (DeviceGroup group : groups) {
+            group.displayState(currentTime);
         }
 
         System.out.println("\nБУФЕРЫ:");
-        bufferPerishable.displayState();
-        bufferRegular.displayState();
+        for (Buffer buffer : buffers) {
+            buffer.displayState();
+        }
 
         System.out.println("\nИСТОЧНИКИ:");
         for (Source source : sources) {
@@ -241,18 +365,41 @@ public class WarehouseDispatcher {
     }
 
     public int getTotalDevicesInGroup(int priority) {
-        if (priority == 1) {
-            return devicesP1.size();
-        } else if (priority == 2) {
-            return devicesP2.size();
+        if (priority >= 1 && priority <= groups.size()) {
+            return groups.get(priority - 1).getTotalDevices();
         }
         return 0;
     }
 
     // Getters
+    public TopologyConfig getTopology() { return topology; }
+    public void setTransferHandler(TransferHandler transferHandler) { this.transferHandler = transferHandler; }
+    public StateChangeListener getStateListener() { return stateListener; }
+    public RequestIdSequence getRequestIds() { return requestIds; }
+
+    public void setStateListener(StateChangeListener stateListener) {
+        this.stateListener = stateListener;
+        for (DeviceGroup group : groups) {
+            group.setStateListener(stateListener);
+        }
+    }
+
     public List<Source> getSources() { return sources; }
-    public Buffer getBufferPerishable() { return bufferPerishable; }
-    public Buffer getBufferRegular() { return bufferRegular; }
-    public List<Device> getDevicesP1() { return devicesP1; }
-    public List<Device> getDevicesP2() { return devicesP2; }
+    public List<Buffer> getBuffers() { return buffers; }
+    public List<DeviceGroup> getGroups() { return groups; }
+    public Buffer getBufferForClass(int cargoClass) { return bufferByClass[cargoClass]; }
+    public DeviceGroup getGroupForClass(int cargoClass) { return groupByClass[cargoClass]; }
+    public Buffer getBufferPerishable() { return findBuffer(CargoType.PERISHABLE); }
+    public Buffer getBufferRegular() { return findBuffer(CargoType.REGULAR); }
+    public List<Device> getDevicesP1() { return groups.get(0).getDevices(); }
+    public List<Device> getDevicesP2() { return groups.size() > 1 ? groups.get(1).getDevices() : List.of(); }
+
+    private Buffer findBuffer(CargoType type) {
+        for (int c = 0; c < bufferByClass.length; c++) {
+            if (topology.getClassType(c) == type) {
+                return bufferByClass[c];
+            }
+        }
+        return null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.warehouse.network;
+
+import com.warehouse.Simulation;
+import com.warehouse.model.Request;
+import com.warehouse.model.TransferHandler;
+import com.warehouse.utils.TopologyConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Хаб сети - отдельный раздел со своей симуляцией. Заявки, которые хаб
+ * не принял, складываются в исходящий ящик и доставляются соседям между окнами.
+ */
+public class Hub implements TransferHandler {
+    private final int index;
+    private final Simulation simulation;
+    private final List<HubLink> outgoing = new ArrayList<>();
+    private final List<Request> outbox = new ArrayList<>();
+    private final List<Integer> outboxTargets = new ArrayList<>();
+    private final int maxTransfers;
+    private int nextLink;
+    private int transfersIn;
+
+    public Hub(int index, TopologyConfig topology, long seed, int maxTransfers) {
+        this.index = index;
+        this.maxTransfers = maxTransfers;
+        this.simulation = new Simulation(topology, seed);
+        this.simulation.getDispatcher().setTransferHandler(this);
+    }
+
+    void addLink(HubLink link) {
+        outgoing.add(link);
+    }
+
+    // Вызывается в потоке хаба во время окна; соседи выбираются по кругу
+    @Override
+    public boolean transfer(Request request, double currentTime) {
+        if (outgoing.isEmpty() || request.getTransferCount() >= maxTransfers) {
+            return false;
+        }
+        HubLink link = outgoing.get(nextLink);
+        nextLink = (nextLink + 1) % outgoing.size();
+        outbox.add(request.transferredCopy(currentTime + link.getTravelTime()));
+        outboxTargets.add(link.getTo());
+        return true;
+    }
+
+    // Вызывается координатором после барьера окна
+    void deliverOutbox(List<Hub> hubs) {
+        for (int i = 0; i < outbox.size(); i++) {
+            hubs.get(outboxTargets.get(i)).receive(outbox.get(i));
+        }
+        outbox.clear();
+        outboxTargets.clear();
+    }
+
+    private void receive(Request request) {
+        transfersIn++;
+        // У каждого хаба своя нумерация заявок: принятая заявка получает местный номер
+        simulation.injectArrival(request.withId(simulation.getDispatcher().getRequestIds().next()));
+    }
+
+    public int getIndex() { return index; }
+    public Simulation getSimulation() { return simulation; }
+    public List<HubLink> getOutgoing() { return outgoing; }
+    public int getTransfersIn() { return transfersIn; }
+}
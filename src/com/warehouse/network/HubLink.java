@@ -0,0 +1,23 @@
+package com.warehouse.network;
+
+/**
+ * Направленная связь между хабами: время переезда фуры в минутах.
+ */
+public class HubLink {
+    private final int from;
+    private final int to;
+    private final double travelTime;
+
+    public HubLink(int from, int to, double travelTime) {
+        if (!(travelTime > 0)) {
+            throw new IllegalArgumentException("Время переезда между хабами должно быть положительным");
+        }
+        this.from = from;
+        this.to = to;
+        this.travelTime = travelTime;
+    }
+
+    public int getFrom() { return from; }
+    public int getTo() { return to; }
+    public double getTravelTime() { return travelTime; }
+}
@@ -0,0 +1,172 @@
+package com.warehouse.network;
+
+import com.warehouse.utils.RandomStreams;
+import com.warehouse.utils.SimulationConfig;
+import com.warehouse.utils.TopologyConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сеть хабов, связанных переездами. Каждый хаб - раздел со своим календарем;
+ * разделы продвигаются параллельно окнами длиной lookahead = минимальное время переезда.
+ * Переадресованная в окне [t, t+L) заявка прибывает не раньше t+L, поэтому ее можно
+ * доставить получателю между окнами, не нарушая причинности. Доставка идет в порядке
+ * номеров хабов, так что результат не зависит от числа потоков.
+ */
+public class HubNetwork {
+    private final List<Hub> hubs = new ArrayList<>();
+    private final List<HubLink> links = new ArrayList<>();
+    private final double lookahead;
+    private int windows;
+
+    public HubNetwork(List<TopologyConfig> hubTopologies, List<HubLink> links, long seed, int maxTransfers) {
+        for (int h = 0; h < hubTopologies.size(); h++) {
+            hubs.add(new Hub(h, hubTopologies.get(h), RandomStreams.seedFor(seed, h), maxTransfers));
+        }
+        double minTravel = Double.POSITIVE_INFINITY;
+        for (HubLink link : links) {
+            if (link.getFrom() < 0 || link.getFrom() >= hubs.size() || link.getTo() < 0 || link.getTo() >= hubs.size()) {
+                throw new IllegalArgumentException("Связь ссылается на несуществующий хаб: "
+                        + link.getFrom() + " -> " + link.getTo());
+            }
+            hubs.get(link.getFrom()).addLink(link);
+            this.links.add(link);
+            minTravel = Math.min(minTravel, link.getTravelTime());
+        }
+        this.lookahead = minTravel;
+    }
+
+    /**
+     * Ключи: network.hubs, network.maxTransfers, network.links=ring|full|explicit,
+     * network.travelTime (для ring/full), link.count и link.N=откуда,куда,время (для explicit).
+     * Топология хаба - общие ключи config.properties; hub.N.<ключ> переопределяет их для хаба N.
+     */
+    public static HubNetwork load(SimulationConfig config, long seed) {
+        int hubCount = config.getInt("network.hubs", 0);
+        if (hubCount <= 0) {
+            throw new IllegalArgumentException("Параметр network.hubs должен быть положительным");
+        }
+
+        TopologyConfig base = TopologyConfig.load(config);
+        Properties all = config.getProperties();
+        List<TopologyConfig> topologies = new ArrayList<>();
+        for (int h = 0; h < hubCount; h++) {
+            String prefix = "hub." + h + ".";
+            SimulationConfig hubConfig = null;
+            for (Map.Entry<Object, Object> entry : all.entrySet()) {
+                String key = entry.getKey().toString();
+                if (key.startsWith(prefix)) {
+                    if (hubConfig == null) hubConfig = config.copy();
+                    hubConfig.setProperty(key.substring(prefix.length()), entry.getValue().toString());
+                }
+            }
+            topologies.add(hubConfig == null ? base : TopologyConfig.load(hubConfig));
+        }
+
+        List<HubLink> links = new ArrayList<>();
+        String mode = config.getString("network.links", "ring");
+        double travelTime = config.getDouble("network.travelTime", 30);
+        switch (mode) {
+            case "ring":
+                for (int h = 0; h < hubCount && hubCount > 1; h++) {
+                    links.add(new HubLink(h, (h + 1) % hubCount, travelTime));
+                    links.add(new HubLink((h + 1) % hubCount, h, travelTime));
+                }
+                break;
+            case "full":
+                for (int from = 0; from < hubCount; from++) {
+                    for (int to = 0; to < hubCount; to++) {
+                        if (from != to) links.add(new HubLink(from, to, travelTime));
+                    }
+                }
+                break;
+            case "explicit":
+                int count = config.getInt("link.count", 0);
+                for (int i = 0; i < count; i++) {
+                    double[] parts = config.getDoubleList("link." + i, null);
+                    if (parts == null || parts.length != 3) {
+                        throw new IllegalArgumentException("Параметр link." + i + " должен иметь вид откуда,куда,время");
+                    }
+                    links.add(new HubLink((int) parts[0], (int) parts[1], parts[2]));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестный вид связей network.links: " + mode);
+        }
+
+        return new HubNetwork(topologies, links, seed, config.getInt("network.maxTransfers", 2));
+    }
+
+    public void run(double horizon, int threads) {
+        for (Hub hub : hubs) {
+            hub.getSimulation().setConsoleOutput(false);
+        }
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "hub-partition-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Callable<Void>> startTasks = new ArrayList<>();
+            for (Hub hub : hubs) {
+                startTasks.add(() -> {
+                    hub.getSimulation().start();
+                    return null;
+                });
+            }
+            invokeAll(executor, startTasks);
+
+            double windowSize = Double.isInfinite(lookahead) ? horizon : lookahead;
+            double start = 0;
+            windows = 0;
+            while (start < horizon) {
+                double end = Math.min(start + windowSize, horizon);
+                List<Callable<Void>> tasks = new ArrayList<>(hubs.size());
+                for (Hub hub : hubs) {
+                    tasks.add(() -> {
+                        hub.getSimulation().advanceTo(end);
+                        return null;
+                    });
+                }
+                invokeAll(executor, tasks);
+
+                // Барьер пройден: доставляем переадресованные заявки получателям
+                for (Hub hub : hubs) {
+                    hub.deliverOutbox(hubs);
+                }
+                windows++;
+                start = end;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void invokeAll(ExecutorService executor, List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Моделирование сети прервано", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка в разделе хаба: " + e.getCause(), e.getCause());
+        }
+    }
+
+    public List<Hub> getHubs() { return hubs; }
+    public List<HubLink> getLinks() { return links; }
+    public double getLookahead() { return lookahead; }
+    public int getWindows() { return windows; }
+}
@@ -0,0 +1,76 @@
+package com.warehouse.optimize;
+
+import com.warehouse.utils.RunResult;
+import com.warehouse.utils.SampleStats;
+import com.warehouse.utils.Scenario;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Кандидат оптимизатора: точка сетки, ее стоимость, накопленные репликации и решение.
+ */
+public class Candidate {
+    public enum Status {
+        OPEN("не решено"),
+        FEASIBLE("SLA выполнен"),
+        INFEASIBLE("SLA нарушен"),
+        DOMINATED("дороже найденного решения"),
+        PRUNED("отброшен аналитической оценкой"),
+        UNRESOLVED("не решено за лимит репликаций");
+
+        private final String description;
+
+        Status(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() { return description; }
+    }
+
+    private final String[] point;
+    private final Scenario scenario;
+    private final double cost;
+    // Наблюдение - одна репликация или пара прямой/антитетический прогон на одном зерне
+    private final List<RunResult[]> results = new ArrayList<>();
+    private Status status = Status.OPEN;
+
+    Candidate(String[] point, Scenario scenario, double cost) {
+        this.point = point;
+        this.scenario = scenario;
+        this.cost = cost;
+    }
+
+    void add(RunResult... observation) {
+        results.add(observation);
+    }
+
+    // Выборка показателя SLA по накопленным наблюдениям; пара усредняется, средние пар независимы
+    public SampleStats perishableRejection() {
+        SampleStats stats = new SampleStats();
+        results.forEach(o -> stats.add(average(o, RunResult::getPerishableRejectionRate)));
+        return stats;
+    }
+
+    public SampleStats rejection() {
+        SampleStats stats = new SampleStats();
+        results.forEach(o -> stats.add(average(o, RunResult::getRejectionRate)));
+        return stats;
+    }
+
+    private static double average(RunResult[] observation, ToDoubleFunction<RunResult> metric) {
+        double sum = 0;
+        for (RunResult result : observation) {
+            sum += metric.applyAsDouble(result);
+        }
+        return sum / observation.length;
+    }
+
+    public String[] getPoint() { return point.clone(); }
+    public Scenario getScenario() { return scenario; }
+    public double getCost() { return cost; }
+    public int getReplications() { return results.size(); }
+    public Status getStatus() { return status; }
+    void setStatus(Status status) { this.status = status; }
+}
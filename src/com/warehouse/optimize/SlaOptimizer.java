@@ -0,0 +1,267 @@
+package com.warehouse.optimize;
+
+import com.warehouse.BatchRunner;
+import com.warehouse.analytic.HubEstimate;
+import com.warehouse.analytic.QueueEstimator;
+import com.warehouse.enums.VariateMode;
+import com.warehouse.utils.RunResult;
+import com.warehouse.utils.SampleStats;
+import com.warehouse.utils.Scenario;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Поиск самой дешевой конфигурации, выполняющей SLA сценария (доли отказов скоропортящимся
+ * и/или всем заявкам не выше порогов).
+ *
+ * Последовательное отсеивание по раундам: все нерешенные кандидаты получают одинаковое число
+ * репликаций, которое удваивается каждый раунд. После раунда кандидат с нижней доверительной
+ * границей показателя выше порога отбрасывается, с верхней границей не выше порога - признается
+ * допустимым; нерешенные кандидаты не дешевле найденного допустимого больше не моделируются.
+ * Так явно плохие конфигурации отсеиваются за несколько репликаций, а репликации тратятся на пограничные.
+ *
+ * Границы проверяются многократно (каждый раунд, каждый кандидат, каждый показатель), поэтому
+ * уровень одной проверки - 2,5%, деленные на число всех возможных проверок (поправка Бонферрони).
+ * Для верхней границы стандартное отклонение берется не меньше доли порога: нулевой разброс на
+ * нескольких репликациях обычно означает, что редкие отказы просто не успели случиться.
+ * Гарантия результата: с вероятностью не ниже 97,5% одновременно SLA лучшего кандидата выполнен
+ * и каждый более дешевый кандидат со статусом INFEASIBLE действительно его нарушает. На более
+ * дешевые PRUNED (отсев без моделирования) и UNRESOLVED (исчерпан лимит репликаций) гарантия
+ * не распространяется - их перечисляет uncertainCheaper.
+ *
+ * Репликации всех кандидатов раунда выполняются параллельно; зерна общие для всех кандидатов
+ * (run.seed, run.seed+1, ...), так что кандидаты сравниваются на одинаковых входных потоках.
+ * При run.antithetic наблюдением служит среднее пары прямой и антитетический прогон на одном зерне.
+ */
+public class SlaOptimizer {
+    private static final double FAMILY_ALPHA = 0.025;
+    // Нижняя граница стандартного отклонения при подтверждении SLA, доля порога
+    private static final double DEVIATION_FLOOR = 0.25;
+
+    private final List<Candidate> candidates;
+    private final long firstSeed;
+    private final int threads;
+    private int minReplications = 4;
+    private int maxReplications = 64;
+    private int totalReplications;
+    private double alpha;
+
+    public SlaOptimizer(List<Candidate> candidates, long firstSeed, int threads) {
+        this.candidates = new ArrayList<>(candidates);
+        this.candidates.sort(Comparator.comparingDouble(Candidate::getCost));
+        this.firstSeed = firstSeed;
+        this.threads = Math.max(1, threads);
+    }
+
+    public static Candidate candidate(String[] point, Scenario scenario, double cost) {
+        return new Candidate(point, scenario, cost);
+    }
+
+    public void setReplicationLimits(int minReplications, int maxReplications) {
+        if (minReplications < 2 || maxReplications < minReplications) {
+            throw new IllegalArgumentException("Нужно 2 <= min-replications <= max-replications");
+        }
+        this.minReplications = minReplications;
+        this.maxReplications = maxReplications;
+    }
+
+    // Кандидаты, которые аналитическая оценка считает недопустимыми с запасом margin, не моделируются
+    public void pruneAnalytically(double margin) {
+        for (Candidate candidate : candidates) {
+            HubEstimate estimate = QueueEstimator.estimate(candidate.getScenario().getTopology());
+            double perishableLimit = candidate.getScenario().getMaxPerishableRejectionRate();
+            double limit = candidate.getScenario().getMaxRejectionRate();
+            if ((perishableLimit > 0 && estimate.getPerishableRejectionRate() > perishableLimit * margin)
+                    || (limit > 0 && estimate.getRejectionRate() > limit * margin)) {
+                candidate.setStatus(Candidate.Status.PRUNED);
+            }
+        }
+    }
+
+    // Лучший допустимый кандидат; null - ни один кандидат не подтвердил SLA
+    public Candidate run() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, daemonThreads());
+        try {
+            alpha = FAMILY_ALPHA / plannedChecks();
+            int replications = minReplications;
+            while (true) {
+                List<Candidate> open = openCandidates();
+                if (open.isEmpty()) {
+                    break;
+                }
+                runReplications(executor, open, replications);
+                for (Candidate candidate : open) {
+                    decide(candidate);
+                }
+                dominate();
+                if (replications >= maxReplications) {
+                    openCandidates().forEach(c -> c.setStatus(Candidate.Status.UNRESOLVED));
+                    break;
+                }
+                replications = Math.min(maxReplications, replications * 2);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return best();
+    }
+
+    // Верхняя оценка числа проверок одной стороны: кандидаты x раунды x показатели SLA
+    private long plannedChecks() {
+        int rounds = 1;
+        for (int r = minReplications; r < maxReplications; r = Math.min(maxReplications, r * 2)) {
+            rounds++;
+        }
+        long checks = 0;
+        for (Candidate candidate : openCandidates()) {
+            int metrics = (Double.isNaN(candidate.getScenario().getMaxPerishableRejectionRate()) ? 0 : 1)
+                    + (Double.isNaN(candidate.getScenario().getMaxRejectionRate()) ? 0 : 1);
+            checks += (long) rounds * metrics;
+        }
+        return Math.max(1, checks);
+    }
+
+    private List<Candidate> openCandidates() {
+        List<Candidate> open = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (candidate.getStatus() == Candidate.Status.OPEN) {
+                open.add(candidate);
+            }
+        }
+        return open;
+    }
+
+    // Дозапуск наблюдений до target у каждого кандидата; результаты добавляются в порядке зерен
+    private void runReplications(ExecutorService executor, List<Candidate> open, int target)
+            throws InterruptedException {
+        List<Future<RunResult[]>> futures = new ArrayList<>();
+        List<Candidate> owners = new ArrayList<>();
+        for (Candidate candidate : open) {
+            for (int r = candidate.getReplications(); r < target; r++) {
+                long seed = firstSeed + r;
+                Callable<RunResult[]> task = () -> observe(candidate.getScenario(), seed);
+                futures.add(executor.submit(task));
+                owners.add(candidate);
+            }
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                RunResult[] observation = futures.get(i).get();
+                owners.get(i).add(observation);
+                totalReplications += observation.length;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Ошибка репликации кандидата", e.getCause());
+            }
+        }
+    }
+
+    private static RunResult[] observe(Scenario scenario, long seed) {
+        if (scenario.isAntithetic()) {
+            return new RunResult[] {BatchRunner.runReplication(scenario, seed, VariateMode.DIRECT),
+                    BatchRunner.runReplication(scenario, seed, VariateMode.ANTITHETIC)};
+        }
+        return new RunResult[] {BatchRunner.runReplication(scenario, seed)};
+    }
+
+    private void decide(Candidate candidate) {
+        boolean allBelow = true;
+        double perishableLimit = candidate.getScenario().getMaxPerishableRejectionRate();
+        double limit = candidate.getScenario().getMaxRejectionRate();
+        if (!Double.isNaN(perishableLimit)) {
+            SampleStats stats = candidate.perishableRejection();
+            if (lower(stats) > perishableLimit) {
+                candidate.setStatus(Candidate.Status.INFEASIBLE);
+                return;
+            }
+            allBelow = upper(stats, perishableLimit) <= perishableLimit;
+        }
+        if (!Double.isNaN(limit)) {
+            SampleStats stats = candidate.rejection();
+            if (lower(stats) > limit) {
+                candidate.setStatus(Candidate.Status.INFEASIBLE);
+                return;
+            }
+            allBelow &= upper(stats, limit) <= limit;
+        }
+        if (allBelow) {
+            candidate.setStatus(Candidate.Status.FEASIBLE);
+        }
+    }
+
+    // Нерешенные кандидаты не дешевле лучшего допустимого уже не могут стать ответом
+    private void dominate() {
+        Candidate best = best();
+        if (best == null) {
+            return;
+        }
+        for (Candidate candidate : candidates) {
+            if (candidate.getStatus() == Candidate.Status.OPEN && candidate.getCost() >= best.getCost()) {
+                candidate.setStatus(Candidate.Status.DOMINATED);
+            }
+        }
+    }
+
+    private Candidate best() {
+        Candidate best = null;
+        for (Candidate candidate : candidates) {
+            if (candidate.getStatus() == Candidate.Status.FEASIBLE && (best == null
+                    || candidate.getCost() < best.getCost()
+                    || (candidate.getCost() == best.getCost() && score(candidate) < score(best)))) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    // Более дешевые кандидаты, отвергнутые без статистической проверки: среди них может быть допустимый
+    public List<Candidate> uncertainCheaper(Candidate best) {
+        List<Candidate> uncertain = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (candidate.getCost() < best.getCost() && (candidate.getStatus() == Candidate.Status.PRUNED
+                    || candidate.getStatus() == Candidate.Status.UNRESOLVED)) {
+                uncertain.add(candidate);
+            }
+        }
+        return uncertain;
+    }
+
+    private static double score(Candidate candidate) {
+        double perishable = candidate.perishableRejection().getMean();
+        return Double.isNaN(perishable) ? candidate.rejection().getMean() : perishable;
+    }
+
+    // Односторонние границы уровня 1 - alpha
+    private double lower(SampleStats stats) {
+        return stats.getMean() - quantile(stats) * stats.getStandardError();
+    }
+
+    private double upper(SampleStats stats, double limit) {
+        double deviation = Math.max(Math.sqrt(stats.getVariance()), DEVIATION_FLOOR * limit);
+        return stats.getMean() + quantile(stats) * deviation / Math.sqrt(stats.getCount());
+    }
+
+    private double quantile(SampleStats stats) {
+        return SampleStats.tQuantile(1 - alpha, stats.getCount() - 1);
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, "optimizer-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public List<Candidate> getCandidates() { return candidates; }
+    public int getTotalReplications() { return totalReplications; }
+}
@@ -0,0 +1,44 @@
+package com.warehouse.parallel;
+
+import com.warehouse.Simulation;
+import com.warehouse.model.Device;
+import com.warehouse.model.DeviceGroup;
+
+import java.util.List;
+
+/**
+ * Вмешательство, применяемое к ветви what-if сразу после ветвления.
+ */
+@FunctionalInterface
+public interface Intervention {
+    void apply(Simulation branch);
+
+    static Intervention none() {
+        return branch -> { };
+    }
+
+    // Закрыть count ворот группы: начатое обслуживание завершается, новые заявки не принимаются
+    static Intervention disableGates(int group, int count) {
+        return branch -> {
+            List<DeviceGroup> groups = branch.getDispatcher().getGroups();
+            if (group < 0 || group >= groups.size()) {
+                throw new IllegalArgumentException("Группа ворот " + group + " не существует");
+            }
+            List<Device> devices = groups.get(group).getDevices();
+            int closed = 0;
+            for (int i = devices.size() - 1; i >= 0 && closed < count; i--) {
+                if (devices.get(i).isAvailable()) {
+                    devices.get(i).setAvailable(false);
+                    closed++;
+                }
+            }
+        };
+    }
+
+    default Intervention andThen(Intervention next) {
+        return branch -> {
+            apply(branch);
+            next.apply(branch);
+        };
+    }
+}
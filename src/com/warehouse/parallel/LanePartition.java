@@ -0,0 +1,74 @@
+package com.warehouse.parallel;
+
+import com.warehouse.utils.TopologyConfig;
+
+import java.util.Arrays;
+
+/**
+ * Разбиение топологии на независимые дорожки: классы груза, которые делят
+ * буфер или группу ворот (напрямую или через цепочку), попадают в одну дорожку.
+ * Между дорожками нет общего состояния, кроме источников.
+ */
+public class LanePartition {
+    private final int[] laneOfClass;
+    private final int[] laneOfGroup;
+    private final int laneCount;
+
+    public LanePartition(TopologyConfig topology) {
+        int classes = topology.getClassCount();
+        int buffers = topology.getBufferCount();
+        int groups = topology.getGroupCount();
+
+        // Вершины union-find: классы, затем буферы, затем группы
+        int[] parent = new int[classes + buffers + groups];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int c = 0; c < classes; c++) {
+            union(parent, c, classes + topology.getClassBuffer(c));
+            union(parent, c, classes + buffers + topology.getClassGroup(c));
+        }
+        for (int g = 0; g < groups; g++) {
+            union(parent, classes + buffers + g, classes + topology.getGroupBuffer(g));
+        }
+
+        laneOfClass = new int[classes];
+        int[] laneOfRoot = new int[parent.length];
+        Arrays.fill(laneOfRoot, -1);
+        int lanes = 0;
+        for (int c = 0; c < classes; c++) {
+            int root = find(parent, c);
+            if (laneOfRoot[root] < 0) {
+                laneOfRoot[root] = lanes++;
+            }
+            laneOfClass[c] = laneOfRoot[root];
+        }
+        laneCount = lanes;
+
+        // Группа без направленных в нее классов ни к одной дорожке не относится
+        laneOfGroup = new int[groups];
+        for (int g = 0; g < groups; g++) {
+            laneOfGroup[g] = laneOfRoot[find(parent, classes + buffers + g)];
+        }
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) {
+            parent[rootB] = rootA;
+        }
+    }
+
+    public int getLaneCount() { return laneCount; }
+    public int getLane(int cargoClass) { return laneOfClass[cargoClass]; }
+    public int getGroupLane(int group) { return laneOfGroup[group]; }
+}
@@ -0,0 +1,201 @@
+package com.warehouse.parallel;
+
+import com.warehouse.Simulation;
+import com.warehouse.enums.VariateMode;
+import com.warehouse.model.Request;
+import com.warehouse.model.RequestIdSequence;
+import com.warehouse.model.StateChangeListener;
+import com.warehouse.model.Source;
+import com.warehouse.utils.Statistics;
+import com.warehouse.utils.TopologyConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Параллельный прогон одной репликации по дорожкам (LanePartition).
+ * Каждая дорожка - логический процесс со своим календарем событий в отдельном потоке.
+ * Источники работают в вызывающем потоке и раздают прибытия по дорожкам окнами времени:
+ * пакет окна [t, t+window) - обещание, что более ранних прибытий не будет, поэтому
+ * дорожка может обработать все свои события до конца окна (консервативная синхронизация).
+ * Обратных сообщений от дорожек к источникам нет, так что генератор может уходить вперед
+ * на несколько окон (ограничено емкостью очередей).
+ *
+ * При одинаковом зерне счетчики совпадают с последовательным Simulation.run:
+ * потоки случайных чисел источников и ворот привязаны к ролям, а не к порядку событий.
+ */
+public class ParallelLaneRunner {
+    private static final int QUEUE_WINDOWS = 8;
+
+    private final TopologyConfig topology;
+    private final long seed;
+    private final VariateMode variateMode;
+    private final double window;
+    private final LanePartition partition;
+    private final List<Simulation> lanes = new ArrayList<>();
+    private final List<Source> sources = new ArrayList<>();
+    private final RequestIdSequence requestIds = new RequestIdSequence();
+    private Statistics statistics;
+    private StateChangeListener stateListener;
+
+    public ParallelLaneRunner(TopologyConfig topology, long seed, double window) {
+        this(topology, seed, window, VariateMode.STANDARD);
+    }
+
+    public ParallelLaneRunner(TopologyConfig topology, long seed, double window, VariateMode variateMode) {
+        if (!(window > 0)) {
+            throw new IllegalArgumentException("Размер окна синхронизации должен быть положительным");
+        }
+        this.topology = topology;
+        this.seed = seed;
+        this.variateMode = variateMode;
+        this.window = window;
+        this.partition = new LanePartition(topology);
+    }
+
+    private static final class WindowBatch {
+        final double end;
+        final List<Request> arrivals;
+        final boolean last;
+
+        WindowBatch(double end, List<Request> arrivals, boolean last) {
+            this.end = end;
+            this.arrivals = arrivals;
+            this.last = last;
+        }
+    }
+
+    public Statistics run(double horizon) {
+        int laneCount = partition.getLaneCount();
+
+        lanes.clear();
+        sources.clear();
+        for (int l = 0; l < laneCount; l++) {
+            Simulation lane = new Simulation(topology, seed, variateMode);
+            lane.getDispatcher().setStateListener(stateListener);
+            // Последняя созданная дорожка остается текущей и для потока, генерирующего прибытия
+            lane.setConsoleOutput(false);
+            lanes.add(lane);
+        }
+        for (int s = 0; s < topology.getSourceCount(); s++) {
+            sources.add(new Source(s + 1, topology.getSourceLambda(s), topology, seed, requestIds, variateMode));
+        }
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(laneCount, r -> {
+            Thread thread = new Thread(r, "lane-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<BlockingQueue<WindowBatch>> queues = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int l = 0; l < laneCount; l++) {
+                BlockingQueue<WindowBatch> queue = new ArrayBlockingQueue<>(QUEUE_WINDOWS);
+                Simulation lane = lanes.get(l);
+                int laneIndex = l;
+                queues.add(queue);
+                futures.add(executor.submit(() -> runLane(lane, laneIndex, queue)));
+            }
+
+            generateArrivals(horizon, queues, futures);
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Параллельный прогон прерван", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка в дорожке: " + e.getCause(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        statistics = new Statistics(topology);
+        for (Simulation lane : lanes) {
+            statistics.merge(lane.getStatistics());
+        }
+        return statistics;
+    }
+
+    private Void runLane(Simulation lane, int laneIndex, BlockingQueue<WindowBatch> queue)
+            throws InterruptedException {
+        // Поломки и обслуживание ворот - только своих групп, иначе они учтутся в каждой дорожке
+        lane.startGates(group -> partition.getGroupLane(group) == laneIndex);
+        while (true) {
+            WindowBatch batch = queue.take();
+            for (Request request : batch.arrivals) {
+                lane.injectArrival(request);
+            }
+            lane.advanceTo(batch.end);
+            if (batch.last) {
+                return null;
+            }
+        }
+    }
+
+    // Повторяет порядок обращений к генераторам источника, что и последовательный прогон
+    private void generateArrivals(double horizon, List<BlockingQueue<WindowBatch>> queues,
+                                  List<Future<?>> futures) throws InterruptedException, ExecutionException {
+        int laneCount = queues.size();
+        double[] nextArrival = new double[sources.size()];
+        for (int s = 0; s < sources.size(); s++) {
+            nextArrival[s] = sources.get(s).generateInterArrivalTime();
+        }
+
+        double start = 0;
+        while (true) {
+            double end = Math.min(start + window, horizon);
+            boolean last = end >= horizon;
+
+            List<List<Request>> perLane = new ArrayList<>(laneCount);
+            for (int l = 0; l < laneCount; l++) {
+                perLane.add(new ArrayList<>());
+            }
+            for (int s = 0; s < sources.size(); s++) {
+                Source source = sources.get(s);
+                while (nextArrival[s] < end) {
+                    Request request = source.generateRequest(nextArrival[s]);
+                    perLane.get(partition.getLane(request.getCargoClass())).add(request);
+                    nextArrival[s] += source.generateInterArrivalTime();
+                }
+            }
+            for (int l = 0; l < laneCount; l++) {
+                putBatch(queues.get(l), new WindowBatch(end, perLane.get(l), last), futures.get(l));
+            }
+            if (last) {
+                return;
+            }
+            start = end;
+        }
+    }
+
+    // Не блокируемся навсегда, если поток дорожки завершился с ошибкой
+    private static void putBatch(BlockingQueue<WindowBatch> queue, WindowBatch batch, Future<?> lane)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            if (lane.isDone()) {
+                lane.get();
+                throw new IllegalStateException("Дорожка завершилась раньше времени");
+            }
+        }
+    }
+
+    // Наблюдатель для всех дорожек; вызывается из их потоков одновременно
+    public void setStateListener(StateChangeListener stateListener) { this.stateListener = stateListener; }
+
+    public Statistics getStatistics() { return statistics; }
+    public List<Simulation> getLanes() { return lanes; }
+    public List<Source> getSources() { return sources; }
+    public LanePartition getPartition() { return partition; }
+}
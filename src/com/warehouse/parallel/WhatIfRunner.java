@@ -0,0 +1,73 @@
+package com.warehouse.parallel;
+
+import com.warehouse.Simulation;
+import com.warehouse.utils.RandomStreams;
+import com.warehouse.utils.Statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сценарии "что будет, если": живая симуляция ветвится в текущий момент на набор
+ * независимых ветвей, каждая со своим вмешательством и своим потоком случайных чисел
+ * (RandomStreams.seedFor(baseSeed, номер ветви)). Ветви прогоняются параллельно на
+ * заданный горизонт, оригинал не изменяется.
+ */
+public class WhatIfRunner {
+    private final Simulation origin;
+    private final long baseSeed;
+    private final int threads;
+
+    public WhatIfRunner(Simulation origin, long baseSeed, int threads) {
+        this.origin = origin;
+        this.baseSeed = baseSeed;
+        this.threads = Math.max(1, threads);
+    }
+
+    // resetStatistics - статистика ветви считается только по будущему, без истории оригинала
+    public List<Statistics> run(List<Intervention> interventions, double horizon, boolean resetStatistics) {
+        // Ветвление выполняется в вызывающем потоке, пока оригинал стоит на месте
+        List<Simulation> branches = new ArrayList<>(interventions.size());
+        for (int i = 0; i < interventions.size(); i++) {
+            Simulation branch = origin.fork(RandomStreams.seedFor(baseSeed, i), resetStatistics);
+            interventions.get(i).apply(branch);
+            branch.setConsoleOutput(false);
+            branches.add(branch);
+        }
+
+        double endTime = origin.getCurrentTime() + horizon;
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, branches.size())), r -> {
+            Thread thread = new Thread(r, "what-if-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Callable<Statistics>> tasks = new ArrayList<>(branches.size());
+            for (Simulation branch : branches) {
+                tasks.add(() -> {
+                    branch.advanceTo(endTime);
+                    return branch.getStatistics();
+                });
+            }
+            List<Statistics> results = new ArrayList<>(branches.size());
+            for (Future<Statistics> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Прогон ветвей прерван", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка в ветви: " + e.getCause(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
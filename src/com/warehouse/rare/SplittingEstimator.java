@@ -0,0 +1,255 @@
+package com.warehouse.rare;
+
+import com.warehouse.Simulation;
+import com.warehouse.enums.CargoType;
+import com.warehouse.model.Buffer;
+import com.warehouse.utils.RandomStreams;
+import com.warehouse.utils.Statistics;
+import com.warehouse.utils.TopologyConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Оценка вероятности редкого события (отказ или выбивание заявки выбранного типа груза
+ * хотя бы раз за горизонт) многоуровневым расщеплением с фиксированным усилием.
+ *
+ * Функция важности - заполненность буфера, куда направляется этот тип груза. Уровни
+ * L1 < L2 < ... < Lm (последний - полный буфер), финальная стадия - само событие.
+ * Стадия 0: effort независимых траекторий с начала суток до достижения L1 или конца горизонта.
+ * Стадия k: effort траекторий, каждая - ветвь (Simulation.fork с новым потоком случайных чисел)
+ * случайно выбранного состояния, в котором траектория стадии k-1 достигла уровня.
+ * Оценка P = p1 * p2 * ... * p(m+1), где pk - доля траекторий стадии, достигших следующего
+ * уровня; при выборе стартов с возвращением произведение - несмещенная оценка.
+ */
+public class SplittingEstimator {
+    public enum Target {
+        REJECTION("отказ"),
+        EVICTION("выбивание из буфера");
+
+        private final String description;
+
+        Target(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() { return description; }
+    }
+
+    private final TopologyConfig topology;
+    private final Target target;
+    private final boolean[] targetClasses;
+    private final int buffer;
+    private final int[] levels;
+    private final int effort;
+    private final long baseSeed;
+    private final int threads;
+
+    private final List<Double> stageProbabilities = new ArrayList<>();
+    private final AtomicInteger eventCounter = new AtomicInteger();
+    private double simulatedMinutes;
+
+    public SplittingEstimator(TopologyConfig topology, Target target, CargoType cargoType, int[] levels,
+                              int effort, long baseSeed, int threads) {
+        this.topology = topology;
+        this.target = target;
+        this.targetClasses = new boolean[topology.getClassCount()];
+        int targetBuffer = -1;
+        for (int c = 0; c < topology.getClassCount(); c++) {
+            if (topology.getClassType(c) != cargoType) continue;
+            targetClasses[c] = true;
+            if (targetBuffer >= 0 && targetBuffer != topology.getClassBuffer(c)) {
+                throw new IllegalArgumentException("Классы типа " + cargoType + " направлены в разные буферы");
+            }
+            targetBuffer = topology.getClassBuffer(c);
+        }
+        if (targetBuffer < 0) {
+            throw new IllegalArgumentException("В топологии нет классов типа " + cargoType);
+        }
+        this.buffer = targetBuffer;
+        int capacity = topology.getBufferCapacity(targetBuffer);
+        this.levels = levels != null ? levels.clone() : defaultLevels(capacity);
+        for (int i = 0; i < this.levels.length; i++) {
+            if (this.levels[i] < 1 || this.levels[i] > capacity || (i > 0 && this.levels[i] <= this.levels[i - 1])) {
+                throw new IllegalArgumentException("Уровни должны возрастать в пределах 1.." + capacity);
+            }
+        }
+        if (effort < 2) {
+            throw new IllegalArgumentException("Число траекторий на стадию должно быть не меньше 2");
+        }
+        this.effort = effort;
+        this.baseSeed = baseSeed;
+        this.threads = Math.max(1, threads);
+    }
+
+    // По умолчанию - каждое заполнение от половины буфера до полного
+    private static int[] defaultLevels(int capacity) {
+        int first = Math.max(1, capacity / 2);
+        int[] levels = new int[capacity - first + 1];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = first + i;
+        }
+        return levels;
+    }
+
+    public double estimate(double horizon) throws InterruptedException {
+        stageProbabilities.clear();
+        eventCounter.set(0);
+        simulatedMinutes = 0;
+        Random picker = RandomStreams.create(baseSeed, -1);
+        ExecutorService executor = newExecutor();
+        try {
+            List<Simulation> entrances = null;
+            double probability = 1;
+            for (int stage = 0; stage <= levels.length; stage++) {
+                int level = stage < levels.length ? levels[stage] : Integer.MAX_VALUE; // последняя стадия - событие
+                List<Simulation> starts = new ArrayList<>(effort);
+                for (int i = 0; i < effort; i++) {
+                    long seed = RandomStreams.seedFor(baseSeed, (long) stage * effort + i);
+                    if (entrances == null) {
+                        Simulation simulation = new Simulation(topology, seed);
+                        simulation.start();
+                        starts.add(simulation);
+                    } else {
+                        starts.add(entrances.get(picker.nextInt(entrances.size())).fork(seed, false));
+                    }
+                }
+                List<Simulation> hits = runStage(executor, starts, level, horizon);
+                double p = (double) hits.size() / effort;
+                stageProbabilities.add(p);
+                probability *= p;
+                if (hits.isEmpty()) {
+                    return 0;
+                }
+                entrances = hits;
+            }
+            return probability;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Обычные независимые прогоны той же длины - для сверки с оценкой расщепления
+    public double bruteForce(int runs, double horizon) throws InterruptedException {
+        stageProbabilities.clear();
+        eventCounter.set(0);
+        simulatedMinutes = 0;
+        ExecutorService executor = newExecutor();
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>(runs);
+            for (int i = 0; i < runs; i++) {
+                long seed = RandomStreams.seedFor(baseSeed, -2L - i);
+                futures.add(executor.submit(() -> {
+                    Simulation simulation = new Simulation(topology, seed);
+                    simulation.start();
+                    return advanceUntil(simulation, Integer.MAX_VALUE, horizon);
+                }));
+            }
+            int hits = 0;
+            for (Future<Boolean> future : futures) {
+                if (get(future)) hits++;
+            }
+            return (double) hits / runs;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ExecutorService newExecutor() {
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "splitting");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private List<Simulation> runStage(ExecutorService executor, List<Simulation> starts, int level, double horizon)
+            throws InterruptedException {
+        List<Future<Boolean>> futures = new ArrayList<>(starts.size());
+        for (Simulation simulation : starts) {
+            Callable<Boolean> task = () -> advanceUntil(simulation, level, horizon);
+            futures.add(executor.submit(task));
+        }
+        List<Simulation> hits = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            if (get(futures.get(i))) {
+                hits.add(starts.get(i));
+            }
+        }
+        return hits;
+    }
+
+    private static boolean get(Future<Boolean> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка траектории расщепления", e.getCause());
+        }
+    }
+
+    // Шаги до достижения уровня (или события), конца горизонта или опустошения календаря
+    private boolean advanceUntil(Simulation simulation, int level, double horizon) {
+        Buffer watched = simulation.getDispatcher().getBuffers().get(buffer);
+        double startTime = simulation.getCurrentTime();
+        int events = 0;
+        boolean hit = false;
+        while (true) {
+            if (targetCount(simulation.getStatistics()) > 0 || watched.getRequestCount() >= level) {
+                hit = true;
+                break;
+            }
+            if (simulation.stepSilent(horizon) == null) {
+                break;
+            }
+            events++;
+        }
+        eventCounter.addAndGet(events);
+        double elapsed = (hit ? simulation.getCurrentTime() : horizon) - startTime;
+        synchronized (this) {
+            simulatedMinutes += elapsed;
+        }
+        return hit;
+    }
+
+    private int targetCount(Statistics statistics) {
+        int count = 0;
+        for (int c = 0; c < targetClasses.length; c++) {
+            if (targetClasses[c]) {
+                count += target == Target.REJECTION ? statistics.getRejected(c) : statistics.getEvicted(c);
+            }
+        }
+        return count;
+    }
+
+    // Приближенная относительная ошибка: стадии считаются независимыми
+    public double getRelativeError() {
+        double variance = 0;
+        for (double p : stageProbabilities) {
+            if (p <= 0) return Double.NaN;
+            variance += (1 - p) / (effort * p);
+        }
+        return Math.sqrt(variance);
+    }
+
+    // Событий на ту же относительную ошибку при обычных репликациях: (1-P)/(P*RE^2) прогонов горизонта
+    public double bruteForceEvents(double probability, double horizon) {
+        double relativeError = getRelativeError();
+        if (!(probability > 0) || !(relativeError > 0) || simulatedMinutes <= 0) {
+            return Double.NaN;
+        }
+        double eventsPerRun = eventCounter.get() / simulatedMinutes * horizon;
+        return (1 - probability) / (probability * relativeError * relativeError) * eventsPerRun;
+    }
+
+    public int[] getLevels() { return levels.clone(); }
+    public List<Double> getStageProbabilities() { return stageProbabilities; }
+    public long getSimulatedEvents() { return eventCounter.get(); }
+    public int getBuffer() { return buffer; }
+}
@@ -0,0 +1,227 @@
+package com.warehouse.replay;
+
+import com.warehouse.Simulation;
+import com.warehouse.model.Buffer;
+import com.warehouse.model.Device;
+import com.warehouse.model.DeviceGroup;
+import com.warehouse.model.Event;
+import com.warehouse.model.Request;
+import com.warehouse.model.Source;
+import com.warehouse.utils.Statistics;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Трасса состояния модели в виде дельт по событиям.
+ * Состояние - плоский вектор double: время, счетчики статистики, счетчики источников,
+ * ячейки буферов и места на приборах (id заявки, источник, время). После каждого события
+ * записываются только изменившиеся элементы: индекс, старое и новое значение.
+ * Хранение - растущие примитивные массивы, сутки базовой модели занимают сотни килобайт.
+ *
+ * Запись идет в фоновом потоке (record), чтение (apply/revert) - из потока интерфейса.
+ */
+public class DeltaTrace {
+    // Раскладка вектора
+    static final int TIME = 0;
+    static final int ARRIVALS = 1;
+    static final int COMPLETED = 2;
+    static final int REJECTED = 3;
+    static final int EVICTED = 4;
+    static final int HEADER = 5;
+    static final int SOURCE_FIELDS = 3;  // сгенерировано, отказов, след. генерация
+    static final int BUFFER_FIELDS = 4;  // id, источник, время поступления, класс
+    static final int DEVICE_FIELDS = 3;  // id, источник, начало обслуживания
+    static final double EMPTY = -1;
+
+    private final int sourceCount;
+    private final int[] bufferOffset;
+    private final int[] bufferCapacity;
+    private final int[] deviceOffset;  // места прибора, затем обработано и доступность
+    private final int[] deviceCapacity;
+    private final int width;
+
+    private final double[] initial;
+    private final double[] scratch;
+    private final double[] last;
+
+    // Дельты: события k занимают [eventStart[k], eventStart[k+1])
+    private int[] deltaIndex = new int[1024];
+    private double[] deltaOld = new double[1024];
+    private double[] deltaNew = new double[1024];
+    private int deltaCount;
+    private int[] eventStart = new int[256];
+    private double[] eventTime = new double[256];
+    private byte[] eventType = new byte[256];
+    private volatile int eventCount;
+    private volatile boolean finished;
+
+    public DeltaTrace(Simulation simulation) {
+        List<Buffer> buffers = simulation.getDispatcher().getBuffers();
+        List<DeviceGroup> groups = simulation.getDispatcher().getGroups();
+        sourceCount = simulation.getDispatcher().getSources().size();
+        int offset = HEADER + sourceCount * SOURCE_FIELDS;
+        bufferOffset = new int[buffers.size()];
+        bufferCapacity = new int[buffers.size()];
+        for (int b = 0; b < buffers.size(); b++) {
+            bufferOffset[b] = offset;
+            bufferCapacity[b] = buffers.get(b).getCapacity();
+            offset += bufferCapacity[b] * BUFFER_FIELDS;
+        }
+        int devices = 0;
+        for (DeviceGroup group : groups) devices += group.getTotalDevices();
+        deviceOffset = new int[devices];
+        deviceCapacity = new int[devices];
+        int d = 0;
+        for (DeviceGroup group : groups) {
+            for (Device device : group.getDevices()) {
+                deviceOffset[d] = offset;
+                deviceCapacity[d] = device.getCapacity();
+                offset += device.getCapacity() * DEVICE_FIELDS + 2;
+                d++;
+            }
+        }
+        width = offset;
+        initial = new double[width];
+        scratch = new double[width];
+        capture(simulation, initial);
+        last = initial.clone();
+    }
+
+    // Фоновая запись: модель прогоняется до horizon, после каждого события пишется дельта
+    public Thread startRecording(Simulation simulation, double horizon) {
+        Thread thread = new Thread(() -> {
+            try {
+                Event event;
+                while ((event = simulation.stepSilent(horizon)) != null) {
+                    capture(simulation, scratch);
+                    append(event);
+                }
+            } finally {
+                finished = true;
+            }
+        }, "delta-recorder");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void capture(Simulation simulation, double[] state) {
+        Arrays.fill(state, EMPTY);
+        Statistics statistics = simulation.getStatistics();
+        state[TIME] = simulation.getCurrentTime();
+        state[ARRIVALS] = statistics.getTotalArrivals();
+        state[COMPLETED] = statistics.getTotalCompleted();
+        state[REJECTED] = statistics.getTotalRejected();
+        state[EVICTED] = statistics.getTotalEvicted();
+
+        List<Source> sources = simulation.getDispatcher().getSources();
+        for (int s = 0; s < sources.size(); s++) {
+            int at = HEADER + s * SOURCE_FIELDS;
+            state[at] = sources.get(s).getGeneratedCount();
+            state[at + 1] = sources.get(s).getRejectedCount();
+            state[at + 2] = sources.get(s).getNextGenerationTime();
+        }
+
+        List<Buffer> buffers = simulation.getDispatcher().getBuffers();
+        for (int b = 0; b < buffers.size(); b++) {
+            for (Request request : buffers.get(b).getRequests()) {
+                int at = bufferOffset[b] + (request.getBufferPosition() - 1) * BUFFER_FIELDS;
+                state[at] = request.getId();
+                state[at + 1] = request.getSourceId();
+                state[at + 2] = request.getArrivalTime();
+                state[at + 3] = request.getCargoClass();
+            }
+        }
+
+        int d = 0;
+        for (DeviceGroup group : simulation.getDispatcher().getGroups()) {
+            for (Device device : group.getDevices()) {
+                List<Request> inService = device.getCurrentRequests();
+                for (int slot = 0; slot < inService.size(); slot++) {
+                    int at = deviceOffset[d] + slot * DEVICE_FIELDS;
+                    state[at] = inService.get(slot).getId();
+                    state[at + 1] = inService.get(slot).getSourceId();
+                    state[at + 2] = inService.get(slot).getServiceStartTime();
+                }
+                int tail = deviceOffset[d] + deviceCapacity[d] * DEVICE_FIELDS;
+                state[tail] = device.getProcessedCount();
+                state[tail + 1] = device.isOperational() ? 1 : 0;
+                d++;
+            }
+        }
+    }
+
+    private synchronized void append(Event event) {
+        int k = eventCount;
+        if (k + 1 >= eventStart.length) {
+            eventStart = Arrays.copyOf(eventStart, eventStart.length * 2);
+            eventTime = Arrays.copyOf(eventTime, eventTime.length * 2);
+            eventType = Arrays.copyOf(eventType, eventType.length * 2);
+        }
+        eventStart[k] = deltaCount;
+        eventTime[k] = event.getTime();
+        eventType[k] = (byte) event.getType().ordinal();
+        for (int i = 0; i < width; i++) {
+            if (scratch[i] != last[i]) {
+                if (deltaCount == deltaIndex.length) {
+                    deltaIndex = Arrays.copyOf(deltaIndex, deltaCount * 2);
+                    deltaOld = Arrays.copyOf(deltaOld, deltaCount * 2);
+                    deltaNew = Arrays.copyOf(deltaNew, deltaCount * 2);
+                }
+                deltaIndex[deltaCount] = i;
+                deltaOld[deltaCount] = last[i];
+                deltaNew[deltaCount] = scratch[i];
+                deltaCount++;
+                last[i] = scratch[i];
+            }
+        }
+        eventStart[k + 1] = deltaCount;
+        eventCount = k + 1;
+    }
+
+    // Применить событие k к вектору view (шаг вперед)
+    public synchronized void apply(int k, double[] view) {
+        for (int i = eventStart[k]; i < eventStart[k + 1]; i++) {
+            view[deltaIndex[i]] = deltaNew[i];
+        }
+    }
+
+    // Откатить событие k (шаг назад)
+    public synchronized void revert(int k, double[] view) {
+        for (int i = eventStart[k + 1] - 1; i >= eventStart[k]; i--) {
+            view[deltaIndex[i]] = deltaOld[i];
+        }
+    }
+
+    public synchronized double getEventTime(int k) { return eventTime[k]; }
+    public synchronized int getEventType(int k) { return eventType[k]; }
+
+    // Первое событие со временем >= time среди записанных
+    public synchronized int findEvent(double time) {
+        int low = 0;
+        int high = eventCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (eventTime[mid] < time) low = mid + 1; else high = mid;
+        }
+        return low;
+    }
+
+    public synchronized long getMemoryBytes() {
+        return (long) deltaIndex.length * 4 + (long) deltaOld.length * 16
+                + (long) eventStart.length * 4 + (long) eventTime.length * 8 + eventType.length;
+    }
+
+    public double[] initialState() { return initial.clone(); }
+    public int getEventCount() { return eventCount; }
+    public boolean isFinished() { return finished; }
+    public synchronized int getDeltaCount() { return deltaCount; }
+    public int getSourceCount() { return sourceCount; }
+    public int getBufferCount() { return bufferOffset.length; }
+    public int getBufferOffset(int buffer) { return bufferOffset[buffer]; }
+    public int getBufferCapacity(int buffer) { return bufferCapacity[buffer]; }
+    public int getDeviceCount() { return deviceOffset.length; }
+    public int getDeviceOffset(int device) { return deviceOffset[device]; }
+    public int getDeviceCapacity(int device) { return deviceCapacity[device]; }
+}
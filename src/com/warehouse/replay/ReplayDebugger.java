@@ -0,0 +1,178 @@
+package com.warehouse.replay;
+
+import com.warehouse.Simulation;
+import com.warehouse.enums.EventType;
+import com.warehouse.model.Buffer;
+import com.warehouse.model.Device;
+import com.warehouse.model.DeviceGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Scanner;
+
+/**
+ * Пошаговый отладчик с движением назад. Модель считается вперед в фоновом потоке
+ * (DeltaTrace), интерфейс двигает курсор по записанной трассе, применяя или откатывая
+ * дельты, без повторного моделирования.
+ *
+ * Команды: ENTER / n [N] - вперед, p [N] - назад, t T - к времени T,
+ * &lt; / &gt; - к предыдущему / следующему отказу, q - выход.
+ */
+public class ReplayDebugger {
+    private final Simulation simulation;
+    private final double horizon;
+    private final List<String> bufferNames = new ArrayList<>();
+    private final List<String> deviceNames = new ArrayList<>();
+    private DeltaTrace trace;
+    private double[] view;
+    private int cursor; // число примененных событий
+
+    public ReplayDebugger(Simulation simulation, double horizon) {
+        this.simulation = simulation;
+        this.horizon = horizon;
+        for (Buffer buffer : simulation.getDispatcher().getBuffers()) {
+            bufferNames.add(String.format("P%d (%s)", buffer.getIndex() + 1, buffer.getName()));
+        }
+        for (DeviceGroup group : simulation.getDispatcher().getGroups()) {
+            for (Device device : group.getDevices()) {
+                deviceNames.add(String.format("Прибор %d (P%d)", device.getId(), group.getPriority()));
+            }
+        }
+    }
+
+    public void run(Scanner scanner) {
+        // Фоновая запись продолжает шагать и после выхода, поэтому вывод симуляции не возвращается
+        simulation.setConsoleOutput(false);
+        simulation.start();
+        trace = new DeltaTrace(simulation);
+        view = trace.initialState();
+        cursor = 0;
+        trace.startRecording(simulation, horizon);
+
+        render();
+        while (scanner.hasNextLine()) {
+            String[] parts = scanner.nextLine().trim().toLowerCase(Locale.ROOT).split("\\s+");
+            try {
+                switch (parts[0]) {
+                    case "": forward(1); break;
+                    case "n": forward(count(parts)); break;
+                    case "p": backward(count(parts)); break;
+                    case "t": seek(Double.parseDouble(argument(parts))); break;
+                    case "<": toRejection(false); break;
+                    case ">": toRejection(true); break;
+                    case "q": return;
+                    default:
+                        System.out.println("Команды: ENTER / n N - вперед, p N - назад, t T - к времени, "
+                                + "< / > - к отказу назад / вперед, q - выход");
+                        continue;
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("Аргумент команды должен быть числом");
+                continue;
+            }
+            render();
+        }
+    }
+
+    private static String argument(String[] parts) {
+        if (parts.length < 2) throw new NumberFormatException();
+        return parts[1];
+    }
+
+    private static int count(String[] parts) {
+        return parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+    }
+
+    // Вперед; при необходимости ждет фоновую запись
+    private boolean forwardOne() {
+        while (cursor >= trace.getEventCount()) {
+            if (trace.isFinished() && cursor >= trace.getEventCount()) return false;
+            Thread.onSpinWait();
+        }
+        trace.apply(cursor++, view);
+        return true;
+    }
+
+    private void forward(int steps) {
+        for (int i = 0; i < steps && forwardOne(); i++) {
+            // шаг применен
+        }
+    }
+
+    private void backward(int steps) {
+        for (int i = 0; i < steps && cursor > 0; i++) {
+            trace.revert(--cursor, view);
+        }
+    }
+
+    private void seek(double time) {
+        while (cursor > 0 && trace.getEventTime(cursor - 1) >= time) {
+            trace.revert(--cursor, view);
+        }
+        while (cursor >= trace.getEventCount() || trace.getEventTime(cursor) < time) {
+            if (!forwardOne()) break;
+        }
+    }
+
+    private void toRejection(boolean forwardDirection) {
+        if (forwardDirection) {
+            double rejected = view[DeltaTrace.REJECTED];
+            while (view[DeltaTrace.REJECTED] == rejected && forwardOne()) {
+                // ищем событие, на котором вырос счетчик отказов
+            }
+        } else {
+            // Назад до состояния сразу после предыдущего отказа
+            if (cursor > 0) trace.revert(--cursor, view);
+            while (cursor > 0) {
+                double before = view[DeltaTrace.REJECTED];
+                trace.revert(--cursor, view);
+                if (view[DeltaTrace.REJECTED] != before) {
+                    trace.apply(cursor++, view);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void render() {
+        System.out.println();
+        System.out.println("=".repeat(70));
+        String event = cursor == 0 ? "начальное состояние"
+                : EventType.values()[trace.getEventType(cursor - 1)].getDescription();
+        System.out.printf("ШАГ %d из %d%s | время %.2f | %s%n", cursor, trace.getEventCount(),
+                trace.isFinished() ? "" : "+", view[DeltaTrace.TIME], event);
+        System.out.println("=".repeat(70));
+
+        for (int s = 0; s < trace.getSourceCount(); s++) {
+            int at = DeltaTrace.HEADER + s * DeltaTrace.SOURCE_FIELDS;
+            System.out.printf("И%d: сгенерировано %d, отказов %d, след. генерация %.2f%n",
+                    s + 1, (int) view[at], (int) view[at + 1], view[at + 2]);
+        }
+        for (int b = 0; b < trace.getBufferCount(); b++) {
+            StringBuilder line = new StringBuilder("Буфер " + bufferNames.get(b) + ":");
+            for (int slot = 0; slot < trace.getBufferCapacity(b); slot++) {
+                int at = trace.getBufferOffset(b) + slot * DeltaTrace.BUFFER_FIELDS;
+                line.append(view[at] == DeltaTrace.EMPTY ? " [—]"
+                        : String.format(" [%d/И%d %.1f]", (int) view[at], (int) view[at + 1], view[at + 2]));
+            }
+            System.out.println(line);
+        }
+        for (int d = 0; d < trace.getDeviceCount(); d++) {
+            StringBuilder line = new StringBuilder(deviceNames.get(d) + ":");
+            for (int slot = 0; slot < trace.getDeviceCapacity(d); slot++) {
+                int at = trace.getDeviceOffset(d) + slot * DeltaTrace.DEVICE_FIELDS;
+                line.append(view[at] == DeltaTrace.EMPTY ? " свободен"
+                        : String.format(" заявка %d/И%d с %.2f", (int) view[at], (int) view[at + 1], view[at + 2]));
+            }
+            int tail = trace.getDeviceOffset(d) + trace.getDeviceCapacity(d) * DeltaTrace.DEVICE_FIELDS;
+            line.append(String.format(", обработано %d", (int) view[tail]));
+            System.out.println(line);
+        }
+        System.out.printf("Поступило %d, обслужено %d, отказов %d, выбито %d | трасса %d дельт, %d КБ%n",
+                (int) view[DeltaTrace.ARRIVALS], (int) view[DeltaTrace.COMPLETED],
+                (int) view[DeltaTrace.REJECTED], (int) view[DeltaTrace.EVICTED],
+                trace.getDeltaCount(), trace.getMemoryBytes() / 1024);
+        System.out.println("ENTER / n N - вперед, p N - назад, t T - к времени, < / > - к отказу, q - выход:");
+    }
+}
@@ -0,0 +1,145 @@
+package com.warehouse.service;
+
+import com.warehouse.enums.VariateMode;
+import com.warehouse.utils.ResultWriter;
+import com.warehouse.utils.RunResult;
+import com.warehouse.utils.Scenario;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Задание сервиса: репликации одного сценария. Репликации выполняются независимыми задачами
+ * общего пула моделирования; прогресс - число завершенных репликаций. Версия меняется при каждом
+ * изменении состояния, поток прогресса ждет ее смены (awaitChange).
+ */
+public class Job {
+    public enum State { QUEUED, RUNNING, DONE, FAILED, CANCELLED }
+
+    private final int id;
+    private final Scenario scenario;
+    private final long[] seeds;
+    private final VariateMode[] modes;
+    private final RunResult[] results;
+    private final List<Future<?>> tasks = new ArrayList<>();
+    private final long submittedAt = System.nanoTime();
+    private State state = State.QUEUED;
+    private int done;
+    private long version;
+    private long wallMillis;
+    private String error;
+    private String resultJson;
+
+    Job(int id, Scenario scenario) {
+        this.id = id;
+        this.scenario = scenario;
+        this.modes = scenario.isAntithetic()
+                ? new VariateMode[] {VariateMode.DIRECT, VariateMode.ANTITHETIC}
+                : new VariateMode[] {VariateMode.STANDARD};
+        this.seeds = scenario.getSeeds();
+        this.results = new RunResult[seeds.length * modes.length];
+    }
+
+    // Номер репликации -> зерно и режим; порядок совпадает с BatchRunner.runScenario
+    long seedAt(int replication) { return seeds[replication / modes.length]; }
+    VariateMode modeAt(int replication) { return modes[replication % modes.length]; }
+
+    synchronized void addTask(Future<?> task) {
+        tasks.add(task);
+    }
+
+    synchronized boolean start() {
+        if (state != State.QUEUED && state != State.RUNNING) return false;
+        if (state == State.QUEUED) {
+            state = State.RUNNING;
+            changed();
+        }
+        return true;
+    }
+
+    synchronized void complete(int replication, RunResult result) {
+        if (state != State.RUNNING) return;
+        results[replication] = result;
+        done++;
+        if (done == results.length) {
+            List<RunResult> all = Arrays.asList(results);
+            resultJson = ResultWriter.toJson(scenario, all, scenario.checkSla(all));
+            state = State.DONE;
+            wallMillis = (System.nanoTime() - submittedAt) / 1_000_000;
+        }
+        changed();
+    }
+
+    synchronized void fail(Throwable cause) {
+        if (isFinished()) return;
+        state = State.FAILED;
+        error = cause.toString();
+        wallMillis = (System.nanoTime() - submittedAt) / 1_000_000;
+        cancelTasks();
+        changed();
+    }
+
+    synchronized boolean cancel() {
+        if (isFinished()) return false;
+        state = State.CANCELLED;
+        wallMillis = (System.nanoTime() - submittedAt) / 1_000_000;
+        cancelTasks();
+        changed();
+        return true;
+    }
+
+    // Еще не начатые репликации снимаются с очереди пула, идущие доигрывают, но результат отбрасывается
+    private void cancelTasks() {
+        for (Future<?> task : tasks) {
+            task.cancel(false);
+        }
+    }
+
+    private void changed() {
+        version++;
+        notifyAll();
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    // Ждет изменения после версии seen (не дольше timeoutMillis), возвращает текущую версию
+    public synchronized long awaitChange(long seen, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (version == seen && !isFinished()) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) break;
+            wait(left);
+        }
+        return version;
+    }
+
+    public synchronized boolean isFinished() {
+        return state == State.DONE || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    public synchronized String toJson() {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("{\"id\": ").append(id)
+                .append(", \"scenario\": ").append(ResultWriter.quote(scenario.getName()))
+                .append(", \"state\": ").append(ResultWriter.quote(state.name()))
+                .append(", \"done\": ").append(done)
+                .append(", \"total\": ").append(results.length);
+        if (isFinished()) {
+            sb.append(", \"wallMillis\": ").append(wallMillis);
+        }
+        if (error != null) {
+            sb.append(", \"error\": ").append(ResultWriter.quote(error));
+        }
+        return sb.append('}').toString();
+    }
+
+    public int getId() { return id; }
+    public Scenario getScenario() { return scenario; }
+    public int getTotal() { return results.length; }
+    public synchronized State getState() { return state; }
+    public synchronized String getResultJson() { return resultJson; }
+}
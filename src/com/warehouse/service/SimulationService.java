@@ -0,0 +1,278 @@
+package com.warehouse.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.warehouse.BatchRunner;
+import com.warehouse.utils.ResultWriter;
+import com.warehouse.utils.Scenario;
+import com.warehouse.utils.SimulationConfig;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Долгоживущий локальный сервис моделирования (HTTP только на 127.0.0.1): задания-сценарии
+ * выполняются в одной JVM, поэтому запуск и прогрев JIT оплачиваются один раз.
+ *
+ *   POST   /jobs[?name=имя]     тело - сценарий в формате .properties; 201 и {"id": n, ...}
+ *   GET    /jobs                состояние всех заданий
+ *   GET    /jobs/{id}           состояние задания
+ *   GET    /jobs/{id}/events    поток прогресса (NDJSON, строка на каждое изменение до завершения)
+ *   GET    /jobs/{id}/result    результат в формате run --json (409, пока задание не завершено)
+ *   DELETE /jobs/{id}           отмена
+ *
+ * Запросы обслуживает расширяемый пул потоков (ожидание потока прогресса не занимает пул
+ * моделирования), репликации всех заданий - общий пул фиксированного размера по числу ядер.
+ */
+public class SimulationService {
+    private static final int KEEP_FINISHED = 256;
+    private static final long EVENTS_HEARTBEAT_MILLIS = 5000;
+
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final ExecutorService simulationPool;
+    private final int maxActiveJobs;
+    private final Map<Integer, Job> jobs = new LinkedHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    public SimulationService(int port, int threads, int maxActiveJobs) throws IOException {
+        if (threads <= 0 || maxActiveJobs <= 0) {
+            throw new IllegalArgumentException("Число потоков и заданий должно быть положительным");
+        }
+        this.maxActiveJobs = maxActiveJobs;
+        this.requestExecutor = Executors.newCachedThreadPool(daemonThreads("service-http-"));
+        this.simulationPool = Executors.newFixedThreadPool(threads, daemonThreads("service-sim-"));
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(requestExecutor);
+        server.createContext("/jobs", this::handle);
+        server.createContext("/health", exchange -> respond(exchange, 200, "{\"status\": \"ok\"}"));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        simulationPool.shutdownNow();
+        requestExecutor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Несколько коротких прогонов до приема заданий: горячий путь модели компилируется заранее
+    public void warmUp(int replications) throws InterruptedException {
+        Scenario scenario = new Scenario("warmup", new SimulationConfig(new Properties()));
+        List<Future<?>> runs = new ArrayList<>();
+        for (int i = 0; i < replications; i++) {
+            long seed = i;
+            runs.add(simulationPool.submit(() -> BatchRunner.runReplication(scenario, seed)));
+        }
+        for (Future<?> run : runs) {
+            try {
+                run.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Ошибка прогрева", e.getCause());
+            }
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            String[] parts = path.replaceAll("/+$", "").split("/");
+            // parts: "", "jobs"[, id[, action]]
+            if (parts.length == 2) {
+                if (method.equals("POST")) {
+                    submit(exchange);
+                } else if (method.equals("GET")) {
+                    respond(exchange, 200, listJson());
+                } else {
+                    respond(exchange, 405, error("метод не поддерживается"));
+                }
+                return;
+            }
+            Job job = find(parts[2]);
+            if (job == null) {
+                respond(exchange, 404, error("задание не найдено"));
+                return;
+            }
+            String action = parts.length > 3 ? parts[3] : "";
+            if (action.isEmpty() && method.equals("GET")) {
+                respond(exchange, 200, job.toJson());
+            } else if (action.isEmpty() && method.equals("DELETE")) {
+                job.cancel();
+                respond(exchange, 200, job.toJson());
+            } else if (action.equals("result") && method.equals("GET")) {
+                String result = job.getResultJson();
+                respond(exchange, result != null ? 200 : 409, result != null ? result : job.toJson());
+            } else if (action.equals("events") && method.equals("GET")) {
+                streamEvents(exchange, job);
+            } else {
+                respond(exchange, 404, error("неизвестный запрос"));
+            }
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, error(e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ошибка обработки " + exchange.getRequestMethod() + " " + exchange.getRequestURI()
+                    + ": " + e);
+            // Статус еще можно отправить, только если заголовки ответа не ушли
+            if (exchange.getResponseCode() == -1) {
+                respond(exchange, 500, error(String.valueOf(e.getMessage())));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void submit(HttpExchange exchange) throws IOException {
+        Properties properties = new Properties();
+        // Поток тела не закрывается: его дочитывает respond, закрывает exchange.close()
+        properties.load(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+        String name = queryParameter(exchange.getRequestURI(), "name");
+        Scenario scenario = new Scenario(name != null ? name : "job", new SimulationConfig(properties));
+
+        Job job = admit(scenario);
+        if (job == null) {
+            respond(exchange, 503, error("очередь заданий заполнена"));
+            return;
+        }
+        for (int r = 0; r < job.getTotal(); r++) {
+            int replication = r;
+            job.addTask(simulationPool.submit(() -> runReplication(job, replication)));
+        }
+        exchange.getResponseHeaders().set("Location", "/jobs/" + job.getId());
+        respond(exchange, 201, job.toJson());
+    }
+
+    // Новое задание, если активных меньше maxActiveJobs; null - очередь заполнена
+    private Job admit(Scenario scenario) {
+        synchronized (jobs) {
+            long active = jobs.values().stream().filter(j -> !j.isFinished()).count();
+            if (active >= maxActiveJobs) {
+                return null;
+            }
+            Job job = new Job(nextId.getAndIncrement(), scenario);
+            jobs.put(job.getId(), job);
+            evictFinished();
+            return job;
+        }
+    }
+
+    private static void runReplication(Job job, int replication) {
+        if (!job.start()) return;
+        try {
+            job.complete(replication, BatchRunner.runReplication(job.getScenario(), job.seedAt(replication),
+                    job.modeAt(replication)));
+        } catch (RuntimeException e) {
+            job.fail(e);
+        }
+    }
+
+    // Строка состояния на каждое изменение; при долгой репликации - повтор раз в несколько секунд
+    private void streamEvents(HttpExchange exchange, Job job) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        while (true) {
+            long seen = job.getVersion();
+            boolean finished = job.isFinished();
+            out.write((job.toJson() + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            if (finished) break;
+            job.awaitChange(seen, EVENTS_HEARTBEAT_MILLIS);
+        }
+    }
+
+    private Job find(String id) {
+        try {
+            synchronized (jobs) {
+                return jobs.get(Integer.parseInt(id));
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Завершенные задания хранятся ограниченно - старые удаляются первыми
+    private void evictFinished() {
+        int finished = (int) jobs.values().stream().filter(Job::isFinished).count();
+        Iterator<Job> iterator = jobs.values().iterator();
+        while (finished > KEEP_FINISHED && iterator.hasNext()) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+
+    private String listJson() {
+        StringBuilder sb = new StringBuilder("[");
+        synchronized (jobs) {
+            for (Job job : jobs.values()) {
+                if (sb.length() > 1) sb.append(",\n ");
+                sb.append(job.toJson());
+            }
+        }
+        return sb.append("]").toString();
+    }
+
+    private static String queryParameter(URI uri, String name) {
+        String query = uri.getQuery();
+        if (query == null) return null;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return pair.substring(eq + 1);
+            }
+        }
+        return null;
+    }
+
+    private static String error(String message) {
+        return "{\"error\": " + ResultWriter.quote(message) + "}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.endsWith("\n") ? body.getBytes(StandardCharsets.UTF_8)
+                : (body + "\n").getBytes(StandardCharsets.UTF_8);
+        // Непрочитанное тело запроса дочитывается, иначе соединение нельзя использовать повторно
+        exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,278 @@
+package com.warehouse.store;
+
+import com.warehouse.Simulation;
+import com.warehouse.utils.RunResult;
+import com.warehouse.utils.Scenario;
+import com.warehouse.utils.TopologyConfig;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Встроенное хранилище итогов прогонов: только добавление, колонки на диске, индексы по параметрам
+ * сценария. Строка - один прогон: имя сценария, числовые ключи сценария (group.0.devices,
+ * source.1.lambda, ... и суммарная интенсивность lambda) и показатели RunResult.
+ *
+ * Добавленные строки копятся в памяти и сбрасываются сегментом по segmentRows строк, при flush
+ * и при завершении JVM. Имена сегментов уникальны для процесса, поэтому в один каталог
+ * одновременно пишут и потоки, и процессы (исполнители распределенного перебора). Запросы
+ * (StoreQuery) видят только сброшенные сегменты и читают из них лишь нужные колонки.
+ *
+ * Включается -Dwarehouse.store=каталог (-Dwarehouse.store.segmentRows) или опцией --store.
+ */
+public class ResultStore {
+    static final String SCENARIO = "scenario";
+    static final String SUFFIX = ".seg";
+    private static final Map<String, ToDoubleFunction<RunResult>> METRICS = new LinkedHashMap<>();
+    // Целочисленные показатели (зерно, режим, счетчики) выводятся без дробной части
+    private static final Set<String> INTEGER_METRICS = new HashSet<>(Arrays.asList("seed", "variates",
+            "wallMillis", "arrivals", "completed", "rejected", "evicted", "transferred", "gateFailures"));
+    private static volatile ResultStore shared = fromSystemProperties();
+
+    static {
+        METRICS.put("seed", r -> r.getSeed());
+        METRICS.put("variates", r -> r.getVariateMode().ordinal());
+        METRICS.put("duration", RunResult::getDuration);
+        METRICS.put("wallMillis", r -> r.getWallMillis());
+        METRICS.put("arrivals", RunResult::getArrivals);
+        METRICS.put("completed", RunResult::getCompleted);
+        METRICS.put("rejected", RunResult::getRejected);
+        METRICS.put("evicted", RunResult::getEvicted);
+        METRICS.put("transferred", RunResult::getTransferred);
+        METRICS.put("gateFailures", RunResult::getGateFailures);
+        METRICS.put("gateDowntime", RunResult::getGateDowntime);
+        METRICS.put("rejectionRate", RunResult::getRejectionRate);
+        METRICS.put("evictionRate", RunResult::getEvictionRate);
+        METRICS.put("perishableRejectionRate", RunResult::getPerishableRejectionRate);
+        METRICS.put("perishableEvictionRate", RunResult::getPerishableEvictionRate);
+        METRICS.put("averageWaitingTime", RunResult::getAverageWaitingTime);
+        METRICS.put("averageServiceTime", RunResult::getAverageServiceTime);
+        METRICS.put("averageSystemTime", RunResult::getAverageSystemTime);
+        METRICS.put("maxSystemTime", RunResult::getMaxSystemTime);
+    }
+
+    public static boolean isIntegerMetric(String column) {
+        return INTEGER_METRICS.contains(column);
+    }
+
+    private final Path directory;
+    private final int segmentRows;
+    private final String writerId = ProcessHandle.current().pid() + "-" + Long.toString(System.nanoTime(), 36);
+    private final Map<String, Segment> opened = new HashMap<>();
+    private SegmentBuilder pending = new SegmentBuilder();
+    private int written;
+
+    public ResultStore(Path directory, int segmentRows) throws IOException {
+        if (segmentRows <= 0) {
+            throw new IllegalArgumentException("Размер сегмента хранилища должен быть положительным");
+        }
+        this.directory = directory;
+        this.segmentRows = segmentRows;
+        Files.createDirectories(directory);
+    }
+
+    private static ResultStore fromSystemProperties() {
+        String dir = System.getProperty("warehouse.store");
+        if (dir == null) {
+            return null;
+        }
+        try {
+            ResultStore store = open(Paths.get(dir));
+            store.flushOnExit();
+            return store;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Размер сегмента - из -Dwarehouse.store.segmentRows (по умолчанию 16384 строк)
+    public static ResultStore open(Path directory) throws IOException {
+        return new ResultStore(directory, Integer.getInteger("warehouse.store.segmentRows", 16384));
+    }
+
+    public static ResultStore shared() { return shared; }
+
+    public static void setShared(ResultStore store) {
+        shared = store;
+        if (store != null) {
+            store.flushOnExit();
+        }
+    }
+
+    // Несброшенные строки пишутся при завершении JVM (в том числе по SIGTERM от координатора)
+    private void flushOnExit() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                flush();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ошибка записи хранилища прогонов: " + e);
+            }
+        }, "store-flush"));
+    }
+
+    public synchronized void append(Scenario scenario, RunResult result) {
+        pending.addRow(scenario.getName());
+        Properties properties = scenario.getConfig().getProperties();
+        for (String name : properties.stringPropertyNames()) {
+            if (!isParameter(name)) continue;
+            try {
+                pending.set(name, Segment.PARAMETER, Double.parseDouble(properties.getProperty(name).trim()));
+            } catch (NumberFormatException e) {
+                // списки и окна обслуживания не индексируются
+            }
+        }
+        TopologyConfig topology = scenario.getTopology();
+        double lambda = 0;
+        for (int s = 0; s < topology.getSourceCount(); s++) {
+            lambda += topology.getSourceLambda(s);
+        }
+        pending.set("lambda", Segment.PARAMETER, lambda);
+        pending.set("engine", Segment.PARAMETER, Simulation.ENGINE_VERSION);
+        METRICS.forEach((name, metric) -> pending.set(name, Segment.METRIC, metric.applyAsDouble(result)));
+        if (pending.size() >= segmentRows) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static boolean isParameter(String name) {
+        return !(name.equals("scenario.name") || name.startsWith("run.") || name.startsWith("sla."));
+    }
+
+    public synchronized void flush() throws IOException {
+        if (pending.size() == 0) return;
+        pending.write(directory.resolve(nextSegmentName()));
+        pending = new SegmentBuilder();
+    }
+
+    // Время создания впереди - сегменты в каталоге идут в порядке записи
+    private String nextSegmentName() {
+        return String.format("%013d-%s-%05d%s", System.currentTimeMillis(), writerId, written++, SUFFIX);
+    }
+
+    // Видимые сегменты: все сброшенные, кроме замещенных слиянием
+    public synchronized List<Segment> segments() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        List<Segment> segments = new ArrayList<>();
+        Set<String> superseded = new HashSet<>();
+        Set<String> present = new HashSet<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            present.add(name);
+            Segment segment = opened.get(name);
+            if (segment == null) {
+                try {
+                    segment = Segment.open(file);
+                } catch (NoSuchFileException e) {
+                    continue; // удален после слияния
+                }
+                opened.put(name, segment);
+            }
+            segments.add(segment);
+            superseded.addAll(segment.getSuperseded());
+        }
+        opened.keySet().retainAll(present);
+        segments.removeIf(segment -> superseded.contains(segment.getFileName()));
+        return segments;
+    }
+
+    public List<StoredRun> query(StoreQuery query) throws IOException {
+        return query.execute(segments());
+    }
+
+    /**
+     * Слияние мелких сегментов (от сбросов многих процессов) в сегменты по segmentRows строк.
+     * Новый сегмент перечисляет замещенные, поэтому читатель между его появлением и удалением
+     * старых не видит строк дважды. Одновременно сливает один процесс (блокировка compact.lock).
+     * Возвращает число слитых сегментов.
+     */
+    public int compact() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve("compact.lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = channel.tryLock()) {
+            if (lock == null) {
+                return 0;
+            }
+            List<Segment> small = new ArrayList<>();
+            for (Segment segment : segments()) {
+                if (segment.getRows() < segmentRows) small.add(segment);
+            }
+            if (small.size() < 2) {
+                return 0;
+            }
+            SegmentBuilder merged = new SegmentBuilder();
+            List<Segment> sources = new ArrayList<>();
+            for (Segment segment : small) {
+                if (merged.size() > 0 && merged.size() + segment.getRows() > segmentRows) {
+                    writeMerged(merged, sources);
+                    merged = new SegmentBuilder();
+                    sources.clear();
+                }
+                copyRows(segment, merged);
+                merged.supersede(segment.getFileName());
+                // Замещенные источником сегменты могли остаться после прерванного слияния:
+                // без переноса списка они снова стали бы видны, когда источник удалят
+                segment.getSuperseded().forEach(merged::supersede);
+                sources.add(segment);
+            }
+            writeMerged(merged, sources);
+            return small.size();
+        }
+    }
+
+    private void writeMerged(SegmentBuilder merged, List<Segment> sources) throws IOException {
+        if (sources.size() < 2) {
+            return; // одиночный сегмент переписывать незачем
+        }
+        synchronized (this) {
+            merged.write(directory.resolve(nextSegmentName()));
+        }
+        for (Segment source : sources) {
+            Files.deleteIfExists(directory.resolve(source.getFileName()));
+            for (String leftover : source.getSuperseded()) {
+                Files.deleteIfExists(directory.resolve(leftover));
+            }
+        }
+    }
+
+    private static void copyRows(Segment segment, SegmentBuilder target) {
+        for (int row = 0; row < segment.getRows(); row++) {
+            target.addRow(segment.getScenario(row));
+            for (Segment.Column column : segment.columns()) {
+                if (column.kind == Segment.DICTIONARY) continue;
+                double value = segment.value(column, row);
+                if (!Double.isNaN(value)) {
+                    target.set(column.name, column.kind, value);
+                }
+            }
+        }
+    }
+
+    public Path getDirectory() { return directory; }
+    public synchronized int getPendingRows() { return pending.size(); }
+}
@@ -0,0 +1,172 @@
+package com.warehouse.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Неизменяемый сегмент хранилища прогонов: колонки double подряд, отображенные в память
+ * (страницы читаются по мере обращения), у каждой колонки - границы значений сегмента,
+ * у колонок параметров и сценария - индекс: отсортированные различные значения и списки строк.
+ *
+ * Формат (little-endian): WHRSTORE, версия, строки, колонки, строк словаря, замещенных сегментов,
+ * смещение данных; словарь имен сценариев; имена замещенных сегментов; каталог колонок
+ * (имя, вид, min, max, смещение данных, смещение индекса, различных значений); данные; индексы.
+ */
+public final class Segment {
+    static final long MAGIC = 0x5748_5253_544F_5245L; // "WHRSTORE"
+    static final int VERSION = 1;
+    static final byte METRIC = 0;
+    static final byte PARAMETER = 1;
+    static final byte DICTIONARY = 2;
+
+    /** Колонка сегмента: границы значений и расположение данных и индекса в файле. */
+    public static final class Column {
+        final String name;
+        final byte kind;
+        final double min;
+        final double max;
+        final long dataOffset;
+        final long indexOffset; // 0 - без индекса
+        final int distinct;
+
+        Column(String name, byte kind, double min, double max, long dataOffset, long indexOffset, int distinct) {
+            this.name = name;
+            this.kind = kind;
+            this.min = min;
+            this.max = max;
+            this.dataOffset = dataOffset;
+            this.indexOffset = indexOffset;
+            this.distinct = distinct;
+        }
+
+        public String getName() { return name; }
+        public boolean isIndexed() { return indexOffset != 0; }
+    }
+
+    private final String fileName;
+    private final MappedByteBuffer buffer;
+    private final int rows;
+    private final String[] strings;
+    private final Set<String> superseded;
+    private final Map<String, Column> columns;
+
+    private Segment(String fileName, MappedByteBuffer buffer, int rows, String[] strings, Set<String> superseded,
+                    Map<String, Column> columns) {
+        this.fileName = fileName;
+        this.buffer = buffer;
+        this.rows = rows;
+        this.strings = strings;
+        this.superseded = superseded;
+        this.columns = columns;
+    }
+
+    public static Segment open(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer header = mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (header.remaining() < 32 || header.getLong() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Файл не является сегментом хранилища прогонов: " + file);
+        }
+        int rows = header.getInt();
+        int columnCount = header.getInt();
+        int stringCount = header.getInt();
+        int supersededCount = header.getInt();
+        header.getInt(); // смещение данных
+        String[] strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            strings[i] = readString(header);
+        }
+        Set<String> superseded = new HashSet<>();
+        for (int i = 0; i < supersededCount; i++) {
+            superseded.add(readString(header));
+        }
+        Map<String, Column> columns = new LinkedHashMap<>();
+        for (int i = 0; i < columnCount; i++) {
+            String name = readString(header);
+            columns.put(name, new Column(name, header.get(), header.getDouble(), header.getDouble(),
+                    header.getLong(), header.getLong(), header.getInt()));
+        }
+        return new Segment(file.getFileName().toString(), mapped, rows, strings,
+                Collections.unmodifiableSet(superseded), columns);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public double value(Column column, int row) {
+        return buffer.getDouble((int) (column.dataOffset + (long) row * Double.BYTES));
+    }
+
+    // Значение колонки по имени; NaN - колонки в сегменте нет
+    public double value(String name, int row) {
+        Column column = columns.get(name);
+        return column != null ? value(column, row) : Double.NaN;
+    }
+
+    public String getScenario(int row) {
+        Column column = columns.get(ResultStore.SCENARIO);
+        return column != null ? strings[(int) value(column, row)] : null;
+    }
+
+    // Номер имени сценария в словаре сегмента; -1 - такого сценария в сегменте нет
+    int findString(String value) {
+        for (int i = 0; i < strings.length; i++) {
+            if (strings[i].equals(value)) return i;
+        }
+        return -1;
+    }
+
+    // Индекс: различные значения [0, distinct), начала списков, затем номера строк
+    double indexValue(Column column, int i) {
+        return buffer.getDouble((int) (column.indexOffset + (long) i * Double.BYTES));
+    }
+
+    int postingsStart(Column column, int i) {
+        return buffer.getInt((int) (column.indexOffset + (long) column.distinct * Double.BYTES + (long) i * Integer.BYTES));
+    }
+
+    int posting(Column column, int i) {
+        return buffer.getInt((int) (column.indexOffset + (long) column.distinct * Double.BYTES
+                + (long) (column.distinct + 1) * Integer.BYTES + (long) i * Integer.BYTES));
+    }
+
+    // Первое различное значение индекса, не меньшее value (inclusive) или большее value
+    int lowerBound(Column column, double value, boolean inclusive) {
+        int low = 0;
+        int high = column.distinct;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            double v = indexValue(column, mid);
+            if (v < value || (!inclusive && v == value)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public Column column(String name) { return columns.get(name); }
+    public Iterable<Column> columns() { return columns.values(); }
+    public String getFileName() { return fileName; }
+    public int getRows() { return rows; }
+    public Set<String> getSuperseded() { return superseded; }
+    public long getBytes() { return buffer.capacity(); }
+}
@@ -0,0 +1,212 @@
+package com.warehouse.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Накопление строк будущего сегмента в колонках (как RequestLedger): колонка, впервые
+ * встреченная в строке k, для строк до k заполняется NaN. Запись - во временный файл
+ * и переименование, так что читатели видят сегмент только целиком.
+ */
+final class SegmentBuilder {
+    private static final class Column {
+        final byte kind;
+        double[] values;
+
+        Column(byte kind, int capacity, int rows) {
+            this.kind = kind;
+            this.values = new double[capacity];
+            Arrays.fill(values, 0, rows, Double.NaN);
+        }
+    }
+
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<String> superseded = new ArrayList<>();
+    private int capacity = 256;
+    private int rows;
+
+    void addRow(String scenario) {
+        if (rows == capacity) {
+            capacity *= 2;
+            for (Column column : columns.values()) {
+                column.values = Arrays.copyOf(column.values, capacity);
+            }
+        }
+        for (Column column : columns.values()) {
+            column.values[rows] = Double.NaN;
+        }
+        rows++;
+        Integer id = stringIds.get(scenario);
+        if (id == null) {
+            id = strings.size();
+            strings.add(scenario);
+            stringIds.put(scenario, id);
+        }
+        set(ResultStore.SCENARIO, Segment.DICTIONARY, id);
+    }
+
+    // Значение колонки в последней добавленной строке
+    void set(String name, byte kind, double value) {
+        Column column = columns.get(name);
+        if (column == null) {
+            column = new Column(kind, capacity, rows);
+            columns.put(name, column);
+        }
+        column.values[rows - 1] = value;
+    }
+
+    void supersede(String fileName) {
+        superseded.add(fileName);
+    }
+
+    int size() { return rows; }
+
+    void write(Path file) throws IOException {
+        List<String> names = new ArrayList<>(columns.keySet());
+        int headerBytes = 32 + stringsBytes(strings) + stringsBytes(superseded);
+        for (String name : names) {
+            headerBytes += 4 + utf8(name).length + 1 + 8 + 8 + 8 + 8 + 4;
+        }
+        long dataOffset = align(headerBytes);
+        long indexStart = dataOffset + (long) names.size() * rows * Double.BYTES;
+
+        // Индексы параметров и сценария: различные значения по возрастанию и строки каждого значения
+        Map<String, double[]> distinctValues = new HashMap<>();
+        Map<String, int[]> starts = new HashMap<>();
+        Map<String, int[]> postings = new HashMap<>();
+        long indexOffset = indexStart;
+        Map<String, Long> indexOffsets = new HashMap<>();
+        for (String name : names) {
+            Column column = columns.get(name);
+            if (column.kind == Segment.METRIC) continue;
+            buildIndex(name, column.values, distinctValues, starts, postings);
+            indexOffsets.put(name, indexOffset);
+            int distinct = distinctValues.get(name).length;
+            indexOffset += align((long) distinct * Double.BYTES + (long) (distinct + 1) * Integer.BYTES
+                    + (long) postings.get(name).length * Integer.BYTES);
+        }
+        if (indexOffset > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Сегмент хранилища больше 2 ГБ: уменьшите warehouse.store.segmentRows");
+        }
+
+        ByteBuffer out = ByteBuffer.allocate((int) indexOffset).order(ByteOrder.LITTLE_ENDIAN);
+        out.putLong(Segment.MAGIC).putInt(Segment.VERSION).putInt(rows).putInt(names.size())
+                .putInt(strings.size()).putInt(superseded.size()).putInt((int) dataOffset);
+        strings.forEach(s -> putString(out, s));
+        superseded.forEach(s -> putString(out, s));
+        for (int c = 0; c < names.size(); c++) {
+            String name = names.get(c);
+            Column column = columns.get(name);
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int row = 0; row < rows; row++) {
+                double v = column.values[row];
+                if (v < min) min = v;
+                if (v > max) max = v;
+            }
+            putString(out, name);
+            double[] distinct = distinctValues.get(name);
+            out.put(column.kind).putDouble(min).putDouble(max)
+                    .putLong(dataOffset + (long) c * rows * Double.BYTES)
+                    .putLong(indexOffsets.getOrDefault(name, 0L))
+                    .putInt(distinct != null ? distinct.length : 0);
+        }
+        out.position((int) dataOffset);
+        for (String name : names) {
+            out.asDoubleBuffer().put(columns.get(name).values, 0, rows);
+            out.position(out.position() + rows * Double.BYTES);
+        }
+        for (String name : names) {
+            if (!indexOffsets.containsKey(name)) continue;
+            out.position((int) (long) indexOffsets.get(name));
+            out.asDoubleBuffer().put(distinctValues.get(name));
+            out.position(out.position() + distinctValues.get(name).length * Double.BYTES);
+            out.asIntBuffer().put(starts.get(name));
+            out.position(out.position() + starts.get(name).length * Integer.BYTES);
+            out.asIntBuffer().put(postings.get(name));
+        }
+        out.position(0).limit((int) indexOffset);
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(false);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file);
+        }
+    }
+
+    // Списки строк по значениям: подсчет, префиксные суммы, раскладка (строки с NaN не индексируются)
+    private void buildIndex(String name, double[] values, Map<String, double[]> distinctValues,
+                            Map<String, int[]> starts, Map<String, int[]> postings) {
+        double[] sorted = Arrays.copyOf(values, rows);
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < rows && !Double.isNaN(sorted[i]); i++) {
+            if (distinct == 0 || sorted[i] != sorted[distinct - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        double[] keys = Arrays.copyOf(sorted, distinct);
+        int[] start = new int[distinct + 1];
+        int[] slot = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            slot[row] = Double.isNaN(values[row]) ? -1 : Arrays.binarySearch(keys, values[row]);
+            if (slot[row] >= 0) start[slot[row] + 1]++;
+        }
+        for (int i = 0; i < distinct; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] rowsOf = new int[start[distinct]];
+        int[] fill = Arrays.copyOf(start, distinct);
+        for (int row = 0; row < rows; row++) {
+            if (slot[row] >= 0) rowsOf[fill[slot[row]]++] = row;
+        }
+        distinctValues.put(name, keys);
+        starts.put(name, start);
+        postings.put(name, rowsOf);
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringsBytes(List<String> values) {
+        int bytes = 0;
+        for (String value : values) {
+            bytes += 4 + utf8(value).length;
+        }
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        byte[] bytes = utf8(value);
+        out.putInt(bytes.length).put(bytes);
+    }
+}
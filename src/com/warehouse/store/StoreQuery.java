@@ -0,0 +1,221 @@
+package com.warehouse.store;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Запрос к хранилищу прогонов: условия на колонки (И), сортировка по колонке и ограничение числа строк.
+ *   new StoreQuery().where("group.0.devices=2").where("lambda>1.2").orderBy("perishableRejectionRate", false).limit(20)
+ *
+ * По каждому сегменту: сегменты, у которых границы колонки не пересекают условие, пропускаются;
+ * из индексированных условий (параметры и сценарий) выбирается самое узкое, его строки проверяются
+ * остальными условиями чтением отдельных значений. Без индексированных условий - просмотр колонок.
+ * При сортировке с ограничением держится только куча из limit лучших строк.
+ */
+public class StoreQuery {
+    /** Условие на колонку: число или, для колонки scenario, имя сценария. */
+    public static final class Condition {
+        final String column;
+        final String operator;
+        final double value;
+        final String text;
+
+        Condition(String column, String operator, double value, String text) {
+            this.column = column;
+            this.operator = operator;
+            this.value = value;
+            this.text = text;
+        }
+
+        boolean matches(double v) {
+            switch (operator) {
+                case "=": return v == value;
+                case "!=": return v != value && !Double.isNaN(v);
+                case "<": return v < value;
+                case "<=": return v <= value;
+                case ">": return v > value;
+                case ">=": return v >= value;
+                default: throw new IllegalStateException(operator);
+            }
+        }
+
+        // Может ли в диапазоне [min, max] найтись подходящее значение
+        boolean overlaps(double min, double max) {
+            switch (operator) {
+                case "=": return value >= min && value <= max;
+                case "!=": return min <= max && !(min == value && max == value);
+                case "<": return min < value;
+                case "<=": return min <= value;
+                case ">": return max > value;
+                case ">=": return max >= value;
+                default: throw new IllegalStateException(operator);
+            }
+        }
+
+        public String getColumn() { return column; }
+
+        @Override
+        public String toString() {
+            return column + operator + (text != null ? text : Double.toString(value));
+        }
+    }
+
+    private static final String[] OPERATORS = {"<=", ">=", "!=", "=", "<", ">"};
+
+    private final List<Condition> conditions = new ArrayList<>();
+    private String orderBy;
+    private boolean descending;
+    private int limit = Integer.MAX_VALUE;
+    private int segmentsSkipped;
+    private long rowsExamined;
+
+    // Условие вида ключ=значение, ключ<значение, ключ>=значение, ключ!=значение
+    public StoreQuery where(String expression) {
+        for (int i = 0; i < expression.length(); i++) {
+            for (String operator : OPERATORS) {
+                if (expression.startsWith(operator, i) && i > 0) {
+                    return where(expression.substring(0, i).trim(), operator,
+                            expression.substring(i + operator.length()).trim());
+                }
+            }
+        }
+        throw new IllegalArgumentException("Условие должно иметь вид ключ=значение, ключ<значение или ключ>значение: "
+                + expression);
+    }
+
+    public StoreQuery where(String column, String operator, String value) {
+        if (column.equals(ResultStore.SCENARIO)) {
+            if (!operator.equals("=")) {
+                throw new IllegalArgumentException("Для scenario поддерживается только =");
+            }
+            conditions.add(new Condition(column, operator, Double.NaN, value));
+            return this;
+        }
+        try {
+            conditions.add(new Condition(column, operator, Double.parseDouble(value), null));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Значение условия " + column + " должно быть числом: " + value);
+        }
+        return this;
+    }
+
+    public StoreQuery orderBy(String column, boolean descending) {
+        this.orderBy = column;
+        this.descending = descending;
+        return this;
+    }
+
+    public StoreQuery limit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Ограничение числа строк должно быть положительным");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public List<StoredRun> execute(List<Segment> segments) {
+        segmentsSkipped = 0;
+        rowsExamined = 0;
+        // NaN (колонки нет или показатель не определен) - в конце при любом направлении
+        Comparator<StoredRun> order = orderBy == null ? null : (a, b) -> {
+            double x = a.get(orderBy);
+            double y = b.get(orderBy);
+            if (Double.isNaN(x) || Double.isNaN(y)) {
+                return Boolean.compare(Double.isNaN(x), Double.isNaN(y));
+            }
+            return descending ? Double.compare(y, x) : Double.compare(x, y);
+        };
+        PriorityQueue<StoredRun> best = order != null ? new PriorityQueue<>(order.reversed()) : null;
+        List<StoredRun> matched = new ArrayList<>();
+
+        for (Segment segment : segments) {
+            if (best == null && matched.size() >= limit) break;
+            Condition[] resolved = resolve(segment);
+            if (resolved == null) {
+                segmentsSkipped++;
+                continue;
+            }
+            Condition driver = null;
+            int driverFrom = 0;
+            int driverTo = 0;
+            for (Condition condition : resolved) {
+                Segment.Column column = segment.column(condition.column);
+                if (!column.isIndexed() || condition.operator.equals("!=")) continue;
+                int from = condition.operator.startsWith(">") ? segment.lowerBound(column, condition.value,
+                        condition.operator.equals(">=")) : condition.operator.equals("=")
+                        ? segment.lowerBound(column, condition.value, true) : 0;
+                int to = condition.operator.startsWith("<") ? segment.lowerBound(column, condition.value,
+                        condition.operator.equals("<")) : condition.operator.equals("=")
+                        ? segment.lowerBound(column, condition.value, false) : column.distinct;
+                int postingsFrom = segment.postingsStart(column, from);
+                int postingsTo = segment.postingsStart(column, Math.max(from, to));
+                if (driver == null || postingsTo - postingsFrom < driverTo - driverFrom) {
+                    driver = condition;
+                    driverFrom = postingsFrom;
+                    driverTo = postingsTo;
+                }
+            }
+
+            Segment.Column[] columns = new Segment.Column[resolved.length];
+            for (int i = 0; i < resolved.length; i++) {
+                columns[i] = segment.column(resolved[i].column);
+            }
+            Segment.Column driverColumn = driver != null ? segment.column(driver.column) : null;
+            int count = driver != null ? driverTo - driverFrom : segment.getRows();
+            for (int k = 0; k < count; k++) {
+                int row = driver != null ? segment.posting(driverColumn, driverFrom + k) : k;
+                rowsExamined++;
+                if (!matchesAll(segment, row, resolved, columns, driver)) continue;
+                StoredRun run = new StoredRun(segment, row);
+                if (best != null) {
+                    best.add(run);
+                    if (best.size() > limit) best.poll();
+                } else {
+                    matched.add(run);
+                    if (matched.size() >= limit) break;
+                }
+            }
+        }
+
+        if (best == null) {
+            return matched;
+        }
+        List<StoredRun> sorted = new ArrayList<>(best);
+        sorted.sort(order);
+        return sorted;
+    }
+
+    // Условия в терминах сегмента (имя сценария - номер в словаре); null - сегмент заведомо не подходит
+    private Condition[] resolve(Segment segment) {
+        Condition[] resolved = new Condition[conditions.size()];
+        for (int i = 0; i < resolved.length; i++) {
+            Condition condition = conditions.get(i);
+            Segment.Column column = segment.column(condition.column);
+            if (column == null) return null;
+            if (condition.text != null) {
+                int id = segment.findString(condition.text);
+                if (id < 0) return null;
+                condition = new Condition(condition.column, "=", id, condition.text);
+            }
+            if (!condition.overlaps(column.min, column.max)) return null;
+            resolved[i] = condition;
+        }
+        return resolved;
+    }
+
+    private static boolean matchesAll(Segment segment, int row, Condition[] conditions, Segment.Column[] columns,
+                                      Condition driver) {
+        for (int i = 0; i < conditions.length; i++) {
+            if (conditions[i] == driver) continue;
+            if (!conditions[i].matches(segment.value(columns[i], row))) return false;
+        }
+        return true;
+    }
+
+    public int getSegmentsSkipped() { return segmentsSkipped; }
+    public long getRowsExamined() { return rowsExamined; }
+    public List<Condition> getConditions() { return conditions; }
+    public String getOrderBy() { return orderBy; }
+}
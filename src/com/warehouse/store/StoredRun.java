@@ -0,0 +1,23 @@
+package com.warehouse.store;
+
+/**
+ * Строка результата запроса: ссылка на строку сегмента, значения читаются по требованию.
+ */
+public final class StoredRun {
+    private final Segment segment;
+    private final int row;
+
+    StoredRun(Segment segment, int row) {
+        this.segment = segment;
+        this.row = row;
+    }
+
+    // Значение параметра или показателя; NaN - в сегменте этой колонки нет
+    public double get(String column) {
+        return segment.value(column, row);
+    }
+
+    public String getScenario() { return segment.getScenario(row); }
+    public Segment getSegment() { return segment; }
+    public int getRow() { return row; }
+}
@@ -0,0 +1,128 @@
+package com.warehouse.twin;
+
+import com.warehouse.Simulation;
+import com.warehouse.model.Buffer;
+import com.warehouse.model.Request;
+import com.warehouse.parallel.Intervention;
+import com.warehouse.parallel.WhatIfRunner;
+import com.warehouse.utils.RunResult;
+import com.warehouse.utils.SampleStats;
+import com.warehouse.utils.Statistics;
+import com.warehouse.utils.TopologyConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Цифровой двойник хаба: модель продвигается инкрементально по реальной ленте
+ * прибытий и завершений, без перезапуска с t=0. Источники модели выключены, ворота
+ * работают в режиме внешних завершений. Состояние ограничено живыми заявками
+ * (буферы, ворота), статистика хранит только агрегаты.
+ *
+ * Прогноз на следующую смену - ветвление текущего состояния (Simulation.fork):
+ * в ветвях включаются модельные источники и модельное время обслуживания.
+ */
+public class DigitalTwin {
+    private final Simulation simulation;
+    private final TopologyConfig topology;
+    private final long seed;
+    private long appliedEvents;
+    private long unmatchedCompletions;
+
+    public DigitalTwin(TopologyConfig topology, long seed) {
+        this.topology = topology;
+        this.seed = seed;
+        this.simulation = new Simulation(topology, seed);
+        simulation.setExternalCompletions(true);
+    }
+
+    public void apply(FeedEvent event) {
+        // Запоздавшие события применяются в текущий момент: модельное время назад не идет
+        advanceTo(event.getTime());
+        switch (event.getKind()) {
+            case ARRIVAL:
+                onArrival(event.getRequestId(), event.getCargoClass());
+                break;
+            case COMPLETE:
+                if (!simulation.completeExternally(event.getRequestId())) {
+                    unmatchedCompletions++;
+                }
+                break;
+        }
+        appliedEvents++;
+    }
+
+    private void onArrival(int requestId, int cargoClass) {
+        if (cargoClass < 0 || cargoClass >= topology.getClassCount()) {
+            throw new IllegalArgumentException("Неизвестный класс груза в ленте: " + cargoClass);
+        }
+        // Модельные заявки ветвей прогноза нумеруются после всех номеров из ленты
+        simulation.getDispatcher().getRequestIds().reserve(requestId);
+        simulation.acceptArrival(new Request(requestId, simulation.getCurrentTime(), cargoClass,
+                topology.getClassType(cargoClass), topology.getClassDeadline(cargoClass), -1));
+    }
+
+    public void advanceTo(double time) {
+        if (time > simulation.getCurrentTime()) {
+            simulation.advanceTo(time);
+        }
+    }
+
+    // Прогноз показателей на horizon минут вперед по branches ветвям
+    public Forecast forecast(double horizon, int branches, int threads) {
+        long start = System.nanoTime();
+        Intervention modelDriven = branch -> {
+            branch.setExternalCompletions(false);
+            branch.start();
+        };
+        List<Statistics> outcomes = new WhatIfRunner(simulation, seed, threads)
+                .run(Collections.nCopies(branches, modelDriven), horizon, true);
+        List<RunResult> results = new ArrayList<>(outcomes.size());
+        for (Statistics statistics : outcomes) {
+            results.add(new RunResult(seed, horizon, 0, statistics, topology));
+        }
+        return new Forecast(simulation.getCurrentTime(), horizon, results, (System.nanoTime() - start) / 1_000_000.0);
+    }
+
+    public int getQueuedRequests() {
+        int queued = 0;
+        for (Buffer buffer : simulation.getDispatcher().getBuffers()) {
+            queued += buffer.getRequestCount();
+        }
+        return queued;
+    }
+
+    public Simulation getSimulation() { return simulation; }
+    public double getCurrentTime() { return simulation.getCurrentTime(); }
+    public long getAppliedEvents() { return appliedEvents; }
+    public long getUnmatchedCompletions() { return unmatchedCompletions; }
+
+    public static class Forecast {
+        private final double from;
+        private final double horizon;
+        private final SampleStats rejectionRate;
+        private final SampleStats evictionRate;
+        private final SampleStats perishableRejectionRate;
+        private final SampleStats averageSystemTime;
+        private final double computeMillis;
+
+        Forecast(double from, double horizon, List<RunResult> results, double computeMillis) {
+            this.from = from;
+            this.horizon = horizon;
+            this.rejectionRate = RunResult.summarize(results, RunResult::getRejectionRate);
+            this.evictionRate = RunResult.summarize(results, RunResult::getEvictionRate);
+            this.perishableRejectionRate = RunResult.summarize(results, RunResult::getPerishableRejectionRate);
+            this.averageSystemTime = RunResult.summarize(results, RunResult::getAverageSystemTime);
+            this.computeMillis = computeMillis;
+        }
+
+        public double getFrom() { return from; }
+        public double getHorizon() { return horizon; }
+        public SampleStats getRejectionRate() { return rejectionRate; }
+        public SampleStats getEvictionRate() { return evictionRate; }
+        public SampleStats getPerishableRejectionRate() { return perishableRejectionRate; }
+        public SampleStats getAverageSystemTime() { return averageSystemTime; }
+        public double getComputeMillis() { return computeMillis; }
+    }
+}
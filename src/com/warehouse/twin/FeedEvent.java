@@ -0,0 +1,54 @@
+package com.warehouse.twin;
+
+import java.util.Locale;
+
+/**
+ * Строка ленты цифрового двойника:
+ *   ARRIVAL  время id класс   - прибытие груза класса cargo.N
+ *   COMPLETE время id         - ворота завершили обслуживание заявки
+ * Время - минуты модельного времени. Пустые строки и строки с # пропускаются.
+ */
+public class FeedEvent {
+    public enum Kind { ARRIVAL, COMPLETE }
+
+    private final Kind kind;
+    private final double time;
+    private final int requestId;
+    private final int cargoClass;
+
+    public FeedEvent(Kind kind, double time, int requestId, int cargoClass) {
+        this.kind = kind;
+        this.time = time;
+        this.requestId = requestId;
+        this.cargoClass = cargoClass;
+    }
+
+    // null - строка не содержит события
+    public static FeedEvent parse(String line) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) return null;
+        String[] parts = trimmed.split("\\s+");
+        try {
+            switch (parts[0].toUpperCase(Locale.ROOT)) {
+                case "ARRIVAL":
+                    if (parts.length != 4) break;
+                    return new FeedEvent(Kind.ARRIVAL, Double.parseDouble(parts[1]),
+                            Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+                case "COMPLETE":
+                    if (parts.length != 3) break;
+                    return new FeedEvent(Kind.COMPLETE, Double.parseDouble(parts[1]),
+                            Integer.parseInt(parts[2]), -1);
+                default:
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректная строка ленты: " + trimmed);
+        }
+        throw new IllegalArgumentException("Некорректная строка ленты: " + trimmed);
+    }
+
+    public Kind getKind() { return kind; }
+    public double getTime() { return time; }
+    public int getRequestId() { return requestId; }
+    public int getCargoClass() { return cargoClass; }
+}
@@ -0,0 +1,124 @@
+package com.warehouse.twin;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Источник строк ленты без блокировки цикла двойника: poll забирает все строки,
+ * накопившиеся с прошлого вызова.
+ */
+public abstract class FeedReader implements Closeable {
+
+    public abstract void poll(List<String> lines) throws IOException;
+
+    // Хвост файла (аналог tail -f): читает дописанное, неполная последняя строка ждет следующего вызова
+    public static FeedReader tail(Path file) throws IOException {
+        return new FileTail(file);
+    }
+
+    // Локальный сокет на 127.0.0.1: строки от подключившихся клиентов (заглушка реальной шины)
+    public static FeedReader socket(int port) throws IOException {
+        return new SocketFeed(port);
+    }
+
+    private static final class FileTail extends FeedReader {
+        private final RandomAccessFile file;
+        private final StringBuilder partial = new StringBuilder();
+        private final byte[] chunk = new byte[8192];
+        private long position;
+
+        FileTail(Path path) throws IOException {
+            this.file = new RandomAccessFile(path.toFile(), "r");
+        }
+
+        @Override
+        public void poll(List<String> lines) throws IOException {
+            if (file.length() < position) {
+                position = 0; // файл обрезан или пересоздан
+                partial.setLength(0);
+            }
+            file.seek(position);
+            int read;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            while ((read = file.read(chunk)) > 0) {
+                bytes.write(chunk, 0, read);
+                position += read;
+            }
+            if (bytes.size() == 0) return;
+            partial.append(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+            int start = 0;
+            int end;
+            while ((end = partial.indexOf("\n", start)) >= 0) {
+                lines.add(partial.substring(start, end));
+                start = end + 1;
+            }
+            partial.delete(0, start);
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+
+    private static final class SocketFeed extends FeedReader {
+        private final ServerSocket server;
+        private final BlockingQueue<String> queue = new LinkedBlockingQueue<>(100_000);
+
+        SocketFeed(int port) throws IOException {
+            this.server = new ServerSocket(port, 4, InetAddress.getLoopbackAddress());
+            Thread acceptor = new Thread(this::acceptLoop, "twin-feed-socket");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        private void acceptLoop() {
+            while (!server.isClosed()) {
+                try {
+                    Socket client = server.accept();
+                    Thread reader = new Thread(() -> readClient(client), "twin-feed-client");
+                    reader.setDaemon(true);
+                    reader.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void readClient(Socket client) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    queue.put(line);
+                }
+            } catch (IOException e) {
+                // клиент отключился
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void poll(List<String> lines) {
+            queue.drainTo(lines);
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.warehouse.utils;
+
+import com.warehouse.enums.EventType;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Самоизмерение движка: счетчики событий, глубина календаря (FEL)
+ * и гистограммы задержек обработчиков по типам событий.
+ * Счетчики пишет только поток симуляции; таймеры снимаются на каждом
+ * SAMPLE_INTERVAL-м событии, максимум глубины календаря - по каждому планированию.
+ * Чтение (JMX, дамп в файл) идет из других потоков: счетчики и гистограммы -
+ * атомарные массивы (пишутся упорядоченной записью без CAS), остальное - volatile.
+ * MBean остается зарегистрированным после stop(), чтобы итог можно было прочитать;
+ * следующий запуск с тем же именем его заменяет.
+ */
+public class EngineMetrics implements EngineMetricsMBean {
+    private static final int SAMPLE_INTERVAL = 64;
+    private static final int SAMPLE_MASK = SAMPLE_INTERVAL - 1;
+    private static final int LATENCY_BUCKETS = 40; // корзина i: [2^i, 2^(i+1)) нс
+    private static final int DEPTH_HISTORY = 4096;
+
+    private final EventType[] types = EventType.values();
+    private final AtomicLongArray handlerCounts = new AtomicLongArray(types.length);
+    private final AtomicLongArray latencyHistogram = new AtomicLongArray(types.length * LATENCY_BUCKETS);
+    private final AtomicLongArray sampledNanos = new AtomicLongArray(types.length);
+    private final AtomicLongArray sampledCount = new AtomicLongArray(types.length);
+
+    // Глубина календаря во времени (кольцевой буфер выборок; читается после stop)
+    private final double[] depthTimes = new double[DEPTH_HISTORY];
+    private final int[] depthValues = new int[DEPTH_HISTORY];
+    private int depthCursor;
+    private volatile long depthSum;
+    private volatile long depthSamples;
+
+    private long eventsProcessed;
+    private volatile long startNanos;
+    private volatile long stopNanos;
+
+    private volatile long publishedEvents;
+    private volatile double publishedSimTime;
+    private volatile int publishedDepth;
+    private volatile int maxDepth;
+
+    private ScheduledExecutorService dumpExecutor;
+    private Path dumpFile;
+    private long lastDumpEvents;
+    private long lastDumpNanos;
+    private boolean dumpFailed;
+    private ObjectName objectName;
+
+    public void start() {
+        startNanos = System.nanoTime();
+        stopNanos = 0;
+        lastDumpNanos = startNanos;
+    }
+
+    public void stop() {
+        stopNanos = System.nanoTime();
+        publishedEvents = eventsProcessed;
+        if (dumpExecutor != null) {
+            dumpExecutor.shutdownNow();
+            dumpExecutor = null;
+            writeDump();
+        }
+    }
+
+    // Вызывается на каждое событие; true - событие попало в выборку для таймера
+    public boolean beginEvent(EventType type) {
+        increment(handlerCounts, type.ordinal(), 1);
+        return (++eventsProcessed & SAMPLE_MASK) == 0;
+    }
+
+    public void recordHandler(EventType type, long nanos) {
+        int ordinal = type.ordinal();
+        increment(sampledNanos, ordinal, nanos);
+        increment(sampledCount, ordinal, 1);
+        int bucket = nanos <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+        increment(latencyHistogram, ordinal * LATENCY_BUCKETS + Math.min(bucket, LATENCY_BUCKETS - 1), 1);
+    }
+
+    // Писатель один, поэтому достаточно упорядоченной записи без CAS
+    private static void increment(AtomicLongArray array, int index, long delta) {
+        array.lazySet(index, array.get(index) + delta);
+    }
+
+    // Пиковая глубина календаря (EventCalendar.getPeakSize обновляется при каждом планировании)
+    public void recordMaxDepth(int depth) {
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+    }
+
+    public void recordQueueDepth(double simTime, int depth) {
+        depthTimes[depthCursor] = simTime;
+        depthValues[depthCursor] = depth;
+        depthCursor = (depthCursor + 1) % DEPTH_HISTORY;
+        depthSum += depth;
+        depthSamples++;
+        recordMaxDepth(depth);
+        publishedDepth = depth;
+        publishedSimTime = simTime;
+        publishedEvents = eventsProcessed;
+    }
+
+    public void registerMBean(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName("com.warehouse:type=EngineMetrics,name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+        } catch (Exception e) {
+            throw new IllegalStateException("Не удалось зарегистрировать MBean метрик: " + e.getMessage(), e);
+        }
+    }
+
+    // Снять MBean явно; иначе он живет до завершения JVM или следующей регистрации с тем же именем
+    public void unregisterMBean() {
+        if (objectName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception ignored) {
+            // MBean уже снят
+        }
+        objectName = null;
+    }
+
+    public void startPeriodicDump(Path file, long periodMillis) {
+        this.dumpFile = file;
+        dumpExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "engine-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumpExecutor.scheduleAtFixedRate(this::writeDump, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Ошибка записи не должна останавливать периодический дамп: она печатается (один раз подряд),
+    // следующая попытка - в свой срок
+    private synchronized void writeDump() {
+        try {
+            appendDump();
+            dumpFailed = false;
+        } catch (IOException | RuntimeException e) {
+            if (!dumpFailed) {
+                System.err.println("Ошибка записи метрик движка в " + dumpFile + ": " + e);
+            }
+            dumpFailed = true;
+        }
+    }
+
+    private void appendDump() throws IOException {
+        if (dumpFile == null) return;
+        long now = System.nanoTime();
+        long events = publishedEvents;
+        double intervalRate = now > lastDumpNanos ? (events - lastDumpEvents) * 1e9 / (now - lastDumpNanos) : 0;
+        lastDumpEvents = events;
+        lastDumpNanos = now;
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(dumpFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            out.printf(Locale.ROOT,
+                    "ts=%d events=%d rate=%.1f avgRate=%.1f simTime=%.2f felDepth=%d felMax=%d felMean=%.2f %s%n",
+                    System.currentTimeMillis(), events, intervalRate, getEventsPerSecond(),
+                    publishedSimTime, publishedDepth, maxDepth, getMeanQueueDepth(), getHandlerLatencySummary());
+        }
+    }
+
+    @Override
+    public long getEventsProcessed() {
+        return publishedEvents;
+    }
+
+    @Override
+    public double getEventsPerSecond() {
+        long end = stopNanos != 0 ? stopNanos : System.nanoTime();
+        long elapsed = end - startNanos;
+        return elapsed > 0 ? publishedEvents * 1e9 / elapsed : 0;
+    }
+
+    @Override
+    public double getSimulationTime() {
+        return publishedSimTime;
+    }
+
+    @Override
+    public int getCurrentQueueDepth() {
+        return publishedDepth;
+    }
+
+    @Override
+    public int getMaxQueueDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public double getMeanQueueDepth() {
+        long samples = depthSamples;
+        return samples > 0 ? (double) depthSum / samples : 0;
+    }
+
+    @Override
+    public String getHandlerLatencySummary() {
+        StringBuilder sb = new StringBuilder();
+        for (EventType type : types) {
+            int i = type.ordinal();
+            long count = handlerCounts.get(i);
+            if (count == 0) continue;
+            long samples = sampledCount.get(i);
+            double mean = samples > 0 ? (double) sampledNanos.get(i) / samples : 0;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(String.format(Locale.ROOT, "%s[count=%d meanNs=%.0f p50Ns=%d p99Ns=%d]",
+                    type.name(), count, mean, percentile(i, 0.50), percentile(i, 0.99)));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public long[] getLatencyHistogram(String eventType) {
+        int from = EventType.valueOf(eventType).ordinal() * LATENCY_BUCKETS;
+        long[] histogram = new long[LATENCY_BUCKETS];
+        for (int bucket = 0; bucket < LATENCY_BUCKETS; bucket++) {
+            histogram[bucket] = latencyHistogram.get(from + bucket);
+        }
+        return histogram;
+    }
+
+    public long getHandlerCount(EventType type) {
+        return handlerCounts.get(type.ordinal());
+    }
+
+    // Верхняя граница корзины, в которую попадает заданный перцентиль
+    private long percentile(int ordinal, double p) {
+        long total = sampledCount.get(ordinal);
+        if (total == 0) return 0;
+        long threshold = (long) Math.ceil(total * p);
+        long cumulative = 0;
+        for (int bucket = 0; bucket < LATENCY_BUCKETS; bucket++) {
+            cumulative += latencyHistogram.get(ordinal * LATENCY_BUCKETS + bucket);
+            if (cumulative >= threshold) {
+                return 1L << (bucket + 1);
+            }
+        }
+        return 1L << LATENCY_BUCKETS;
+    }
+
+    // Выборки глубины календаря в хронологическом порядке: {время, глубина}
+    public double[][] getQueueDepthSeries() {
+        int count = (int) Math.min(depthSamples, DEPTH_HISTORY);
+        double[][] series = new double[count][2];
+        int start = depthSamples > DEPTH_HISTORY ? depthCursor : 0;
+        for (int i = 0; i < count; i++) {
+            int idx = (start + i) % DEPTH_HISTORY;
+            series[i][0] = depthTimes[idx];
+            series[i][1] = depthValues[idx];
+        }
+        return series;
+    }
+}
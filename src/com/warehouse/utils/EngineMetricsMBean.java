@@ -0,0 +1,12 @@
+package com.warehouse.utils;
+
+public interface EngineMetricsMBean {
+    long getEventsProcessed();
+    double getEventsPerSecond();
+    double getSimulationTime();
+    int getCurrentQueueDepth();
+    int getMaxQueueDepth();
+    double getMeanQueueDepth();
+    String getHandlerLatencySummary();
+    long[] getLatencyHistogram(String eventType);
+}
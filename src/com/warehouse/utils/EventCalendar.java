@@ -9,25 +9,129 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 public class EventCalendar {
-    private final PriorityQueue<Event> futureEvents = new PriorityQueue<>(Comparator.comparingDouble(Event::getTime).thenComparing(e -> e.getType().ordinal()));
+    // Равные по времени и типу события - в порядке планирования, в том числе после пересборки очереди
+    private final PriorityQueue<Event> futureEvents = new PriorityQueue<>(Comparator.comparingDouble(Event::getTime)
+            .thenComparingInt(e -> e.getType().ordinal()).thenComparingLong(Event::getSequence));
     private final List<Event> occurredEvents = new ArrayList<>();
     private int stepCounter;
+    private long occurredCount; // журнал occurredEvents ведется только при включенном выводе
+    private int cancelledCount; // отмененные события, еще лежащие в очереди
+    private int peakSize; // наибольшее число запланированных событий (для метрик движка)
+    private long nextSequence;
 
-    public void scheduleEvent(Event event) {
+    // Когда отмененных не меньше порога и больше половины очереди, она пересобирается без них
+    private static final int COMPACTION_MIN_CANCELLED = 64;
+
+    /**
+     * Планирует событие; само событие служит дескриптором для cancel/reschedule.
+     */
+    public Event scheduleEvent(Event event) {
+        if (event.getCalendar() != null) {
+            throw new IllegalStateException("Событие уже запланировано: " + event);
+        }
+        event.markScheduled(this, nextSequence++);
         futureEvents.offer(event);
+        if (futureEvents.size() - cancelledCount > peakSize) {
+            peakSize = futureEvents.size() - cancelledCount;
+        }
+        return event;
+    }
+
+    /**
+     * Отмена за O(1): событие помечается и пропускается при извлечении.
+     * false - событие уже отменено, уже произошло или запланировано не в этом календаре.
+     */
+    public boolean cancel(Event event) {
+        if (event.getCalendar() != this || event.isCancelled() || event.isFired()) {
+            return false;
+        }
+        event.markCancelled();
+        cancelledCount++;
+        if (cancelledCount >= COMPACTION_MIN_CANCELLED && cancelledCount * 2 > futureEvents.size()) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Перенос на другое время за O(log n): старое событие отменяется, планируется новое
+     * с тем же типом и источником. Возвращает новый дескриптор (null - событие уже не в календаре).
+     */
+    public Event reschedule(Event event, double newTime) {
+        if (!cancel(event)) {
+            return null;
+        }
+        return scheduleEvent(new Event(newTime, event.getType(), event.getSource(), event.getDescription()));
+    }
+
+    private void compact() {
+        futureEvents.removeIf(Event::isCancelled);
+        cancelledCount = 0;
     }
 
     public Event getNextEvent() {
         stepCounter++;
         Event nextEvent = futureEvents.poll();
+        while (nextEvent != null && nextEvent.isCancelled()) {
+            cancelledCount--;
+            nextEvent = futureEvents.poll();
+        }
         if (nextEvent != null) {
-            occurredEvents.add(nextEvent);
+            nextEvent.markFired();
+            occurredCount++;
+            if (Log.isEnabled()) {
+                occurredEvents.add(nextEvent);
+            }
         }
         return nextEvent;
     }
 
     public boolean isEmpty() {
-        return futureEvents.isEmpty();
+        return size() == 0;
+    }
+
+    public double peekNextTime() {
+        Event next = futureEvents.peek();
+        while (next != null && next.isCancelled()) {
+            futureEvents.poll();
+            cancelledCount--;
+            next = futureEvents.peek();
+        }
+        return next != null ? next.getTime() : Double.POSITIVE_INFINITY;
+    }
+
+    public int size() {
+        return futureEvents.size() - cancelledCount;
+    }
+
+    public int getPeakSize() {
+        return peakSize;
+    }
+
+    // Копия будущих событий с заменой источников событий на их копии из ветви;
+    // в copies добавляется соответствие событий оригинала и копии
+    public EventCalendar copy(Map<Object, Object> copies) {
+        EventCalendar copy = new EventCalendar();
+        for (Event event : futureEvents) {
+            if (event.isCancelled()) continue;
+            Object source = event.getSource();
+            if (source instanceof Request) {
+                // Внешние заявки (injectArrival) есть только в календаре - копируем их здесь
+                source = copies.computeIfAbsent(source, request -> ((Request) request).copy());
+            } else {
+                source = copies.getOrDefault(source, source);
+            }
+            Event copied = new Event(event.getTime(), event.getType(), source, event.getDescription());
+            copied.markScheduled(copy, event.getSequence());
+            copy.futureEvents.offer(copied);
+            copies.put(event, copied); // дескрипторы событий у приборов и групп ветви
+
+        }
+        copy.stepCounter = stepCounter;
+        copy.occurredCount = occurredCount;
+        copy.nextSequence = nextSequence;
+        copy.peakSize = peakSize;
+        return copy;
     }
 
     public int getStepCounter() {
@@ -36,14 +140,29 @@ public class EventCalendar {
 
     public List<Event> getFutureEvents() {
         List<Event> list = new ArrayList<>(futureEvents);
+        list.removeIf(Event::isCancelled);
         list.sort(Comparator.comparingDouble(Event::getTime).thenComparing(e -> e.getType().ordinal()));
         return list;
     }
 
     /**
-     * Главная точка: печать полного состояния за шаг в требуемом формате
+     * Главная точка: печать полного состояния за шаг в требуемом формате и чтение команды
      */
-    public boolean printStepAndWait(Simulation sim, Event currentEvent) {
+    public String printStepAndWait(Simulation sim, Event currentEvent, Scanner scanner) {
+        printStep(sim, currentEvent);
+
+        // Запрос ввода
+        System.out.println();
+        if (currentEvent != null) {
+            System.out.println("ENTER - следующий шаг, 't 900' / 'n 500' / 'full 1' / 'c' - перемотка, "
+                    + "'b rej' / 'b ev' - точки останова, '?' - справка, 'q' - остановить процесс:");
+        } else {
+            System.out.println("Нажмите ENTER для генерации заявок:");
+        }
+        return scanner.hasNextLine() ? scanner.nextLine().trim() : "q";
+    }
+
+    public void printStep(Simulation sim, Event currentEvent) {
         double now = sim.getCurrentTime();
 
         // Шапка
@@ -79,17 +198,6 @@ public class EventCalendar {
 
         // 4) Статистика
         printStatistics(sim);
-
-        // Запрос ввода
-        System.out.println();
-        if (currentEvent != null) {
-            System.out.println("Нажмите ENTER для следующего шага, или 'q' — чтобы остановить процесс:");
-        } else {
-            System.out.println("Нажмите ENTER для генерации заявок:");
-        }
-        Scanner sc = new Scanner(System.in);
-        String line = sc.nextLine().trim();
-        return !line.equalsIgnoreCase("q");
     }
 
     private String getEventAbbreviation(Event event) {
@@ -161,15 +269,13 @@ public class EventCalendar {
     }
 
     private void printBuffersSeparately(Simulation sim) {
-        WarehouseDispatcher dispatcher = sim.getDispatcher();
-        Buffer b1 = dispatcher.getBufferPerishable();
-        Buffer b2 = dispatcher.getBufferRegular();
-
-        System.out.println("БУФЕР P1 (СКОРОПОРТЯЩИЕСЯ)");
-        printSingleBuffer(b1);
-
-        System.out.println("\nБУФЕР P2 (ОБЫЧНЫЕ)");
-        printSingleBuffer(b2);
+        List<Buffer> buffers = sim.getDispatcher().getBuffers();
+        for (int i = 0; i < buffers.size(); i++) {
+            Buffer buffer = buffers.get(i);
+            if (i > 0) System.out.println();
+            System.out.printf("БУФЕР P%d (%s)%n", buffer.getIndex() + 1, buffer.getName().toUpperCase());
+            printSingleBuffer(buffer);
+        }
         System.out.println();
     }
 
@@ -186,7 +292,7 @@ public class EventCalendar {
         } else {
             for (int i = 0; i < reqs.size(); i++) {
                 Request r = reqs.get(i);
-                String priority = b.getBufferType() == com.warehouse.enums.CargoType.PERISHABLE ? "P1" : "P2";
+                String priority = "P" + (b.getIndex() + 1);
                 String status = getRequestStatus(r);
 
                 String deadlineStr = "—";
@@ -210,15 +316,13 @@ public class EventCalendar {
     }
 
     private void printDevicesSeparately(Simulation sim) {
-        WarehouseDispatcher dispatcher = sim.getDispatcher();
-        List<Device> devicesP1 = dispatcher.getDevicesP1();
-        List<Device> devicesP2 = dispatcher.getDevicesP2();
-
-        System.out.println("ПРИБОРЫ P1 (СКОРОПОРТЯЩИЕСЯ)");
-        printSingleDeviceGroup(devicesP1);
-
-        System.out.println("\nПРИБОРЫ P2 (ОБЫЧНЫЕ)");
-        printSingleDeviceGroup(devicesP2);
+        List<DeviceGroup> groups = sim.getDispatcher().getGroups();
+        for (int i = 0; i < groups.size(); i++) {
+            DeviceGroup group = groups.get(i);
+            if (i > 0) System.out.println();
+            System.out.printf("ПРИБОРЫ P%d (%s)%n", group.getPriority(), group.getName().toUpperCase());
+            printSingleDeviceGroup(group.getDevices());
+        }
         System.out.println();
     }
 
@@ -287,11 +391,12 @@ public class EventCalendar {
         System.out.println("=".repeat(70));
 
         System.out.printf("Всего шагов симуляции: %d%n", stepCounter);
-        System.out.printf("Всего произошло событий: %d%n", occurredEvents.size());
+        System.out.printf("Всего произошло событий: %d%n", occurredCount);
     }
 
     public void recordEvent(double time, EventType type, Object source, String description) {
         Event event = new Event(time, type, source, description);
         occurredEvents.add(event);
+        occurredCount++;
     }
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.warehouse.utils;
+
+import com.warehouse.Simulation;
+
+/**
+ * Переключатель консольного вывода модели. В пакетном (headless) режиме
+ * вывод отключается, и горячий путь не форматирует строки и не пишет журнал событий.
+ *
+ * Общий флаг задается один раз на входе режима (Main, *Runner). Библиотечный код,
+ * которому нужен тихий прогон (перемотка, ветви, дорожки, хабы), его не трогает,
+ * а выключает вывод своей симуляции (Simulation.setConsoleOutput), поэтому
+ * одновременные прогоны в разных потоках не включают вывод друг другу.
+ */
+public final class Log {
+    private static volatile boolean enabled = true;
+
+    private Log() {
+    }
+
+    public static boolean isEnabled() {
+        if (!enabled) {
+            return false;
+        }
+        Simulation current = Simulation.getInstance();
+        return current == null || current.isConsoleOutput();
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Log.enabled = enabled;
+    }
+}
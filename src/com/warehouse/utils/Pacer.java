@@ -0,0 +1,82 @@
+package com.warehouse.utils;
+
+import com.warehouse.Simulation;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Прогон в масштабе реального времени: минута модели = 60/speed секунд.
+ * Сроки событий считаются от момента старта (абсолютные), поэтому ошибки сна не накапливаются.
+ * Ожидание - parkNanos с коротким досыпанием активным ожиданием; события, попадающие в один тик,
+ * обрабатываются пачкой. При перегрузке (отставание больше catchUpTicks тиков) пейсер
+ * не спит, а догоняет часы, обрабатывая накопившиеся события подряд.
+ */
+public class Pacer {
+    private static final long SPIN_NANOS = 50_000;
+
+    private final Simulation simulation;
+    private final double nanosPerMinute;
+    private final long tickNanos;
+    private final int catchUpTicks;
+    private final SampleStats lateness = new SampleStats(); // запаздывание пачки, мкс
+    private long batches;
+    private long catchUps;
+    private boolean catchingUp;
+
+    public Pacer(Simulation simulation, double speed, long tickNanos, int catchUpTicks) {
+        if (!(speed > 0) || tickNanos <= 0 || catchUpTicks <= 0) {
+            throw new IllegalArgumentException("Масштаб времени, тик и порог догонки должны быть положительными");
+        }
+        this.simulation = simulation;
+        this.nanosPerMinute = 60e9 / speed;
+        this.tickNanos = tickNanos;
+        this.catchUpTicks = catchUpTicks;
+    }
+
+    public Pacer(Simulation simulation, double speed) {
+        this(simulation, speed, 1_000_000, 50);
+    }
+
+    public void run(double horizon) {
+        EventCalendar calendar = simulation.getEventCalendar();
+        double modelStart = simulation.getCurrentTime();
+        long wallStart = System.nanoTime();
+
+        while (simulation.getCurrentTime() < horizon) {
+            double next = calendar.isEmpty() ? horizon : Math.min(calendar.peekNextTime(), horizon);
+            long deadline = wallStart + (long) ((next - modelStart) * nanosPerMinute);
+            long now = waitUntil(deadline);
+
+            long late = now - deadline;
+            if (late > catchUpTicks * tickNanos) {
+                if (!catchingUp) catchUps++;
+                catchingUp = true;
+            } else {
+                catchingUp = false;
+                lateness.add(Math.max(0, late) / 1000.0);
+            }
+
+            // Пачка: все события, срок которых наступает до конца текущего тика
+            double batchEnd = modelStart + (now + tickNanos - wallStart) / nanosPerMinute;
+            simulation.advanceTo(Math.min(Math.max(batchEnd, Math.nextUp(next)), horizon));
+            batches++;
+        }
+    }
+
+    private static long waitUntil(long deadline) {
+        long now = System.nanoTime();
+        while (deadline - now > SPIN_NANOS) {
+            LockSupport.parkNanos(deadline - now - SPIN_NANOS);
+            now = System.nanoTime();
+        }
+        while (deadline - now > 0) {
+            Thread.onSpinWait();
+            now = System.nanoTime();
+        }
+        return now;
+    }
+
+    public SampleStats getLateness() { return lateness; }
+    public long getBatches() { return batches; }
+    public long getCatchUps() { return catchUps; }
+}
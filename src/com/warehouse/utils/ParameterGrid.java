@@ -0,0 +1,85 @@
+package com.warehouse.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сетка значений ключей сценария: оси "ключ=1,2,3" или "ключ=1..4" и их декартово произведение.
+ * Точки нумеруются с 0, последняя ось меняется быстрее всех.
+ */
+public class ParameterGrid {
+    private final List<String> keys = new ArrayList<>();
+    private final List<String[]> values = new ArrayList<>();
+
+    public void addAxis(String spec) {
+        int eq = spec.indexOf('=');
+        if (eq <= 0 || eq == spec.length() - 1) {
+            throw new IllegalArgumentException("ось перебора задается как ключ=значения: " + spec);
+        }
+        String key = spec.substring(0, eq).trim();
+        String list = spec.substring(eq + 1).trim();
+        String[] axis;
+        int range = list.indexOf("..");
+        if (range > 0) {
+            int from;
+            int to;
+            try {
+                from = Integer.parseInt(list.substring(0, range).trim());
+                to = Integer.parseInt(list.substring(range + 2).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("диапазон задается целыми числами: " + spec);
+            }
+            if (to < from) {
+                throw new IllegalArgumentException("пустой диапазон в " + spec);
+            }
+            axis = new String[to - from + 1];
+            for (int v = from; v <= to; v++) {
+                axis[v - from] = Integer.toString(v);
+            }
+        } else {
+            axis = list.split(",");
+            for (int i = 0; i < axis.length; i++) {
+                axis[i] = axis[i].trim();
+            }
+        }
+        keys.add(key);
+        values.add(axis);
+    }
+
+    public boolean isEmpty() {
+        return keys.isEmpty();
+    }
+
+    public int size() {
+        int points = 1;
+        for (String[] axis : values) {
+            points *= axis.length;
+        }
+        return points;
+    }
+
+    // Значения осей в точке point
+    public String[] point(int point) {
+        String[] result = new String[keys.size()];
+        for (int k = keys.size() - 1; k >= 0; k--) {
+            String[] axis = values.get(k);
+            result[k] = axis[point % axis.length];
+            point /= axis.length;
+        }
+        return result;
+    }
+
+    public Scenario apply(Scenario scenario, String[] point) {
+        for (int k = 0; k < keys.size(); k++) {
+            scenario = scenario.withOverride(keys.get(k), point[k]);
+        }
+        return scenario;
+    }
+
+    // Ось k в виде "ключ=значения" (для передачи сетки другому процессу)
+    public String axisSpec(int k) {
+        return keys.get(k) + "=" + String.join(",", values.get(k));
+    }
+
+    public List<String> getKeys() { return keys; }
+}
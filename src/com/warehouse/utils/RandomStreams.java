@@ -0,0 +1,76 @@
+package com.warehouse.utils;
+
+import com.warehouse.enums.VariateMode;
+
+import java.util.Random;
+
+/**
+ * Независимые потоки случайных чисел из одного базового зерна.
+ * Номер потока привязан к роли (источник, группа ворот), а не к порядку создания,
+ * поэтому одно и то же зерно дает одинаковые потоки в разных конфигурациях (общие случайные числа).
+ * Отраженный поток антитетической пары выдает дополнения тех же чисел: U заменяется на 1-U.
+ */
+public final class RandomStreams {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private RandomStreams() {
+    }
+
+    public static long seedFor(long baseSeed, long stream) {
+        return mix64(baseSeed + mix64(stream + 1) * GOLDEN_GAMMA);
+    }
+
+    public static Random create(long baseSeed, long stream) {
+        return new Random(seedFor(baseSeed, stream));
+    }
+
+    public static Random create(long baseSeed, long stream, VariateMode mode) {
+        return mode == VariateMode.ANTITHETIC
+                ? new AntitheticRandom(seedFor(baseSeed, stream)) : new Random(seedFor(baseSeed, stream));
+    }
+
+    // Потоки источника: межприходные интервалы и выбор класса груза
+    public static long sourceArrivalStream(int sourceId) {
+        return (1L << 32) | ((long) sourceId << 1);
+    }
+
+    public static long sourceClassStream(int sourceId) {
+        return (1L << 32) | ((long) sourceId << 1) | 1;
+    }
+
+    // Время обслуживания заявок источника: разыгрывается при поступлении, поэтому заявка получает
+    // одно и то же время при любом числе ворот и любом порядке их освобождения
+    public static long sourceServiceStream(int sourceId) {
+        return (4L << 32) | sourceId;
+    }
+
+    // Запасной поток времени обслуживания ворот для заявок не от источника (лента двойника)
+    public static long deviceServiceStream(int groupIndex, int indexInGroup) {
+        return (2L << 32) | ((long) groupIndex << 16) | indexInGroup;
+    }
+
+    // Поток поломок и ремонтов ворот группы
+    public static long gateFailureStream(int groupIndex) {
+        return (3L << 32) | groupIndex;
+    }
+
+    // Все методы Random строятся из next(bits), поэтому инверсия битов отражает и nextDouble, и nextInt
+    private static final class AntitheticRandom extends Random {
+        private static final long serialVersionUID = 1L;
+
+        AntitheticRandom(long seed) {
+            super(seed);
+        }
+
+        @Override
+        protected int next(int bits) {
+            return ~super.next(bits) & (int) ((1L << bits) - 1);
+        }
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
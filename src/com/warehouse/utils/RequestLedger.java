@@ -0,0 +1,219 @@
+package com.warehouse.utils;
+
+import com.warehouse.enums.EventType;
+import com.warehouse.enums.RequestStatus;
+import com.warehouse.model.Request;
+import com.warehouse.model.StateChangeListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Журнал жизненного цикла заявок в колонках (struct-of-arrays), строка = номер заявки - 1.
+ * Заполняется как наблюдатель изменений состояния (WarehouseDispatcher.setStateListener):
+ * прибытие, постановка в буфер, начало и конец обслуживания, итоговый статус, источник, ворота.
+ * Около 40 байт на заявку против объекта Request с упакованным дедлайном.
+ *
+ * Формат файла: заголовок WHLEDGER, версия, число строк, затем колонки подряд (little-endian).
+ */
+public class RequestLedger implements StateChangeListener {
+    private static final long MAGIC = 0x5748_4C45_4447_4552L; // "WHLEDGER"
+    private static final int VERSION = 1;
+    private static final RequestStatus[] STATUSES = RequestStatus.values();
+
+    /** Построчный обход журнала. */
+    public interface RowVisitor {
+        void visit(int id, double arrival, double bufferEntry, double serviceStart, double serviceEnd,
+                   RequestStatus status, int source, int cargoClass, int gate);
+    }
+
+    private double[] arrival;
+    private double[] bufferEntry;
+    private double[] serviceStart;
+    private double[] serviceEnd;
+    private byte[] status;
+    private short[] source;
+    private byte[] cargoClass;
+    private int[] gate;
+    private int rows; // наибольший номер заявки
+
+    public RequestLedger() {
+        this(1024);
+    }
+
+    public RequestLedger(int initialCapacity) {
+        allocate(Math.max(16, initialCapacity));
+    }
+
+    private void allocate(int capacity) {
+        arrival = new double[capacity];
+        bufferEntry = new double[capacity];
+        serviceStart = new double[capacity];
+        serviceEnd = new double[capacity];
+        status = new byte[capacity];
+        source = new short[capacity];
+        cargoClass = new byte[capacity];
+        gate = new int[capacity];
+        fillEmpty(0, capacity);
+    }
+
+    private void fillEmpty(int from, int to) {
+        Arrays.fill(arrival, from, to, Double.NaN);
+        Arrays.fill(bufferEntry, from, to, Double.NaN);
+        Arrays.fill(serviceStart, from, to, Double.NaN);
+        Arrays.fill(serviceEnd, from, to, Double.NaN);
+        Arrays.fill(status, from, to, (byte) -1);
+        Arrays.fill(gate, from, to, -1);
+    }
+
+    private void ensureRow(int row) {
+        if (row < arrival.length) return;
+        int old = arrival.length;
+        int capacity = Math.max(old * 2, row + 1);
+        arrival = Arrays.copyOf(arrival, capacity);
+        bufferEntry = Arrays.copyOf(bufferEntry, capacity);
+        serviceStart = Arrays.copyOf(serviceStart, capacity);
+        serviceEnd = Arrays.copyOf(serviceEnd, capacity);
+        status = Arrays.copyOf(status, capacity);
+        source = Arrays.copyOf(source, capacity);
+        cargoClass = Arrays.copyOf(cargoClass, capacity);
+        gate = Arrays.copyOf(gate, capacity);
+        fillEmpty(old, capacity);
+    }
+
+    @Override
+    public void onStateChange(EventType type, double time, Request request, int location) {
+        int row = request.getId() - 1;
+        if (row < 0) return; // внешние заявки без номера
+        ensureRow(row);
+        if (row >= rows) rows = row + 1;
+        switch (type) {
+            case ARRIVAL:
+                arrival[row] = request.getArrivalTime();
+                source[row] = (short) request.getSourceId();
+                cargoClass[row] = (byte) request.getCargoClass();
+                break;
+            case BUFFER_ADD:
+                bufferEntry[row] = time;
+                break;
+            case SERVICE_START:
+                serviceStart[row] = time;
+                gate[row] = location;
+                break;
+            case SERVICE_COMPLETE:
+                serviceEnd[row] = time;
+                break;
+            default:
+                break;
+        }
+        status[row] = (byte) request.getStatus().ordinal();
+    }
+
+    public void forEach(RowVisitor visitor) {
+        for (int row = 0; row < rows; row++) {
+            if (status[row] < 0) continue;
+            visitor.visit(row + 1, arrival[row], bufferEntry[row], serviceStart[row], serviceEnd[row],
+                    STATUSES[status[row]], source[row], cargoClass[row], gate[row]);
+        }
+    }
+
+    public int[] countByStatus() {
+        int[] counts = new int[STATUSES.length];
+        for (int row = 0; row < rows; row++) {
+            if (status[row] >= 0) counts[status[row]]++;
+        }
+        return counts;
+    }
+
+    // Среднее ожидание до начала обслуживания по классу груза (-1 - все классы)
+    public double averageWaiting(int cargoClassFilter) {
+        double sum = 0;
+        long count = 0;
+        for (int row = 0; row < rows; row++) {
+            if (Double.isNaN(serviceStart[row])) continue;
+            if (cargoClassFilter >= 0 && cargoClass[row] != cargoClassFilter) continue;
+            sum += serviceStart[row] - arrival[row];
+            count++;
+        }
+        return count > 0 ? sum / count : 0;
+    }
+
+    public void write(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(MAGIC).putInt(VERSION).putInt(rows).flip();
+            writeFully(channel, header);
+            ByteBuffer column = ByteBuffer.allocate(rows * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (double[] values : new double[][]{arrival, bufferEntry, serviceStart, serviceEnd}) {
+                column.clear();
+                column.asDoubleBuffer().put(values, 0, rows);
+                column.limit(rows * Double.BYTES);
+                writeFully(channel, column);
+            }
+            writeFully(channel, ByteBuffer.wrap(status, 0, rows));
+            column.clear();
+            column.asShortBuffer().put(source, 0, rows);
+            column.limit(rows * Short.BYTES);
+            writeFully(channel, column);
+            writeFully(channel, ByteBuffer.wrap(cargoClass, 0, rows));
+            column.clear();
+            column.asIntBuffer().put(gate, 0, rows);
+            column.limit(rows * Integer.BYTES);
+            writeFully(channel, column);
+        }
+    }
+
+    public static RequestLedger read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 16);
+            if (header.getLong() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Файл не является журналом заявок: " + file);
+            }
+            int rows = header.getInt();
+            RequestLedger ledger = new RequestLedger(rows);
+            ledger.rows = rows;
+            for (double[] values : new double[][]{ledger.arrival, ledger.bufferEntry, ledger.serviceStart,
+                    ledger.serviceEnd}) {
+                readFully(channel, rows * Double.BYTES).asDoubleBuffer().get(values, 0, rows);
+            }
+            readFully(channel, rows).get(ledger.status, 0, rows);
+            readFully(channel, rows * Short.BYTES).asShortBuffer().get(ledger.source, 0, rows);
+            readFully(channel, rows).get(ledger.cargoClass, 0, rows);
+            readFully(channel, rows * Integer.BYTES).asIntBuffer().get(ledger.gate, 0, rows);
+            return ledger;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, int bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Журнал заявок обрезан");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    public int size() { return rows; }
+    public double getArrival(int id) { return arrival[id - 1]; }
+    public double getBufferEntry(int id) { return bufferEntry[id - 1]; }
+    public double getServiceStart(int id) { return serviceStart[id - 1]; }
+    public double getServiceEnd(int id) { return serviceEnd[id - 1]; }
+    public RequestStatus getStatus(int id) { return status[id - 1] < 0 ? null : STATUSES[status[id - 1]]; }
+    public int getSource(int id) { return source[id - 1]; }
+    public int getCargoClass(int id) { return cargoClass[id - 1]; }
+    public int getGate(int id) { return gate[id - 1]; }
+}
@@ -0,0 +1,213 @@
+package com.warehouse.utils;
+
+import com.warehouse.enums.CargoType;
+import com.warehouse.enums.EventType;
+import com.warehouse.model.Device;
+import com.warehouse.model.DeviceGroup;
+import com.warehouse.model.Request;
+import com.warehouse.model.StateChangeListener;
+import com.warehouse.model.WarehouseDispatcher;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Сквозная трассировка выбранных заявок: прибытие (и какие ворота были заняты), ожидание
+ * в буфере с номером места, обслуживание на приборе, отказ, выбивание, переадресация.
+ * Выборка решается один раз при прибытии и запоминается флагом Request.traced, остальные
+ * заявки отсеиваются одной проверкой флага.
+ *
+ * Экспорт - JSON формата Trace Event (chrome://tracing, ui.perfetto.dev):
+ * одна дорожка на заявку, 1 минута модели = 1 секунда трассы.
+ *
+ * Выборка задается строкой: "1/N" - каждая N-я заявка, "type=PERISHABLE" - все заявки типа,
+ * "source=2" - все заявки источника, "all" - все заявки.
+ */
+public class RequestTracer implements StateChangeListener {
+    private static final double MICROS_PER_MINUTE = 1_000_000;
+
+    private final WarehouseDispatcher dispatcher;
+    private final int every;
+    private final CargoType cargoType;
+    private final int sourceId;
+    private final List<String> events = new ArrayList<>();
+    private final Map<Integer, double[]> open = new HashMap<>(); // начало заявки, буфера, обслуживания
+    private final Map<Integer, String> openBuffer = new HashMap<>();
+    private final Map<Integer, String> openDevice = new HashMap<>();
+    // Выбитая заявка, исход которой решает следующее событие: переадресация этой же заявки или что угодно другое
+    private int evictedId = -1;
+    private double evictedTime;
+    private int sampled;
+
+    private RequestTracer(WarehouseDispatcher dispatcher, int every, CargoType cargoType, int sourceId) {
+        this.dispatcher = dispatcher;
+        this.every = every;
+        this.cargoType = cargoType;
+        this.sourceId = sourceId;
+    }
+
+    public static RequestTracer create(WarehouseDispatcher dispatcher, String sampling) {
+        String spec = sampling.trim();
+        try {
+            if (spec.equalsIgnoreCase("all")) {
+                return new RequestTracer(dispatcher, 1, null, -1);
+            }
+            if (spec.startsWith("1/")) {
+                int every = Integer.parseInt(spec.substring(2));
+                if (every > 0) return new RequestTracer(dispatcher, every, null, -1);
+            } else if (spec.startsWith("type=")) {
+                return new RequestTracer(dispatcher, 0, CargoType.valueOf(spec.substring(5).toUpperCase(Locale.ROOT)), -1);
+            } else if (spec.startsWith("source=")) {
+                return new RequestTracer(dispatcher, 0, null, Integer.parseInt(spec.substring(7)));
+            }
+        } catch (IllegalArgumentException e) {
+            // ниже общее сообщение
+        }
+        throw new IllegalArgumentException("Некорректная выборка трассировки: " + sampling
+                + " (ожидается 1/N, type=ТИП, source=N или all)");
+    }
+
+    private boolean sample(Request request) {
+        if (cargoType != null) return request.getCargoType() == cargoType;
+        if (sourceId >= 0) return request.getSourceId() == sourceId;
+        return request.getId() % every == 0;
+    }
+
+    @Override
+    public void onStateChange(EventType type, double time, Request request, int location) {
+        if (evictedId >= 0 && !(type == EventType.TRANSFER && request.getId() == evictedId)) {
+            finishEvicted();
+        }
+        if (type == EventType.ARRIVAL) {
+            if (!sample(request)) return;
+            request.setTraced(true);
+            sampled++;
+            onArrival(time, request);
+            return;
+        }
+        if (!request.isTraced()) return;
+
+        int id = request.getId();
+        double[] starts = open.get(id);
+        if (starts == null) return; // заявка пришла до включения трассировки
+        switch (type) {
+            case BUFFER_ADD:
+                starts[1] = time;
+                openBuffer.put(id, String.format("Буфер P%d, место %d", location + 1, request.getBufferPosition()));
+                break;
+            case BUFFER_REMOVE:
+                closeBuffer(id, starts, time);
+                break;
+            case SERVICE_START:
+                starts[2] = time;
+                openDevice.put(id, "Обслуживание, прибор " + location);
+                break;
+            case SERVICE_COMPLETE:
+                span(id, openDevice.remove(id), starts[2], time, null);
+                finish(id, starts, time, "обслужена");
+                break;
+            case BUFFER_EVICTION:
+                closeBuffer(id, starts, time);
+                instant(id, "Выбивание из буфера", time, "\"buffer\":" + (location + 1));
+                evictedId = id;
+                evictedTime = time;
+                break;
+            case REJECTION:
+                instant(id, "Отказ", time, "\"buffer\":" + (location + 1));
+                finish(id, starts, time, "отказ");
+                break;
+            case TRANSFER:
+                evictedId = -1;
+                instant(id, "Переадресация", time, null);
+                finish(id, starts, time, "переадресована");
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onArrival(double time, Request request) {
+        int id = request.getId();
+        open.put(id, new double[]{time, Double.NaN, Double.NaN});
+        events.add(String.format(Locale.ROOT,
+                "{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":%d,\"args\":{\"name\":%s}}",
+                id, ResultWriter.quote(String.format("Заявка %d (%s, И%d)", id,
+                        dispatcher.getTopology().getClassName(request.getCargoClass()), request.getSourceId()))));
+
+        // Какие ворота нужной группы были заняты в момент прибытия
+        DeviceGroup group = dispatcher.getGroupForClass(request.getCargoClass());
+        StringBuilder busy = new StringBuilder();
+        for (Device device : group.getDevices()) {
+            if (!device.getCurrentRequests().isEmpty()) {
+                if (busy.length() > 0) busy.append(',');
+                busy.append(device.getId());
+            }
+        }
+        instant(id, "Прибытие", time, "\"group\":" + ResultWriter.quote(group.getName())
+                + ",\"busyGates\":[" + busy + "]");
+    }
+
+    private void finishEvicted() {
+        double[] starts = open.get(evictedId);
+        if (starts != null) {
+            finish(evictedId, starts, evictedTime, "выбита");
+        }
+        evictedId = -1;
+    }
+
+    private void closeBuffer(int id, double[] starts, double time) {
+        span(id, openBuffer.remove(id), starts[1], time, null);
+    }
+
+    private void finish(int id, double[] starts, double time, String outcome) {
+        span(id, "Заявка " + id, starts[0], time, "\"outcome\":" + ResultWriter.quote(outcome));
+        open.remove(id);
+        openBuffer.remove(id);
+        openDevice.remove(id);
+    }
+
+    private void span(int id, String name, double start, double end, String args) {
+        if (name == null || Double.isNaN(start)) return;
+        events.add(String.format(Locale.ROOT, "{\"name\":%s,\"ph\":\"X\",\"pid\":1,\"tid\":%d,\"ts\":%.3f,\"dur\":%.3f%s}",
+                ResultWriter.quote(name), id, start * MICROS_PER_MINUTE, (end - start) * MICROS_PER_MINUTE,
+                args == null ? "" : ",\"args\":{" + args + "}"));
+    }
+
+    private void instant(int id, String name, double time, String args) {
+        events.add(String.format(Locale.ROOT, "{\"name\":%s,\"ph\":\"i\",\"s\":\"t\",\"pid\":1,\"tid\":%d,\"ts\":%.3f%s}",
+                ResultWriter.quote(name), id, time * MICROS_PER_MINUTE,
+                args == null ? "" : ",\"args\":{" + args + "}"));
+    }
+
+    // Незавершенные к концу прогона заявки выгружаются с открытыми интервалами до endTime
+    public void write(Path file, double endTime) throws IOException {
+        if (evictedId >= 0) {
+            finishEvicted();
+        }
+        for (Map.Entry<Integer, double[]> entry : new ArrayList<>(open.entrySet())) {
+            int id = entry.getKey();
+            double[] starts = entry.getValue();
+            closeBuffer(id, starts, endTime);
+            span(id, openDevice.get(id), starts[2], endTime, null);
+            finish(id, starts, endTime, "в системе");
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+            for (int i = 0; i < events.size(); i++) {
+                writer.write(events.get(i));
+                writer.write(i + 1 < events.size() ? ",\n" : "\n");
+            }
+            writer.write("]}\n");
+        }
+    }
+
+    public int getSampled() { return sampled; }
+}
@@ -0,0 +1,266 @@
+package com.warehouse.utils;
+
+import com.warehouse.Simulation;
+import com.warehouse.enums.VariateMode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Кэш итогов прогонов с адресацией по содержимому: ключ - SHA-256 канонической записи сценария
+ * (все ключи топологии и горизонта в отсортированном виде, числа в единой записи), зерна,
+ * режима случайных величин и Simulation.ENGINE_VERSION. Ключи, не влияющие на отдельный прогон
+ * (имя сценария, список зерен, SLA), в запись не входят.
+ *
+ * Два уровня: в памяти (LRU на memoryEntries записей) и на диске - файл <ключ>.run в каталоге,
+ * суммарный размер не больше maxBytes, вытесняются давно не читанные (время изменения файла
+ * обновляется при чтении). Записи другой версии модели удаляются при открытии каталога.
+ *
+ * Включается -Dwarehouse.cache=каталог (-Dwarehouse.cache.maxBytes, -Dwarehouse.cache.memoryEntries)
+ * или опцией --cache пакетного режима и сервиса.
+ */
+public class ResultCache {
+    private static final long MAGIC = 0x5748_5255_4E43_4143L; // "WHRUNCAC"
+    private static final String SUFFIX = ".run";
+    private static volatile ResultCache shared = fromSystemProperties();
+
+    private final Path directory;
+    private final long maxBytes;
+    private final int memoryEntries;
+    private final LinkedHashMap<String, RunResult> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true); // ключ -> размер
+    private long diskBytes;
+    private long memoryHits;
+    private long diskHits;
+    private long misses;
+
+    public ResultCache(Path directory, long maxBytes, int memoryEntries) throws IOException {
+        if (maxBytes <= 0 || memoryEntries < 0) {
+            throw new IllegalArgumentException("Размер кэша должен быть положительным");
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.memoryEntries = memoryEntries;
+        Files.createDirectories(directory);
+        loadIndex();
+    }
+
+    private static ResultCache fromSystemProperties() {
+        String dir = System.getProperty("warehouse.cache");
+        if (dir == null) {
+            return null;
+        }
+        try {
+            return open(Paths.get(dir));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Размеры - из -Dwarehouse.cache.maxBytes (по умолчанию 256 МБ) и -Dwarehouse.cache.memoryEntries (4096)
+    public static ResultCache open(Path directory) throws IOException {
+        return new ResultCache(directory, Long.getLong("warehouse.cache.maxBytes", 256L << 20),
+                Integer.getInteger("warehouse.cache.memoryEntries", 4096));
+    }
+
+    public static ResultCache shared() { return shared; }
+    public static void setShared(ResultCache cache) { shared = cache; }
+
+    // Индекс диска в порядке давности использования; чужие версии и поврежденные файлы удаляются
+    private void loadIndex() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        Map<Path, FileTime> times = new LinkedHashMap<>();
+        for (Path file : files) {
+            times.put(file, Files.getLastModifiedTime(file));
+        }
+        files.sort((a, b) -> times.get(a).compareTo(times.get(b)));
+        for (Path file : files) {
+            if (readVersion(file) != Simulation.ENGINE_VERSION) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            String name = file.getFileName().toString();
+            long size = Files.size(file);
+            disk.put(name.substring(0, name.length() - SUFFIX.length()), size);
+            diskBytes += size;
+        }
+        evictDisk();
+    }
+
+    private static int readVersion(Path file) {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            return in.readLong() == MAGIC ? in.readInt() : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    // Итог прогона из кэша или, при промахе, от run (и сохранение)
+    public RunResult get(Scenario scenario, long seed, VariateMode mode, Supplier<RunResult> run) {
+        String key = key(scenario, seed, mode);
+        RunResult cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        RunResult result = run.get();
+        store(key, result);
+        return result;
+    }
+
+    private synchronized RunResult lookup(String key) {
+        RunResult result = memory.get(key);
+        if (result != null) {
+            memoryHits++;
+            return result;
+        }
+        if (disk.get(key) != null) {
+            Path file = directory.resolve(key + SUFFIX);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readLong() == MAGIC && in.readInt() == Simulation.ENGINE_VERSION) {
+                    result = RunResult.readFrom(in);
+                    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                    diskHits++;
+                    remember(key, result);
+                    return result;
+                }
+            } catch (NoSuchFileException e) {
+                // удален другим процессом
+            } catch (IOException e) {
+                // поврежденная запись - считаем промахом и перезапишем
+            }
+            diskBytes -= disk.remove(key);
+        }
+        misses++;
+        return null;
+    }
+
+    private synchronized void store(String key, RunResult result) {
+        remember(key, result);
+        Path file = directory.resolve(key + SUFFIX);
+        Path temp = directory.resolve(key + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeLong(MAGIC);
+                out.writeInt(Simulation.ENGINE_VERSION);
+                result.writeTo(out);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            long size = Files.size(file);
+            Long previous = disk.put(key, size);
+            diskBytes += size - (previous != null ? previous : 0);
+            evictDisk();
+        } catch (IOException e) {
+            // кэш - ускорение, а не хранилище: ошибка записи не мешает прогону
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // временный файл останется до следующей записи того же ключа
+            }
+        }
+    }
+
+    private void remember(String key, RunResult result) {
+        if (memoryEntries == 0) return;
+        memory.put(key, result);
+        if (memory.size() > memoryEntries) {
+            Iterator<String> eldest = memory.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private void evictDisk() throws IOException {
+        Iterator<Map.Entry<String, Long>> iterator = disk.entrySet().iterator();
+        while (diskBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            Files.deleteIfExists(directory.resolve(eldest.getKey() + SUFFIX));
+            diskBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    public static String key(Scenario scenario, long seed, VariateMode mode) {
+        StringBuilder canonical = new StringBuilder(2048);
+        canonical.append("engine=").append(Simulation.ENGINE_VERSION).append('\n')
+                .append("seed=").append(seed).append('\n')
+                .append("variates=").append(mode.name()).append('\n');
+        Properties properties = scenario.getConfig().getProperties();
+        Map<String, String> sorted = new TreeMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (!affectsRun(name)) continue;
+            sorted.put(name, canonicalValue(properties.getProperty(name)));
+        }
+        sorted.forEach((name, value) -> canonical.append(name).append('=').append(value).append('\n'));
+        return sha256(canonical.toString());
+    }
+
+    private static boolean affectsRun(String name) {
+        return !(name.equals("scenario.name") || name.equals("run.seed") || name.equals("run.seeds")
+                || name.equals("run.replications") || name.equals("run.antithetic") || name.startsWith("sla."));
+    }
+
+    // Числа в единой записи (8, 8.0 и 8e0 совпадают), списки через запятую без пробелов
+    private static String canonicalValue(String value) {
+        String[] parts = value.split(",");
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) sb.append(',');
+            String part = parts[i].trim();
+            try {
+                sb.append(Double.toString(Double.parseDouble(part)));
+            } catch (NumberFormatException e) {
+                sb.append(part);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized long getMemoryHits() { return memoryHits; }
+    public synchronized long getDiskHits() { return diskHits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getDiskBytes() { return diskBytes; }
+    public synchronized int getDiskEntries() { return disk.size(); }
+}
@@ -0,0 +1,170 @@
+package com.warehouse.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Машиночитаемый вывод результатов пакетного запуска: JSON (сценарий, репликации,
+ * сводка с 95% ДИ, проверки SLA) и CSV (одна строка на репликацию).
+ */
+public final class ResultWriter {
+    private ResultWriter() {
+    }
+
+    public static void writeJson(Path file, Scenario scenario, List<RunResult> results,
+                                 List<String> violations) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(toJson(scenario, results, violations));
+        }
+    }
+
+    public static String toJson(Scenario scenario, List<RunResult> results, List<String> violations) {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("{\n");
+        sb.append("  \"scenario\": ").append(quote(scenario.getName())).append(",\n");
+        sb.append("  \"duration\": ").append(number(scenario.getDuration())).append(",\n");
+        sb.append("  \"replications\": ").append(results.size()).append(",\n");
+        sb.append("  \"antithetic\": ").append(scenario.isAntithetic()).append(",\n");
+
+        sb.append("  \"summary\": {\n");
+        appendSummary(sb, "rejectionRate", RunResult.summarize(results, RunResult::getRejectionRate), true);
+        appendSummary(sb, "evictionRate", RunResult.summarize(results, RunResult::getEvictionRate), true);
+        appendSummary(sb, "perishableRejectionRate", RunResult.summarize(results, RunResult::getPerishableRejectionRate), true);
+        appendSummary(sb, "perishableEvictionRate", RunResult.summarize(results, RunResult::getPerishableEvictionRate), true);
+        appendSummary(sb, "averageWaitingTime", RunResult.summarize(results, RunResult::getAverageWaitingTime), true);
+        appendSummary(sb, "averageSystemTime", RunResult.summarize(results, RunResult::getAverageSystemTime), false);
+        sb.append("  },\n");
+
+        sb.append("  \"sla\": {\"passed\": ").append(violations.isEmpty()).append(", \"violations\": [");
+        for (int i = 0; i < violations.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(quote(violations.get(i)));
+        }
+        sb.append("]},\n");
+
+        sb.append("  \"runs\": [\n");
+        for (int i = 0; i < results.size(); i++) {
+            appendRun(sb, results.get(i));
+            sb.append(i + 1 < results.size() ? ",\n" : "\n");
+        }
+        sb.append("  ]\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static void appendSummary(StringBuilder sb, String name, SampleStats stats, boolean comma) {
+        sb.append("    ").append(quote(name)).append(": {\"mean\": ").append(number(stats.getMean()))
+                .append(", \"ci95\": ").append(number(stats.getHalfWidth95()))
+                .append(", \"min\": ").append(number(stats.getMin()))
+                .append(", \"max\": ").append(number(stats.getMax())).append('}')
+                .append(comma ? ",\n" : "\n");
+    }
+
+    public static void appendRun(StringBuilder sb, RunResult r) {
+        sb.append("    {\"seed\": ").append(r.getSeed())
+                .append(", \"variates\": ").append(quote(r.getVariateMode().name()))
+                .append(", \"wallMillis\": ").append(r.getWallMillis())
+                .append(", \"arrivals\": ").append(r.getArrivals())
+                .append(", \"completed\": ").append(r.getCompleted())
+                .append(", \"rejected\": ").append(r.getRejected())
+                .append(", \"evicted\": ").append(r.getEvicted())
+                .append(", \"transferred\": ").append(r.getTransferred())
+                .append(", \"gateFailures\": ").append(r.getGateFailures())
+                .append(", \"gateDowntime\": ").append(number(r.getGateDowntime()))
+                .append(", \"rejectionRate\": ").append(number(r.getRejectionRate()))
+                .append(", \"perishableRejectionRate\": ").append(number(r.getPerishableRejectionRate()))
+                .append(", \"averageWaitingTime\": ").append(number(r.getAverageWaitingTime()))
+                .append(", \"averageServiceTime\": ").append(number(r.getAverageServiceTime()))
+                .append(", \"averageSystemTime\": ").append(number(r.getAverageSystemTime()))
+                .append(", \"classes\": [");
+        for (int c = 0; c < r.getClassCount(); c++) {
+            if (c > 0) sb.append(", ");
+            sb.append("{\"name\": ").append(quote(r.getClassName(c)))
+                    .append(", \"arrivals\": ").append(r.getClassArrivals(c))
+                    .append(", \"completed\": ").append(r.getClassCompleted(c))
+                    .append(", \"rejected\": ").append(r.getClassRejected(c))
+                    .append(", \"evicted\": ").append(r.getClassEvicted(c)).append('}');
+        }
+        sb.append("]}");
+    }
+
+    public static void writeCsv(Path file, Scenario scenario, List<RunResult> results) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(csvHeader(scenario.getTopology().getClassCount()));
+            writer.write('\n');
+            for (RunResult result : results) {
+                writer.write(csvRow(scenario.getName(), result));
+                writer.write('\n');
+            }
+        }
+    }
+
+    public static String csvHeader(int classCount) {
+        StringBuilder sb = new StringBuilder("scenario,seed,wall_ms,arrivals,completed,rejected,evicted,"
+                + "rejection_rate,perishable_rejection_rate,avg_waiting,avg_service,avg_system");
+        for (int c = 0; c < classCount; c++) {
+            sb.append(",class").append(c).append("_arrivals")
+                    .append(",class").append(c).append("_rejected")
+                    .append(",class").append(c).append("_evicted");
+        }
+        return sb.toString();
+    }
+
+    public static String csvRow(String scenarioName, RunResult r) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(csvField(scenarioName)).append(',').append(r.getSeed()).append(',').append(r.getWallMillis())
+                .append(',').append(r.getArrivals()).append(',').append(r.getCompleted())
+                .append(',').append(r.getRejected()).append(',').append(r.getEvicted())
+                .append(',').append(number(r.getRejectionRate()))
+                .append(',').append(number(r.getPerishableRejectionRate()))
+                .append(',').append(number(r.getAverageWaitingTime()))
+                .append(',').append(number(r.getAverageServiceTime()))
+                .append(',').append(number(r.getAverageSystemTime()));
+        for (int c = 0; c < r.getClassCount(); c++) {
+            sb.append(',').append(r.getClassArrivals(c))
+                    .append(',').append(r.getClassRejected(c))
+                    .append(',').append(r.getClassEvicted(c));
+        }
+        return sb.toString();
+    }
+
+    public static String number(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "null";
+        }
+        return String.format(Locale.ROOT, "%.6g", value);
+    }
+
+    public static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (ch < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        sb.append(ch);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
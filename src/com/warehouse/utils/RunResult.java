@@ -0,0 +1,236 @@
+package com.warehouse.utils;
+
+import com.warehouse.enums.CargoType;
+import com.warehouse.enums.VariateMode;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Итог одной репликации в машиночитаемом виде (без ссылок на объекты модели).
+ */
+public class RunResult {
+    private final long seed;
+    private final VariateMode variateMode;
+    private final double duration;
+    private final long wallMillis;
+    private final int arrivals;
+    private final int completed;
+    private final int rejected;
+    private final int evicted;
+    private final int transferred;
+    private final int gateFailures;
+    private final double gateDowntime;
+    private final int perishableArrivals;
+    private final int perishableRejected;
+    private final int perishableEvicted;
+    private final String[] classNames;
+    private final int[] classArrivals;
+    private final int[] classCompleted;
+    private final int[] classRejected;
+    private final int[] classEvicted;
+    private final double averageWaitingTime;
+    private final double averageServiceTime;
+    private final double averageSystemTime;
+    private final double maxSystemTime;
+
+    public RunResult(long seed, double duration, long wallMillis, Statistics statistics, TopologyConfig topology) {
+        this(seed, VariateMode.STANDARD, duration, wallMillis, statistics, topology);
+    }
+
+    public RunResult(long seed, VariateMode variateMode, double duration, long wallMillis, Statistics statistics,
+                     TopologyConfig topology) {
+        this.seed = seed;
+        this.variateMode = variateMode;
+        this.duration = duration;
+        this.wallMillis = wallMillis;
+        this.arrivals = statistics.getTotalArrivals();
+        this.completed = statistics.getTotalCompleted();
+        this.rejected = statistics.getTotalRejected();
+        this.evicted = statistics.getTotalEvicted();
+        this.transferred = statistics.getTotalTransferred();
+        this.gateFailures = statistics.getGateFailures();
+        this.gateDowntime = statistics.getGateDowntime();
+
+        int classes = statistics.getClassCount();
+        this.classNames = new String[classes];
+        this.classArrivals = new int[classes];
+        this.classCompleted = new int[classes];
+        this.classRejected = new int[classes];
+        this.classEvicted = new int[classes];
+        int pArrivals = 0;
+        int pRejected = 0;
+        int pEvicted = 0;
+        for (int c = 0; c < classes; c++) {
+            classNames[c] = statistics.getClassName(c);
+            classArrivals[c] = statistics.getArrivals(c);
+            classCompleted[c] = statistics.getCompleted(c);
+            classRejected[c] = statistics.getRejected(c);
+            classEvicted[c] = statistics.getEvicted(c);
+            if (topology.getClassType(c) == CargoType.PERISHABLE) {
+                pArrivals += classArrivals[c];
+                pRejected += classRejected[c];
+                pEvicted += classEvicted[c];
+            }
+        }
+        this.perishableArrivals = pArrivals;
+        this.perishableRejected = pRejected;
+        this.perishableEvicted = pEvicted;
+
+        this.averageWaitingTime = statistics.getAverageWaitingTime();
+        this.averageServiceTime = statistics.getAverageServiceTime();
+        this.averageSystemTime = statistics.getAverageSystemTime();
+        this.maxSystemTime = statistics.getMaxSystemTime();
+    }
+
+    // Чтение записи writeTo (кэш результатов)
+    private RunResult(DataInput in) throws IOException {
+        this.seed = in.readLong();
+        this.variateMode = VariateMode.valueOf(in.readUTF());
+        this.duration = in.readDouble();
+        this.wallMillis = in.readLong();
+        this.arrivals = in.readInt();
+        this.completed = in.readInt();
+        this.rejected = in.readInt();
+        this.evicted = in.readInt();
+        this.transferred = in.readInt();
+        this.gateFailures = in.readInt();
+        this.gateDowntime = in.readDouble();
+        this.perishableArrivals = in.readInt();
+        this.perishableRejected = in.readInt();
+        this.perishableEvicted = in.readInt();
+        int classes = in.readInt();
+        this.classNames = new String[classes];
+        this.classArrivals = new int[classes];
+        this.classCompleted = new int[classes];
+        this.classRejected = new int[classes];
+        this.classEvicted = new int[classes];
+        for (int c = 0; c < classes; c++) {
+            classNames[c] = in.readUTF();
+            classArrivals[c] = in.readInt();
+            classCompleted[c] = in.readInt();
+            classRejected[c] = in.readInt();
+            classEvicted[c] = in.readInt();
+        }
+        this.averageWaitingTime = in.readDouble();
+        this.averageServiceTime = in.readDouble();
+        this.averageSystemTime = in.readDouble();
+        this.maxSystemTime = in.readDouble();
+    }
+
+    public static RunResult readFrom(DataInput in) throws IOException {
+        return new RunResult(in);
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(seed);
+        out.writeUTF(variateMode.name());
+        out.writeDouble(duration);
+        out.writeLong(wallMillis);
+        out.writeInt(arrivals);
+        out.writeInt(completed);
+        out.writeInt(rejected);
+        out.writeInt(evicted);
+        out.writeInt(transferred);
+        out.writeInt(gateFailures);
+        out.writeDouble(gateDowntime);
+        out.writeInt(perishableArrivals);
+        out.writeInt(perishableRejected);
+        out.writeInt(perishableEvicted);
+        out.writeInt(classNames.length);
+        for (int c = 0; c < classNames.length; c++) {
+            out.writeUTF(classNames[c]);
+            out.writeInt(classArrivals[c]);
+            out.writeInt(classCompleted[c]);
+            out.writeInt(classRejected[c]);
+            out.writeInt(classEvicted[c]);
+        }
+        out.writeDouble(averageWaitingTime);
+        out.writeDouble(averageServiceTime);
+        out.writeDouble(averageSystemTime);
+        out.writeDouble(maxSystemTime);
+    }
+
+    public static double mean(List<RunResult> results, ToDoubleFunction<RunResult> metric) {
+        return summarize(results, metric).getMean();
+    }
+
+    public static SampleStats summarize(List<RunResult> results, ToDoubleFunction<RunResult> metric) {
+        SampleStats stats = new SampleStats();
+        for (double value : observations(results, metric)) {
+            stats.add(value);
+        }
+        return stats;
+    }
+
+    // Независимые наблюдения: антитетическая пара (DIRECT и следом ANTITHETIC того же зерна) дает одно - среднее пары
+    public static double[] observations(List<RunResult> results, ToDoubleFunction<RunResult> metric) {
+        double[] values = new double[results.size()];
+        int count = 0;
+        for (int i = 0; i < results.size(); i++) {
+            RunResult result = results.get(i);
+            double value = metric.applyAsDouble(result);
+            if (result.variateMode == VariateMode.DIRECT && i + 1 < results.size()
+                    && results.get(i + 1).variateMode == VariateMode.ANTITHETIC
+                    && results.get(i + 1).seed == result.seed) {
+                value = (value + metric.applyAsDouble(results.get(++i))) / 2;
+            }
+            values[count++] = value;
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    // Разность b - a по наблюдениям с одинаковыми зернами (общие случайные числа): ДИ парной разности
+    public static SampleStats pairedDifference(List<RunResult> a, List<RunResult> b,
+                                               ToDoubleFunction<RunResult> metric) {
+        double[] first = observations(a, metric);
+        double[] second = observations(b, metric);
+        if (first.length != second.length) {
+            throw new IllegalArgumentException("Число наблюдений сравниваемых конфигураций различается");
+        }
+        SampleStats stats = new SampleStats();
+        for (int i = 0; i < first.length; i++) {
+            stats.add(second[i] - first[i]);
+        }
+        return stats;
+    }
+
+    private static double rate(int numerator, int denominator) {
+        return denominator > 0 ? (double) numerator / denominator : 0;
+    }
+
+    public double getRejectionRate() { return rate(rejected, arrivals); }
+    public double getEvictionRate() { return rate(evicted, arrivals); }
+    public double getPerishableRejectionRate() { return rate(perishableRejected, perishableArrivals); }
+    public double getPerishableEvictionRate() { return rate(perishableEvicted, perishableArrivals); }
+    public double getClassRejectionRate(int cargoClass) { return rate(classRejected[cargoClass], classArrivals[cargoClass]); }
+
+    public long getSeed() { return seed; }
+    public VariateMode getVariateMode() { return variateMode; }
+    public double getDuration() { return duration; }
+    public long getWallMillis() { return wallMillis; }
+    public int getArrivals() { return arrivals; }
+    public int getCompleted() { return completed; }
+    public int getRejected() { return rejected; }
+    public int getEvicted() { return evicted; }
+    public int getTransferred() { return transferred; }
+    public int getGateFailures() { return gateFailures; }
+    public double getGateDowntime() { return gateDowntime; }
+    public int getPerishableArrivals() { return perishableArrivals; }
+    public int getPerishableRejected() { return perishableRejected; }
+    public int getPerishableEvicted() { return perishableEvicted; }
+    public int getClassCount() { return classNames.length; }
+    public String getClassName(int cargoClass) { return classNames[cargoClass]; }
+    public int getClassArrivals(int cargoClass) { return classArrivals[cargoClass]; }
+    public int getClassCompleted(int cargoClass) { return classCompleted[cargoClass]; }
+    public int getClassRejected(int cargoClass) { return classRejected[cargoClass]; }
+    public int getClassEvicted(int cargoClass) { return classEvicted[cargoClass]; }
+    public double getAverageWaitingTime() { return averageWaitingTime; }
+    public double getAverageServiceTime() { return averageServiceTime; }
+    public double getAverageSystemTime() { return averageSystemTime; }
+    public double getMaxSystemTime() { return maxSystemTime; }
+}
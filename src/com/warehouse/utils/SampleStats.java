@@ -0,0 +1,98 @@
+package com.warehouse.utils;
+
+/**
+ * Выборочные характеристики по репликациям: среднее, дисперсия
+ * и полуширина 95% доверительного интервала (t-распределение).
+ */
+public class SampleStats {
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    // Алгоритм Уэлфорда: устойчив к накоплению ошибок округления
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public long getCount() { return count; }
+    public double getMean() { return count > 0 ? mean : Double.NaN; }
+    public double getMin() { return min; }
+    public double getMax() { return max; }
+
+    public double getVariance() {
+        return count > 1 ? m2 / (count - 1) : 0;
+    }
+
+    public double getStandardError() {
+        return count > 1 ? Math.sqrt(getVariance() / count) : Double.POSITIVE_INFINITY;
+    }
+
+    public double getHalfWidth95() {
+        return count > 1 ? tQuantile975(count - 1) * getStandardError() : Double.POSITIVE_INFINITY;
+    }
+
+    // Квантиль 0.975 распределения Стьюдента (таблица для малых степеней свободы)
+    public static double tQuantile975(long degreesOfFreedom) {
+        final double[] table = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+                2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+                2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+        if (degreesOfFreedom <= 0) return Double.POSITIVE_INFINITY;
+        if (degreesOfFreedom <= table.length) return table[(int) degreesOfFreedom - 1];
+        return 1.960 + 2.4 / degreesOfFreedom;
+    }
+
+    // Квантиль уровня p (0.5 <= p < 1) распределения Стьюдента: бисекция по точной функции распределения
+    public static double tQuantile(double p, long degreesOfFreedom) {
+        if (!(p >= 0.5 && p < 1)) {
+            throw new IllegalArgumentException("Уровень квантиля вне [0.5, 1): " + p);
+        }
+        if (degreesOfFreedom <= 0) return Double.POSITIVE_INFINITY;
+        double low = 0;
+        double high = 1;
+        while (tDistribution(high, degreesOfFreedom) < p) {
+            high *= 2;
+        }
+        for (int i = 0; i < 100 && high - low > 1e-9 * high; i++) {
+            double middle = (low + high) / 2;
+            if (tDistribution(middle, degreesOfFreedom) < p) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return high;
+    }
+
+    // P(T <= t), t >= 0, для целого числа степеней свободы (Абрамовиц, Стиган 26.7.3, 26.7.4)
+    private static double tDistribution(double t, long degreesOfFreedom) {
+        double theta = Math.atan(t / Math.sqrt(degreesOfFreedom));
+        double sin = Math.sin(theta);
+        double cos2 = Math.cos(theta) * Math.cos(theta);
+        double central;
+        if (degreesOfFreedom % 2 == 1) {
+            double sum = 0;
+            double term = Math.cos(theta);
+            for (long k = 3; k <= degreesOfFreedom; k += 2) {
+                sum += term;
+                term *= cos2 * (k - 1) / k;
+            }
+            central = 2 / Math.PI * (theta + sin * sum);
+        } else {
+            double sum = 1;
+            double term = 1;
+            for (long k = 2; k < degreesOfFreedom; k += 2) {
+                term *= cos2 * (k - 1) / k;
+                sum += term;
+            }
+            central = sin * sum;
+        }
+        return 0.5 + central / 2;
+    }
+}
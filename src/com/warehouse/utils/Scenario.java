@@ -0,0 +1,124 @@
+package com.warehouse.utils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Сценарий пакетного запуска: топология хаба, горизонт, зерна репликаций и SLA-пороги.
+ * Хранится в том же формате .properties, что и config.properties, плюс ключи
+ * scenario.name, run.seed, run.replications, run.seeds, run.antithetic, sla.*.
+ */
+public class Scenario {
+    private final String name;
+    private final SimulationConfig config;
+    private final TopologyConfig topology;
+    private final double duration;
+    private final long[] seeds;
+    private final double maxPerishableRejectionRate;
+    private final double maxRejectionRate;
+    private final boolean parallelLanes;
+    private final double laneWindow;
+    private final boolean antithetic;
+
+    public Scenario(String name, SimulationConfig config) {
+        this.name = config.getString("scenario.name", name);
+        this.config = config;
+        this.topology = TopologyConfig.load(config);
+        this.duration = config.getSimulationDuration();
+        if (!(duration > 0)) {
+            throw new IllegalArgumentException("Параметр simulation.duration должен быть положительным");
+        }
+        this.seeds = parseSeeds(config);
+        this.maxPerishableRejectionRate = config.getDouble("sla.perishable.maxRejectionRate", Double.NaN);
+        this.maxRejectionRate = config.getDouble("sla.maxRejectionRate", Double.NaN);
+        this.parallelLanes = Boolean.parseBoolean(config.getString("run.parallelLanes", "false"));
+        this.laneWindow = config.getDouble("run.laneWindow", 60);
+        // Каждое зерно - антитетическая пара прогонов (прямой и отраженный), наблюдение - среднее пары
+        this.antithetic = Boolean.parseBoolean(config.getString("run.antithetic", "false"));
+    }
+
+    public static Scenario load(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        String name = fileName.endsWith(".properties")
+                ? fileName.substring(0, fileName.length() - ".properties".length()) : fileName;
+        return new Scenario(name, SimulationConfig.load(file));
+    }
+
+    private static long[] parseSeeds(SimulationConfig config) {
+        long[] explicit = config.getLongList("run.seeds", null);
+        if (explicit != null) {
+            return explicit;
+        }
+        long firstSeed = Long.parseLong(config.getString("run.seed", "1"));
+        int replications = config.getInt("run.replications", 1);
+        if (replications <= 0) {
+            throw new IllegalArgumentException("Параметр run.replications должен быть положительным");
+        }
+        long[] result = new long[replications];
+        for (int i = 0; i < replications; i++) {
+            result[i] = firstSeed + i;
+        }
+        return result;
+    }
+
+    // Нарушения SLA по средним значениям репликаций; пустой список - SLA выполнен
+    public List<String> checkSla(List<RunResult> results) {
+        List<String> violations = new ArrayList<>();
+        if (!Double.isNaN(maxPerishableRejectionRate)) {
+            double rate = RunResult.mean(results, RunResult::getPerishableRejectionRate);
+            if (rate > maxPerishableRejectionRate) {
+                violations.add(String.format(Locale.ROOT,
+                        "perishableRejectionRate %.4f > %.4f", rate, maxPerishableRejectionRate));
+            }
+        }
+        if (!Double.isNaN(maxRejectionRate)) {
+            double rate = RunResult.mean(results, RunResult::getRejectionRate);
+            if (rate > maxRejectionRate) {
+                violations.add(String.format(Locale.ROOT,
+                        "rejectionRate %.4f > %.4f", rate, maxRejectionRate));
+            }
+        }
+        return violations;
+    }
+
+    // Опции --seed/--replications важнее ключей сценария. Явный список run.seeds ими заменяется:
+    // первое зерно и число репликаций, не заданные опциями, берутся из списка
+    public Scenario withSeedOverrides(Long seed, Integer replications) {
+        if (seed == null && replications == null) {
+            return this;
+        }
+        SimulationConfig copy = config.copy();
+        boolean explicit = config.contains("run.seeds");
+        copy.setProperty("run.seed", Long.toString(seed != null ? seed : seeds[0]));
+        copy.setProperty("run.replications", Integer.toString(replications != null ? replications
+                : explicit ? seeds.length : config.getInt("run.replications", 1)));
+        copy.removeProperty("run.seeds");
+        Scenario overridden = new Scenario(name, copy);
+        if (explicit) {
+            long[] used = overridden.seeds;
+            System.err.printf(Locale.ROOT, "%s: run.seeds заменен опциями --seed/--replications, зерна %d..%d%n",
+                    overridden.name, used[0], used[used.length - 1]);
+        }
+        return overridden;
+    }
+
+    public Scenario withOverride(String key, String value) {
+        SimulationConfig copy = config.copy();
+        copy.setProperty(key, value);
+        return new Scenario(name, copy);
+    }
+
+    public String getName() { return name; }
+    public SimulationConfig getConfig() { return config; }
+    public TopologyConfig getTopology() { return topology; }
+    public double getDuration() { return duration; }
+    public long[] getSeeds() { return seeds.clone(); }
+    public double getMaxPerishableRejectionRate() { return maxPerishableRejectionRate; }
+    public double getMaxRejectionRate() { return maxRejectionRate; }
+    public boolean isParallelLanes() { return parallelLanes; }
+    public double getLaneWindow() { return laneWindow; }
+    public boolean isAntithetic() { return antithetic; }
+}
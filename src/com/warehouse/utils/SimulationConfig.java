@@ -2,9 +2,16 @@ package com.warehouse.utils;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Properties;
 
 public class SimulationConfig {
+    private static final double[] DEFAULT_CLASS_MIX = {0.1, 0.9};
     private final Properties properties;
 
     public SimulationConfig() {
@@ -12,27 +19,149 @@ public class SimulationConfig {
         loadProperties();
     }
 
+    public SimulationConfig(Properties properties) {
+        this.properties = new Properties();
+        setDefaultProperties();
+        this.properties.putAll(properties);
+    }
+
+    public static SimulationConfig load(Path file) throws IOException {
+        Properties loaded = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            loaded.load(reader);
+        }
+        return new SimulationConfig(loaded);
+    }
+
     private void loadProperties() {
         try (InputStream input = getClass().getClassLoader()
                 .getResourceAsStream("config.properties")) {
+            setDefaultProperties();
             if (input != null) {
-                properties.load(input);
-            } else {
-                setDefaultProperties();
+                properties.load(new InputStreamReader(input, StandardCharsets.UTF_8));
             }
         } catch (IOException e) {
             setDefaultProperties();
         }
     }
 
+    // По умолчанию - текущая конфигурация хаба: 2 класса груза, 2 буфера, 2 группы ворот, 3 источника
     private void setDefaultProperties() {
         properties.setProperty("simulation.duration", "1440");
-        properties.setProperty("source.lambda", "0.3");
-        properties.setProperty("buffer.perishable.capacity", "5");
-        properties.setProperty("buffer.regular.capacity", "8");
-        properties.setProperty("device1.minServiceTime", "15");
-        properties.setProperty("device1.maxServiceTime", "45");
-        properties.setProperty("device2.minServiceTime", "20");
-        properties.setProperty("device2.maxServiceTime", "60");
-    }
-}
\ No newline at end of file
+
+        properties.setProperty("cargo.classes", "2");
+        properties.setProperty("cargo.0.name", "Скоропортящийся");
+        properties.setProperty("cargo.0.type", "PERISHABLE");
+        properties.setProperty("cargo.1.name", "Обычный");
+        properties.setProperty("cargo.1.type", "REGULAR");
+
+        properties.setProperty("buffers", "2");
+        properties.setProperty("buffer.0.capacity", "8");
+        properties.setProperty("buffer.1.capacity", "10");
+
+        properties.setProperty("groups", "2");
+        properties.setProperty("group.0.devices", "2");
+        properties.setProperty("group.0.minServiceTime", "5");
+        properties.setProperty("group.0.maxServiceTime", "10");
+        properties.setProperty("group.1.devices", "2");
+        properties.setProperty("group.1.minServiceTime", "8");
+        properties.setProperty("group.1.maxServiceTime", "15");
+
+        properties.setProperty("sources", "3");
+        properties.setProperty("source.0.lambda", "0.5");
+        properties.setProperty("source.1.lambda", "0.4");
+        properties.setProperty("source.2.lambda", "0.5");
+    }
+
+    // Доли классов без source.mix: для классов по умолчанию - доли текущего хаба, для своего
+    // числа классов - поровну (доли по умолчанию к чужому списку классов не относятся)
+    public static double[] defaultClassMix(int classes) {
+        if (classes == DEFAULT_CLASS_MIX.length) {
+            return DEFAULT_CLASS_MIX.clone();
+        }
+        double[] mix = new double[classes];
+        Arrays.fill(mix, 1.0 / classes);
+        return mix;
+    }
+
+    public String getString(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue).trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Параметр " + key + " должен быть целым числом: " + value);
+        }
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) return defaultValue;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Параметр " + key + " должен быть числом: " + value);
+        }
+    }
+
+    public double[] getDoubleList(String key, double[] defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) return defaultValue;
+        String[] parts = value.split(",");
+        double[] result = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                result[i] = Double.parseDouble(parts[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Параметр " + key + " должен быть списком чисел: " + value);
+            }
+        }
+        return result;
+    }
+
+    // Целые без потери точности (зерна выше 2^53 через double искажаются)
+    public long[] getLongList(String key, long[] defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) return defaultValue;
+        String[] parts = value.split(",");
+        long[] result = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                result[i] = Long.parseLong(parts[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Параметр " + key + " должен быть списком целых чисел: " + value);
+            }
+        }
+        return result;
+    }
+
+    public boolean contains(String key) {
+        return properties.containsKey(key);
+    }
+
+    public void setProperty(String key, String value) {
+        properties.setProperty(key, value);
+    }
+
+    public void removeProperty(String key) {
+        properties.remove(key);
+    }
+
+    public double getSimulationDuration() {
+        return getDouble("simulation.duration", 24 * 60);
+    }
+
+    public Properties getProperties() {
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        return copy;
+    }
+
+    public SimulationConfig copy() {
+        return new SimulationConfig(properties);
+    }
+}
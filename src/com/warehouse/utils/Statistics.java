@@ -9,23 +9,95 @@ public class Statistics {
     private int totalCompleted;
     private int totalRejected;
     private int totalEvicted;
+    private int totalTransferred;
+    private int gateFailures;
+    private int interruptedServices;
+    private double gateDowntime; // суммарный простой ворот (поломки и плановое обслуживание), мин
 
     private final Map<CargoType, Integer> arrivalsByType;
     private final Map<CargoType, Integer> completedByType;
     private final Map<CargoType, Integer> rejectedByType;
 
-    private final List<Double> waitingTimes;
-    private final List<Double> serviceTimes;
-    private final List<Double> systemTimes;
+    // Счетчики по классам груза топологии (индекс = номер класса)
+    private final String[] classNames;
+    private final int[] arrivalsByClass;
+    private final int[] completedByClass;
+    private final int[] rejectedByClass;
+    private final int[] evictedByClass;
+
+    // Временные характеристики хранятся агрегатами (число, сумма, максимум):
+    // память не растет с числом заявок, а копия статистики для ветвления стоит O(1)
+    private final TimeAccumulator waitingTimes;
+    private final TimeAccumulator serviceTimes;
+    private final TimeAccumulator systemTimes;
+
+    private static final class TimeAccumulator {
+        private long count;
+        private double sum;
+        private double max;
+
+        void add(double value) {
+            if (count == 0 || value > max) {
+                max = value;
+            }
+            count++;
+            sum += value;
+        }
+
+        void merge(TimeAccumulator other) {
+            if (other.count == 0) return;
+            if (count == 0 || other.max > max) {
+                max = other.max;
+            }
+            count += other.count;
+            sum += other.sum;
+        }
+
+        TimeAccumulator copy() {
+            TimeAccumulator copy = new TimeAccumulator();
+            copy.count = count;
+            copy.sum = sum;
+            copy.max = max;
+            return copy;
+        }
+
+        boolean isEmpty() { return count == 0; }
+        double average() { return count > 0 ? sum / count : 0; }
+        double max() { return count > 0 ? max : 0; }
+    }
 
     public Statistics() {
+        this(TopologyConfig.defaults());
+    }
+
+    public Statistics(TopologyConfig topology) {
+        this(classNames(topology), new TimeAccumulator(), new TimeAccumulator(), new TimeAccumulator());
+    }
+
+    private static String[] classNames(TopologyConfig topology) {
+        String[] names = new String[topology.getClassCount()];
+        for (int c = 0; c < names.length; c++) {
+            names[c] = topology.getClassName(c);
+        }
+        return names;
+    }
+
+    private Statistics(String[] classNames, TimeAccumulator waitingTimes, TimeAccumulator serviceTimes,
+                       TimeAccumulator systemTimes) {
+        int classes = classNames.length;
+        this.classNames = classNames;
+        this.arrivalsByClass = new int[classes];
+        this.completedByClass = new int[classes];
+        this.rejectedByClass = new int[classes];
+        this.evictedByClass = new int[classes];
+
         this.arrivalsByType = new EnumMap<>(CargoType.class);
         this.completedByType = new EnumMap<>(CargoType.class);
         this.rejectedByType = new EnumMap<>(CargoType.class);
 
-        this.waitingTimes = new ArrayList<>();
-        this.serviceTimes = new ArrayList<>();
-        this.systemTimes = new ArrayList<>();
+        this.waitingTimes = waitingTimes;
+        this.serviceTimes = serviceTimes;
+        this.systemTimes = systemTimes;
 
         // Инициализация счетчиков для всех типов грузов
         for (CargoType type : CargoType.values()) {
@@ -38,11 +110,13 @@ public class Statistics {
     public void recordArrival(Request request) {
         totalArrivals++;
         arrivalsByType.merge(request.getCargoType(), 1, Integer::sum);
+        arrivalsByClass[request.getCargoClass()]++;
     }
 
     public void recordServiceCompletion(Request request, double currentTime) {
         totalCompleted++;
         completedByType.merge(request.getCargoType(), 1, Integer::sum);
+        completedByClass[request.getCargoClass()]++;
 
         double systemTime = currentTime - request.getArrivalTime();
         systemTimes.add(systemTime);
@@ -59,13 +133,90 @@ public class Statistics {
     public void recordRejection(Request request) {
         totalRejected++;
         rejectedByType.merge(request.getCargoType(), 1, Integer::sum);
-        System.out.printf(">>> ❌ СТАТИСТИКА: Заявка %d ОТКЛОНЕНА%n", request.getId());
+        rejectedByClass[request.getCargoClass()]++;
+        if (Log.isEnabled()) {
+            System.out.printf(">>> ❌ СТАТИСТИКА: Заявка %d ОТКЛОНЕНА%n", request.getId());
+        }
     }
 
     public void recordEviction(Request request, double currentTime) {
         totalEvicted++;
-        System.out.printf(">>> 🗑️ СТАТИСТИКА: Заявка %d ВЫТЕСНЕНА (время ожидания: %.2f мин)%n",
-                request.getId(), request.getWaitingTime(currentTime));
+        evictedByClass[request.getCargoClass()]++;
+        if (Log.isEnabled()) {
+            System.out.printf(">>> 🗑️ СТАТИСТИКА: Заявка %d ВЫТЕСНЕНА (время ожидания: %.2f мин)%n",
+                    request.getId(), request.getWaitingTime(currentTime));
+        }
+    }
+
+    // Сложение статистики другой симуляции с той же топологией (например, параллельной дорожки)
+    public void merge(Statistics other) {
+        if (other.classNames.length != classNames.length) {
+            throw new IllegalArgumentException("Статистики разных топологий нельзя объединить");
+        }
+        totalArrivals += other.totalArrivals;
+        totalCompleted += other.totalCompleted;
+        totalRejected += other.totalRejected;
+        totalEvicted += other.totalEvicted;
+        totalTransferred += other.totalTransferred;
+        gateFailures += other.gateFailures;
+        interruptedServices += other.interruptedServices;
+        gateDowntime += other.gateDowntime;
+        for (CargoType type : CargoType.values()) {
+            arrivalsByType.merge(type, other.arrivalsByType.get(type), Integer::sum);
+            completedByType.merge(type, other.completedByType.get(type), Integer::sum);
+            rejectedByType.merge(type, other.rejectedByType.get(type), Integer::sum);
+        }
+        for (int c = 0; c < classNames.length; c++) {
+            arrivalsByClass[c] += other.arrivalsByClass[c];
+            completedByClass[c] += other.completedByClass[c];
+            rejectedByClass[c] += other.rejectedByClass[c];
+            evictedByClass[c] += other.evictedByClass[c];
+        }
+        waitingTimes.merge(other.waitingTimes);
+        serviceTimes.merge(other.serviceTimes);
+        systemTimes.merge(other.systemTimes);
+    }
+
+    // Независимая копия для ветви симуляции
+    public Statistics copy() {
+        Statistics copy = new Statistics(classNames, waitingTimes.copy(), serviceTimes.copy(), systemTimes.copy());
+        copy.totalArrivals = totalArrivals;
+        copy.totalCompleted = totalCompleted;
+        copy.totalRejected = totalRejected;
+        copy.totalEvicted = totalEvicted;
+        copy.totalTransferred = totalTransferred;
+        copy.gateFailures = gateFailures;
+        copy.interruptedServices = interruptedServices;
+        copy.gateDowntime = gateDowntime;
+        copy.arrivalsByType.putAll(arrivalsByType);
+        copy.completedByType.putAll(completedByType);
+        copy.rejectedByType.putAll(rejectedByType);
+        System.arraycopy(arrivalsByClass, 0, copy.arrivalsByClass, 0, classNames.length);
+        System.arraycopy(completedByClass, 0, copy.completedByClass, 0, classNames.length);
+        System.arraycopy(rejectedByClass, 0, copy.rejectedByClass, 0, classNames.length);
+        System.arraycopy(evictedByClass, 0, copy.evictedByClass, 0, classNames.length);
+        return copy;
+    }
+
+    // Пустая статистика с теми же классами грузов
+    public Statistics emptyCopy() {
+        return new Statistics(classNames, new TimeAccumulator(), new TimeAccumulator(), new TimeAccumulator());
+    }
+
+    public void recordTransfer(Request request) {
+        totalTransferred++;
+    }
+
+    public void recordGateFailure() {
+        gateFailures++;
+    }
+
+    public void recordServiceInterruptions(int count) {
+        interruptedServices += count;
+    }
+
+    public void recordGateDowntime(double minutes) {
+        gateDowntime += minutes;
     }
 
     public void displayCurrentStats() {
@@ -95,20 +246,27 @@ public class Statistics {
         System.out.printf("Успешно обслужено: %d (%.1f%%)%n", totalCompleted, getCompletionRate() * 100);
         System.out.printf("Получили отказ: %d (%.1f%%)%n", totalRejected, getRejectionRate() * 100);
         System.out.printf("Вытеснено из буфера: %d%n", totalEvicted);
+        if (totalTransferred > 0) {
+            System.out.printf("Переадресовано в другие хабы: %d%n", totalTransferred);
+        }
+        if (gateFailures > 0 || gateDowntime > 0) {
+            System.out.printf("Поломок ворот: %d | Прервано обслуживаний: %d | Простой ворот: %.1f мин%n",
+                    gateFailures, interruptedServices, gateDowntime);
+        }
     }
 
     private void printCargoTypeStats() {
         printSubsection("🚚 СТАТИСТИКА ПО ТИПАМ ГРУЗОВ");
 
-        for (CargoType type : CargoType.values()) {
-            int arrivals = arrivalsByType.get(type);
-            int completed = completedByType.get(type);
-            int rejected = rejectedByType.get(type);
+        for (int c = 0; c < classNames.length; c++) {
+            int arrivals = arrivalsByClass[c];
+            int completed = completedByClass[c];
+            int rejected = rejectedByClass[c];
 
             double completionRate = calculateRate(completed, arrivals);
             double rejectionRate = calculateRate(rejected, arrivals);
 
-            System.out.printf("%s:%n", type.getDescription());
+            System.out.printf("%s:%n", classNames[c]);
             System.out.printf("  Прибыло: %d | Обслужено: %d (%.1f%%) | Отказов: %d (%.1f%%)%n",
                     arrivals, completed, completionRate * 100, rejected, rejectionRate * 100);
         }
@@ -152,12 +310,12 @@ public class Statistics {
         return denominator > 0 ? (double) numerator / denominator : 0;
     }
 
-    private double getAverage(List<Double> times) {
-        return times.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+    private double getAverage(TimeAccumulator times) {
+        return times.average();
     }
 
-    private double getMax(List<Double> times) {
-        return times.stream().mapToDouble(Double::doubleValue).max().orElse(0);
+    private double getMax(TimeAccumulator times) {
+        return times.max();
     }
 
     private double getSystemLoad() {
@@ -179,4 +337,23 @@ public class Statistics {
     public int getTotalArrivals() { return totalArrivals; }
     public int getTotalCompleted() { return totalCompleted; }
     public int getTotalRejected() { return totalRejected; }
+    public int getTotalEvicted() { return totalEvicted; }
+    public int getTotalTransferred() { return totalTransferred; }
+    public int getGateFailures() { return gateFailures; }
+    public int getInterruptedServices() { return interruptedServices; }
+    public double getGateDowntime() { return gateDowntime; }
+    public double getAverageWaitingTime() { return getAverage(waitingTimes); }
+    public double getMaxWaitingTime() { return getMax(waitingTimes); }
+    public double getAverageServiceTime() { return getAverage(serviceTimes); }
+    public double getAverageSystemTime() { return getAverage(systemTimes); }
+    public double getMaxSystemTime() { return getMax(systemTimes); }
+    public int getClassCount() { return classNames.length; }
+    public String getClassName(int cargoClass) { return classNames[cargoClass]; }
+    public int getArrivals(int cargoClass) { return arrivalsByClass[cargoClass]; }
+    public int getCompleted(int cargoClass) { return completedByClass[cargoClass]; }
+    public int getRejected(int cargoClass) { return rejectedByClass[cargoClass]; }
+    public int getEvicted(int cargoClass) { return evictedByClass[cargoClass]; }
+    public int getArrivals(CargoType type) { return arrivalsByType.get(type); }
+    public int getCompleted(CargoType type) { return completedByType.get(type); }
+    public int getRejected(CargoType type) { return rejectedByType.get(type); }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.warehouse.utils;
+
+import com.warehouse.enums.EventType;
+
+import java.util.Locale;
+
+/**
+ * Команда пошагового режима:
+ *   ENTER        - следующий шаг
+ *   t 900        - перемотка до времени 900
+ *   n 500        - перемотка на 500 событий
+ *   full 1       - перемотка до заполнения буфера P1
+ *   c            - перемотка до точки останова или конца
+ *   b rej | b ev - включить/выключить остановку на отказе / выбивании из буфера
+ *   q            - завершить, ? - справка
+ */
+public class StepCommand {
+    public enum Kind { STEP, RUN_TO_TIME, RUN_EVENTS, RUN_UNTIL_FULL, CONTINUE, TOGGLE_BREAK, HELP, QUIT }
+
+    private final Kind kind;
+    private final double value;
+    private final EventType breakType;
+
+    private StepCommand(Kind kind, double value, EventType breakType) {
+        this.kind = kind;
+        this.value = value;
+        this.breakType = breakType;
+    }
+
+    public static StepCommand parse(String line) {
+        String[] parts = line.trim().toLowerCase(Locale.ROOT).split("\\s+");
+        switch (parts[0]) {
+            case "": return new StepCommand(Kind.STEP, 0, null);
+            case "q": return new StepCommand(Kind.QUIT, 0, null);
+            case "?": return new StepCommand(Kind.HELP, 0, null);
+            case "c": return new StepCommand(Kind.CONTINUE, 0, null);
+            case "t": return new StepCommand(Kind.RUN_TO_TIME, argument(parts), null);
+            case "n": return new StepCommand(Kind.RUN_EVENTS, positive(parts), null);
+            case "full": return new StepCommand(Kind.RUN_UNTIL_FULL, positive(parts), null);
+            case "b":
+                if (parts.length == 2 && parts[1].equals("rej")) {
+                    return new StepCommand(Kind.TOGGLE_BREAK, 0, EventType.REJECTION);
+                }
+                if (parts.length == 2 && parts[1].equals("ev")) {
+                    return new StepCommand(Kind.TOGGLE_BREAK, 0, EventType.BUFFER_EVICTION);
+                }
+                throw new IllegalArgumentException("Точка останова: b rej или b ev");
+            default:
+                throw new IllegalArgumentException("Неизвестная команда: " + line.trim());
+        }
+    }
+
+    private static double argument(String[] parts) {
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Команда " + parts[0] + " требует один числовой аргумент");
+        }
+        try {
+            return Double.parseDouble(parts[1]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Команда " + parts[0] + " требует число: " + parts[1]);
+        }
+    }
+
+    private static double positive(String[] parts) {
+        double value = argument(parts);
+        if (value < 1 || value != Math.floor(value)) {
+            throw new IllegalArgumentException("Команда " + parts[0] + " требует целое число больше нуля");
+        }
+        return value;
+    }
+
+    public static void printHelp() {
+        System.out.println("Команды: ENTER - шаг | t T - до времени T | n N - N событий | full P - до заполнения буфера P"
+                + " | c - до точки останова | b rej / b ev - останов на отказе / выбивании | q - выход");
+    }
+
+    public Kind getKind() { return kind; }
+    public double getValue() { return value; }
+    public EventType getBreakType() { return breakType; }
+}
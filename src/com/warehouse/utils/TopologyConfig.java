@@ -0,0 +1,279 @@
+package com.warehouse.utils;
+
+import com.warehouse.enums.CargoType;
+import com.warehouse.enums.InterruptionPolicy;
+
+import java.util.Properties;
+
+/**
+ * Топология хаба: классы грузов, буферы, группы ворот и источники.
+ * Маршрутизация задается таблицами индексов: класс -> буфер, класс -> группа,
+ * группа -> буфер. Загружается из SimulationConfig по ключам вида
+ * cargo.N.*, buffer.N.*, group.N.*, source.N.*.
+ *
+ * Надежность ворот: group.N.mtbf / group.N.mttr - средние наработка на отказ и время ремонта
+ * одних ворот (экспоненциальные, мин; 0 - ворота не ломаются), group.N.interruption - RESUME
+ * или RESTART для прерванного обслуживания. Плановое обслуживание: group.N.maintenance
+ * (для всех ворот группы) или device.K.maintenance (ворота с номером K) - окна "начало-конец"
+ * через запятую в минутах от начала периода maintenance.period (по умолчанию сутки).
+ */
+public class TopologyConfig {
+    private final String[] classNames;
+    private final CargoType[] classTypes;
+    private final double[] classDeadlines;
+    private final int[] classToBuffer;
+    private final int[] classToGroup;
+
+    private final int[] bufferCapacities;
+    private final String[] bufferNames;
+
+    private final int[] groupDeviceCounts;
+    private final int[] groupDeviceCapacities;
+    private final double[] groupMinService;
+    private final double[] groupMaxService;
+    private final int[] groupToBuffer;
+    private final String[] groupNames;
+    private final double[] groupMtbf;
+    private final double[] groupMttr;
+    private final InterruptionPolicy[] groupInterruption;
+    private final double[][] deviceMaintenance; // по сквозному номеру ворот - 1; пустой массив - без окон
+    private double maintenancePeriod;
+
+    private final double[] sourceLambdas;
+    private final double[][] sourceClassMix;
+
+    private TopologyConfig(int classes, int buffers, int groups, int sources, int totalDevices) {
+        classNames = new String[classes];
+        classTypes = new CargoType[classes];
+        classDeadlines = new double[classes];
+        classToBuffer = new int[classes];
+        classToGroup = new int[classes];
+        bufferCapacities = new int[buffers];
+        bufferNames = new String[buffers];
+        groupDeviceCounts = new int[groups];
+        groupDeviceCapacities = new int[groups];
+        groupMinService = new double[groups];
+        groupMaxService = new double[groups];
+        groupToBuffer = new int[groups];
+        groupNames = new String[groups];
+        groupMtbf = new double[groups];
+        groupMttr = new double[groups];
+        groupInterruption = new InterruptionPolicy[groups];
+        deviceMaintenance = new double[totalDevices][];
+        sourceLambdas = new double[sources];
+        sourceClassMix = new double[sources][];
+    }
+
+    public static TopologyConfig defaults() {
+        return load(new SimulationConfig(new Properties()));
+    }
+
+    public static TopologyConfig load(SimulationConfig config) {
+        int classes = requirePositive(config, "cargo.classes");
+        int buffers = requirePositive(config, "buffers");
+        int groups = requirePositive(config, "groups");
+        int sources = requirePositive(config, "sources");
+        int totalDevices = 0;
+        for (int i = 0; i < groups; i++) {
+            totalDevices += requirePositive(config, "group." + i + ".devices");
+        }
+        TopologyConfig topology = new TopologyConfig(classes, buffers, groups, sources, totalDevices);
+
+        for (int i = 0; i < classes; i++) {
+            String prefix = "cargo." + i + ".";
+            CargoType type = parseCargoType(config.getString(prefix + "type", "REGULAR"), prefix + "type");
+            topology.classTypes[i] = type;
+            topology.classNames[i] = config.getString(prefix + "name", type.getDescription());
+            topology.classDeadlines[i] = config.getDouble(prefix + "deadline", type.getDeadlineMinutes());
+            topology.classToBuffer[i] = requireIndex(config, prefix + "buffer", i, buffers);
+            topology.classToGroup[i] = requireIndex(config, prefix + "group", i, groups);
+        }
+
+        for (int i = 0; i < buffers; i++) {
+            topology.bufferCapacities[i] = requirePositive(config, "buffer." + i + ".capacity");
+        }
+
+        for (int i = 0; i < groups; i++) {
+            String prefix = "group." + i + ".";
+            topology.groupDeviceCounts[i] = requirePositive(config, prefix + "devices");
+            topology.groupDeviceCapacities[i] = config.getInt(prefix + "capacity", 1);
+            topology.groupMinService[i] = config.getDouble(prefix + "minServiceTime", Double.NaN);
+            topology.groupMaxService[i] = config.getDouble(prefix + "maxServiceTime", Double.NaN);
+            topology.groupToBuffer[i] = requireIndex(config, prefix + "buffer", i, buffers);
+            if (!(topology.groupMinService[i] >= 0 && topology.groupMaxService[i] >= topology.groupMinService[i])) {
+                throw new IllegalArgumentException("Некорректное время обслуживания группы " + i);
+            }
+            if (topology.groupDeviceCapacities[i] <= 0) {
+                throw new IllegalArgumentException("Параметр " + prefix + "capacity должен быть положительным");
+            }
+        }
+        // Класс должен ждать в том буфере, из которого выбирает его группа, иначе он простоит до вытеснения
+        for (int i = 0; i < classes; i++) {
+            int group = topology.classToGroup[i];
+            if (topology.groupToBuffer[group] != topology.classToBuffer[i]) {
+                throw new IllegalArgumentException("Класс груза " + i + " направлен в буфер " + topology.classToBuffer[i]
+                        + ", а его группа " + group + " выбирает из буфера " + topology.groupToBuffer[group]);
+            }
+        }
+
+        topology.maintenancePeriod = config.getDouble("maintenance.period", 24 * 60);
+        if (!(topology.maintenancePeriod > 0)) {
+            throw new IllegalArgumentException("Параметр maintenance.period должен быть положительным");
+        }
+        int deviceIndex = 0;
+        for (int i = 0; i < groups; i++) {
+            String prefix = "group." + i + ".";
+            topology.groupMtbf[i] = config.getDouble(prefix + "mtbf", 0);
+            topology.groupMttr[i] = config.getDouble(prefix + "mttr", 0);
+            if (topology.groupMtbf[i] < 0 || (topology.groupMtbf[i] > 0 && !(topology.groupMttr[i] > 0))) {
+                throw new IllegalArgumentException("Для " + prefix + "mtbf нужен положительный " + prefix + "mttr");
+            }
+            topology.groupInterruption[i] = parseInterruption(config.getString(prefix + "interruption", "RESUME"),
+                    prefix + "interruption");
+            String groupWindows = config.getString(prefix + "maintenance", "");
+            for (int d = 0; d < topology.groupDeviceCounts[i]; d++, deviceIndex++) {
+                String key = "device." + (deviceIndex + 1) + ".maintenance";
+                topology.deviceMaintenance[deviceIndex] = parseWindows(config.getString(key, groupWindows),
+                        topology.maintenancePeriod, key);
+            }
+        }
+
+        // Названия буферов и групп по умолчанию берутся от первого класса, который в них направлен
+        for (int i = 0; i < buffers; i++) {
+            topology.bufferNames[i] = config.getString("buffer." + i + ".name", topology.defaultName(topology.classToBuffer, i));
+        }
+        for (int i = 0; i < groups; i++) {
+            topology.groupNames[i] = config.getString("group." + i + ".name", topology.defaultName(topology.classToGroup, i));
+        }
+
+        double[] defaultMix = config.getDoubleList("source.mix", null);
+        for (int i = 0; i < sources; i++) {
+            String prefix = "source." + i + ".";
+            double lambda = config.getDouble(prefix + "lambda", Double.NaN);
+            if (!(lambda > 0)) {
+                throw new IllegalArgumentException("Параметр " + prefix + "lambda должен быть положительным");
+            }
+            topology.sourceLambdas[i] = lambda;
+            double[] mix = config.getDoubleList(prefix + "mix", defaultMix);
+            if (mix == null) {
+                mix = SimulationConfig.defaultClassMix(classes);
+            }
+            topology.sourceClassMix[i] = normalizeMix(mix, classes, prefix + "mix");
+        }
+        return topology;
+    }
+
+    private String defaultName(int[] routing, int target) {
+        for (int c = 0; c < routing.length; c++) {
+            if (routing[c] == target) {
+                return classTypes[c] == CargoType.PERISHABLE ? "скоропортящиеся" : "обычные";
+            }
+        }
+        return "без назначения";
+    }
+
+    private static int requirePositive(SimulationConfig config, String key) {
+        int value = config.getInt(key, 0);
+        if (value <= 0) {
+            throw new IllegalArgumentException("Параметр " + key + " должен быть положительным");
+        }
+        return value;
+    }
+
+    private static int requireIndex(SimulationConfig config, String key, int defaultValue, int size) {
+        int value = config.getInt(key, Math.min(defaultValue, size - 1));
+        if (value < 0 || value >= size) {
+            throw new IllegalArgumentException("Параметр " + key + " вне диапазона 0.." + (size - 1));
+        }
+        return value;
+    }
+
+    private static CargoType parseCargoType(String value, String key) {
+        try {
+            return CargoType.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный тип груза в " + key + ": " + value);
+        }
+    }
+
+    private static InterruptionPolicy parseInterruption(String value, String key) {
+        try {
+            return InterruptionPolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестная политика прерывания в " + key + ": " + value);
+        }
+    }
+
+    // "480-510,720-780" -> {480, 510, 720, 780}
+    private static double[] parseWindows(String value, double period, String key) {
+        if (value.isBlank()) {
+            return new double[0];
+        }
+        String[] parts = value.split(",");
+        double[] windows = new double[parts.length * 2];
+        for (int i = 0; i < parts.length; i++) {
+            String[] bounds = parts[i].trim().split("-");
+            try {
+                windows[2 * i] = Double.parseDouble(bounds[0].trim());
+                windows[2 * i + 1] = bounds.length == 2 ? Double.parseDouble(bounds[1].trim()) : Double.NaN;
+            } catch (NumberFormatException e) {
+                windows[2 * i] = Double.NaN;
+            }
+            if (!(windows[2 * i] >= 0 && windows[2 * i + 1] > windows[2 * i] && windows[2 * i + 1] <= period)) {
+                throw new IllegalArgumentException("Некорректное окно обслуживания в " + key + ": " + parts[i].trim());
+            }
+        }
+        return windows;
+    }
+
+    private static double[] normalizeMix(double[] mix, int classes, String key) {
+        if (mix.length != classes) {
+            throw new IllegalArgumentException("Параметр " + key + " должен содержать " + classes + " долей");
+        }
+        double sum = 0;
+        for (double share : mix) {
+            if (share < 0) {
+                throw new IllegalArgumentException("Отрицательная доля в " + key);
+            }
+            sum += share;
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("Сумма долей в " + key + " должна быть положительной");
+        }
+        double[] normalized = new double[classes];
+        for (int i = 0; i < classes; i++) {
+            normalized[i] = mix[i] / sum;
+        }
+        return normalized;
+    }
+
+    public int getClassCount() { return classNames.length; }
+    public int getBufferCount() { return bufferCapacities.length; }
+    public int getGroupCount() { return groupDeviceCounts.length; }
+    public int getSourceCount() { return sourceLambdas.length; }
+
+    public String getClassName(int cargoClass) { return classNames[cargoClass]; }
+    public CargoType getClassType(int cargoClass) { return classTypes[cargoClass]; }
+    public double getClassDeadline(int cargoClass) { return classDeadlines[cargoClass]; }
+    public int getClassBuffer(int cargoClass) { return classToBuffer[cargoClass]; }
+    public int getClassGroup(int cargoClass) { return classToGroup[cargoClass]; }
+
+    public int getBufferCapacity(int buffer) { return bufferCapacities[buffer]; }
+    public String getBufferName(int buffer) { return bufferNames[buffer]; }
+
+    public int getGroupDeviceCount(int group) { return groupDeviceCounts[group]; }
+    public int getGroupDeviceCapacity(int group) { return groupDeviceCapacities[group]; }
+    public double getGroupMinService(int group) { return groupMinService[group]; }
+    public double getGroupMaxService(int group) { return groupMaxService[group]; }
+    public int getGroupBuffer(int group) { return groupToBuffer[group]; }
+    public String getGroupName(int group) { return groupNames[group]; }
+    public double getGroupMtbf(int group) { return groupMtbf[group]; }
+    public double getGroupMttr(int group) { return groupMttr[group]; }
+    public InterruptionPolicy getGroupInterruption(int group) { return groupInterruption[group]; }
+    public double[] getDeviceMaintenance(int deviceId) { return deviceMaintenance[deviceId - 1].clone(); }
+    public double getMaintenancePeriod() { return maintenancePeriod; }
+
+    public double getSourceLambda(int source) { return sourceLambdas[source]; }
+    public double getSourceClassShare(int source, int cargoClass) { return sourceClassMix[source][cargoClass]; }
+    public double[] getSourceClassMix(int source) { return sourceClassMix[source].clone(); }
+}
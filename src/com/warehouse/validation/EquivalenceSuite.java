@@ -0,0 +1,181 @@
+package com.warehouse.validation;
+
+import com.warehouse.Simulation;
+import com.warehouse.enums.VariateMode;
+import com.warehouse.model.Event;
+import com.warehouse.parallel.LanePartition;
+import com.warehouse.parallel.ParallelLaneRunner;
+import com.warehouse.utils.EngineMetrics;
+import com.warehouse.utils.RunResult;
+import com.warehouse.utils.Scenario;
+import com.warehouse.utils.Statistics;
+import com.warehouse.utils.TopologyConfig;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+
+/**
+ * Точная эквивалентность вариантов движка: при одном зерне и режиме случайных величин каждый
+ * вариант обязан дать ту же последовательность изменений состояния (EventFingerprint) и те же
+ * итоги, что эталонный Simulation.run. Варианты - повторный прогон (скрытое общее состояние),
+ * пошаговый stepSilent, продвижение advanceTo неровными отрезками (двойник, темп реального
+ * времени), цикл с метриками движка, прогон по дорожкам в потоках и круг записи через кэш итогов.
+ */
+public class EquivalenceSuite {
+    // Шаг advanceTo, не кратный окнам и периодам сценариев
+    private static final double CHUNK = 37.3;
+    // Прогон по дорожкам складывает средние в другом порядке: допуск только на округление
+    private static final double MERGE_TOLERANCE = 1e-9;
+
+    private final ValidationReport report;
+
+    public EquivalenceSuite(ValidationReport report) {
+        this.report = report;
+    }
+
+    public void check(Scenario scenario, long seed, VariateMode mode) {
+        TopologyConfig topology = scenario.getTopology();
+        LanePartition partition = new LanePartition(topology);
+        double horizon = scenario.getDuration();
+        String prefix = scenario.getName() + " seed=" + seed + " " + mode.name().toLowerCase(Locale.ROOT) + ": ";
+
+        EventFingerprint reference = new EventFingerprint(partition);
+        Simulation simulation = new Simulation(topology, seed, mode);
+        simulation.getDispatcher().setStateListener(reference);
+        simulation.run(horizon);
+        RunResult expected = result(simulation.getStatistics(), seed, mode, horizon, topology);
+
+        EventFingerprint repeated = new EventFingerprint(partition);
+        simulation = new Simulation(topology, seed, mode);
+        simulation.getDispatcher().setStateListener(repeated);
+        simulation.run(horizon);
+        compare(prefix + "повтор", reference, repeated, expected,
+                result(simulation.getStatistics(), seed, mode, horizon, topology), 0);
+
+        EventFingerprint stepped = new EventFingerprint(partition);
+        simulation = new Simulation(topology, seed, mode);
+        simulation.getDispatcher().setStateListener(stepped);
+        simulation.start();
+        Event event;
+        do {
+            event = simulation.stepSilent(horizon);
+        } while (event != null);
+        simulation.advanceTo(horizon);
+        compare(prefix + "stepSilent", reference, stepped, expected,
+                result(simulation.getStatistics(), seed, mode, horizon, topology), 0);
+
+        EventFingerprint chunked = new EventFingerprint(partition);
+        simulation = new Simulation(topology, seed, mode);
+        simulation.getDispatcher().setStateListener(chunked);
+        simulation.start();
+        for (double t = CHUNK; t < horizon; t += CHUNK) {
+            simulation.advanceTo(t);
+        }
+        simulation.advanceTo(horizon);
+        compare(prefix + "advanceTo по отрезкам", reference, chunked, expected,
+                result(simulation.getStatistics(), seed, mode, horizon, topology), 0);
+
+        EventFingerprint instrumented = new EventFingerprint(partition);
+        simulation = new Simulation(topology, seed, mode);
+        simulation.getDispatcher().setStateListener(instrumented);
+        simulation.setMetrics(new EngineMetrics());
+        simulation.run(horizon);
+        compare(prefix + "с метриками движка", reference, instrumented, expected,
+                result(simulation.getStatistics(), seed, mode, horizon, topology), 0);
+
+        EventFingerprint parallel = new EventFingerprint(partition);
+        ParallelLaneRunner lanes = new ParallelLaneRunner(topology, seed, scenario.getLaneWindow(), mode);
+        lanes.setStateListener(parallel);
+        Statistics laneStatistics = lanes.run(horizon);
+        compare(prefix + "по дорожкам (" + partition.getLaneCount() + ")", reference, parallel, expected,
+                result(laneStatistics, seed, mode, horizon, topology), MERGE_TOLERANCE);
+
+        RunResult restored = roundTrip(expected);
+        String difference = difference(expected, restored, 0);
+        report.record(prefix + "запись кэша", difference == null,
+                difference == null ? "итоги совпадают после writeTo/readFrom" : difference);
+    }
+
+    private void compare(String name, EventFingerprint reference, EventFingerprint variant,
+                         RunResult expected, RunResult actual, double tolerance) {
+        int lane = reference.firstMismatch(variant);
+        if (lane >= 0) {
+            report.record(name, false, String.format(Locale.ROOT,
+                    "последовательность событий дорожки %d расходится (%d и %d событий)",
+                    lane, reference.getCount(lane), variant.getCount(lane)));
+            return;
+        }
+        String difference = difference(expected, actual, tolerance);
+        report.record(name, difference == null, difference == null
+                ? reference.getTotalCount() + " изменений состояния совпадают" : difference);
+    }
+
+    private static RunResult result(Statistics statistics, long seed, VariateMode mode, double horizon,
+                                    TopologyConfig topology) {
+        return new RunResult(seed, mode, horizon, 0, statistics, topology);
+    }
+
+    private static RunResult roundTrip(RunResult result) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                result.writeTo(out);
+            }
+            return RunResult.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Первое расхождение итогов (счетчики - точно, средние - с относительным допуском); null - совпадают
+    static String difference(RunResult a, RunResult b, double tolerance) {
+        String counts = firstDifferent(
+                new String[] {"arrivals", "completed", "rejected", "evicted", "transferred", "gateFailures",
+                        "perishableArrivals", "perishableRejected", "perishableEvicted"},
+                new long[] {a.getArrivals(), a.getCompleted(), a.getRejected(), a.getEvicted(), a.getTransferred(),
+                        a.getGateFailures(), a.getPerishableArrivals(), a.getPerishableRejected(),
+                        a.getPerishableEvicted()},
+                new long[] {b.getArrivals(), b.getCompleted(), b.getRejected(), b.getEvicted(), b.getTransferred(),
+                        b.getGateFailures(), b.getPerishableArrivals(), b.getPerishableRejected(),
+                        b.getPerishableEvicted()});
+        if (counts != null) return counts;
+        for (int c = 0; c < a.getClassCount(); c++) {
+            counts = firstDifferent(
+                    new String[] {"class." + c + ".arrivals", "class." + c + ".completed",
+                            "class." + c + ".rejected", "class." + c + ".evicted"},
+                    new long[] {a.getClassArrivals(c), a.getClassCompleted(c), a.getClassRejected(c),
+                            a.getClassEvicted(c)},
+                    new long[] {b.getClassArrivals(c), b.getClassCompleted(c), b.getClassRejected(c),
+                            b.getClassEvicted(c)});
+            if (counts != null) return counts;
+        }
+        String[] names = {"gateDowntime", "averageWaitingTime", "averageServiceTime", "averageSystemTime",
+                "maxSystemTime"};
+        double[] left = {a.getGateDowntime(), a.getAverageWaitingTime(), a.getAverageServiceTime(),
+                a.getAverageSystemTime(), a.getMaxSystemTime()};
+        double[] right = {b.getGateDowntime(), b.getAverageWaitingTime(), b.getAverageServiceTime(),
+                b.getAverageSystemTime(), b.getMaxSystemTime()};
+        for (int i = 0; i < names.length; i++) {
+            double scale = Math.max(Math.abs(left[i]), Math.abs(right[i]));
+            boolean same = Double.compare(left[i], right[i]) == 0 || Math.abs(left[i] - right[i]) <= tolerance * scale;
+            if (!same) {
+                return names[i] + ": " + left[i] + " и " + right[i];
+            }
+        }
+        return null;
+    }
+
+    private static String firstDifferent(String[] names, long[] left, long[] right) {
+        for (int i = 0; i < names.length; i++) {
+            if (left[i] != right[i]) {
+                return names[i] + ": " + left[i] + " и " + right[i];
+            }
+        }
+        return null;
+    }
+}
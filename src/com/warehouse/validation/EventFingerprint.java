@@ -0,0 +1,68 @@
+package com.warehouse.validation;
+
+import com.warehouse.enums.EventType;
+import com.warehouse.model.Request;
+import com.warehouse.model.StateChangeListener;
+import com.warehouse.parallel.LanePartition;
+
+/**
+ * Отпечаток последовательности изменений состояния: хэш, зависящий от порядка событий,
+ * отдельно по каждой дорожке (LanePartition). Между дорожками порядок одновременных событий
+ * не определен, поэтому сравниваются последовательности внутри дорожек - так одинаково
+ * снимаются и последовательный прогон, и прогон по дорожкам в нескольких потоках.
+ * Заявка опознается по источнику и времени прибытия, а не по номеру.
+ *
+ * Каждая дорожка пишет только в свой слот; читать результат - после завершения прогона.
+ */
+public class EventFingerprint implements StateChangeListener {
+    private final LanePartition partition;
+    private final long[] hashes;
+    private final long[] counts;
+
+    public EventFingerprint(LanePartition partition) {
+        this.partition = partition;
+        this.hashes = new long[partition.getLaneCount()];
+        this.counts = new long[partition.getLaneCount()];
+    }
+
+    @Override
+    public void onStateChange(EventType type, double time, Request request, int location) {
+        int lane = partition.getLane(request.getCargoClass());
+        long h = hashes[lane];
+        h = mix(h, type.ordinal());
+        h = mix(h, Double.doubleToLongBits(time));
+        h = mix(h, request.getSourceId());
+        h = mix(h, Double.doubleToLongBits(request.getArrivalTime()));
+        h = mix(h, location);
+        hashes[lane] = h;
+        counts[lane]++;
+    }
+
+    // Шаг хэша с перемешиванием splitmix64
+    private static long mix(long h, long value) {
+        long z = h * 31 + value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Первая дорожка, где отпечатки расходятся; -1 - совпадают
+    public int firstMismatch(EventFingerprint other) {
+        for (int lane = 0; lane < hashes.length; lane++) {
+            if (hashes[lane] != other.hashes[lane] || counts[lane] != other.counts[lane]) {
+                return lane;
+            }
+        }
+        return -1;
+    }
+
+    public long getCount(int lane) { return counts[lane]; }
+
+    public long getTotalCount() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+}
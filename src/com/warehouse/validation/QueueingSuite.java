@@ -0,0 +1,106 @@
+package com.warehouse.validation;
+
+import com.warehouse.Simulation;
+import com.warehouse.enums.VariateMode;
+import com.warehouse.utils.SampleStats;
+import com.warehouse.utils.Scenario;
+import com.warehouse.utils.SimulationConfig;
+import com.warehouse.utils.Statistics;
+
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Статистическая сверка модели с точными формулами теории очередей. Время разгрузки в модели
+ * равномерное, поэтому формулы M/M/c/K к ней не применимы; точные результаты есть для
+ * одиночных ворот с буфером, который не переполняется (M/G/1, Поллачек-Хинчин):
+ * Wq = lambda E[S^2] / (2 (1 - rho)), при LIFO без прерывания среднее ожидание то же, что при FIFO.
+ * Дополнительно проверяются число прибытий суммы пуассоновских источников (lambda T)
+ * и среднее время разгрузки. Каждая сверка повторяется для всех режимов случайных величин.
+ *
+ * Критерий: |среднее по репликациям - теория| <= SIGMAS стандартных ошибок плюс допуск на
+ * смещение от пустого начального состояния. Зерна фиксированы, так что результат воспроизводим.
+ */
+public class QueueingSuite {
+    private static final double SIGMAS = 4;
+    private static final double WARM_UP_ALLOWANCE = 0.02;
+    private static final double LAMBDA_A = 0.04;
+    private static final double LAMBDA_B = 0.06;
+
+    private final ValidationReport report;
+    private final int replications;
+    private final double horizon;
+
+    public QueueingSuite(ValidationReport report, int replications, double horizon) {
+        if (replications < 2) {
+            throw new IllegalArgumentException("Для статистической проверки нужно не меньше 2 репликаций");
+        }
+        this.report = report;
+        this.replications = replications;
+        this.horizon = horizon;
+    }
+
+    public void check(VariateMode mode) {
+        checkSingleGate("M/U/1", 4, 10, mode);
+        checkSingleGate("M/D/1", 7, 7, mode);
+    }
+
+    private void checkSingleGate(String model, double minService, double maxService, VariateMode mode) {
+        Scenario scenario = singleGate(model, minService, maxService);
+        double lambda = LAMBDA_A + LAMBDA_B;
+        double meanService = (minService + maxService) / 2;
+        double secondMoment = (minService * minService + minService * maxService + maxService * maxService) / 3;
+        double rho = lambda * meanService;
+        double waiting = lambda * secondMoment / (2 * (1 - rho));
+
+        SampleStats arrivals = new SampleStats();
+        SampleStats service = new SampleStats();
+        SampleStats wait = new SampleStats();
+        SampleStats losses = new SampleStats();
+        for (int r = 0; r < replications; r++) {
+            Simulation simulation = new Simulation(scenario.getTopology(), 1000L + r, mode);
+            simulation.run(horizon);
+            Statistics statistics = simulation.getStatistics();
+            arrivals.add(statistics.getTotalArrivals());
+            service.add(statistics.getAverageServiceTime());
+            wait.add(statistics.getAverageWaitingTime());
+            losses.add(statistics.getTotalRejected() + statistics.getTotalEvicted());
+        }
+
+        String prefix = model + " " + mode.name().toLowerCase(Locale.ROOT) + ": ";
+        agree(prefix + "прибытия = lambda T", arrivals, lambda * horizon, 0);
+        agree(prefix + "среднее время разгрузки", service, meanService, 1e-9);
+        agree(prefix + "ожидание (Поллачек-Хинчин)", wait, waiting, WARM_UP_ALLOWANCE);
+        report.record(prefix + "буфер не переполняется", losses.getMax() == 0,
+                "потерь за репликацию не больше " + (long) losses.getMax());
+    }
+
+    private void agree(String name, SampleStats sample, double expected, double relativeAllowance) {
+        double bound = SIGMAS * sample.getStandardError() + relativeAllowance * Math.abs(expected);
+        double deviation = sample.getMean() - expected;
+        report.record(name, Math.abs(deviation) <= bound, String.format(Locale.ROOT,
+                "%.4f, теория %.4f, отклонение %+.4f, допуск %.4f", sample.getMean(), expected, deviation, bound));
+    }
+
+    // Один класс от двух источников, одни ворота, буфер с запасом и дедлайн, который не наступает
+    private static Scenario singleGate(String model, double minService, double maxService) {
+        Properties properties = new Properties();
+        properties.setProperty("cargo.classes", "1");
+        properties.setProperty("cargo.0.type", "REGULAR");
+        properties.setProperty("cargo.0.deadline", "1e9");
+        properties.setProperty("cargo.0.buffer", "0");
+        properties.setProperty("cargo.0.group", "0");
+        properties.setProperty("buffers", "1");
+        properties.setProperty("buffer.0.capacity", "500");
+        properties.setProperty("groups", "1");
+        properties.setProperty("group.0.devices", "1");
+        properties.setProperty("group.0.capacity", "1");
+        properties.setProperty("group.0.minServiceTime", Double.toString(minService));
+        properties.setProperty("group.0.maxServiceTime", Double.toString(maxService));
+        properties.setProperty("group.0.buffer", "0");
+        properties.setProperty("sources", "2");
+        properties.setProperty("source.0.lambda", Double.toString(LAMBDA_A));
+        properties.setProperty("source.1.lambda", Double.toString(LAMBDA_B));
+        return new Scenario(model, new SimulationConfig(properties));
+    }
+}
@@ -0,0 +1,49 @@
+package com.warehouse.validation;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Итог проверок: имя, результат и пояснение (что сравнивалось или в чем расхождение).
+ */
+public class ValidationReport {
+    private final List<String> names = new ArrayList<>();
+    private final List<Boolean> passed = new ArrayList<>();
+    private final List<String> details = new ArrayList<>();
+    private final PrintStream progress;
+
+    // progress - печать каждой проверки по мере выполнения (null - молча)
+    public ValidationReport(PrintStream progress) {
+        this.progress = progress;
+    }
+
+    public synchronized void record(String name, boolean ok, String detail) {
+        names.add(name);
+        passed.add(ok);
+        details.add(detail);
+        if (progress != null) {
+            progress.printf("%-4s %-48s %s%n", ok ? "OK" : "FAIL", name, detail);
+        }
+    }
+
+    public synchronized int getCheckCount() { return names.size(); }
+
+    public synchronized int getFailureCount() {
+        int failures = 0;
+        for (boolean ok : passed) {
+            if (!ok) failures++;
+        }
+        return failures;
+    }
+
+    public synchronized List<String> getFailures() {
+        List<String> failures = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (!passed.get(i)) {
+                failures.add(names.get(i) + ": " + details.get(i));
+            }
+        }
+        return failures;
+    }
+}